@@ -0,0 +1,23 @@
+package optimization;
+
+/**
+ * This interface details required methods for a cost function that can evaluate many points
+ * per call. The parameter values of the points are passed as primitive columns so the
+ * implementation can loop over the points without unboxing. Optimizers that evaluate a whole
+ * generation at once use it in place of <b>evaluateCostFunction</b>, which must return the
+ * same outputs.
+ * @author Matt
+ *
+ */
+public interface BatchCostFunction_IF extends CostFunction_IF {
+	/**
+	 * Evaluates the first numberOfPoints points
+	 * @param parameters parameters describing the type, bounds and categorical encoding of
+	 * every column (their current values are not used)
+	 * @param values values[i_param][i_point] is the value of parameter i_param at point i_point.
+	 * Categorical and Integer values are given as their encoded or integer value.
+	 * @param numberOfPoints
+	 * @return the output of every point
+	 */
+	public CostFunctionOutput_IF[] evaluateBatch(Parameter[] parameters, double[][] values, int numberOfPoints);
+}
@@ -2,44 +2,48 @@ package optimization;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 /**
  * This class stores a cost function output as well as the set of parameters that produced the output.
+ * The parameter values are held in a <b>SolutionSnapshot</b>; copies of the parameters are only
+ * created when <b>getParameters()</b> is called.
  * @author Matt
  *
  */
 public class BestDiscoveredSolution implements Cloneable{
-	private CostFunctionOutput_IF costFunctionReturnValue;
-	private Parameter[] parameters;
-	
+	private final SolutionSnapshot snapshot;
+	private volatile Parameter[] parameters;
+
 	public BestDiscoveredSolution(Parameter[] parameters, CostFunctionOutput_IF costFunctionReturnValue){
-		this.parameters = OptUtils.cloneParameterArray(parameters);
-		this.costFunctionReturnValue = costFunctionReturnValue;
+		this.snapshot = new SolutionSnapshot(parameters, costFunctionReturnValue);
+	}
+	public BestDiscoveredSolution(SolutionSnapshot snapshot){
+		this.snapshot = snapshot;
 	}
 	public List<Number> getParameterValues(){
-		return Stream.of(parameters).map((param) -> param.getCurrentValue()).collect(Collectors.toList());
+		return snapshot.getParameterValues();
 	}
 	public List<Parameter> getParameters(){
+		Parameter[] parameters = this.parameters;
+		if (parameters == null){
+			parameters = snapshot.toParameters();
+			this.parameters = parameters;
+		}
 		return Arrays.asList(parameters);
 	}
 	public CostFunctionOutput_IF getCostFunctionOutput(){
-		return this.costFunctionReturnValue;
+		return snapshot.getCostFunctionOutput();
+	}
+	/**
+	 * Returns the parameter values and output without copies of the parameters
+	 * @return
+	 */
+	public SolutionSnapshot getSnapshot(){
+		return snapshot;
 	}
 	public void printSolution(){
-		String solutionString = "Parameters: ";
-		solutionString += Stream.of(parameters).map((param) -> {
-			switch(param.paramType){
-			case CATEGORICAL:
-				return param.decode(param.getCurrentValue().intValue());
-			default:
-				return String.valueOf(param.getCurrentValue());
-			}
-		}).collect(Collectors.joining(","));
-		solutionString += " " + this.costFunctionReturnValue.getOutputAsString();
-		System.out.println(solutionString);
-	}
-	
+		System.out.println(snapshot.toString());
+	}
+
 	@Override
 	public BestDiscoveredSolution clone() throws CloneNotSupportedException{
 		BestDiscoveredSolution clonedSolution = (BestDiscoveredSolution)super.clone();
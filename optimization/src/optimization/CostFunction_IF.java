@@ -1,10 +1,10 @@
-package optimization;
-
-/**
- * This interface details required methods for a cost function.
- * @author Matt
- *
- */
-public interface CostFunction_IF {
-	public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters);
-}
+package optimization;
+
+/**
+ * This interface details required methods for a cost function.
+ * @author Matt
+ *
+ */
+public interface CostFunction_IF {
+	public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters);
+}
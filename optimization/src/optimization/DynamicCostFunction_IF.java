@@ -0,0 +1,17 @@
+package optimization;
+
+/**
+ * This interface details required methods for a cost function whose inputs change while an
+ * optimization is running (rates, prices or data are updated). The cost function signals a
+ * change by returning a new environment version, after which optimizers in a dynamic mode
+ * re-evaluate the solutions they have stored.
+ * @author Matt
+ *
+ */
+public interface DynamicCostFunction_IF extends CostFunction_IF {
+	/**
+	 * Returns a number that changes every time the environment of the cost function changes
+	 * @return
+	 */
+	public long getEnvironmentVersion();
+}
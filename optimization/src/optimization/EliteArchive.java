@@ -0,0 +1,257 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ * This class keeps the K best distinct feasible solutions offered to it, for example every
+ * evaluation of a run, so a run can return several good alternatives instead of one.
+ * </pre>
+ * <pre>
+ * The solutions are kept in preallocated primitive arrays: one row of parameter values per slot
+ * and a binary heap of slot indices with the worst solution at the root. An offered solution
+ * that is not better than the worst one of a full archive is rejected after one comparison and
+ * without copying anything. Solutions whose values all lie within the distinctness tolerance of
+ * a kept solution (as a fraction of the parameter range) count as the same solution and only
+ * the better of the two is kept. Snapshots are created only when the solutions are read.
+ * </pre>
+ * <pre>
+ * Solutions are ranked by the fitness of outputs implementing <b>ScalarCostFunctionOutput_IF</b>
+ * and by <b>isNewCostFunctionOutputBetter</b> otherwise.
+ * </pre>
+ * All methods are synchronized so the evaluations of parallel runs may share one archive.
+ * @author Matt
+ *
+ */
+public class EliteArchive {
+	private final Parameter[] definitions;
+	private final int capacity;
+	private final double[][] values;
+	private final double[] fitness;
+	private final CostFunctionOutput_IF[] outputs;
+	//heap[0] is the slot of the worst kept solution
+	private final int[] heap;
+	//position of every slot in the heap
+	private final int[] heapPosition;
+	private final double[] tolerances;
+	private int size = 0;
+
+	/**
+	 * @param capacity number of solutions kept
+	 * @param definitions parameters describing the values of the solutions (their current values are not used)
+	 */
+	public EliteArchive(int capacity, Parameter... definitions){
+		this.definitions = OptUtils.cloneParameterArray(definitions);
+		this.capacity = Math.max(1, capacity);
+		this.values = new double[this.capacity][definitions.length];
+		this.fitness = new double[this.capacity];
+		this.outputs = new CostFunctionOutput_IF[this.capacity];
+		this.heap = new int[this.capacity];
+		this.heapPosition = new int[this.capacity];
+		this.tolerances = new double[definitions.length];
+	}
+	/**
+	 * Sets the largest difference of every parameter value, as a fraction of the parameter range,
+	 * at which two solutions are considered the same. The default of 0 only merges solutions with
+	 * identical values.
+	 * @param distinctnessTolerance
+	 * @return
+	 */
+	public synchronized EliteArchive setDistinctnessTolerance(double distinctnessTolerance){
+		for (int i_param = 0;i_param < definitions.length;i_param++){
+			tolerances[i_param] = distinctnessTolerance*definitions[i_param].getRangeOfParameterValue();
+		}
+		return this;
+	}
+	/**
+	 * Offers the current values of the parameters with their output
+	 * @param parameters
+	 * @param output
+	 * @return true if the solution was kept
+	 */
+	public synchronized boolean offer(Parameter[] parameters, CostFunctionOutput_IF output){
+		if (!isCandidate(output)){
+			return false;
+		}
+		double[] candidate = new double[parameters.length];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			candidate[i_param] = parameters[i_param].getCurrentValueAsDouble();
+		}
+		return insert(candidate, output);
+	}
+	/**
+	 * Offers parameter values with their output
+	 * @param parameterValues
+	 * @param output
+	 * @return true if the solution was kept
+	 */
+	public synchronized boolean offer(double[] parameterValues, CostFunctionOutput_IF output){
+		return isCandidate(output) && insert(parameterValues, output);
+	}
+	/**
+	 * Returns the kept solutions, best first
+	 * @return
+	 */
+	public synchronized List<SolutionSnapshot> getSolutions(){
+		int[] order = new int[size];
+		boolean[] taken = new boolean[capacity];
+		for (int i_order = 0;i_order < size;i_order++){
+			int best = -1;
+			for (int i_heap = 0;i_heap < size;i_heap++){
+				int slot = heap[i_heap];
+				if (!taken[slot] && (best < 0 || isWorse(best, slot))){
+					best = slot;
+				}
+			}
+			taken[best] = true;
+			order[i_order] = best;
+		}
+		List<SolutionSnapshot> solutions = new ArrayList<SolutionSnapshot>(size);
+		for (int slot : order){
+			solutions.add(new SolutionSnapshot(definitions, values[slot], outputs[slot]));
+		}
+		return solutions;
+	}
+	/**
+	 * Returns the best kept solution or null
+	 * @return
+	 */
+	public synchronized SolutionSnapshot getBest(){
+		List<SolutionSnapshot> solutions = getSolutions();
+		return solutions.isEmpty() ? null : solutions.get(0);
+	}
+
+	public synchronized int size(){
+		return size;
+	}
+
+	public int getCapacity(){
+		return capacity;
+	}
+
+	public synchronized void clear(){
+		for (int i_slot = 0;i_slot < size;i_slot++){
+			outputs[heap[i_slot]] = null;
+		}
+		size = 0;
+	}
+	/**
+	 * Returns false for infeasible outputs and, when the archive is full, for outputs that are not
+	 * better than the worst kept solution
+	 */
+	private boolean isCandidate(CostFunctionOutput_IF output){
+		if (output == null || !output.isSolutionWithinRestraints()){
+			return false;
+		}
+		if (size < capacity){
+			return true;
+		}
+		int worst = heap[0];
+		if (output instanceof ScalarCostFunctionOutput_IF && outputs[worst] instanceof ScalarCostFunctionOutput_IF){
+			return ((ScalarCostFunctionOutput_IF)output).getFitness() < fitness[worst];
+		}
+		return outputs[worst].isNewCostFunctionOutputBetter(output);
+	}
+
+	private boolean insert(double[] candidate, CostFunctionOutput_IF output){
+		double candidateFitness = output instanceof ScalarCostFunctionOutput_IF
+				? ((ScalarCostFunctionOutput_IF)output).getFitness() : Double.NaN;
+		int duplicate = findDuplicate(candidate);
+		if (duplicate >= 0){
+			if (!isBetter(output, candidateFitness, duplicate)){
+				return false;
+			}
+			store(duplicate, candidate, output, candidateFitness);
+			//The solution improved, so it can only move away from the root
+			siftDown(heapPosition[duplicate]);
+			return true;
+		}
+		int slot;
+		if (size < capacity){
+			slot = size;
+			heap[size] = slot;
+			heapPosition[slot] = size;
+			size++;
+			store(slot, candidate, output, candidateFitness);
+			siftUp(size - 1);
+		} else {
+			slot = heap[0];
+			store(slot, candidate, output, candidateFitness);
+			siftDown(0);
+		}
+		return true;
+	}
+
+	private void store(int slot, double[] candidate, CostFunctionOutput_IF output, double candidateFitness){
+		System.arraycopy(candidate, 0, values[slot], 0, candidate.length);
+		outputs[slot] = output;
+		fitness[slot] = candidateFitness;
+	}
+
+	private int findDuplicate(double[] candidate){
+		for (int i_heap = 0;i_heap < size;i_heap++){
+			int slot = heap[i_heap];
+			double[] kept = values[slot];
+			boolean same = true;
+			for (int i_param = 0;i_param < candidate.length && same;i_param++){
+				same = Math.abs(kept[i_param] - candidate[i_param]) <= tolerances[i_param];
+			}
+			if (same){
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private boolean isBetter(CostFunctionOutput_IF output, double outputFitness, int slot){
+		if (!Double.isNaN(outputFitness) && !Double.isNaN(fitness[slot])){
+			return outputFitness < fitness[slot];
+		}
+		return outputs[slot].isNewCostFunctionOutputBetter(output);
+	}
+	/**
+	 * Returns true if the solution in the first slot is worse than the one in the second slot
+	 */
+	private boolean isWorse(int first, int second){
+		return isBetter(outputs[second], fitness[second], first);
+	}
+
+	private void siftUp(int position){
+		while (position > 0){
+			int parent = (position - 1)/2;
+			if (!isWorse(heap[position], heap[parent])){
+				return;
+			}
+			swap(position, parent);
+			position = parent;
+		}
+	}
+
+	private void siftDown(int position){
+		while (true){
+			int worst = position;
+			int left = 2*position + 1;
+			int right = left + 1;
+			if (left < size && isWorse(heap[left], heap[worst])){
+				worst = left;
+			}
+			if (right < size && isWorse(heap[right], heap[worst])){
+				worst = right;
+			}
+			if (worst == position){
+				return;
+			}
+			swap(position, worst);
+			position = worst;
+		}
+	}
+
+	private void swap(int first, int second){
+		int slot = heap[first];
+		heap[first] = heap[second];
+		heap[second] = slot;
+		heapPosition[heap[first]] = first;
+		heapPosition[heap[second]] = second;
+	}
+}
@@ -0,0 +1,12 @@
+package optimization;
+
+/**
+ * This interface details required methods for an object that is notified of every
+ * cost function evaluation made by an optimizer. Implementations are called on the
+ * thread that made the evaluation and should return quickly.
+ * @author Matt
+ *
+ */
+public interface EvaluationListener_IF {
+	public void evaluationCompleted(int generation, Parameter[] parameters, CostFunctionOutput_IF output);
+}
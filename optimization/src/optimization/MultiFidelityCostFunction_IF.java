@@ -0,0 +1,31 @@
+package optimization;
+
+/**
+ * This interface details required methods for a cost function that can be evaluated at several
+ * fidelity levels, such as a simulation run at a coarse or fine resolution. Level 0 is the
+ * cheapest and least accurate. The highest level is the full fidelity, at which
+ * <b>evaluateCostFunction(Parameter...)</b> must evaluate.
+ * @author Matt
+ *
+ */
+public interface MultiFidelityCostFunction_IF extends CostFunction_IF {
+	/**
+	 * Returns the number of fidelity levels, at least 1
+	 * @return
+	 */
+	public int getNumberOfFidelityLevels();
+	/**
+	 * Evaluates the cost function at the given fidelity level
+	 * @param fidelityLevel from 0 to getNumberOfFidelityLevels() - 1
+	 * @param parameters
+	 * @return
+	 */
+	public CostFunctionOutput_IF evaluateCostFunction(int fidelityLevel, Parameter... parameters);
+	/**
+	 * Returns the approximate cost of an evaluation at the given level relative to an evaluation
+	 * at the highest level, which costs 1
+	 * @param fidelityLevel
+	 * @return
+	 */
+	public double getRelativeCost(int fidelityLevel);
+}
@@ -0,0 +1,16 @@
+package optimization;
+
+/**
+ * This interface details required methods for a cost function output that carries
+ * more than one objective. All objectives are treated as values to be minimized.
+ * @author Matt
+ *
+ */
+public interface MultiObjectiveCostFunctionOutput_IF extends CostFunctionOutput_IF {
+	/**
+	 * Returns the objective values of the output. The array must always have the same
+	 * length and ordering for a given cost function.
+	 * @return objective values (lower is better for every entry)
+	 */
+	public double[] getObjectiveValues();
+}
@@ -0,0 +1,17 @@
+package optimization;
+
+/**
+ * This exception is thrown from within a cost function evaluation to stop the optimizer that
+ * requested it, for example when another optimizer sharing the evaluation budget has already
+ * satisfied the optimization criterion. Optimizers let it propagate out of <b>optimize</b>.
+ * @author Matt
+ *
+ */
+public class OptimizationAbortedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public OptimizationAbortedException(String message){
+		super(message);
+	}
+}
@@ -0,0 +1,374 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ * This class evaluates a batch of parameter sets (such as a generation of particles) on a
+ * pool of threads and protects the optimizer from slow or hung cost function evaluations.
+ * </pre>
+ * <pre>
+ * 	- Timeouts: an evaluation running longer than the timeout is interrupted and handled by the
+ * 	  timeout policy: INFEASIBLE records a <b>TimedOutCostFunctionOutput</b>, PENALIZE records the
+ * 	  output of a user supplied penalty function and RETRY runs the evaluation again up to a
+ * 	  maximum number of retries before it is treated as infeasible.
+ * 	- Speculative execution: once half of the batch has completed, an evaluation that has run
+ * 	  longer than a factor times the median duration is started a second time on an idle thread.
+ * 	  The first of the two to finish is used and the other is interrupted.
+ * 	- Deadline: evaluations still running at the deadline of the run are interrupted and treated
+ * 	  as timed out without retries.
+ * </pre>
+ * <pre>
+ * <b>Note:</b> The cost function must be thread safe when more than one thread is used. An
+ * evaluation that ignores interruption keeps its thread busy, so the pool temporarily grows
+ * by a thread for every such evaluation (up to four times its size) to keep its parallelism.
+ * Every attempt evaluates its own copy of the parameters, so such an evaluation never sees the
+ * caller change them.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class ParallelEvaluator implements AutoCloseable{
+
+	/**
+	 * Enumeration of the ways a timed out evaluation is handled
+	 * @author Matt
+	 *
+	 */
+	public enum TimeoutPolicy{
+		INFEASIBLE,
+		PENALIZE,
+		RETRY
+	}
+
+	private static final int QUEUED = 0;
+	private static final int RUNNING = 1;
+	private static final int FINISHED = 2;
+
+	private final int numberOfThreads;
+	private final ThreadPoolExecutor executor;
+	private long timeoutNanos = 0;
+	private TimeoutPolicy timeoutPolicy = TimeoutPolicy.INFEASIBLE;
+	private Function<Parameter[],CostFunctionOutput_IF> penaltyFunction = null;
+	private int maxRetries = 2;
+	private double stragglerFactor = 0.0;
+
+	//Attempt bookkeeping, guarded by lock
+	private final Object lock = new Object();
+	private int activeAttempts = 0;
+	private int abandonedAttempts = 0;
+
+	/**
+	 * Constructor that defines the number of threads evaluating in parallel
+	 * @param numberOfThreads
+	 */
+	public ParallelEvaluator(int numberOfThreads){
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.executor = new ThreadPoolExecutor(this.numberOfThreads, this.numberOfThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), (runnable) -> {
+					Thread thread = new Thread(runnable, "parallel-evaluator");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+	/**
+	 * Sets the time after which a running evaluation is interrupted and the way it is handled.
+	 * The PENALIZE policy requires <b>setTimeoutPenalty</b>.
+	 * @param timeoutMillis
+	 * @param timeoutPolicy
+	 * @return
+	 */
+	public ParallelEvaluator setTimeout(long timeoutMillis, TimeoutPolicy timeoutPolicy){
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		this.timeoutPolicy = timeoutPolicy;
+		return this;
+	}
+	/**
+	 * Sets the function that creates the output recorded for a timed out evaluation under the
+	 * PENALIZE policy, typically a poor but feasible output of the user defined output class
+	 * @param penaltyFunction
+	 * @return
+	 */
+	public ParallelEvaluator setTimeoutPenalty(Function<Parameter[],CostFunctionOutput_IF> penaltyFunction){
+		this.penaltyFunction = penaltyFunction;
+		return this;
+	}
+
+	public ParallelEvaluator setMaxRetries(int maxRetries){
+		this.maxRetries = Math.max(0, maxRetries);
+		return this;
+	}
+	/**
+	 * Enables speculative re-execution of evaluations running longer than the given factor times
+	 * the median duration of the completed evaluations of the batch. Zero disables it.
+	 * @param stragglerFactor
+	 * @return
+	 */
+	public ParallelEvaluator setSpeculativeExecution(double stragglerFactor){
+		this.stragglerFactor = stragglerFactor;
+		return this;
+	}
+
+	public int getNumberOfThreads(){
+		return numberOfThreads;
+	}
+
+	public CostFunctionOutput_IF[] evaluate(CostFunction_IF costFunction, Parameter[][] parameterSets){
+		return evaluate(costFunction, parameterSets, null, Long.MAX_VALUE);
+	}
+	/**
+	 * Evaluates every parameter set and returns the outputs in the same order
+	 * @param costFunction
+	 * @param parameterSets
+	 * @param statistics statistics to count timeouts, retries and stragglers in (may be null)
+	 * @param deadlineNanos <b>System.nanoTime()</b> after which running evaluations are given up
+	 * (Long.MAX_VALUE for none)
+	 * @return
+	 */
+	public CostFunctionOutput_IF[] evaluate(CostFunction_IF costFunction, Parameter[][] parameterSets,
+			RunStatistics statistics, long deadlineNanos){
+		int numberOfSets = parameterSets.length;
+		CostFunctionOutput_IF[] outputs = new CostFunctionOutput_IF[numberOfSets];
+		List<List<Attempt>> liveAttempts = new ArrayList<List<Attempt>>(numberOfSets);
+		int[] numberOfRetries = new int[numberOfSets];
+		long[] durations = new long[numberOfSets];
+		int numberCompleted = 0;
+		int numberResolved = 0;
+		BlockingQueue<Attempt> completions = new LinkedBlockingQueue<Attempt>();
+		for (int i_set = 0;i_set < numberOfSets;i_set++){
+			liveAttempts.add(new ArrayList<Attempt>(2));
+			submit(new Attempt(i_set, costFunction, parameterSets[i_set], false, completions), liveAttempts);
+		}
+		long pollMillis = timeoutNanos > 0 || stragglerFactor > 0.0 ? 2 : 50;
+		try {
+			while (numberResolved < numberOfSets){
+				Attempt completed = completions.poll(pollMillis, TimeUnit.MILLISECONDS);
+				while (completed != null){
+					int index = completed.index;
+					if (outputs[index] == null && liveAttempts.get(index).remove(completed)){
+						if (completed.failure != null){
+							throw completed.failure;
+						}
+						outputs[index] = completed.output;
+						numberResolved++;
+						durations[numberCompleted++] = completed.endNanos - completed.startNanos;
+						if (completed.speculative && statistics != null){
+							statistics.addSpeculativeWin();
+						}
+						cancelAll(liveAttempts.get(index));
+					}
+					completed = completions.poll();
+				}
+				long now = System.nanoTime();
+				for (int i_set = 0;i_set < numberOfSets;i_set++){
+					if (outputs[i_set] != null){
+						continue;
+					}
+					List<Attempt> attempts = liveAttempts.get(i_set);
+					if (deadlineNanos != Long.MAX_VALUE && now - deadlineNanos >= 0){
+						cancelAll(attempts);
+						if (statistics != null){
+							statistics.addTimeout();
+						}
+						outputs[i_set] = getTimedOutOutput(parameterSets[i_set]);
+						numberResolved++;
+						continue;
+					}
+					if (timeoutNanos <= 0){
+						continue;
+					}
+					for (int i_att = attempts.size() - 1;i_att >= 0;i_att--){
+						Attempt attempt = attempts.get(i_att);
+						long startNanos = attempt.startNanos;
+						if (startNanos != 0 && now - startNanos > timeoutNanos){
+							cancel(attempt);
+							attempts.remove(i_att);
+							if (statistics != null){
+								statistics.addTimeout();
+							}
+						}
+					}
+					if (attempts.isEmpty()){
+						if (timeoutPolicy == TimeoutPolicy.RETRY && numberOfRetries[i_set] < maxRetries){
+							numberOfRetries[i_set]++;
+							if (statistics != null){
+								statistics.addRetry();
+							}
+							submit(new Attempt(i_set, costFunction, parameterSets[i_set], false, completions), liveAttempts);
+						} else {
+							outputs[i_set] = getTimedOutOutput(parameterSets[i_set]);
+							numberResolved++;
+						}
+					}
+				}
+				if (stragglerFactor > 0.0 && numberCompleted >= Math.max(1, numberOfSets/2)){
+					speculate(costFunction, parameterSets, outputs, liveAttempts, durations, numberCompleted, completions, statistics);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			liveAttempts.forEach(this::cancelAll);
+			throw new OptimizationAbortedException("Evaluation was interrupted");
+		} catch (RuntimeException | Error e){
+			liveAttempts.forEach(this::cancelAll);
+			throw e;
+		} catch (Throwable t){
+			liveAttempts.forEach(this::cancelAll);
+			throw new IllegalStateException(t);
+		}
+		return outputs;
+	}
+	/**
+	 * Starts a second attempt of the evaluations straggling behind the median duration while
+	 * threads are idle
+	 */
+	private void speculate(CostFunction_IF costFunction, Parameter[][] parameterSets, CostFunctionOutput_IF[] outputs,
+			List<List<Attempt>> liveAttempts, long[] durations, int numberCompleted, BlockingQueue<Attempt> completions,
+			RunStatistics statistics){
+		long[] completedDurations = Arrays.copyOf(durations, numberCompleted);
+		Arrays.sort(completedDurations);
+		double stragglerNanos = stragglerFactor*completedDurations[numberCompleted/2];
+		long now = System.nanoTime();
+		for (int i_set = 0;i_set < outputs.length;i_set++){
+			synchronized(lock){
+				if (activeAttempts >= numberOfThreads){
+					return;
+				}
+			}
+			List<Attempt> attempts = liveAttempts.get(i_set);
+			if (outputs[i_set] != null || attempts.size() != 1){
+				continue;
+			}
+			long startNanos = attempts.get(0).startNanos;
+			if (startNanos != 0 && now - startNanos > stragglerNanos){
+				if (statistics != null){
+					statistics.addStraggler();
+				}
+				submit(new Attempt(i_set, costFunction, parameterSets[i_set], true, completions), liveAttempts);
+			}
+		}
+	}
+
+	private CostFunctionOutput_IF getTimedOutOutput(Parameter[] parameters){
+		if (timeoutPolicy == TimeoutPolicy.PENALIZE && penaltyFunction != null){
+			return penaltyFunction.apply(parameters);
+		}
+		return new TimedOutCostFunctionOutput();
+	}
+
+	private void submit(Attempt attempt, List<List<Attempt>> liveAttempts){
+		synchronized(lock){
+			activeAttempts++;
+		}
+		liveAttempts.get(attempt.index).add(attempt);
+		attempt.future = executor.submit(attempt::run);
+	}
+
+	private void cancelAll(List<Attempt> attempts){
+		for (Attempt attempt : attempts){
+			cancel(attempt);
+		}
+		attempts.clear();
+	}
+	/**
+	 * Cancels an attempt. An attempt that is already running is interrupted and, since it may
+	 * ignore the interruption, the pool is grown by a thread until it returns.
+	 */
+	private void cancel(Attempt attempt){
+		synchronized(lock){
+			if (attempt.state.compareAndSet(QUEUED, FINISHED)){
+				activeAttempts--;
+				attempt.future.cancel(false);
+			} else if (attempt.state.get() == RUNNING && !attempt.abandoned){
+				attempt.abandoned = true;
+				activeAttempts--;
+				if (abandonedAttempts < 4*numberOfThreads){
+					abandonedAttempts++;
+					attempt.growsPool = true;
+					resizePool();
+				}
+				attempt.future.cancel(true);
+			}
+		}
+	}
+
+	private void attemptFinished(Attempt attempt){
+		synchronized(lock){
+			attempt.state.set(FINISHED);
+			if (!attempt.abandoned){
+				activeAttempts--;
+			} else if (attempt.growsPool){
+				abandonedAttempts--;
+				resizePool();
+			}
+		}
+	}
+
+	private void resizePool(){
+		int poolSize = numberOfThreads + abandonedAttempts;
+		if (poolSize > executor.getMaximumPoolSize()){
+			executor.setMaximumPoolSize(poolSize);
+			executor.setCorePoolSize(poolSize);
+		} else {
+			executor.setCorePoolSize(poolSize);
+			executor.setMaximumPoolSize(poolSize);
+		}
+	}
+
+	@Override
+	public void close(){
+		executor.shutdownNow();
+	}
+	/**
+	 * One attempt at evaluating a parameter set
+	 */
+	private class Attempt{
+		private final int index;
+		private final CostFunction_IF costFunction;
+		private final Parameter[] parameters;
+		private final boolean speculative;
+		private final BlockingQueue<Attempt> completions;
+		private final AtomicInteger state = new AtomicInteger(QUEUED);
+		private volatile long startNanos = 0;
+		private long endNanos;
+		private boolean abandoned = false;
+		private boolean growsPool = false;
+		private Future<?> future;
+		private CostFunctionOutput_IF output;
+		private Throwable failure;
+
+		private Attempt(int index, CostFunction_IF costFunction, Parameter[] parameters, boolean speculative, BlockingQueue<Attempt> completions){
+			this.index = index;
+			this.costFunction = costFunction;
+			//An abandoned attempt may keep running while the caller changes the original parameters
+			this.parameters = OptUtils.cloneParameterArray(parameters);
+			this.speculative = speculative;
+			this.completions = completions;
+		}
+
+		private void run(){
+			if (!state.compareAndSet(QUEUED, RUNNING)){
+				return;
+			}
+			startNanos = System.nanoTime();
+			try {
+				output = costFunction.evaluateCostFunction(parameters);
+			} catch (Throwable t){
+				failure = t;
+			} finally {
+				endNanos = System.nanoTime();
+				attemptFinished(this);
+			}
+			completions.add(this);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package optimization;
 
 import java.util.HashMap;
+import java.util.Random;
 import java.util.Map.Entry;
 
 /**
@@ -122,6 +123,16 @@ public class Parameter implements Cloneable{
 		this.currentValue = randNumberGen.getRandomNumber(mean, range,paramType.returnType);
 		return this;
 	}
+	/**
+	 * Reinitializes the parameter based on the current distribution type and hyperparameters,
+	 * drawing from the given random number generator instead of the shared one
+	 * @param random
+	 * @return
+	 */
+	public Parameter renitializeValue(Random random){
+		this.currentValue = randNumberGen.getRandomNumber(random, mean, range,paramType.returnType);
+		return this;
+	}
 	/**
 	 * Sets the parameter to reinitialize itself based on the current distribution type and hyperparameters
 	 * its value gets outside of the defined bounds
@@ -138,20 +149,42 @@ public class Parameter implements Cloneable{
 	 * @param valueToBound new proposed value for the parameter
 	 */
 	public void updateAndBoundCurrentValue(Number valueToBound){
+		updateAndBoundCurrentValue(valueToBound, randNumberGen.random);
+	}
+	/**
+	 * Updates the parameter as <b>updateAndBoundCurrentValue(Number)</b>, drawing from the given
+	 * random number generator instead of the shared one
+	 * @param valueToBound new proposed value for the parameter
+	 * @param random
+	 */
+	public void updateAndBoundCurrentValue(Number valueToBound, Random random){
 		if (valueToBound.doubleValue() < this.lowerBound.doubleValue()){
 			if (reinitializeUponOutOfBounds){
-				this.currentValue = randNumberGen.getRandomNumber(mean, range, paramType.returnType);
+				this.currentValue = randNumberGen.getRandomNumber(random, mean, range, paramType.returnType);
 			} else {
-				this.currentValue = randNumberGen.getRandomNumber(lowerBound, 0, paramType.returnType);
+				this.currentValue = randNumberGen.getRandomNumber(random, lowerBound, 0, paramType.returnType);
 			}
 		} else if (valueToBound.doubleValue() > this.upperBound.doubleValue()){
 			if (reinitializeUponOutOfBounds){
-				this.currentValue = randNumberGen.getRandomNumber(mean, range, paramType.returnType);
+				this.currentValue = randNumberGen.getRandomNumber(random, mean, range, paramType.returnType);
 			} else {
-				this.currentValue = randNumberGen.getRandomNumber(upperBound, 0, paramType.returnType);
+				this.currentValue = randNumberGen.getRandomNumber(random, upperBound, 0, paramType.returnType);
 			}
 		} else {
-			this.currentValue = randNumberGen.getRandomNumber(valueToBound, 0, paramType.returnType);
+			this.currentValue = randNumberGen.getRandomNumber(random, valueToBound, 0, paramType.returnType);
+		}
+	}
+	/**
+	 * Sets the current value without enforcing the bounds and without drawing from the random
+	 * number generator. Intended for restoring values that were previously produced by
+	 * <b>updateAndBoundCurrentValue</b>.
+	 * @param value
+	 */
+	public void setCurrentValue(double value){
+		if (paramType.returnType.equals(Integer.class)){
+			this.currentValue = Integer.valueOf((int)Math.round(value));
+		} else {
+			this.currentValue = Double.valueOf(value);
 		}
 	}
 	/**
@@ -0,0 +1,240 @@
+package optimization;
+
+/**
+ * <pre>
+ * This class is a mergeable streaming quantile sketch with a relative accuracy guarantee
+ * (the DDSketch scheme). Values are counted in logarithmically sized buckets so every
+ * quantile is returned within the relative accuracy of the exact value while the memory
+ * only grows with the logarithm of the range of the values, not with their number.
+ * </pre>
+ * <pre>
+ * Sketches filled on separate threads can be combined with <b>merge</b>. A sketch itself
+ * is not thread safe.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class QuantileSketch {
+
+	//Values with a smaller magnitude are counted as zero
+	private static final double MIN_INDEXABLE_VALUE = 1E-9;
+
+	private final double relativeAccuracy;
+	private final double gamma;
+	private final double inverseLogGamma;
+	private final Store positiveStore = new Store();
+	private final Store negativeStore = new Store();
+	private long zeroCount = 0;
+	private long count = 0;
+	private double sum = 0.0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Constructor with a relative accuracy of 1%
+	 */
+	public QuantileSketch(){
+		this(0.01);
+	}
+	/**
+	 * Constructor that defines the relative accuracy of the quantiles (Ex: 0.01 for 1%)
+	 * @param relativeAccuracy
+	 */
+	public QuantileSketch(double relativeAccuracy){
+		if (relativeAccuracy <= 0.0 || relativeAccuracy >= 1.0){
+			throw new IllegalArgumentException("The relative accuracy must be between 0 and 1");
+		}
+		this.relativeAccuracy = relativeAccuracy;
+		this.gamma = (1.0 + relativeAccuracy)/(1.0 - relativeAccuracy);
+		this.inverseLogGamma = 1.0/Math.log(gamma);
+	}
+
+	/**
+	 * Counts a value. NaN and infinite values are rejected since they have no bucket and would
+	 * corrupt the count, mean and quantiles.
+	 * @param value
+	 */
+	public void add(double value){
+		if (Double.isNaN(value) || Double.isInfinite(value)){
+			throw new IllegalArgumentException("Only finite values can be added to the sketch: " + value);
+		}
+		if (value > MIN_INDEXABLE_VALUE){
+			positiveStore.add(getIndex(value), 1);
+		} else if (value < -MIN_INDEXABLE_VALUE){
+			negativeStore.add(getIndex(-value), 1);
+		} else {
+			zeroCount++;
+		}
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+	/**
+	 * Adds the values counted by another sketch with the same relative accuracy
+	 * @param other
+	 */
+	public void merge(QuantileSketch other){
+		if (other.relativeAccuracy != relativeAccuracy){
+			throw new IllegalArgumentException("Only sketches with the same relative accuracy can be merged");
+		}
+		positiveStore.merge(other.positiveStore);
+		negativeStore.merge(other.negativeStore);
+		zeroCount += other.zeroCount;
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+	/**
+	 * Returns the value at the given quantile (between 0 and 1) or NaN if the sketch is empty
+	 * @param quantile
+	 * @return
+	 */
+	public double getQuantile(double quantile){
+		if (count == 0){
+			return Double.NaN;
+		}
+		if (quantile <= 0.0){
+			return min;
+		}
+		if (quantile >= 1.0){
+			return max;
+		}
+		long rank = (long)(quantile*(count - 1));
+		double value;
+		if (rank < negativeStore.count){
+			//Negative values are ordered from the largest magnitude
+			value = -getValue(negativeStore.getIndexAtRank(negativeStore.count - 1 - rank));
+		} else if (rank < negativeStore.count + zeroCount){
+			value = 0.0;
+		} else {
+			value = getValue(positiveStore.getIndexAtRank(rank - negativeStore.count - zeroCount));
+		}
+		return Math.max(min, Math.min(max, value));
+	}
+	/**
+	 * Returns the fraction of the values that are less than or equal to the given value,
+	 * within the relative accuracy of the sketch
+	 * @param value
+	 * @return
+	 */
+	public double getCumulativeProbability(double value){
+		if (count == 0){
+			return Double.NaN;
+		}
+		long numberBelow;
+		if (value > MIN_INDEXABLE_VALUE){
+			numberBelow = negativeStore.count + zeroCount + positiveStore.getCountUpTo(getIndex(value));
+		} else if (value < -MIN_INDEXABLE_VALUE){
+			numberBelow = negativeStore.count - negativeStore.getCountUpTo(getIndex(-value) - 1);
+		} else {
+			numberBelow = negativeStore.count + zeroCount;
+		}
+		return Double.valueOf(numberBelow)/count;
+	}
+
+	public long getCount(){
+		return count;
+	}
+
+	public double getMean(){
+		return count > 0 ? sum/count : Double.NaN;
+	}
+
+	public double getMin(){
+		return min;
+	}
+
+	public double getMax(){
+		return max;
+	}
+
+	public double getRelativeAccuracy(){
+		return relativeAccuracy;
+	}
+
+	private int getIndex(double magnitude){
+		return (int)Math.ceil(Math.log(magnitude)*inverseLogGamma);
+	}
+	/**
+	 * Returns the value representing a bucket, which is within the relative accuracy of
+	 * every value counted in it
+	 */
+	private double getValue(int index){
+		return 2.0*Math.pow(gamma, index)/(gamma + 1.0);
+	}
+	/**
+	 * Dense bucket counts for a contiguous range of indices that grows as needed
+	 */
+	private static class Store{
+		private long[] counts = new long[0];
+		private int offset = 0;
+		private long count = 0;
+
+		private void add(int index, long bucketCount){
+			ensureCapacity(index, index);
+			counts[index - offset] += bucketCount;
+			count += bucketCount;
+		}
+
+		private void merge(Store other){
+			if (other.count == 0){
+				return;
+			}
+			ensureCapacity(other.offset, other.offset + other.counts.length - 1);
+			for (int i_bucket = 0;i_bucket < other.counts.length;i_bucket++){
+				counts[other.offset + i_bucket - offset] += other.counts[i_bucket];
+			}
+			count += other.count;
+		}
+
+		private void ensureCapacity(int minIndex, int maxIndex){
+			if (counts.length == 0){
+				counts = new long[Math.max(16, maxIndex - minIndex + 1)];
+				offset = minIndex;
+				return;
+			}
+			int newMinIndex = Math.min(offset, minIndex);
+			int newMaxIndex = Math.max(offset + counts.length - 1, maxIndex);
+			if (newMinIndex == offset && newMaxIndex == offset + counts.length - 1){
+				return;
+			}
+			//Grow with some slack on the side that overflowed
+			if (newMinIndex < offset){
+				newMinIndex -= counts.length/2;
+			}
+			if (newMaxIndex > offset + counts.length - 1){
+				newMaxIndex += counts.length/2;
+			}
+			long[] newCounts = new long[newMaxIndex - newMinIndex + 1];
+			System.arraycopy(counts, 0, newCounts, offset - newMinIndex, counts.length);
+			counts = newCounts;
+			offset = newMinIndex;
+		}
+		/**
+		 * Returns the index of the bucket holding the value with the given rank (from 0)
+		 */
+		private int getIndexAtRank(long rank){
+			long cumulativeCount = 0;
+			for (int i_bucket = 0;i_bucket < counts.length;i_bucket++){
+				cumulativeCount += counts[i_bucket];
+				if (cumulativeCount > rank){
+					return i_bucket + offset;
+				}
+			}
+			return offset + counts.length - 1;
+		}
+		/**
+		 * Returns the number of values in the buckets up to and including the given index
+		 */
+		private long getCountUpTo(int index){
+			long cumulativeCount = 0;
+			int lastBucket = Math.min(counts.length - 1, index - offset);
+			for (int i_bucket = 0;i_bucket <= lastBucket;i_bucket++){
+				cumulativeCount += counts[i_bucket];
+			}
+			return cumulativeCount;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package optimization;
+
+/**
+ * This class collects the statistics of an optimization run: the numbers of generations,
+ * evaluations and restarts as well as the evaluations that timed out, were retried or were
+ * re-executed speculatively because they were straggling.
+ * @author Matt
+ *
+ */
+public class RunStatistics {
+	/**
+	 * Length of the array returned by <b>getCounts</b>
+	 */
+	public static final int NUMBER_OF_COUNTS = 7;
+	private long generations = 0;
+	private long evaluations = 0;
+	private long restarts = 0;
+	private long timeouts = 0;
+	private long retries = 0;
+	private long stragglers = 0;
+	private long speculativeWins = 0;
+
+	public void reset(){
+		generations = 0;
+		evaluations = 0;
+		restarts = 0;
+		timeouts = 0;
+		retries = 0;
+		stragglers = 0;
+		speculativeWins = 0;
+	}
+
+	/**
+	 * Returns all counts in the order generations, evaluations, restarts, timeouts, retries,
+	 * stragglers and speculative wins, for example to store them with a checkpoint
+	 * @return
+	 */
+	public long[] getCounts(){
+		return new long[]{generations, evaluations, restarts, timeouts, retries, stragglers, speculativeWins};
+	}
+	/**
+	 * Sets all counts from an array in the order of <b>getCounts</b>
+	 * @param counts
+	 */
+	public void setCounts(long[] counts){
+		generations = counts[0];
+		evaluations = counts[1];
+		restarts = counts[2];
+		timeouts = counts[3];
+		retries = counts[4];
+		stragglers = counts[5];
+		speculativeWins = counts[6];
+	}
+
+	public void addGeneration(){
+		generations++;
+	}
+
+	public void addEvaluations(long evaluations){
+		this.evaluations += evaluations;
+	}
+
+	public void addRestart(){
+		restarts++;
+	}
+
+	public void addTimeout(){
+		timeouts++;
+	}
+
+	public void addRetry(){
+		retries++;
+	}
+	/**
+	 * Counts an evaluation for which a speculative copy was started
+	 */
+	public void addStraggler(){
+		stragglers++;
+	}
+	/**
+	 * Counts a speculative copy that finished before the original evaluation
+	 */
+	public void addSpeculativeWin(){
+		speculativeWins++;
+	}
+
+	public long getGenerations() {
+		return generations;
+	}
+
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	public long getRestarts() {
+		return restarts;
+	}
+
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	public long getRetries() {
+		return retries;
+	}
+
+	public long getStragglers() {
+		return stragglers;
+	}
+
+	public long getSpeculativeWins() {
+		return speculativeWins;
+	}
+
+	@Override
+	public String toString(){
+		return "Generations: " + generations + ",Evaluations: " + evaluations + ",Restarts: " + restarts
+				+ ",Timeouts: " + timeouts + ",Retries: " + retries + ",Stragglers: " + stragglers
+				+ ",Speculative Wins: " + speculativeWins;
+	}
+}
@@ -0,0 +1,15 @@
+package optimization;
+
+/**
+ * This interface details required methods for a cost function output that can be
+ * reduced to a single numeric value. Lower values are better.
+ * @author Matt
+ *
+ */
+public interface ScalarCostFunctionOutput_IF extends CostFunctionOutput_IF {
+	/**
+	 * Returns the value that the optimization minimizes
+	 * @return
+	 */
+	public double getFitness();
+}
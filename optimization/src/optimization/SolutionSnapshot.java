@@ -0,0 +1,145 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <pre>
+ * This class stores the parameter values of a solution as a primitive array together with the
+ * cost function output, instead of copies of the full <b>Parameter</b> objects. The parameters
+ * the values were taken from are kept by reference only to describe the values (type, bounds
+ * and categorical encoding); their current values are never read after construction. Values
+ * are boxed, decoded or turned back into parameters only when asked for.
+ * </pre>
+ * A snapshot is immutable and may be shared between threads.
+ * @author Matt
+ *
+ */
+public final class SolutionSnapshot {
+	private final double[] values;
+	private final Parameter[] definitions;
+	private final CostFunctionOutput_IF costFunctionOutput;
+
+	/**
+	 * Takes a snapshot of the current values of the parameters
+	 * @param parameters
+	 * @param costFunctionOutput
+	 */
+	public SolutionSnapshot(Parameter[] parameters, CostFunctionOutput_IF costFunctionOutput){
+		this.values = new double[parameters.length];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			values[i_param] = parameters[i_param].getCurrentValueAsDouble();
+		}
+		this.definitions = parameters;
+		this.costFunctionOutput = costFunctionOutput;
+	}
+	/**
+	 * Creates a snapshot from parameter values
+	 * @param definitions parameters describing the values
+	 * @param values values in the order of the definitions (copied)
+	 * @param costFunctionOutput
+	 */
+	public SolutionSnapshot(Parameter[] definitions, double[] values, CostFunctionOutput_IF costFunctionOutput){
+		this.values = values.clone();
+		this.definitions = definitions;
+		this.costFunctionOutput = costFunctionOutput;
+	}
+
+	public CostFunctionOutput_IF getCostFunctionOutput(){
+		return costFunctionOutput;
+	}
+	/**
+	 * Returns the fitness of outputs implementing <b>ScalarCostFunctionOutput_IF</b> or NaN
+	 * @return
+	 */
+	public double getFitness(){
+		if (costFunctionOutput instanceof ScalarCostFunctionOutput_IF){
+			return ((ScalarCostFunctionOutput_IF)costFunctionOutput).getFitness();
+		}
+		return Double.NaN;
+	}
+
+	public int getNumberOfParameters(){
+		return values.length;
+	}
+	/**
+	 * Returns the value of a parameter as a double (the code of a categorical parameter)
+	 * @param i_param
+	 * @return
+	 */
+	public double getValue(int i_param){
+		return values[i_param];
+	}
+	/**
+	 * Returns a copy of the parameter values
+	 * @return
+	 */
+	public double[] getValues(){
+		return values.clone();
+	}
+	/**
+	 * Returns the parameter values boxed with the numeric type of every parameter, as
+	 * <b>Parameter.getCurrentValue()</b> would
+	 * @return
+	 */
+	public List<Number> getParameterValues(){
+		List<Number> parameterValues = new ArrayList<Number>(values.length);
+		for (int i_param = 0;i_param < values.length;i_param++){
+			if (definitions[i_param].paramType.returnType.equals(Integer.class)){
+				parameterValues.add(Integer.valueOf((int)Math.round(values[i_param])));
+			} else {
+				parameterValues.add(Double.valueOf(values[i_param]));
+			}
+		}
+		return parameterValues;
+	}
+	/**
+	 * Returns the value of a parameter as it is printed: the category of a categorical parameter
+	 * and the number otherwise
+	 * @param i_param
+	 * @return
+	 */
+	public String getDecodedValue(int i_param){
+		Parameter definition = definitions[i_param];
+		switch(definition.paramType){
+		case CATEGORICAL:
+			return definition.decode((int)Math.round(values[i_param]));
+		case INTEGER:
+			return String.valueOf((int)Math.round(values[i_param]));
+		default:
+			return String.valueOf(values[i_param]);
+		}
+	}
+	/**
+	 * Returns new parameters set to the values of the snapshot
+	 * @return
+	 */
+	public Parameter[] toParameters(){
+		Parameter[] parameters = OptUtils.cloneParameterArray(definitions);
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			parameters[i_param].setCurrentValue(values[i_param]);
+		}
+		return parameters;
+	}
+	/**
+	 * Returns true if both snapshots have the same parameter values
+	 * @param other
+	 * @return
+	 */
+	public boolean hasSameValues(SolutionSnapshot other){
+		return Arrays.equals(values, other.values);
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder text = new StringBuilder("Parameters: ");
+		for (int i_param = 0;i_param < values.length;i_param++){
+			if (i_param > 0){
+				text.append(',');
+			}
+			text.append(getDecodedValue(i_param));
+		}
+		return text.append(' ').append(costFunctionOutput.getOutputAsString()).toString();
+	}
+}
@@ -0,0 +1,46 @@
+package optimization;
+
+/**
+ * This class is the output recorded for an evaluation that timed out and is treated as
+ * infeasible. It never satisfies the optimization criterion or the restraints, every output
+ * of a completed evaluation is better than it and its fitness is positive infinity.
+ * <pre>
+ * <b>Note:</b> Optimizers must not pass this output to the <b>isNewCostFunctionOutputBetter</b>
+ * method of a user defined output, which would not recognize its type. Checking
+ * <b>isSolutionWithinRestraints</b> first is sufficient.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class TimedOutCostFunctionOutput implements ScalarCostFunctionOutput_IF {
+
+	@Override
+	public boolean isNewCostFunctionOutputBetter(CostFunctionOutput_IF newCFOutput) {
+		return !(newCFOutput instanceof TimedOutCostFunctionOutput);
+	}
+
+	@Override
+	public boolean isOptimizationCriterionSatisified() {
+		return false;
+	}
+
+	@Override
+	public boolean isSolutionWithinRestraints() {
+		return false;
+	}
+
+	@Override
+	public double getFitness() {
+		return Double.POSITIVE_INFINITY;
+	}
+
+	@Override
+	public void printOutput() {
+		System.out.println(getOutputAsString());
+	}
+
+	@Override
+	public String getOutputAsString() {
+		return "Evaluation timed out";
+	}
+}
@@ -0,0 +1,170 @@
+package optimization.archive;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.SolutionSnapshot;
+
+/**
+ * <pre>
+ * This class wraps an expensive cost function so that points within a small distance of points
+ * that were already evaluated are not evaluated again, which saves evaluations once the particles
+ * of a swarm, or the individuals of a population, cluster around the optimum. Every evaluated
+ * point is kept in an <b>EvaluationArchive</b>, which can also be used for analysis afterwards.
+ * </pre>
+ * <pre>
+ * A point within <b>epsilon</b> (normalized Euclidean distance, see <b>EvaluationArchive</b>) of
+ * archived points is handled according to the <b>NearDuplicatePolicy</b>:
+ * 	- SKIP returns the output of the nearest archived point.
+ * 	- INTERPOLATE returns an <b>ArchivedOutput</b> with the fitness interpolated from all
+ * 	  archived points within epsilon. Since it lies between their fitness values, it never beats
+ * 	  the best of them, and with a single archived point within epsilon it is the fitness of that
+ * 	  point. Only evaluated points satisfy the optimization criterion. Evaluated points are returned as an <b>ArchivedOutput</b> too, since
+ * 	  outputs of a cost function may only compare themselves with outputs of their own class.
+ * 	  Outputs that do not implement <b>ScalarCostFunctionOutput_IF</b> are handled as with SKIP.
+ * Points that exactly match an archived point always get its output.
+ * </pre>
+ * <pre>
+ * The wrapper may be called from several threads if the wrapped cost function is thread safe.
+ * Two threads evaluating the same new point at the same time both evaluate it.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class ArchivedCostFunction implements CostFunction_IF {
+
+	/**
+	 * Handling of a point within epsilon of archived points
+	 */
+	public enum NearDuplicatePolicy{
+		/**
+		 * Return the output of the nearest archived point
+		 */
+		SKIP,
+		/**
+		 * Return the fitness interpolated from the archived points within epsilon
+		 */
+		INTERPOLATE
+	}
+
+	private final CostFunction_IF costFunction;
+	private final EvaluationArchive archive;
+	private final double epsilon;
+	private NearDuplicatePolicy nearDuplicatePolicy = NearDuplicatePolicy.SKIP;
+	private final AtomicLong numberOfEvaluations = new AtomicLong();
+	private final AtomicLong numberOfSkippedEvaluations = new AtomicLong();
+
+	/**
+	 * Constructor that archives the evaluated points in a new archive with cells twice the size of epsilon
+	 * @param costFunction
+	 * @param epsilon normalized distance within which points are not evaluated again, must be positive
+	 * @param parameters parameters of the cost function
+	 */
+	public ArchivedCostFunction(CostFunction_IF costFunction, double epsilon, Parameter... parameters){
+		this(costFunction, new EvaluationArchive(2.0*checkPositive(epsilon), parameters), epsilon);
+	}
+	/**
+	 * Constructor that archives the evaluated points in the given archive, which may already hold
+	 * points of an earlier optimization
+	 * @param costFunction
+	 * @param archive
+	 * @param epsilon normalized distance within which points are not evaluated again, 0 to only
+	 * skip exact duplicates
+	 */
+	public ArchivedCostFunction(CostFunction_IF costFunction, EvaluationArchive archive, double epsilon){
+		if (!(epsilon >= 0.0)){
+			throw new IllegalArgumentException("The near duplicate distance epsilon must not be negative: " + epsilon);
+		}
+		this.costFunction = costFunction;
+		this.archive = archive;
+		this.epsilon = epsilon;
+	}
+
+	private static double checkPositive(double epsilon){
+		if (!(epsilon > 0.0)){
+			throw new IllegalArgumentException("The near duplicate distance epsilon must be positive to size the archive cells: " + epsilon);
+		}
+		return epsilon;
+	}
+
+	@Override
+	public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+		double[] values = EvaluationArchive.getValues(parameters);
+		List<SolutionSnapshot> nearPoints = archive.findWithin(values, epsilon);
+		if (!nearPoints.isEmpty()){
+			numberOfSkippedEvaluations.incrementAndGet();
+			return getNearDuplicateOutput(values, nearPoints);
+		}
+		CostFunctionOutput_IF output = costFunction.evaluateCostFunction(parameters);
+		numberOfEvaluations.incrementAndGet();
+		archive.add(values, output);
+		return getOutput(output);
+	}
+
+	private CostFunctionOutput_IF getOutput(CostFunctionOutput_IF output){
+		if (nearDuplicatePolicy == NearDuplicatePolicy.INTERPOLATE && output instanceof ScalarCostFunctionOutput_IF){
+			return new ArchivedOutput((ScalarCostFunctionOutput_IF)output);
+		}
+		return output;
+	}
+
+	private CostFunctionOutput_IF getNearDuplicateOutput(double[] values, List<SolutionSnapshot> nearPoints){
+		CostFunctionOutput_IF nearestOutput = nearPoints.get(0).getCostFunctionOutput();
+		if (nearDuplicatePolicy == NearDuplicatePolicy.SKIP || !(nearestOutput instanceof ScalarCostFunctionOutput_IF)){
+			return nearestOutput;
+		}
+		if (nearPoints.size() == 1){
+			return getNearestOutput((ScalarCostFunctionOutput_IF)nearestOutput);
+		}
+		double weightedSum = 0.0;
+		double weightSum = 0.0;
+		for (SolutionSnapshot point : nearPoints){
+			double distance = archive.getDistance(values, point);
+			if (distance == 0.0){
+				return getOutput(point.getCostFunctionOutput());
+			}
+			double fitness = point.getFitness();
+			if (Double.isNaN(fitness)){
+				return getNearestOutput((ScalarCostFunctionOutput_IF)nearestOutput);
+			}
+			double weight = 1.0/(distance*distance);
+			weightedSum += weight*fitness;
+			weightSum += weight;
+		}
+		return new ArchivedOutput((ScalarCostFunctionOutput_IF)nearestOutput, weightedSum/weightSum, nearPoints.size());
+	}
+	/**
+	 * Returns the output of the nearest archived point for a point that was not evaluated, which
+	 * cannot satisfy the optimization criterion
+	 */
+	private static ArchivedOutput getNearestOutput(ScalarCostFunctionOutput_IF nearestOutput){
+		return new ArchivedOutput(nearestOutput, nearestOutput.getFitness(), 1);
+	}
+
+	public ArchivedCostFunction setNearDuplicatePolicy(NearDuplicatePolicy nearDuplicatePolicy){
+		this.nearDuplicatePolicy = nearDuplicatePolicy;
+		return this;
+	}
+
+	public EvaluationArchive getArchive(){
+		return archive;
+	}
+	/**
+	 * Returns the number of evaluations of the wrapped cost function
+	 * @return
+	 */
+	public long getNumberOfEvaluations(){
+		return numberOfEvaluations.get();
+	}
+	/**
+	 * Returns the number of points that were not evaluated because they were near archived points
+	 * @return
+	 */
+	public long getNumberOfSkippedEvaluations(){
+		return numberOfSkippedEvaluations.get();
+	}
+}
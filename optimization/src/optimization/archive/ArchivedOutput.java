@@ -0,0 +1,85 @@
+package optimization.archive;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * This class is the output an <b>ArchivedCostFunction</b> returns with the INTERPOLATE policy,
+ * for evaluated points as well as for interpolated ones so that all outputs can be compared
+ * with each other. The fitness of an interpolated point is interpolated from the archived points
+ * near it, weighted by the inverse of their squared distance, and its restraints are those of the
+ * nearest point.
+ * </pre>
+ * Only evaluated points can satisfy the optimization criterion.
+ * @author Matt
+ *
+ */
+public class ArchivedOutput implements ScalarCostFunctionOutput_IF {
+
+	private final ScalarCostFunctionOutput_IF output;
+	private final double fitness;
+	private final int numberOfPoints;
+
+	ArchivedOutput(ScalarCostFunctionOutput_IF output){
+		this(output, output.getFitness(), 0);
+	}
+
+	ArchivedOutput(ScalarCostFunctionOutput_IF nearestOutput, double fitness, int numberOfPoints){
+		this.output = nearestOutput;
+		this.fitness = fitness;
+		this.numberOfPoints = numberOfPoints;
+	}
+	/**
+	 * Returns the output of the evaluated point, or of the nearest archived point for an
+	 * interpolated point
+	 * @return
+	 */
+	public ScalarCostFunctionOutput_IF getOutput(){
+		return output;
+	}
+
+	public boolean isInterpolated(){
+		return numberOfPoints > 0;
+	}
+	/**
+	 * Returns the number of archived points the fitness was interpolated from, 0 for an evaluated point
+	 * @return
+	 */
+	public int getNumberOfPoints(){
+		return numberOfPoints;
+	}
+
+	@Override
+	public double getFitness() {
+		return fitness;
+	}
+
+	@Override
+	public boolean isNewCostFunctionOutputBetter(CostFunctionOutput_IF newCFOutput) {
+		return ((ScalarCostFunctionOutput_IF)newCFOutput).getFitness() < fitness;
+	}
+
+	@Override
+	public boolean isOptimizationCriterionSatisified() {
+		return !isInterpolated() && output.isOptimizationCriterionSatisified();
+	}
+
+	@Override
+	public boolean isSolutionWithinRestraints() {
+		return output.isSolutionWithinRestraints();
+	}
+
+	@Override
+	public void printOutput() {
+		System.out.println(getOutputAsString());
+	}
+
+	@Override
+	public String getOutputAsString() {
+		if (isInterpolated()){
+			return "Interpolated: " + String.valueOf(fitness) + " (" + String.valueOf(numberOfPoints) + " points)";
+		}
+		return output.getOutputAsString();
+	}
+}
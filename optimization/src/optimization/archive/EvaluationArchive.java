@@ -0,0 +1,362 @@
+package optimization.archive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.Parameter;
+import optimization.Parameter.ParameterType;
+import optimization.SolutionSnapshot;
+
+/**
+ * <pre>
+ * This class archives evaluated points in a spatial index so points near a given point can be
+ * found quickly, to avoid evaluating near duplicates again (see <b>ArchivedCostFunction</b>) or
+ * to analyze the evaluations around a solution.
+ * </pre>
+ * <pre>
+ * Distances are Euclidean over the parameter values normalized by their ranges, so a distance of
+ * 0.01 is 1% of the range of a single parameter. Points with different values of a categorical
+ * parameter are never near each other; their distance is infinite.
+ * </pre>
+ * <pre>
+ * The index hashes the normalized values onto a grid of cubic cells with sides of
+ * <b>cellSize</b> (categorical parameters by their code). Searching within a radius only visits
+ * the cells the radius overlaps and nearest neighbor searches visit rings of cells of growing
+ * size, so a cell size about twice the radius used most is a good choice. When the cells to
+ * visit outnumber the occupied cells, as with many parameters, every occupied cell is visited
+ * instead.
+ * </pre>
+ * <pre>
+ * Points can be added and searched from several threads at once. Searches do not block and see
+ * every point whose addition completed before they started.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class EvaluationArchive {
+
+	private static final Comparator<Neighbor> BY_DISTANCE = (first, second) -> Double.compare(first.distance, second.distance);
+
+	private final Parameter[] definitions;
+	private final double[] lowerBounds;
+	private final double[] inverseRanges;
+	private final boolean[] isCategorical;
+	private final int numberOfGridParameters;
+	private final double cellSize;
+	private final ConcurrentHashMap<Long, Cell> cells = new ConcurrentHashMap<Long, Cell>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Constructor that defines the side of the grid cells and the parameters of the points
+	 * @param cellSize side of a cell as a fraction of the parameter ranges
+	 * @param parameters
+	 */
+	public EvaluationArchive(double cellSize, Parameter... parameters){
+		if (!(cellSize > 0.0)){
+			throw new IllegalArgumentException("The cell size must be positive");
+		}
+		this.definitions = parameters.clone();
+		this.cellSize = cellSize;
+		this.lowerBounds = new double[parameters.length];
+		this.inverseRanges = new double[parameters.length];
+		this.isCategorical = new boolean[parameters.length];
+		int numberOfGridParameters = 0;
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			isCategorical[i_param] = parameters[i_param].getParamType() == ParameterType.CATEGORICAL;
+			lowerBounds[i_param] = parameters[i_param].lowerBound.doubleValue();
+			double range = parameters[i_param].getRangeOfParameterValue();
+			inverseRanges[i_param] = range > 0.0 ? 1.0/range : 0.0;
+			if (!isCategorical[i_param]){
+				numberOfGridParameters++;
+			}
+		}
+		this.numberOfGridParameters = numberOfGridParameters;
+	}
+	/**
+	 * Archives the current values of the parameters with their output
+	 * @param parameters
+	 * @param output
+	 * @return the archived point
+	 */
+	public SolutionSnapshot add(Parameter[] parameters, CostFunctionOutput_IF output){
+		return add(getValues(parameters), output);
+	}
+	/**
+	 * Archives parameter values with their output
+	 * @param values
+	 * @param output
+	 * @return the archived point
+	 */
+	public SolutionSnapshot add(double[] values, CostFunctionOutput_IF output){
+		SolutionSnapshot point = new SolutionSnapshot(definitions, values, output);
+		cells.computeIfAbsent(getCellKey(getCell(values)), (key) -> new Cell()).add(point);
+		size.incrementAndGet();
+		return point;
+	}
+	/**
+	 * Returns the archived points within the given distance of the values, nearest first
+	 * @param values
+	 * @param radius
+	 * @return
+	 */
+	public List<SolutionSnapshot> findWithin(double[] values, double radius){
+		List<Neighbor> neighbors = new ArrayList<Neighbor>();
+		Consumer<Cell> collect = (cell) -> cell.forEach((point) -> {
+			double distance = getDistance(values, point);
+			if (distance <= radius){
+				neighbors.add(new Neighbor(point, distance));
+			}
+		});
+		long[] center = getCell(values);
+		long[] low = new long[values.length];
+		long[] high = new long[values.length];
+		double numberOfCells = 1.0;
+		for (int i_param = 0;i_param < values.length;i_param++){
+			if (isCategorical[i_param]){
+				low[i_param] = center[i_param];
+				high[i_param] = center[i_param];
+			} else {
+				double normalized = getNormalizedValue(i_param, values[i_param]);
+				low[i_param] = (long)Math.floor((normalized - radius)/cellSize);
+				high[i_param] = (long)Math.floor((normalized + radius)/cellSize);
+				numberOfCells *= high[i_param] - low[i_param] + 1;
+			}
+		}
+		if (numberOfCells > cells.size()){
+			cells.values().forEach(collect);
+		} else {
+			visitCells(low, high, center, 0, collect);
+		}
+		neighbors.sort(BY_DISTANCE);
+		return toPoints(neighbors);
+	}
+	/**
+	 * Returns the archived point nearest to the values, or null if no point is at a finite distance
+	 * @param values
+	 * @return
+	 */
+	public SolutionSnapshot findNearest(double[] values){
+		List<SolutionSnapshot> nearest = findNearest(values, 1);
+		return nearest.isEmpty() ? null : nearest.get(0);
+	}
+	/**
+	 * Returns up to the given number of archived points nearest to the values, nearest first.
+	 * Points at an infinite distance are left out.
+	 * @param values
+	 * @param numberOfPoints
+	 * @return
+	 */
+	public List<SolutionSnapshot> findNearest(double[] values, int numberOfPoints){
+		//Farthest of the nearest points found so far at the head
+		PriorityQueue<Neighbor> nearest = new PriorityQueue<Neighbor>(Math.max(1, numberOfPoints), BY_DISTANCE.reversed());
+		if (numberOfPoints < 1){
+			return new ArrayList<SolutionSnapshot>();
+		}
+		Consumer<Cell> collect = (cell) -> cell.forEach((point) -> {
+			double distance = getDistance(values, point);
+			if (distance < Double.POSITIVE_INFINITY && (nearest.size() < numberOfPoints || distance < nearest.peek().distance)){
+				nearest.add(new Neighbor(point, distance));
+				if (nearest.size() > numberOfPoints){
+					nearest.poll();
+				}
+			}
+		});
+		long[] center = getCell(values);
+		long[] low = new long[values.length];
+		long[] high = new long[values.length];
+		//Normalized values lie within [0, 1], so no point is farther than this many rings
+		long maxRing = (long)Math.ceil(1.0/cellSize) + 1;
+		for (long ring = 0;ring <= maxRing;ring++){
+			if (Math.pow(2*ring + 1, numberOfGridParameters) > cells.size()){
+				nearest.clear();
+				cells.values().forEach(collect);
+				break;
+			}
+			for (int i_param = 0;i_param < values.length;i_param++){
+				low[i_param] = isCategorical[i_param] ? center[i_param] : center[i_param] - ring;
+				high[i_param] = isCategorical[i_param] ? center[i_param] : center[i_param] + ring;
+			}
+			visitCells(low, high, center, ring, collect);
+			//Points in the next rings are more than ring*cellSize away in at least one parameter
+			if (numberOfGridParameters == 0 || (nearest.size() == numberOfPoints && nearest.peek().distance <= ring*cellSize)){
+				break;
+			}
+		}
+		List<Neighbor> neighbors = new ArrayList<Neighbor>(nearest);
+		neighbors.sort(BY_DISTANCE);
+		return toPoints(neighbors);
+	}
+	/**
+	 * Visits the occupied cells in the box between low and high that are at least minRing cells
+	 * from the center in one parameter
+	 */
+	private void visitCells(long[] low, long[] high, long[] center, long minRing, Consumer<Cell> visitor){
+		long[] cell = low.clone();
+		while (true){
+			long ring = 0;
+			for (int i_param = 0;i_param < cell.length;i_param++){
+				ring = Math.max(ring, Math.abs(cell[i_param] - center[i_param]));
+			}
+			if (ring >= minRing){
+				Cell occupied = cells.get(getCellKey(cell));
+				if (occupied != null){
+					visitor.accept(occupied);
+				}
+			}
+			int i_param = 0;
+			while (i_param < cell.length && cell[i_param] == high[i_param]){
+				cell[i_param] = low[i_param];
+				i_param++;
+			}
+			if (i_param == cell.length){
+				return;
+			}
+			cell[i_param]++;
+		}
+	}
+	/**
+	 * Returns the normalized Euclidean distance between two sets of parameter values
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public double getDistance(double[] first, double[] second){
+		double squaredDistance = 0.0;
+		for (int i_param = 0;i_param < first.length;i_param++){
+			if (isCategorical[i_param]){
+				if (first[i_param] != second[i_param]){
+					return Double.POSITIVE_INFINITY;
+				}
+			} else {
+				double difference = (first[i_param] - second[i_param])*inverseRanges[i_param];
+				squaredDistance += difference*difference;
+			}
+		}
+		return Math.sqrt(squaredDistance);
+	}
+	/**
+	 * Returns the normalized Euclidean distance between parameter values and an archived point
+	 * @param values
+	 * @param point
+	 * @return
+	 */
+	public double getDistance(double[] values, SolutionSnapshot point){
+		double squaredDistance = 0.0;
+		for (int i_param = 0;i_param < values.length;i_param++){
+			if (isCategorical[i_param]){
+				if (values[i_param] != point.getValue(i_param)){
+					return Double.POSITIVE_INFINITY;
+				}
+			} else {
+				double difference = (values[i_param] - point.getValue(i_param))*inverseRanges[i_param];
+				squaredDistance += difference*difference;
+			}
+		}
+		return Math.sqrt(squaredDistance);
+	}
+	/**
+	 * Returns the current values of the parameters in the order of the archive
+	 * @param parameters
+	 * @return
+	 */
+	public static double[] getValues(Parameter[] parameters){
+		double[] values = new double[parameters.length];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			values[i_param] = parameters[i_param].getCurrentValueAsDouble();
+		}
+		return values;
+	}
+
+	public int size(){
+		return size.get();
+	}
+
+	public double getCellSize(){
+		return cellSize;
+	}
+	/**
+	 * Removes all points. Points added while clearing may be kept.
+	 */
+	public void clear(){
+		cells.clear();
+		size.set(0);
+	}
+
+	private double getNormalizedValue(int i_param, double value){
+		return (value - lowerBounds[i_param])*inverseRanges[i_param];
+	}
+
+	private long[] getCell(double[] values){
+		long[] cell = new long[values.length];
+		for (int i_param = 0;i_param < values.length;i_param++){
+			cell[i_param] = isCategorical[i_param] ? (long)values[i_param]
+					: (long)Math.floor(getNormalizedValue(i_param, values[i_param])/cellSize);
+		}
+		return cell;
+	}
+	/**
+	 * Mixes the coordinates of a cell into a key. Cells sharing a key share their points, which
+	 * only costs distance computations since every point is checked by its distance.
+	 */
+	private static long getCellKey(long[] cell){
+		long key = 0x2545F4914F6CDD1DL;
+		for (int i_dim = 0;i_dim < cell.length;i_dim++){
+			key = (key ^ cell[i_dim])*0x9E3779B97F4A7C15L;
+			key ^= key >>> 29;
+		}
+		return key;
+	}
+
+	private static List<SolutionSnapshot> toPoints(List<Neighbor> neighbors){
+		List<SolutionSnapshot> points = new ArrayList<SolutionSnapshot>(neighbors.size());
+		for (Neighbor neighbor : neighbors){
+			points.add(neighbor.point);
+		}
+		return points;
+	}
+
+	private static class Neighbor{
+		private final SolutionSnapshot point;
+		private final double distance;
+
+		private Neighbor(SolutionSnapshot point, double distance){
+			this.point = point;
+			this.distance = distance;
+		}
+	}
+	/**
+	 * The points of one grid cell. Points are appended under the lock of the cell and published
+	 * by the volatile count, so readers never block.
+	 */
+	private static class Cell{
+		private volatile SolutionSnapshot[] points = new SolutionSnapshot[2];
+		private volatile int count = 0;
+
+		private synchronized void add(SolutionSnapshot point){
+			SolutionSnapshot[] current = points;
+			if (count == current.length){
+				current = Arrays.copyOf(current, 2*current.length);
+				current[count] = point;
+				points = current;
+			} else {
+				current[count] = point;
+			}
+			count++;
+		}
+
+		private void forEach(Consumer<SolutionSnapshot> consumer){
+			int visibleCount = count;
+			SolutionSnapshot[] visiblePoints = points;
+			for (int i_point = 0;i_point < visibleCount;i_point++){
+				consumer.accept(visiblePoints[i_point]);
+			}
+		}
+	}
+}
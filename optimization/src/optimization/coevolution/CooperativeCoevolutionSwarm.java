@@ -0,0 +1,343 @@
+package optimization.coevolution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptUtils;
+import optimization.OptimizationAbortedException;
+import optimization.Optimizer_IF;
+import optimization.Parameter;
+import optimization.coevolution.VariableGrouping.GroupingStrategy;
+import optimization.pso.ParticleParameter;
+
+/**
+ * <pre>
+ * This class performs Cooperative Coevolution Particle Swarm Optimization (CCPSO) for
+ * problems with many parameters.
+ * </pre>
+ * <pre>
+ * The parameter vector is split into groups (see <b>VariableGrouping</b>) and each group is
+ * optimized by its own sub-swarm. A sub-swarm only moves the coordinates of its group; the
+ * other coordinates are taken from a shared context vector that holds the best complete
+ * solution found so far. The group's coordinates of the context vector act as the social
+ * attractor of the sub-swarm.
+ * </pre>
+ * <pre>
+ * Each cycle all sub-swarms run a number of generations in parallel against a frozen copy
+ * of the context vector. The best coordinates found by each group are then merged into a
+ * new context vector. If the merged vector is not better than the best single group
+ * improvement (the groups interacted), only that single improvement is kept.
+ * </pre>
+ * <pre>
+ * <b>Note</b>: Sub-swarms evaluate the cost function concurrently on separate copies of the
+ * parameters, so the cost function must be safe to call from several threads.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class CooperativeCoevolutionSwarm implements Optimizer_IF{
+
+	private ParticleParameter[] parameters;
+	private int numberOfParticles;
+	private int maxCycles;
+	private int groupSize;
+	private int generationsPerCycle = 5;
+	private GroupingStrategy groupingStrategy = GroupingStrategy.RANDOM;
+	private double differentialGroupingEpsilon = 1E-3;
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+	private double socialCoefficient = 1.49445;
+	private double cognitiveCoefficient = 1.49445;
+	private double inertialCoefficient = 0.729;
+	private Random random = new Random();
+	//Full dimensional particle state shared by the sub-swarms. Each sub-swarm only touches the columns of its group.
+	private double[][] positions;
+	private double[][] velocities;
+	private double[][] personalBests;
+	private double[] lowerBounds;
+	private double[] upperBounds;
+	private boolean[] isInteger;
+	private double[] context;
+	private CostFunctionOutput_IF contextOutput = null;
+
+	/**
+	 * Constructor that defines the number of particles in each sub-swarm, the maximum number of
+	 * cooperative cycles, the maximum percentage of it's range that a given parameter can travel
+	 * in a given generation, the number of parameters in each group as well as the parameters
+	 * used in the cost function.
+	 * @param numberOfParticles
+	 * @param maxCycles
+	 * @param maxDecPercRangePerOptStep
+	 * @param groupSize
+	 * @param parameters
+	 */
+	public CooperativeCoevolutionSwarm(int numberOfParticles, int maxCycles, Double maxDecPercRangePerOptStep,
+			int groupSize, ParticleParameter... parameters){
+		this.parameters = parameters;
+		this.numberOfParticles = numberOfParticles;
+		this.maxCycles = maxCycles;
+		this.groupSize = groupSize;
+		int numberOfParameters = parameters.length;
+		this.lowerBounds = new double[numberOfParameters];
+		this.upperBounds = new double[numberOfParameters];
+		this.isInteger = new boolean[numberOfParameters];
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			parameters[i_param].setVelocityLimitFromRange(maxDecPercRangePerOptStep);
+			lowerBounds[i_param] = parameters[i_param].lowerBound.doubleValue();
+			upperBounds[i_param] = parameters[i_param].upperBound.doubleValue();
+			isInteger[i_param] = parameters[i_param].getParamType() != Parameter.ParameterType.DOUBLE;
+		}
+	}
+
+	@Override
+	public BestDiscoveredSolution optimize(CostFunction_IF costFunction) {
+		initializeParticles();
+		Parameter[] workParameters = OptUtils.cloneParameterArray(parameters);
+		contextOutput = evaluate(costFunction, workParameters, context);
+		int[][] groups = null;
+		if (groupingStrategy == GroupingStrategy.DIFFERENTIAL){
+			groups = VariableGrouping.getDifferentialGroups(costFunction, parameters, differentialGroupingEpsilon, groupSize);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			for (int i_cycle = 0;i_cycle < maxCycles;i_cycle++){
+				if (groupingStrategy == GroupingStrategy.RANDOM){
+					groups = VariableGrouping.getRandomGroups(parameters.length, groupSize, random);
+				}
+				runCycle(costFunction, groups, executor, workParameters);
+				System.out.println("Cycle: " + String.valueOf(i_cycle) + ",Best Value: " + contextOutput.getOutputAsString());
+				if (contextOutput.isOptimizationCriterionSatisified()){
+					break;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return toSolution(workParameters, context, contextOutput);
+	}
+
+	private void initializeParticles(){
+		int numberOfParameters = parameters.length;
+		positions = new double[numberOfParticles][numberOfParameters];
+		velocities = new double[numberOfParticles][numberOfParameters];
+		personalBests = new double[numberOfParticles][numberOfParameters];
+		for (int i_part = 0;i_part < numberOfParticles;i_part++){
+			for (int i_param = 0;i_param < numberOfParameters;i_param++){
+				positions[i_part][i_param] = bound(i_param,
+						lowerBounds[i_param] + random.nextDouble()*(upperBounds[i_param] - lowerBounds[i_param]));
+				velocities[i_part][i_param] = (2.0*random.nextDouble() - 1.0)*parameters[i_param].getVelocityLimit();
+			}
+			System.arraycopy(positions[i_part], 0, personalBests[i_part], 0, numberOfParameters);
+		}
+		context = positions[0].clone();
+	}
+
+	private void runCycle(CostFunction_IF costFunction, int[][] groups, ExecutorService executor, Parameter[] workParameters){
+		double[] frozenContext = context.clone();
+		CostFunctionOutput_IF frozenOutput = contextOutput;
+		List<Future<GroupResult>> futures = new ArrayList<Future<GroupResult>>();
+		for (int[] group : groups){
+			long seed = random.nextLong();
+			futures.add(executor.submit(() -> optimizeGroup(costFunction, group, frozenContext, frozenOutput, new Random(seed))));
+		}
+		List<GroupResult> improvements = new ArrayList<GroupResult>();
+		for (Future<GroupResult> future : futures){
+			try {
+				GroupResult result = future.get();
+				if (result.output != frozenOutput){
+					improvements.add(result);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof OptimizationAbortedException){
+					throw (OptimizationAbortedException)e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		if (improvements.isEmpty()){
+			return;
+		}
+		GroupResult bestImprovement = improvements.get(0);
+		double[] merged = frozenContext.clone();
+		for (GroupResult result : improvements){
+			for (int i_dim = 0;i_dim < result.group.length;i_dim++){
+				merged[result.group[i_dim]] = result.values[i_dim];
+			}
+			if (bestImprovement.output.isNewCostFunctionOutputBetter(result.output)){
+				bestImprovement = result;
+			}
+		}
+		double[] bestSingle = frozenContext.clone();
+		for (int i_dim = 0;i_dim < bestImprovement.group.length;i_dim++){
+			bestSingle[bestImprovement.group[i_dim]] = bestImprovement.values[i_dim];
+		}
+		context = bestSingle;
+		contextOutput = bestImprovement.output;
+		if (improvements.size() > 1){
+			CostFunctionOutput_IF mergedOutput = evaluate(costFunction, workParameters, merged);
+			if (mergedOutput.isSolutionWithinRestraints() && contextOutput.isNewCostFunctionOutputBetter(mergedOutput)){
+				context = merged;
+				contextOutput = mergedOutput;
+			}
+		}
+	}
+	/**
+	 * Runs the sub-swarm of one group against the frozen context vector
+	 */
+	private GroupResult optimizeGroup(CostFunction_IF costFunction, int[] group, double[] frozenContext,
+			CostFunctionOutput_IF frozenOutput, Random groupRandom){
+		Parameter[] groupParameters = OptUtils.cloneParameterArray(parameters);
+		double[] point = frozenContext.clone();
+		GroupResult groupBest = new GroupResult(group, frozenContext, frozenOutput);
+		//Personal bests are re-evaluated because the context has changed since they were found
+		CostFunctionOutput_IF[] personalBestOutputs = new CostFunctionOutput_IF[numberOfParticles];
+		for (int i_part = 0;i_part < numberOfParticles;i_part++){
+			personalBestOutputs[i_part] = evaluateInContext(costFunction, groupParameters, point, group, personalBests[i_part]);
+			groupBest.offer(personalBests[i_part], personalBestOutputs[i_part]);
+		}
+		for (int i_gen = 0;i_gen < generationsPerCycle;i_gen++){
+			for (int i_part = 0;i_part < numberOfParticles;i_part++){
+				double[] position = positions[i_part];
+				double[] velocity = velocities[i_part];
+				double[] personalBest = personalBests[i_part];
+				for (int i_dim = 0;i_dim < group.length;i_dim++){
+					int i_param = group[i_dim];
+					double newVelocity = inertialCoefficient*velocity[i_param]
+							+ groupRandom.nextDouble()*cognitiveCoefficient*(personalBest[i_param] - position[i_param])
+							+ groupRandom.nextDouble()*socialCoefficient*(groupBest.values[i_dim] - position[i_param]);
+					double velocityLimit = parameters[i_param].getVelocityLimit();
+					velocity[i_param] = Math.max(-velocityLimit, Math.min(velocityLimit, newVelocity));
+					position[i_param] = bound(i_param, position[i_param] + velocity[i_param]);
+				}
+				CostFunctionOutput_IF output = evaluateInContext(costFunction, groupParameters, point, group, position);
+				if (!output.isSolutionWithinRestraints()){
+					continue;
+				}
+				if (!personalBestOutputs[i_part].isSolutionWithinRestraints()
+						|| personalBestOutputs[i_part].isNewCostFunctionOutputBetter(output)){
+					personalBestOutputs[i_part] = output;
+					for (int i_param : group){
+						personalBest[i_param] = position[i_param];
+					}
+				}
+				groupBest.offer(position, output);
+			}
+		}
+		return groupBest;
+	}
+
+	private CostFunctionOutput_IF evaluateInContext(CostFunction_IF costFunction, Parameter[] groupParameters, double[] point,
+			int[] group, double[] source){
+		for (int i_param : group){
+			point[i_param] = source[i_param];
+		}
+		return evaluate(costFunction, groupParameters, point);
+	}
+
+	private static CostFunctionOutput_IF evaluate(CostFunction_IF costFunction, Parameter[] workParameters, double[] point){
+		for (int i_param = 0;i_param < workParameters.length;i_param++){
+			workParameters[i_param].setCurrentValue(point[i_param]);
+		}
+		return costFunction.evaluateCostFunction(workParameters);
+	}
+
+	private double bound(int i_param, double value){
+		double bounded = Math.max(lowerBounds[i_param], Math.min(upperBounds[i_param], value));
+		if (isInteger[i_param]){
+			bounded = Math.round(bounded);
+		}
+		return bounded;
+	}
+
+	private static BestDiscoveredSolution toSolution(Parameter[] workParameters, double[] values, CostFunctionOutput_IF output){
+		for (int i_param = 0;i_param < workParameters.length;i_param++){
+			workParameters[i_param].setCurrentValue(values[i_param]);
+		}
+		return new BestDiscoveredSolution(workParameters, output);
+	}
+	/**
+	 * The best coordinates of one group found during a cycle
+	 */
+	private static class GroupResult{
+		int[] group;
+		double[] values;
+		CostFunctionOutput_IF output;
+
+		GroupResult(int[] group, double[] source, CostFunctionOutput_IF output){
+			this.group = group;
+			this.values = new double[group.length];
+			this.output = output;
+			copyFrom(source);
+		}
+
+		void offer(double[] source, CostFunctionOutput_IF candidateOutput){
+			if (candidateOutput.isSolutionWithinRestraints()
+					&& (!output.isSolutionWithinRestraints() || output.isNewCostFunctionOutputBetter(candidateOutput))){
+				this.output = candidateOutput;
+				copyFrom(source);
+			}
+		}
+
+		private void copyFrom(double[] source){
+			for (int i_dim = 0;i_dim < group.length;i_dim++){
+				values[i_dim] = source[group[i_dim]];
+			}
+		}
+	}
+	/**
+	 * Sets how the parameters are split into groups. Differential grouping requires cost
+	 * function outputs implementing <b>ScalarCostFunctionOutput_IF</b>.
+	 * @param groupingStrategy
+	 * @return
+	 */
+	public CooperativeCoevolutionSwarm setGroupingStrategy(GroupingStrategy groupingStrategy){
+		this.groupingStrategy = groupingStrategy;
+		return this;
+	}
+	/**
+	 * Sets the threshold above which differential grouping considers two parameters interacting
+	 * @param epsilon
+	 * @return
+	 */
+	public CooperativeCoevolutionSwarm setDifferentialGroupingEpsilon(double epsilon){
+		this.differentialGroupingEpsilon = epsilon;
+		return this;
+	}
+	/**
+	 * Sets the number of generations each sub-swarm runs before the context vector is updated
+	 * @param generationsPerCycle
+	 * @return
+	 */
+	public CooperativeCoevolutionSwarm setGenerationsPerCycle(int generationsPerCycle){
+		this.generationsPerCycle = generationsPerCycle;
+		return this;
+	}
+	/**
+	 * Sets the number of threads the sub-swarms are run on
+	 * @param numberOfThreads
+	 * @return
+	 */
+	public CooperativeCoevolutionSwarm setNumberOfThreads(int numberOfThreads){
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		return this;
+	}
+	/**
+	 * Sets the seed of the random number generator used for initialization and grouping
+	 * @param seed
+	 * @return
+	 */
+	public CooperativeCoevolutionSwarm setRandomSeed(long seed){
+		this.random.setSeed(seed);
+		return this;
+	}
+}
@@ -0,0 +1,147 @@
+package optimization.coevolution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptUtils;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * This class provides static methods that split the indices of a parameter vector into
+ * groups (subcomponents) for cooperative coevolution.
+ * @author Matt
+ *
+ */
+public class VariableGrouping {
+
+	/**
+	 * Enumeration of the supported grouping strategies
+	 * @author Matt
+	 *
+	 */
+	public enum GroupingStrategy{
+		//New random groups of a fixed size every cycle
+		RANDOM,
+		//Groups of interacting variables found once with differential grouping
+		DIFFERENTIAL
+	}
+
+	/**
+	 * Randomly permutes the parameter indices and cuts them into groups of the given size
+	 * (the last group may be smaller)
+	 * @param numberOfParameters
+	 * @param groupSize
+	 * @param random
+	 * @return
+	 */
+	public static int[][] getRandomGroups(int numberOfParameters, int groupSize, Random random){
+		int[] permutation = new int[numberOfParameters];
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			permutation[i_param] = i_param;
+		}
+		for (int i_param = numberOfParameters - 1;i_param > 0;i_param--){
+			int i_swap = random.nextInt(i_param + 1);
+			int swap = permutation[i_param];
+			permutation[i_param] = permutation[i_swap];
+			permutation[i_swap] = swap;
+		}
+		return cutIntoGroups(permutation, groupSize);
+	}
+
+	private static int[][] cutIntoGroups(int[] indices, int groupSize){
+		int size = Math.max(1, groupSize);
+		int numberOfGroups = (indices.length + size - 1)/size;
+		int[][] groups = new int[numberOfGroups][];
+		for (int i_group = 0;i_group < numberOfGroups;i_group++){
+			int start = i_group*size;
+			int end = Math.min(indices.length, start + size);
+			groups[i_group] = new int[end - start];
+			System.arraycopy(indices, start, groups[i_group], 0, end - start);
+		}
+		return groups;
+	}
+	/**
+	 * <pre>
+	 * Differential grouping: variables i and j interact when the change in the cost function
+	 * caused by moving x<sub>i</sub> from its lower to its upper bound depends on the value of
+	 * x<sub>j</sub>. Every variable that interacts with the first variable of a group is added
+	 * to it. Variables that interact with no other variable are separable and are cut into
+	 * groups of the given size.
+	 * </pre>
+	 * <b>Note:</b> This costs O(n<sup>2</sup>) evaluations and requires outputs implementing
+	 * <b>ScalarCostFunctionOutput_IF</b>.
+	 * @param costFunction
+	 * @param parameters
+	 * @param epsilon threshold on the difference of the two deltas above which variables interact
+	 * @param separableGroupSize
+	 * @return
+	 */
+	public static int[][] getDifferentialGroups(CostFunction_IF costFunction, Parameter[] parameters, double epsilon, int separableGroupSize){
+		int numberOfParameters = parameters.length;
+		Parameter[] workParameters = OptUtils.cloneParameterArray(parameters);
+		double[] lower = new double[numberOfParameters];
+		double[] upper = new double[numberOfParameters];
+		double[] middle = new double[numberOfParameters];
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			lower[i_param] = parameters[i_param].lowerBound.doubleValue();
+			upper[i_param] = parameters[i_param].upperBound.doubleValue();
+			middle[i_param] = parameters[i_param].mean;
+		}
+		boolean[] grouped = new boolean[numberOfParameters];
+		List<int[]> groups = new ArrayList<int[]>();
+		List<Integer> separable = new ArrayList<Integer>();
+		double[] point = new double[numberOfParameters];
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			if (grouped[i_param]){
+				continue;
+			}
+			grouped[i_param] = true;
+			List<Integer> group = new ArrayList<Integer>();
+			group.add(i_param);
+			System.arraycopy(lower, 0, point, 0, numberOfParameters);
+			double fLower = evaluate(costFunction, workParameters, point);
+			point[i_param] = upper[i_param];
+			double fUpper = evaluate(costFunction, workParameters, point);
+			double delta1 = fLower - fUpper;
+			for (int j_param = i_param + 1;j_param < numberOfParameters;j_param++){
+				if (grouped[j_param]){
+					continue;
+				}
+				System.arraycopy(lower, 0, point, 0, numberOfParameters);
+				point[j_param] = middle[j_param];
+				double fLowerShifted = evaluate(costFunction, workParameters, point);
+				point[i_param] = upper[i_param];
+				double fUpperShifted = evaluate(costFunction, workParameters, point);
+				double delta2 = fLowerShifted - fUpperShifted;
+				if (Math.abs(delta1 - delta2) > epsilon){
+					grouped[j_param] = true;
+					group.add(j_param);
+				}
+			}
+			if (group.size() == 1){
+				separable.add(i_param);
+			} else {
+				groups.add(group.stream().mapToInt((index) -> index).toArray());
+			}
+		}
+		for (int[] separableGroup : cutIntoGroups(separable.stream().mapToInt((index) -> index).toArray(), separableGroupSize)){
+			groups.add(separableGroup);
+		}
+		return groups.toArray(new int[0][]);
+	}
+
+	private static double evaluate(CostFunction_IF costFunction, Parameter[] workParameters, double[] point){
+		for (int i_param = 0;i_param < workParameters.length;i_param++){
+			workParameters[i_param].setCurrentValue(point[i_param]);
+		}
+		CostFunctionOutput_IF output = costFunction.evaluateCostFunction(workParameters);
+		if (!(output instanceof ScalarCostFunctionOutput_IF)){
+			throw new IllegalArgumentException("Differential grouping requires outputs implementing ScalarCostFunctionOutput_IF");
+		}
+		return ((ScalarCostFunctionOutput_IF)output).getFitness();
+	}
+}
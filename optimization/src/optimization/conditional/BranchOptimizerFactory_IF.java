@@ -0,0 +1,24 @@
+package optimization.conditional;
+
+import optimization.BestDiscoveredSolution;
+import optimization.Optimizer_IF;
+import optimization.Parameter;
+
+/**
+ * This interface details the method a <b>ConditionalOptimizer</b> uses to create the optimizer
+ * that searches one branch of a <b>ConditionalParameterSpace</b> in one round.
+ * @author Matt
+ *
+ */
+public interface BranchOptimizerFactory_IF {
+	/**
+	 * Creates the optimizer of one round of the search of a branch
+	 * @param branch
+	 * @param parameters copies of the searched parameters of the branch
+	 * @param evaluationBudget evaluations the branch is granted this round; further evaluations abort the optimizer
+	 * @param priorBest best solution of the branch in earlier rounds, over the searched parameters, or null
+	 * @return
+	 */
+	public Optimizer_IF createOptimizer(ConditionalParameterSpace.Branch branch, Parameter[] parameters, long evaluationBudget,
+			BestDiscoveredSolution priorBest);
+}
@@ -0,0 +1,342 @@
+package optimization.conditional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptimizationAbortedException;
+import optimization.Optimizer_IF;
+import optimization.Parameter;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+
+/**
+ * <pre>
+ * This class optimizes over a <b>ConditionalParameterSpace</b> by searching every branch of the
+ * space separately, so that a search never mixes parameter values of incompatible branches, and
+ * shifts the evaluation budget toward the most promising branches with successive halving.
+ * </pre>
+ * <pre>
+ * The budget is split evenly over rounds. In every round the remaining branches are searched in
+ * parallel with an equal share of the budget of the round, and afterwards only the best
+ * 1/<b>reductionFactor</b> of them (at least one) are kept for the next round, so the surviving
+ * branches get ever larger shares. The number of rounds is chosen so that one branch is left for
+ * the last round. Every round creates a new optimizer for a branch with a
+ * <b>BranchOptimizerFactory_IF</b>, warm started from the best solution of the branch so far; by
+ * default a <b>ParticleSwarm</b>. An optimizer that uses up its share is aborted with an
+ * <b>OptimizationAbortedException</b> and budget left by optimizers that finish early is carried
+ * over to the next round.
+ * </pre>
+ * <pre>
+ * All searches stop as soon as one of them satisfies the optimization criterion. The best
+ * solution found in any branch is returned, over all parameters of the space. The cost function
+ * is called from several threads at once and must be thread safe. If the search of a branch
+ * fails, all searches are stopped and the failure is rethrown from <b>optimize</b>.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class ConditionalOptimizer implements Optimizer_IF {
+
+	private final ConditionalParameterSpace space;
+	private final long evaluationBudget;
+	private BranchOptimizerFactory_IF optimizerFactory = this::createSwarm;
+	private double reductionFactor = 3.0;
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+	private int numberOfParticles = 20;
+	private boolean verbose = true;
+	private volatile boolean stopped = false;
+	private List<BranchSearch> searches = new ArrayList<BranchSearch>();
+
+	/**
+	 * Constructor that defines the parameter space and the total number of cost function evaluations
+	 * @param space
+	 * @param evaluationBudget
+	 */
+	public ConditionalOptimizer(ConditionalParameterSpace space, long evaluationBudget){
+		this.space = space;
+		this.evaluationBudget = evaluationBudget;
+	}
+
+	@Override
+	public BestDiscoveredSolution optimize(CostFunction_IF costFunction) {
+		stopped = false;
+		List<BranchSearch> searches = new ArrayList<BranchSearch>();
+		for (ConditionalParameterSpace.Branch branch : space.getBranches()){
+			searches.add(new BranchSearch(branch, costFunction));
+		}
+		this.searches = searches;
+		List<BranchSearch> survivors = new ArrayList<BranchSearch>(searches);
+		int numberOfRounds = 1;
+		while (Math.pow(reductionFactor, numberOfRounds - 1) < searches.size()){
+			numberOfRounds++;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(numberOfThreads, searches.size())), (runnable) -> {
+			Thread thread = new Thread(runnable, "branch-search");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			for (int i_round = 0;i_round < numberOfRounds && !stopped;i_round++){
+				long remainingBudget = evaluationBudget - getEvaluationsUsed();
+				long branchBudget = remainingBudget/(numberOfRounds - i_round)/survivors.size();
+				if (branchBudget < 1){
+					break;
+				}
+				runRound(pool, survivors, branchBudget);
+				Collections.sort(survivors, ConditionalOptimizer::compareBest);
+				if (verbose){
+					for (BranchSearch search : survivors){
+						System.out.println("Round: " + String.valueOf(i_round) + ",Branch: " + search.branch.toString()
+							+ ",Evaluations: " + String.valueOf(search.evaluations) + ",Best Value: "
+							+ (search.best != null ? search.best.getCostFunctionOutput().getOutputAsString() : "none"));
+					}
+				}
+				int numberToKeep = Math.max(1, (int)Math.ceil(survivors.size()/reductionFactor));
+				survivors = new ArrayList<BranchSearch>(survivors.subList(0, numberToKeep));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+		}
+		BestDiscoveredSolution best = null;
+		for (BranchSearch search : searches){
+			if (search.best != null && (best == null || compareBest(search, best) < 0)){
+				best = search.best;
+			}
+		}
+		return best;
+	}
+
+	private void runRound(ExecutorService pool, List<BranchSearch> survivors, long branchBudget) throws InterruptedException{
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (BranchSearch search : survivors){
+			futures.add(pool.submit(() -> {
+				try {
+					search.run(branchBudget);
+				} catch (RuntimeException | Error e) {
+					//Stop the other branches right away, the failure is rethrown by runRound
+					stopped = true;
+					throw e;
+				}
+			}));
+		}
+		RuntimeException failure = null;
+		for (int i_search = 0;i_search < futures.size();i_search++){
+			try {
+				futures.get(i_search).get();
+			} catch (ExecutionException e) {
+				stopped = true;
+				if (failure == null){
+					failure = e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause()
+							: new IllegalStateException("Search of branch " + survivors.get(i_search).branch.toString() + " failed", e.getCause());
+				}
+			}
+		}
+		//A crashed branch is not a search result, so it must not be ranked with the others
+		if (failure != null){
+			throw failure;
+		}
+	}
+	/**
+	 * Orders searches from the best to the worst best solution, with searches without a feasible
+	 * solution last
+	 */
+	private static int compareBest(BranchSearch first, BranchSearch second){
+		if (second.best == null){
+			return first.best == null ? 0 : -1;
+		}
+		return compareBest(first, second.best);
+	}
+
+	private static int compareBest(BranchSearch search, BestDiscoveredSolution solution){
+		if (search.best == null){
+			return 1;
+		}
+		CostFunctionOutput_IF output = search.best.getCostFunctionOutput();
+		if (solution.getCostFunctionOutput().isNewCostFunctionOutputBetter(output)){
+			return -1;
+		}
+		return output.isNewCostFunctionOutputBetter(solution.getCostFunctionOutput()) ? 1 : 0;
+	}
+	/**
+	 * Creates the default optimizer of a branch: a <b>ParticleSwarm</b> that runs until it has
+	 * used the budget, with half of the particles seeded around the prior best solution
+	 */
+	private Optimizer_IF createSwarm(ConditionalParameterSpace.Branch branch, Parameter[] parameters, long evaluationBudget,
+			BestDiscoveredSolution priorBest){
+		ParticleParameter[] particleParameters = new ParticleParameter[parameters.length];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			particleParameters[i_param] = toParticleParameter(parameters[i_param]);
+		}
+		int maxGenerations = (int)Math.min(Integer.MAX_VALUE, evaluationBudget/numberOfParticles + 1);
+		ParticleSwarm swarm = new ParticleSwarm(numberOfParticles, maxGenerations, 0.1, particleParameters)
+				.setConvergenceLimit(20).setVerbose(false);
+		if (priorBest != null){
+			swarm.setWarmStartSolutions(Collections.singletonList(priorBest), 0.5);
+		}
+		return swarm;
+	}
+
+	private static ParticleParameter toParticleParameter(Parameter parameter){
+		if (parameter instanceof ParticleParameter){
+			return (ParticleParameter)parameter;
+		}
+		switch(parameter.getParamType()){
+		case INTEGER:
+			return new ParticleParameter(parameter.lowerBound.intValue(), parameter.upperBound.intValue());
+		case CATEGORICAL:
+			String[] values = parameter.categoricalMap.entrySet().stream().sorted((first, second) -> first.getValue().compareTo(second.getValue()))
+					.map((entry) -> entry.getKey()).toArray(String[]::new);
+			return new ParticleParameter(values);
+		default:
+			return new ParticleParameter(parameter.lowerBound.doubleValue(), parameter.upperBound.doubleValue());
+		}
+	}
+	/**
+	 * Sets the factory of the optimizers that search the branches, instead of the default
+	 * <b>ParticleSwarm</b>
+	 * @param optimizerFactory
+	 * @return
+	 */
+	public ConditionalOptimizer setOptimizerFactory(BranchOptimizerFactory_IF optimizerFactory){
+		this.optimizerFactory = optimizerFactory;
+		return this;
+	}
+	/**
+	 * Sets the factor by which the number of branches is reduced after every round. The default is 3.
+	 * @param reductionFactor
+	 * @return
+	 */
+	public ConditionalOptimizer setReductionFactor(double reductionFactor){
+		this.reductionFactor = Math.max(1.5, reductionFactor);
+		return this;
+	}
+
+	public ConditionalOptimizer setNumberOfThreads(int numberOfThreads){
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		return this;
+	}
+	/**
+	 * Sets the number of particles of the default <b>ParticleSwarm</b> of a branch. The default is 20.
+	 * @param numberOfParticles
+	 * @return
+	 */
+	public ConditionalOptimizer setNumberOfParticles(int numberOfParticles){
+		this.numberOfParticles = Math.max(2, numberOfParticles);
+		return this;
+	}
+
+	public ConditionalOptimizer setVerbose(boolean verbose){
+		this.verbose = verbose;
+		return this;
+	}
+	/**
+	 * Returns the number of evaluations made in the last optimization
+	 * @return
+	 */
+	public long getEvaluationsUsed(){
+		long evaluations = 0;
+		for (BranchSearch search : searches){
+			evaluations += search.getEvaluations();
+		}
+		return evaluations;
+	}
+	/**
+	 * Returns the number of evaluations made in the branch with the given index in the last optimization
+	 * @param branchIndex
+	 * @return
+	 */
+	public long getBranchEvaluations(int branchIndex){
+		return searches.get(branchIndex).getEvaluations();
+	}
+	/**
+	 * Returns the best solution of the branch with the given index in the last optimization, or
+	 * null if none was found
+	 * @param branchIndex
+	 * @return
+	 */
+	public BestDiscoveredSolution getBranchBest(int branchIndex){
+		synchronized(searches.get(branchIndex)){
+			return searches.get(branchIndex).best;
+		}
+	}
+	/**
+	 * The search of one branch. It is handed to the optimizers of the branch as the cost function,
+	 * fills in the fixed and inactive parameters and enforces the budget of the round.
+	 */
+	private class BranchSearch implements CostFunction_IF{
+		private final ConditionalParameterSpace.Branch branch;
+		private final CostFunction_IF costFunction;
+		private final ThreadLocal<Parameter[]> fullParameters;
+		//Guarded by this
+		private long evaluations = 0;
+		private long evaluationLimit = 0;
+		private BestDiscoveredSolution best = null;
+		private BestDiscoveredSolution searchedBest = null;
+
+		private BranchSearch(ConditionalParameterSpace.Branch branch, CostFunction_IF costFunction){
+			this.branch = branch;
+			this.costFunction = costFunction;
+			this.fullParameters = ThreadLocal.withInitial(branch::getFullParameters);
+		}
+
+		private void run(long branchBudget){
+			BestDiscoveredSolution priorBest;
+			synchronized(this){
+				evaluationLimit = evaluations + branchBudget;
+				priorBest = searchedBest;
+			}
+			Parameter[] parameters = branch.getSearchedParameters();
+			try {
+				if (parameters.length == 0){
+					//Nothing to search; a single evaluation decides the branch
+					if (priorBest == null){
+						evaluateCostFunction(parameters);
+					}
+				} else {
+					optimizerFactory.createOptimizer(branch, parameters, branchBudget, priorBest).optimize(this);
+				}
+			} catch (OptimizationAbortedException e){
+				//The budget of the round is used up or another branch met the optimization criterion
+			}
+		}
+
+		private synchronized long getEvaluations(){
+			return evaluations;
+		}
+
+		@Override
+		public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+			synchronized(this){
+				if (stopped || evaluations >= evaluationLimit){
+					throw new OptimizationAbortedException("Branch search stopped");
+				}
+				evaluations++;
+			}
+			Parameter[] full = fullParameters.get();
+			branch.setFullParameters(parameters, full);
+			CostFunctionOutput_IF output = costFunction.evaluateCostFunction(full);
+			synchronized(this){
+				//An output that satisfies the criterion stops the search but must still be better to replace the best
+				if (output.isSolutionWithinRestraints()
+						&& (best == null || best.getCostFunctionOutput().isNewCostFunctionOutputBetter(output))){
+					best = new BestDiscoveredSolution(full, output);
+					searchedBest = new BestDiscoveredSolution(parameters, output);
+				}
+			}
+			if (output.isOptimizationCriterionSatisified()){
+				stopped = true;
+			}
+			return output;
+		}
+	}
+}
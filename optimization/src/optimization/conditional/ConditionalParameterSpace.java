@@ -0,0 +1,261 @@
+package optimization.conditional;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import optimization.OptUtils;
+import optimization.Parameter;
+import optimization.Parameter.ParameterType;
+
+/**
+ * <pre>
+ * This class defines a parameter space in which some parameters are only active for certain
+ * values of categorical parameters, for example the inputs of a model that only exist for one
+ * choice of model. A parameter can only be conditioned on categorical parameters that come
+ * before it, so the conditions form a hierarchy. A parameter with several conditions is active
+ * when all of them hold and the categorical parameters they refer to are active themselves.
+ * </pre>
+ * <pre>
+ * The categorical parameters that other parameters are conditioned on, and those added with
+ * <b>addBranchingParameter</b>, split the space into <b>Branch</b>es, one for every combination
+ * of their active values. Within a branch those
+ * categorical parameters are fixed and only the remaining active parameters are searched, so
+ * every branch is an ordinary flat search space.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class ConditionalParameterSpace {
+
+	private final Parameter[] template;
+	private final List<List<Condition>> conditions = new ArrayList<List<Condition>>();
+	private final boolean[] isBranching;
+
+	/**
+	 * Constructor that defines the parameters of the cost function. Inactive parameters keep the
+	 * values these parameters have when the cost function is evaluated.
+	 * @param parameters
+	 */
+	public ConditionalParameterSpace(Parameter... parameters){
+		this.template = OptUtils.cloneParameterArray(parameters);
+		this.isBranching = new boolean[parameters.length];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			conditions.add(new ArrayList<Condition>());
+		}
+	}
+	/**
+	 * Makes a parameter active only when a categorical parameter before it has one of the given values
+	 * @param parameterIndex
+	 * @param categoricalIndex index of a categorical parameter, smaller than parameterIndex
+	 * @param activeValues
+	 * @return
+	 */
+	public ConditionalParameterSpace addCondition(int parameterIndex, int categoricalIndex, String... activeValues){
+		if (categoricalIndex >= parameterIndex || template[categoricalIndex].getParamType() != ParameterType.CATEGORICAL){
+			throw new IllegalArgumentException("Parameter " + parameterIndex + " can only be conditioned on a categorical parameter before it");
+		}
+		Set<Integer> codes = new HashSet<Integer>();
+		for (String value : activeValues){
+			Integer code = template[categoricalIndex].categoricalMap.get(value);
+			if (code == null){
+				throw new IllegalArgumentException("Unknown value " + value + " of parameter " + categoricalIndex);
+			}
+			codes.add(code);
+		}
+		conditions.get(parameterIndex).add(new Condition(categoricalIndex, codes));
+		isBranching[categoricalIndex] = true;
+		return this;
+	}
+	/**
+	 * Splits the space on every value of a categorical parameter even if no parameter is
+	 * conditioned on it, so that each value is searched as its own branch. This suits a choice
+	 * that changes how the other parameters are interpreted without changing which are active.
+	 * @param categoricalIndex index of a categorical parameter
+	 * @return
+	 */
+	public ConditionalParameterSpace addBranchingParameter(int categoricalIndex){
+		if (template[categoricalIndex].getParamType() != ParameterType.CATEGORICAL){
+			throw new IllegalArgumentException("Parameter " + categoricalIndex + " is not categorical and cannot split the space into branches");
+		}
+		isBranching[categoricalIndex] = true;
+		return this;
+	}
+
+	public int getNumberOfParameters(){
+		return template.length;
+	}
+	/**
+	 * Returns copies of the parameters of the space
+	 * @return
+	 */
+	public Parameter[] getParameters(){
+		return OptUtils.cloneParameterArray(template);
+	}
+	/**
+	 * Returns whether the parameter at the given index is active for the values of the given parameters
+	 * @param parameterIndex
+	 * @param parameters
+	 * @return
+	 */
+	public boolean isActive(int parameterIndex, Parameter... parameters){
+		int[] codes = new int[parameters.length];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			codes[i_param] = isBranching[i_param] ? parameters[i_param].getCurrentValue().intValue() : -1;
+		}
+		for (int i_param = 0;i_param <= parameterIndex;i_param++){
+			if (isBranching[i_param] && !isActive(i_param, codes)){
+				codes[i_param] = -1;
+			}
+		}
+		return isActive(parameterIndex, codes);
+	}
+	/**
+	 * Returns whether the parameter is active given the codes of the branching parameters before
+	 * it, -1 for inactive ones
+	 */
+	private boolean isActive(int parameterIndex, int[] codes){
+		for (Condition condition : conditions.get(parameterIndex)){
+			int code = codes[condition.categoricalIndex];
+			if (code < 0 || !condition.activeCodes.contains(code)){
+				return false;
+			}
+		}
+		return true;
+	}
+	/**
+	 * Returns every branch of the space. A space without conditions has a single branch in which
+	 * all parameters are searched.
+	 * @return
+	 */
+	public List<Branch> getBranches(){
+		List<Branch> branches = new ArrayList<Branch>();
+		int[] codes = new int[template.length];
+		Arrays.fill(codes, -1);
+		addBranches(0, codes, branches);
+		return branches;
+	}
+
+	private void addBranches(int parameterIndex, int[] codes, List<Branch> branches){
+		if (parameterIndex == template.length){
+			branches.add(new Branch(branches.size(), codes.clone()));
+			return;
+		}
+		if (isBranching[parameterIndex] && isActive(parameterIndex, codes)){
+			Integer[] parameterCodes = template[parameterIndex].categoricalMap.values().stream().sorted().toArray(Integer[]::new);
+			for (Integer code : parameterCodes){
+				codes[parameterIndex] = code;
+				addBranches(parameterIndex + 1, codes, branches);
+			}
+			codes[parameterIndex] = -1;
+		} else {
+			addBranches(parameterIndex + 1, codes, branches);
+		}
+	}
+	/**
+	 * A categorical parameter and the values for which the conditioned parameter is active
+	 */
+	private static class Condition{
+		private final int categoricalIndex;
+		private final Set<Integer> activeCodes;
+
+		private Condition(int categoricalIndex, Set<Integer> activeCodes){
+			this.categoricalIndex = categoricalIndex;
+			this.activeCodes = activeCodes;
+		}
+	}
+	/**
+	 * <pre>
+	 * One combination of values of the branching categorical parameters. The parameters that are
+	 * active for it and not fixed by it are the searched parameters of the branch.
+	 * </pre>
+	 * @author Matt
+	 *
+	 */
+	public class Branch{
+		private final int index;
+		private final int[] fixedCodes;
+		private final int[] searchedIndices;
+
+		private Branch(int index, int[] fixedCodes){
+			this.index = index;
+			this.fixedCodes = fixedCodes;
+			int numberSearched = 0;
+			int[] searched = new int[template.length];
+			for (int i_param = 0;i_param < template.length;i_param++){
+				if (fixedCodes[i_param] < 0 && !isBranching[i_param] && isActive(i_param, fixedCodes)){
+					searched[numberSearched++] = i_param;
+				}
+			}
+			this.searchedIndices = Arrays.copyOf(searched, numberSearched);
+		}
+		/**
+		 * Returns the position of the branch in <b>getBranches()</b>
+		 * @return
+		 */
+		public int getIndex(){
+			return index;
+		}
+		/**
+		 * Returns the indices of the searched parameters in the parameters of the space
+		 * @return
+		 */
+		public int[] getSearchedParameterIndices(){
+			return searchedIndices.clone();
+		}
+		/**
+		 * Returns copies of the searched parameters, with the type of the array given to the space
+		 * @return
+		 */
+		public Parameter[] getSearchedParameters(){
+			Parameter[] searched = (Parameter[])Array.newInstance(template.getClass().getComponentType(), searchedIndices.length);
+			Parameter[] copies = OptUtils.cloneParameterArray(template);
+			for (int i_param = 0;i_param < searchedIndices.length;i_param++){
+				searched[i_param] = copies[searchedIndices[i_param]];
+			}
+			return searched;
+		}
+		/**
+		 * Returns copies of all parameters of the space with the fixed categorical values of the branch
+		 * @return
+		 */
+		public Parameter[] getFullParameters(){
+			Parameter[] full = OptUtils.cloneParameterArray(template);
+			for (int i_param = 0;i_param < full.length;i_param++){
+				if (fixedCodes[i_param] >= 0){
+					full[i_param].setCurrentValue(fixedCodes[i_param]);
+				}
+			}
+			return full;
+		}
+		/**
+		 * Copies the values of the searched parameters into the parameters of the space
+		 * @param searched values of the searched parameters, in the order of <b>getSearchedParameters()</b>
+		 * @param full parameters of the space, as returned by <b>getFullParameters()</b>
+		 */
+		public void setFullParameters(Parameter[] searched, Parameter[] full){
+			for (int i_param = 0;i_param < searchedIndices.length;i_param++){
+				full[searchedIndices[i_param]].setCurrentValue(searched[i_param].getCurrentValueAsDouble());
+			}
+		}
+		/**
+		 * Returns the fixed categorical values of the branch, such as "0=holdertable" for the value of parameter 0
+		 */
+		@Override
+		public String toString(){
+			StringBuilder name = new StringBuilder();
+			for (int i_param = 0;i_param < fixedCodes.length;i_param++){
+				if (fixedCodes[i_param] >= 0){
+					if (name.length() > 0){
+						name.append(',');
+					}
+					name.append(i_param).append('=').append(template[i_param].decode(fixedCodes[i_param]));
+				}
+			}
+			return name.length() > 0 ? name.toString() : "all";
+		}
+	}
+}
@@ -0,0 +1,546 @@
+package optimization.expression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import optimization.expression.ExpressionParser.Binary;
+import optimization.expression.ExpressionParser.Call;
+import optimization.expression.ExpressionParser.Comparison;
+import optimization.expression.ExpressionParser.Conditional;
+import optimization.expression.ExpressionParser.Constant;
+import optimization.expression.ExpressionParser.Local;
+import optimization.expression.ExpressionParser.Logical;
+import optimization.expression.ExpressionParser.Negation;
+import optimization.expression.ExpressionParser.Node;
+import optimization.expression.ExpressionParser.Program;
+import optimization.expression.ExpressionParser.Variable;
+
+/**
+ * <pre>
+ * Translates a parsed expression into a class implementing <b>CompiledExpression</b> and loads
+ * it with a class loader of its own, so the expression is run by the JIT compiler like hand
+ * written code instead of being interpreted node by node. Each class gets its own loader, so it
+ * can be unloaded once the cost function is no longer referenced.
+ * </pre>
+ * <pre>
+ * The class file is written directly: one constant pool, a constructor and the two evaluate
+ * methods, which share the code of the expression and only differ in how a parameter value is
+ * loaded (values[i] or columns[i][i_point]). Locals defined in the expression are kept in JVM
+ * local variables. The class file version is 49 so no stack map frames are needed for the
+ * branches of conditionals.
+ * </pre>
+ * @author Matt
+ *
+ */
+class BytecodeCompiler {
+	private static final AtomicLong CLASS_COUNTER = new AtomicLong();
+	private static final String INTERFACE_NAME = CompiledExpression.class.getName().replace('.', '/');
+
+	private static final int DCONST_0 = 0x0e;
+	private static final int DCONST_1 = 0x0f;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int LDC2_W = 0x14;
+	private static final int DLOAD = 0x18;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int ILOAD_2 = 0x1c;
+	private static final int DALOAD = 0x31;
+	private static final int AALOAD = 0x32;
+	private static final int DSTORE = 0x39;
+	private static final int DUP2 = 0x5c;
+	private static final int DADD = 0x63;
+	private static final int DSUB = 0x67;
+	private static final int DMUL = 0x6b;
+	private static final int DDIV = 0x6f;
+	private static final int DREM = 0x73;
+	private static final int DNEG = 0x77;
+	private static final int DCMPL = 0x97;
+	private static final int DCMPG = 0x98;
+	private static final int IFEQ = 0x99;
+	private static final int IFNE = 0x9a;
+	private static final int IFLT = 0x9b;
+	private static final int IFGE = 0x9c;
+	private static final int IFGT = 0x9d;
+	private static final int IFLE = 0x9e;
+	private static final int GOTO = 0xa7;
+	private static final int DRETURN = 0xaf;
+	private static final int RETURN = 0xb1;
+	private static final int INVOKESTATIC = 0xb8;
+	private static final int INVOKESPECIAL = 0xb7;
+
+	/**
+	 * Class loader defining one generated class
+	 */
+	private static class ExpressionClassLoader extends ClassLoader{
+		ExpressionClassLoader(){
+			super(CompiledExpression.class.getClassLoader());
+		}
+		Class<?> define(String name, byte[] classFile){
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+
+	private final Program program;
+	private final ConstantPool constantPool = new ConstantPool();
+
+	BytecodeCompiler(Program program){
+		this.program = program;
+	}
+
+	CompiledExpression compile(){
+		String className = "optimization.expression.generated.Expression" + CLASS_COUNTER.incrementAndGet();
+		byte[] classFile = writeClass(className.replace('.', '/'));
+		try {
+			Class<?> compiledClass = new ExpressionClassLoader().define(className, classFile);
+			return (CompiledExpression)compiledClass.getConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e){
+			throw new IllegalStateException("The expression could not be compiled", e);
+		}
+	}
+
+	private byte[] writeClass(String className){
+		int thisClass = constantPool.getClass(className);
+		int superClass = constantPool.getClass("java/lang/Object");
+		int interfaceClass = constantPool.getClass(INTERFACE_NAME);
+		byte[] constructor = writeMethod("<init>", "()V", writeConstructorCode(), 1, 1);
+		int maxStack = getMaxStack();
+		//this, values and two slots per local
+		byte[] arrayMethod = writeMethod("evaluate", "([D)D", writeExpressionCode(false), maxStack, 2 + 2*program.locals.size());
+		//this, columns, i_point and two slots per local
+		byte[] columnMethod = writeMethod("evaluate", "([[DI)D", writeExpressionCode(true), maxStack, 3 + 2*program.locals.size());
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream stream = new DataOutputStream(bytes);
+			stream.writeInt(0xCAFEBABE);
+			stream.writeShort(0);
+			stream.writeShort(49);
+			constantPool.write(stream);
+			//public final super
+			stream.writeShort(0x0001 | 0x0010 | 0x0020);
+			stream.writeShort(thisClass);
+			stream.writeShort(superClass);
+			stream.writeShort(1);
+			stream.writeShort(interfaceClass);
+			//no fields
+			stream.writeShort(0);
+			stream.writeShort(3);
+			stream.write(constructor);
+			stream.write(arrayMethod);
+			stream.write(columnMethod);
+			//no class attributes
+			stream.writeShort(0);
+			stream.flush();
+			return bytes.toByteArray();
+		} catch (IOException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private byte[] writeMethod(String name, String descriptor, byte[] code, int maxStack, int maxLocals){
+		if (code.length > 65535 || maxLocals > 255){
+			throw new IllegalArgumentException("The expression is too large to be compiled");
+		}
+		int nameIndex = constantPool.getUtf8(name);
+		int descriptorIndex = constantPool.getUtf8(descriptor);
+		int codeIndex = constantPool.getUtf8("Code");
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream stream = new DataOutputStream(bytes);
+			stream.writeShort(0x0001);
+			stream.writeShort(nameIndex);
+			stream.writeShort(descriptorIndex);
+			stream.writeShort(1);
+			stream.writeShort(codeIndex);
+			stream.writeInt(12 + code.length);
+			stream.writeShort(maxStack);
+			stream.writeShort(maxLocals);
+			stream.writeInt(code.length);
+			stream.write(code);
+			//no exception handlers and no code attributes
+			stream.writeShort(0);
+			stream.writeShort(0);
+			stream.flush();
+			return bytes.toByteArray();
+		} catch (IOException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private byte[] writeConstructorCode(){
+		Code code = new Code();
+		code.write(ALOAD_0);
+		code.write(INVOKESPECIAL);
+		code.writeShort(constantPool.getMethod("java/lang/Object", "<init>", "()V"));
+		code.write(RETURN);
+		return code.toByteArray();
+	}
+
+	private byte[] writeExpressionCode(boolean columns){
+		Code code = new Code();
+		int firstLocalSlot = columns ? 3 : 2;
+		for (int i_local = 0;i_local < program.locals.size();i_local++){
+			emit(program.locals.get(i_local), code, columns, firstLocalSlot);
+			code.write(DSTORE);
+			code.write(firstLocalSlot + 2*i_local);
+		}
+		emit(program.result, code, columns, firstLocalSlot);
+		code.write(DRETURN);
+		return code.toByteArray();
+	}
+
+	private int getMaxStack(){
+		int maxStack = getStackDepth(program.result);
+		for (Node local : program.locals){
+			maxStack = Math.max(maxStack, getStackDepth(local));
+		}
+		return maxStack;
+	}
+	/**
+	 * Returns the number of operand stack slots needed to evaluate a node
+	 */
+	private static int getStackDepth(Node node){
+		if (node instanceof Binary){
+			Binary binary = (Binary)node;
+			if (binary.operator == '^' && getSmallPower(binary) > 0){
+				return Math.max(getStackDepth(binary.left), 2*getSmallPower(binary));
+			}
+			return Math.max(getStackDepth(binary.left), 2 + getStackDepth(binary.right));
+		} else if (node instanceof Negation){
+			return getStackDepth(((Negation)node).operand);
+		} else if (node instanceof Call){
+			int depth = 0;
+			Node[] arguments = ((Call)node).arguments;
+			for (int i_arg = 0;i_arg < arguments.length;i_arg++){
+				depth = Math.max(depth, 2*i_arg + getStackDepth(arguments[i_arg]));
+			}
+			return depth;
+		} else if (node instanceof Conditional){
+			Conditional conditional = (Conditional)node;
+			return Math.max(getStackDepth(conditional.condition),
+					Math.max(getStackDepth(conditional.whenTrue), getStackDepth(conditional.whenFalse)));
+		} else if (node instanceof Comparison){
+			Comparison comparison = (Comparison)node;
+			return Math.max(getStackDepth(comparison.left), 2 + getStackDepth(comparison.right));
+		} else if (node instanceof Logical){
+			Logical logical = (Logical)node;
+			return logical.right == null ? getStackDepth(logical.left)
+					: Math.max(getStackDepth(logical.left), getStackDepth(logical.right));
+		}
+		return 2;
+	}
+	/**
+	 * Returns the exponent of a power with a constant exponent of 2, 3 or 4, which is computed with
+	 * multiplications instead of Math.pow, or 0
+	 */
+	private static int getSmallPower(Binary power){
+		if (power.right instanceof Constant){
+			double exponent = ((Constant)power.right).value;
+			if (exponent == 2.0 || exponent == 3.0 || exponent == 4.0){
+				return (int)exponent;
+			}
+		}
+		return 0;
+	}
+
+	private void emit(Node node, Code code, boolean columns, int firstLocalSlot){
+		if (node instanceof Constant){
+			double value = ((Constant)node).value;
+			if (Double.doubleToRawLongBits(value) == 0L){
+				code.write(DCONST_0);
+			} else if (value == 1.0){
+				code.write(DCONST_1);
+			} else {
+				code.write(LDC2_W);
+				code.writeShort(constantPool.getDouble(value));
+			}
+		} else if (node instanceof Variable){
+			code.write(ALOAD_1);
+			pushInt(((Variable)node).index, code);
+			if (columns){
+				code.write(AALOAD);
+				code.write(ILOAD_2);
+			}
+			code.write(DALOAD);
+		} else if (node instanceof Local){
+			code.write(DLOAD);
+			code.write(firstLocalSlot + 2*((Local)node).index);
+		} else if (node instanceof Negation){
+			emit(((Negation)node).operand, code, columns, firstLocalSlot);
+			code.write(DNEG);
+		} else if (node instanceof Binary){
+			emitBinary((Binary)node, code, columns, firstLocalSlot);
+		} else if (node instanceof Call){
+			Call call = (Call)node;
+			StringBuilder descriptor = new StringBuilder("(");
+			for (Node argument : call.arguments){
+				emit(argument, code, columns, firstLocalSlot);
+				descriptor.append('D');
+			}
+			descriptor.append(")D");
+			code.write(INVOKESTATIC);
+			code.writeShort(constantPool.getMethod("java/lang/Math", call.function, descriptor.toString()));
+		} else if (node instanceof Conditional){
+			Conditional conditional = (Conditional)node;
+			Label whenFalse = new Label();
+			Label end = new Label();
+			emitJump(conditional.condition, false, whenFalse, code, columns, firstLocalSlot);
+			emit(conditional.whenTrue, code, columns, firstLocalSlot);
+			code.jump(GOTO, end);
+			code.place(whenFalse);
+			emit(conditional.whenFalse, code, columns, firstLocalSlot);
+			code.place(end);
+		} else {
+			throw new IllegalArgumentException("A condition can only be used as the first operand of a conditional");
+		}
+	}
+
+	private void emitBinary(Binary binary, Code code, boolean columns, int firstLocalSlot){
+		emit(binary.left, code, columns, firstLocalSlot);
+		if (binary.operator == '^' && getSmallPower(binary) > 0){
+			int exponent = getSmallPower(binary);
+			for (int i_mult = 1;i_mult < exponent;i_mult++){
+				code.write(DUP2);
+			}
+			for (int i_mult = 1;i_mult < exponent;i_mult++){
+				code.write(DMUL);
+			}
+			return;
+		}
+		emit(binary.right, code, columns, firstLocalSlot);
+		switch(binary.operator){
+		case '+':
+			code.write(DADD);
+			break;
+		case '-':
+			code.write(DSUB);
+			break;
+		case '*':
+			code.write(DMUL);
+			break;
+		case '/':
+			code.write(DDIV);
+			break;
+		case '%':
+			code.write(DREM);
+			break;
+		default:
+			code.write(INVOKESTATIC);
+			code.writeShort(constantPool.getMethod("java/lang/Math", "pow", "(DD)D"));
+		}
+	}
+	/**
+	 * Emits a jump to the target taken when the condition has the given value. Comparisons with
+	 * NaN are false, as in Java.
+	 */
+	private void emitJump(Node condition, boolean jumpWhen, Label target, Code code, boolean columns, int firstLocalSlot){
+		if (condition instanceof Logical){
+			Logical logical = (Logical)condition;
+			if (logical.operator == '!'){
+				emitJump(logical.left, !jumpWhen, target, code, columns, firstLocalSlot);
+			} else if ((logical.operator == '&') != jumpWhen){
+				//false and ... is false, true or ... is true: both operands jump to the target
+				emitJump(logical.left, jumpWhen, target, code, columns, firstLocalSlot);
+				emitJump(logical.right, jumpWhen, target, code, columns, firstLocalSlot);
+			} else {
+				Label skip = new Label();
+				emitJump(logical.left, !jumpWhen, skip, code, columns, firstLocalSlot);
+				emitJump(logical.right, jumpWhen, target, code, columns, firstLocalSlot);
+				code.place(skip);
+			}
+			return;
+		}
+		Comparison comparison = (Comparison)condition;
+		emit(comparison.left, code, columns, firstLocalSlot);
+		emit(comparison.right, code, columns, firstLocalSlot);
+		//dcmpg pushes 1 and dcmpl pushes -1 for NaN, chosen so NaN makes the comparison false
+		switch(comparison.operator){
+		case "<":
+			code.write(DCMPG);
+			code.jump(jumpWhen ? IFLT : IFGE, target);
+			break;
+		case "<=":
+			code.write(DCMPG);
+			code.jump(jumpWhen ? IFLE : IFGT, target);
+			break;
+		case ">":
+			code.write(DCMPL);
+			code.jump(jumpWhen ? IFGT : IFLE, target);
+			break;
+		case ">=":
+			code.write(DCMPL);
+			code.jump(jumpWhen ? IFGE : IFLT, target);
+			break;
+		case "==":
+			code.write(DCMPL);
+			code.jump(jumpWhen ? IFEQ : IFNE, target);
+			break;
+		default:
+			code.write(DCMPL);
+			code.jump(jumpWhen ? IFNE : IFEQ, target);
+		}
+	}
+
+	private void pushInt(int value, Code code){
+		if (value <= 5){
+			//iconst_0 to iconst_5
+			code.write(0x03 + value);
+		} else if (value <= Byte.MAX_VALUE){
+			code.write(BIPUSH);
+			code.write(value);
+		} else {
+			code.write(SIPUSH);
+			code.writeShort(value);
+		}
+	}
+
+	private static class Label{
+		int offset = -1;
+		List<Integer> branches = new ArrayList<Integer>();
+	}
+
+	/**
+	 * Byte code of one method with forward branches patched when their label is placed
+	 */
+	private static class Code{
+		private byte[] bytes = new byte[64];
+		private int length = 0;
+
+		void write(int value){
+			if (length == bytes.length){
+				byte[] grown = new byte[2*bytes.length];
+				System.arraycopy(bytes, 0, grown, 0, length);
+				bytes = grown;
+			}
+			bytes[length++] = (byte)value;
+		}
+
+		void writeShort(int value){
+			write(value >> 8);
+			write(value);
+		}
+
+		void jump(int opcode, Label label){
+			label.branches.add(length);
+			write(opcode);
+			writeShort(0);
+		}
+
+		void place(Label label){
+			label.offset = length;
+			for (int branch : label.branches){
+				int offset = label.offset - branch;
+				if (offset > Short.MAX_VALUE){
+					throw new IllegalArgumentException("The expression is too large to be compiled");
+				}
+				bytes[branch + 1] = (byte)(offset >> 8);
+				bytes[branch + 2] = (byte)offset;
+			}
+		}
+
+		byte[] toByteArray(){
+			byte[] code = new byte[length];
+			System.arraycopy(bytes, 0, code, 0, length);
+			return code;
+		}
+	}
+
+	/**
+	 * Constant pool of the class, reusing entries that were already added
+	 */
+	private static class ConstantPool{
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream stream = new DataOutputStream(bytes);
+		private final Map<String,Integer> indices = new HashMap<String,Integer>();
+		private int count = 1;
+
+		int getUtf8(String text){
+			Integer index = indices.get("U" + text);
+			if (index == null){
+				index = add("U" + text, 1);
+				try {
+					stream.writeByte(1);
+					stream.writeUTF(text);
+				} catch (IOException e){
+					throw new IllegalStateException(e);
+				}
+			}
+			return index;
+		}
+
+		int getClass(String internalName){
+			Integer index = indices.get("C" + internalName);
+			if (index == null){
+				int nameIndex = getUtf8(internalName);
+				index = add("C" + internalName, 1);
+				writeEntry(7, nameIndex, -1);
+			}
+			return index;
+		}
+
+		int getMethod(String owner, String name, String descriptor){
+			String key = "M" + owner + "." + name + descriptor;
+			Integer index = indices.get(key);
+			if (index == null){
+				int classIndex = getClass(owner);
+				int nameIndex = getUtf8(name);
+				int descriptorIndex = getUtf8(descriptor);
+				int nameAndTypeIndex = add("N" + name + descriptor, 1);
+				writeEntry(12, nameIndex, descriptorIndex);
+				index = add(key, 1);
+				writeEntry(10, classIndex, nameAndTypeIndex);
+			}
+			return index;
+		}
+
+		int getDouble(double value){
+			String key = "D" + Double.doubleToRawLongBits(value);
+			Integer index = indices.get(key);
+			if (index == null){
+				//Doubles take two entries of the pool
+				index = add(key, 2);
+				try {
+					stream.writeByte(6);
+					stream.writeDouble(value);
+				} catch (IOException e){
+					throw new IllegalStateException(e);
+				}
+			}
+			return index;
+		}
+
+		private int add(String key, int size){
+			int index = count;
+			count += size;
+			indices.put(key, index);
+			return index;
+		}
+
+		private void writeEntry(int tag, int first, int second){
+			try {
+				stream.writeByte(tag);
+				stream.writeShort(first);
+				if (second >= 0){
+					stream.writeShort(second);
+				}
+			} catch (IOException e){
+				throw new IllegalStateException(e);
+			}
+		}
+
+		void write(DataOutputStream output) throws IOException{
+			if (count > 65535){
+				throw new IllegalArgumentException("The expression is too large to be compiled");
+			}
+			stream.flush();
+			output.writeShort(count);
+			output.write(bytes.toByteArray());
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package optimization.expression;
+
+/**
+ * This interface is implemented by the classes generated by <b>ExpressionCostFunction</b> for
+ * an expression. It is public only so the generated classes, which are defined by their own
+ * class loader, can implement it.
+ * @author Matt
+ *
+ */
+public interface CompiledExpression {
+	/**
+	 * Evaluates the expression
+	 * @param values values of the parameters, in the order of the parameter names
+	 * @return
+	 */
+	public double evaluate(double[] values);
+	/**
+	 * Evaluates the expression for one point of a batch
+	 * @param columns columns[i_param][i_point] is the value of parameter i_param at point i_point
+	 * @param i_point
+	 * @return
+	 */
+	public double evaluate(double[][] columns, int i_point);
+}
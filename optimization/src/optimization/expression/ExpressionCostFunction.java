@@ -0,0 +1,133 @@
+package optimization.expression;
+
+import optimization.BatchCostFunction_IF;
+import optimization.CostFunctionOutput_IF;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * Cost function defined by the text of an expression, so a new objective does not need a new
+ * <b>CostFunction_IF</b> class. The expression is minimized. It refers to the parameters by the
+ * names given in the constructor, in the order the optimizer passes the parameters, and may use
+ *   arithmetic:   + - * / % ^ (power) and parentheses
+ *   functions:    sin cos tan asin acos atan atan2 sinh cosh tanh sqrt cbrt abs exp log log10
+ *                 floor ceil rint signum pow hypot min max, and the constants pi and e
+ *   conditionals: condition ? a : b, or if(condition, a, b), where conditions use
+ *                 &lt; &lt;= &gt; &gt;= == != &amp;&amp; || ! and a categorical parameter is
+ *                 compared with the text of a category: function == 'beale'
+ *   locals:       name = expression; defined before the final expression
+ * For example:
+ *   t = x*x + y - 11; u = y*y + x - 7;
+ *   function == 'himmelblau' ? t^2 + u^2 : -abs(sin(x)*cos(y)*exp(abs(1 - hypot(x, y)/pi)))
+ * </pre>
+ * <pre>
+ * The expression is parsed once in the constructor and compiled to a JVM class, so evaluations
+ * run as compiled code rather than walking the expression tree. Syntax errors are reported with
+ * an <b>IllegalArgumentException</b> giving the position in the expression.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class ExpressionCostFunction implements BatchCostFunction_IF{
+
+	private final String expression;
+	private final CompiledExpression compiledExpression;
+	private double target = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Constructor that parses and compiles the expression
+	 * @param expression
+	 * @param parameterNames name of every parameter, in the order of the parameters
+	 * @param parameters parameters describing the type and categorical encoding of every name
+	 * (their values are not used)
+	 */
+	public ExpressionCostFunction(String expression, String[] parameterNames, Parameter... parameters){
+		this.expression = expression;
+		this.compiledExpression = new BytecodeCompiler(new ExpressionParser(expression, parameterNames, parameters).parse()).compile();
+	}
+	/**
+	 * Sets the value below which the optimization criterion is satisfied. By default the
+	 * criterion is never satisfied.
+	 * @param target
+	 * @return
+	 */
+	public ExpressionCostFunction setTarget(double target){
+		this.target = target;
+		return this;
+	}
+	/**
+	 * Returns the value of the expression for the given parameter values
+	 * @param values
+	 * @return
+	 */
+	public double evaluate(double... values){
+		return compiledExpression.evaluate(values);
+	}
+
+	public String getExpression(){
+		return expression;
+	}
+
+	@Override
+	public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+		double[] values = new double[parameters.length];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			values[i_param] = parameters[i_param].getCurrentValueAsDouble();
+		}
+		return new ExpressionOutput(compiledExpression.evaluate(values), target);
+	}
+
+	@Override
+	public CostFunctionOutput_IF[] evaluateBatch(Parameter[] parameters, double[][] values, int numberOfPoints) {
+		CostFunctionOutput_IF[] outputs = new CostFunctionOutput_IF[numberOfPoints];
+		for (int i_point = 0;i_point < numberOfPoints;i_point++){
+			outputs[i_point] = new ExpressionOutput(compiledExpression.evaluate(values, i_point), target);
+		}
+		return outputs;
+	}
+
+	/**
+	 * Output holding the value of the expression. Values that are not a number are outside of
+	 * the restraints.
+	 */
+	public static class ExpressionOutput implements ScalarCostFunctionOutput_IF{
+		private final double value;
+		private final double target;
+
+		public ExpressionOutput(double value, double target){
+			this.value = value;
+			this.target = target;
+		}
+
+		@Override
+		public double getFitness() {
+			return value;
+		}
+
+		@Override
+		public boolean isNewCostFunctionOutputBetter(CostFunctionOutput_IF newCFOutput) {
+			return ((ExpressionOutput)newCFOutput).getFitness() < value;
+		}
+
+		@Override
+		public boolean isOptimizationCriterionSatisified() {
+			return value < target;
+		}
+
+		@Override
+		public boolean isSolutionWithinRestraints() {
+			return !Double.isNaN(value);
+		}
+
+		@Override
+		public void printOutput() {
+			System.out.println(getOutputAsString());
+		}
+
+		@Override
+		public String getOutputAsString() {
+			return "Value: " + value;
+		}
+	}
+}
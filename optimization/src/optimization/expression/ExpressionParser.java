@@ -0,0 +1,504 @@
+package optimization.expression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import optimization.Parameter;
+
+/**
+ * <pre>
+ * Recursive descent parser turning the text of an expression into a tree of <b>Node</b>s that
+ * the <b>BytecodeCompiler</b> translates. The grammar, from the lowest to the highest precedence:
+ *   program     := (name '=' conditional ';')* conditional
+ *   conditional := or ('?' conditional ':' conditional)?
+ *   or          := and ('||' and)*
+ *   and         := not ('&amp;&amp;' not)*
+ *   not         := '!' not | comparison
+ *   comparison  := sum (('&lt;' | '&lt;=' | '&gt;' | '&gt;=' | '==' | '!=') sum)?
+ *   sum         := product (('+' | '-') product)*
+ *   product     := unary (('*' | '/' | '%') unary)*
+ *   unary       := '-' unary | power
+ *   power       := primary ('^' unary)?
+ *   primary     := number | 'text' | name | name '(' arguments ')' | '(' conditional ')'
+ * </pre>
+ * Comparisons and logical operators produce conditions, which may only be used as the first
+ * operand of a conditional (or of <b>if(condition, a, b)</b>). A quoted text may only be compared
+ * with a categorical parameter and is replaced by the code of the category.
+ * @author Matt
+ *
+ */
+class ExpressionParser {
+
+	/**
+	 * Functions of java.lang.Math taking and returning doubles, with their number of arguments
+	 */
+	static final Map<String,Integer> FUNCTIONS = new HashMap<String,Integer>();
+	static {
+		for (String function : new String[]{"sin","cos","tan","asin","acos","atan","sinh","cosh","tanh","sqrt","cbrt",
+				"abs","exp","log","log10","floor","ceil","signum","rint"}){
+			FUNCTIONS.put(function, 1);
+		}
+		for (String function : new String[]{"atan2","pow","hypot","min","max"}){
+			FUNCTIONS.put(function, 2);
+		}
+	}
+
+	static abstract class Node{
+		boolean isCondition(){
+			return false;
+		}
+	}
+	static class Constant extends Node{
+		final double value;
+		Constant(double value){
+			this.value = value;
+		}
+	}
+	static class Variable extends Node{
+		final int index;
+		Variable(int index){
+			this.index = index;
+		}
+	}
+	static class Local extends Node{
+		final int index;
+		Local(int index){
+			this.index = index;
+		}
+	}
+	static class Text extends Node{
+		final String text;
+		Text(String text){
+			this.text = text;
+		}
+	}
+	static class Negation extends Node{
+		final Node operand;
+		Negation(Node operand){
+			this.operand = operand;
+		}
+	}
+	static class Binary extends Node{
+		final char operator;
+		final Node left;
+		final Node right;
+		Binary(char operator, Node left, Node right){
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+	}
+	static class Call extends Node{
+		final String function;
+		final Node[] arguments;
+		Call(String function, Node[] arguments){
+			this.function = function;
+			this.arguments = arguments;
+		}
+	}
+	static class Conditional extends Node{
+		final Node condition;
+		final Node whenTrue;
+		final Node whenFalse;
+		Conditional(Node condition, Node whenTrue, Node whenFalse){
+			this.condition = condition;
+			this.whenTrue = whenTrue;
+			this.whenFalse = whenFalse;
+		}
+	}
+	static class Comparison extends Node{
+		final String operator;
+		final Node left;
+		final Node right;
+		Comparison(String operator, Node left, Node right){
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+		@Override
+		boolean isCondition(){
+			return true;
+		}
+	}
+	static class Logical extends Node{
+		//'&' for and, '|' for or, '!' for not (right is null)
+		final char operator;
+		final Node left;
+		final Node right;
+		Logical(char operator, Node left, Node right){
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+		@Override
+		boolean isCondition(){
+			return true;
+		}
+	}
+
+	/**
+	 * Parsed expression: the values of the locals are computed in order before the result
+	 */
+	static class Program{
+		final List<Node> locals = new ArrayList<Node>();
+		Node result;
+	}
+
+	private final String expression;
+	private final String[] parameterNames;
+	private final Parameter[] parameters;
+	private final Map<String,Integer> localIndices = new HashMap<String,Integer>();
+	private int position = 0;
+
+	ExpressionParser(String expression, String[] parameterNames, Parameter[] parameters){
+		if (parameterNames.length != parameters.length){
+			throw new IllegalArgumentException("Expected one name per parameter");
+		}
+		this.expression = expression;
+		this.parameterNames = parameterNames;
+		this.parameters = parameters;
+	}
+
+	Program parse(){
+		Program program = new Program();
+		while (true){
+			int start = position;
+			String name = peekName();
+			if (name != null){
+				position += name.length();
+				skipWhitespace();
+				if (peek('=') && !peek("==")){
+					position++;
+					if (getVariableIndex(name) >= 0 || localIndices.containsKey(name)){
+						throw error("'" + name + "' is already defined", start);
+					}
+					Node value = requireNumber(parseConditional());
+					expect(";");
+					localIndices.put(name, program.locals.size());
+					program.locals.add(value);
+					continue;
+				}
+			}
+			position = start;
+			break;
+		}
+		program.result = requireNumber(parseConditional());
+		skipWhitespace();
+		if (position < expression.length()){
+			throw error("Unexpected '" + expression.charAt(position) + "'", position);
+		}
+		return program;
+	}
+
+	private Node parseConditional(){
+		Node condition = parseOr();
+		if (!accept("?")){
+			return condition;
+		}
+		requireCondition(condition);
+		Node whenTrue = requireNumber(parseConditional());
+		expect(":");
+		Node whenFalse = requireNumber(parseConditional());
+		return new Conditional(condition, whenTrue, whenFalse);
+	}
+
+	private Node parseOr(){
+		Node left = parseAnd();
+		while (accept("||")){
+			left = new Logical('|', requireCondition(left), requireCondition(parseAnd()));
+		}
+		return left;
+	}
+
+	private Node parseAnd(){
+		Node left = parseNot();
+		while (accept("&&")){
+			left = new Logical('&', requireCondition(left), requireCondition(parseNot()));
+		}
+		return left;
+	}
+
+	private Node parseNot(){
+		skipWhitespace();
+		if (peek('!') && !peek("!=")){
+			position++;
+			return new Logical('!', requireCondition(parseNot()), null);
+		}
+		return parseComparison();
+	}
+
+	private Node parseComparison(){
+		int start = position;
+		Node left = parseSum();
+		for (String operator : new String[]{"<=",">=","==","!=","<",">"}){
+			if (accept(operator)){
+				Node right = parseSum();
+				if (left instanceof Text || right instanceof Text){
+					return compareCategory(operator, left, right, start);
+				}
+				return new Comparison(operator, requireNumber(left), requireNumber(right));
+			}
+		}
+		return left;
+	}
+	/**
+	 * Replaces the text compared with a categorical parameter by the code of the category
+	 */
+	private Node compareCategory(String operator, Node left, Node right, int start){
+		Node text = left instanceof Text ? left : right;
+		Node other = left instanceof Text ? right : left;
+		if (!operator.equals("==") && !operator.equals("!=")){
+			throw error("Categories can only be compared with == and !=", start);
+		}
+		if (!(other instanceof Variable) || parameters[((Variable)other).index].paramType != Parameter.ParameterType.CATEGORICAL){
+			throw error("'" + ((Text)text).text + "' can only be compared with a categorical parameter", start);
+		}
+		Parameter parameter = parameters[((Variable)other).index];
+		Integer code = parameter.categoricalMap.get(((Text)text).text);
+		if (code == null){
+			throw error("Unknown category '" + ((Text)text).text + "', expected one of " + parameter.categoricalMap.keySet(), start);
+		}
+		return new Comparison(operator, other, new Constant(code));
+	}
+
+	private Node parseSum(){
+		Node left = parseProduct();
+		while (true){
+			if (accept("+")){
+				left = fold('+', left, requireNumber(parseProduct()));
+			} else if (accept("-")){
+				left = fold('-', left, requireNumber(parseProduct()));
+			} else {
+				return left;
+			}
+		}
+	}
+
+	private Node parseProduct(){
+		Node left = parseUnary();
+		while (true){
+			if (accept("*")){
+				left = fold('*', left, requireNumber(parseUnary()));
+			} else if (accept("/")){
+				left = fold('/', left, requireNumber(parseUnary()));
+			} else if (accept("%")){
+				left = fold('%', left, requireNumber(parseUnary()));
+			} else {
+				return left;
+			}
+		}
+	}
+
+	private Node parseUnary(){
+		if (accept("-")){
+			Node operand = requireNumber(parseUnary());
+			if (operand instanceof Constant){
+				return new Constant(-((Constant)operand).value);
+			}
+			return new Negation(operand);
+		}
+		return parsePower();
+	}
+
+	private Node parsePower(){
+		Node base = parsePrimary();
+		if (accept("^")){
+			return fold('^', requireNumber(base), requireNumber(parseUnary()));
+		}
+		return base;
+	}
+
+	private Node parsePrimary(){
+		skipWhitespace();
+		int start = position;
+		if (position >= expression.length()){
+			throw error("Unexpected end of expression", start);
+		}
+		char character = expression.charAt(position);
+		if (accept("(")){
+			Node node = parseConditional();
+			expect(")");
+			return node;
+		}
+		if (character == '\'' || character == '"'){
+			int end = expression.indexOf(character, position + 1);
+			if (end < 0){
+				throw error("Unterminated text", start);
+			}
+			position = end + 1;
+			return new Text(expression.substring(start + 1, end));
+		}
+		if (Character.isDigit(character) || character == '.'){
+			return new Constant(parseNumber());
+		}
+		String name = peekName();
+		if (name == null){
+			throw error("Unexpected '" + character + "'", start);
+		}
+		position += name.length();
+		if (accept("(")){
+			return parseCall(name, start);
+		}
+		if (localIndices.containsKey(name)){
+			return new Local(localIndices.get(name));
+		}
+		int index = getVariableIndex(name);
+		if (index >= 0){
+			return new Variable(index);
+		}
+		switch(name){
+		case "pi":
+			return new Constant(Math.PI);
+		case "e":
+			return new Constant(Math.E);
+		default:
+			throw error("Unknown name '" + name + "'", start);
+		}
+	}
+
+	private Node parseCall(String name, int start){
+		List<Node> arguments = new ArrayList<Node>();
+		if (!accept(")")){
+			do {
+				arguments.add(parseConditional());
+			} while (accept(","));
+			expect(")");
+		}
+		if (name.equals("if")){
+			if (arguments.size() != 3){
+				throw error("if expects a condition and two values", start);
+			}
+			return new Conditional(requireCondition(arguments.get(0)), requireNumber(arguments.get(1)), requireNumber(arguments.get(2)));
+		}
+		Integer numberOfArguments = FUNCTIONS.get(name);
+		if (numberOfArguments == null){
+			throw error("Unknown function '" + name + "'", start);
+		}
+		if (numberOfArguments != arguments.size()){
+			throw error(name + " expects " + numberOfArguments + " argument(s)", start);
+		}
+		for (Node argument : arguments){
+			requireNumber(argument);
+		}
+		return new Call(name, arguments.toArray(new Node[arguments.size()]));
+	}
+
+	private double parseNumber(){
+		int start = position;
+		while (position < expression.length() && (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')){
+			position++;
+		}
+		if (position < expression.length() && (expression.charAt(position) == 'e' || expression.charAt(position) == 'E')){
+			int exponentStart = position++;
+			if (position < expression.length() && (expression.charAt(position) == '+' || expression.charAt(position) == '-')){
+				position++;
+			}
+			if (position >= expression.length() || !Character.isDigit(expression.charAt(position))){
+				position = exponentStart;
+			}
+			while (position < expression.length() && Character.isDigit(expression.charAt(position))){
+				position++;
+			}
+		}
+		try {
+			return Double.parseDouble(expression.substring(start, position));
+		} catch (NumberFormatException e){
+			throw error("Invalid number '" + expression.substring(start, position) + "'", start);
+		}
+	}
+	/**
+	 * Combines two operands, computing the result when both are constants
+	 */
+	private static Node fold(char operator, Node left, Node right){
+		if (left instanceof Constant && right instanceof Constant){
+			double a = ((Constant)left).value;
+			double b = ((Constant)right).value;
+			switch(operator){
+			case '+':
+				return new Constant(a + b);
+			case '-':
+				return new Constant(a - b);
+			case '*':
+				return new Constant(a*b);
+			case '/':
+				return new Constant(a/b);
+			case '%':
+				return new Constant(a % b);
+			default:
+				return new Constant(Math.pow(a, b));
+			}
+		}
+		return new Binary(operator, left, right);
+	}
+
+	private int getVariableIndex(String name){
+		for (int i_param = 0;i_param < parameterNames.length;i_param++){
+			if (parameterNames[i_param].equals(name)){
+				return i_param;
+			}
+		}
+		return -1;
+	}
+
+	private Node requireNumber(Node node){
+		if (node.isCondition()){
+			throw error("A condition can only be used as the first operand of a conditional", position);
+		}
+		if (node instanceof Text){
+			throw error("'" + ((Text)node).text + "' can only be compared with a categorical parameter", position);
+		}
+		return node;
+	}
+
+	private Node requireCondition(Node node){
+		if (!node.isCondition()){
+			throw error("Expected a condition", position);
+		}
+		return node;
+	}
+
+	private String peekName(){
+		skipWhitespace();
+		int end = position;
+		while (end < expression.length() && (Character.isLetter(expression.charAt(end)) || expression.charAt(end) == '_'
+				|| (end > position && Character.isDigit(expression.charAt(end))))){
+			end++;
+		}
+		return end > position ? expression.substring(position, end) : null;
+	}
+
+	private boolean peek(char character){
+		return position < expression.length() && expression.charAt(position) == character;
+	}
+
+	private boolean peek(String text){
+		return expression.startsWith(text, position);
+	}
+
+	private boolean accept(String text){
+		skipWhitespace();
+		if (expression.startsWith(text, position)){
+			position += text.length();
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(String text){
+		if (!accept(text)){
+			throw error("Expected '" + text + "'", position);
+		}
+	}
+
+	private void skipWhitespace(){
+		while (position < expression.length() && Character.isWhitespace(expression.charAt(position))){
+			position++;
+		}
+	}
+
+	private IllegalArgumentException error(String message, int at){
+		return new IllegalArgumentException(message + " at position " + at + " of: " + expression);
+	}
+}
@@ -0,0 +1,88 @@
+package optimization.fidelity;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * This class is the output of a <b>FidelityScreeningCostFunction</b>. A point evaluated at the
+ * highest fidelity has the fitness of that evaluation. A point that was screened out at a lower
+ * fidelity has the fitness predicted for the highest fidelity from the lower fidelity value,
+ * which the screening only allows if the prediction is clearly worse than the best point.
+ * </pre>
+ * Only outputs of the highest fidelity can satisfy the optimization criterion.
+ * @author Matt
+ *
+ */
+public class FidelityOutput implements ScalarCostFunctionOutput_IF {
+
+	private final ScalarCostFunctionOutput_IF output;
+	private final int fidelityLevel;
+	private final boolean highestFidelity;
+	private final double fitness;
+	private final double predictionDeviation;
+
+	FidelityOutput(ScalarCostFunctionOutput_IF output, int fidelityLevel, boolean highestFidelity, double fitness,
+			double predictionDeviation){
+		this.output = output;
+		this.fidelityLevel = fidelityLevel;
+		this.highestFidelity = highestFidelity;
+		this.fitness = fitness;
+		this.predictionDeviation = predictionDeviation;
+	}
+	/**
+	 * Returns the output of the wrapped cost function at the fidelity level the point stopped at
+	 * @return
+	 */
+	public ScalarCostFunctionOutput_IF getOutput(){
+		return output;
+	}
+
+	public int getFidelityLevel(){
+		return fidelityLevel;
+	}
+
+	public boolean isHighestFidelity(){
+		return highestFidelity;
+	}
+	/**
+	 * Returns the standard deviation of the prediction of the fitness, 0 at the highest fidelity
+	 * @return
+	 */
+	public double getPredictionStandardDeviation(){
+		return predictionDeviation;
+	}
+
+	@Override
+	public double getFitness() {
+		return fitness;
+	}
+
+	@Override
+	public boolean isNewCostFunctionOutputBetter(CostFunctionOutput_IF newCFOutput) {
+		return ((ScalarCostFunctionOutput_IF)newCFOutput).getFitness() < fitness;
+	}
+
+	@Override
+	public boolean isOptimizationCriterionSatisified() {
+		return highestFidelity && output.isOptimizationCriterionSatisified();
+	}
+
+	@Override
+	public boolean isSolutionWithinRestraints() {
+		return output.isSolutionWithinRestraints();
+	}
+
+	@Override
+	public void printOutput() {
+		System.out.println(getOutputAsString());
+	}
+
+	@Override
+	public String getOutputAsString() {
+		if (highestFidelity){
+			return output.getOutputAsString();
+		}
+		return "Predicted: " + String.valueOf(fitness) + " (fidelity " + String.valueOf(fidelityLevel) + ")";
+	}
+}
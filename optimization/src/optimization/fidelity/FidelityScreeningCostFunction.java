@@ -0,0 +1,247 @@
+package optimization.fidelity;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.MultiFidelityCostFunction_IF;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * This class wraps a <b>MultiFidelityCostFunction_IF</b> so that any optimizer spends most of its
+ * evaluations at the cheap fidelity levels. The wrapped cost function must return outputs that
+ * implement <b>ScalarCostFunctionOutput_IF</b>.
+ * </pre>
+ * <pre>
+ * Every point is first evaluated at level 0 and promoted one level at a time only while it is
+ * promising:
+ * 	- For every lower level the relation to the highest level is learned online, as a linear
+ * 	  regression of the highest fidelity fitness on the lower fidelity fitness over all points
+ * 	  that were evaluated at both.
+ * 	- A point is screened out if the predicted highest fidelity fitness, less the confidence
+ * 	  times the standard deviation of the prediction, is still no better than the best point
+ * 	  evaluated at the highest fidelity (the incumbent). It is returned as a
+ * 	  <b>FidelityOutput</b> with the predicted fitness, so it can never replace the incumbent.
+ * 	- Until a level has the minimum number of pairs, or while the correlation of a level is
+ * 	  below the minimum correlation, that level screens out nothing.
+ * 	- A small fraction of the points is promoted regardless, to keep learning the relation
+ * 	  away from the points that looked promising.
+ * Points that are outside of the restraints at a lower level are not promoted.
+ * </pre>
+ * <pre>
+ * The best solution an optimizer returns is therefore always evaluated at the highest fidelity.
+ * The wrapper may be shared by several threads if the wrapped cost function is thread safe.
+ * <b>reset()</b> must be called before starting a new optimization; the learned relations are kept.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class FidelityScreeningCostFunction implements CostFunction_IF {
+
+	private final MultiFidelityCostFunction_IF costFunction;
+	private final int highestLevel;
+	private final FidelityRelation[] relations;
+	private final AtomicLongArray evaluations;
+	private double confidence = 2.0;
+	private double minCorrelation = 0.7;
+	private int minPairs = 10;
+	private double explorationProbability = 0.05;
+	private final Random random = new Random();
+	private final Object incumbentLock = new Object();
+	private FidelityOutput incumbent = null;
+
+	public FidelityScreeningCostFunction(MultiFidelityCostFunction_IF costFunction){
+		this.costFunction = costFunction;
+		this.highestLevel = Math.max(1, costFunction.getNumberOfFidelityLevels()) - 1;
+		this.relations = new FidelityRelation[highestLevel];
+		for (int i_level = 0;i_level < highestLevel;i_level++){
+			relations[i_level] = new FidelityRelation();
+		}
+		this.evaluations = new AtomicLongArray(highestLevel + 1);
+	}
+
+	@Override
+	public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+		double[] lowerFitness = new double[highestLevel];
+		boolean[] lowerFeasible = new boolean[highestLevel];
+		boolean explore = random.nextDouble() < explorationProbability;
+		for (int i_level = 0;i_level < highestLevel;i_level++){
+			ScalarCostFunctionOutput_IF output = evaluate(i_level, parameters);
+			lowerFitness[i_level] = output.getFitness();
+			lowerFeasible[i_level] = output.isSolutionWithinRestraints();
+			if (explore){
+				continue;
+			}
+			if (!lowerFeasible[i_level]){
+				return new FidelityOutput(output, i_level, false, output.getFitness(), Double.NaN);
+			}
+			double[] prediction = relations[i_level].predict(lowerFitness[i_level], minPairs, minCorrelation);
+			if (prediction != null && prediction[0] - confidence*prediction[1] >= getIncumbentFitness()){
+				return new FidelityOutput(output, i_level, false, prediction[0], prediction[1]);
+			}
+		}
+		ScalarCostFunctionOutput_IF output = evaluate(highestLevel, parameters);
+		if (output.isSolutionWithinRestraints()){
+			for (int i_level = 0;i_level < highestLevel;i_level++){
+				if (lowerFeasible[i_level]){
+					relations[i_level].add(lowerFitness[i_level], output.getFitness());
+				}
+			}
+		}
+		FidelityOutput result = new FidelityOutput(output, highestLevel, true, output.getFitness(), 0.0);
+		if (result.isSolutionWithinRestraints()){
+			synchronized(incumbentLock){
+				if (incumbent == null || incumbent.isNewCostFunctionOutputBetter(result)){
+					incumbent = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	private ScalarCostFunctionOutput_IF evaluate(int fidelityLevel, Parameter[] parameters){
+		evaluations.incrementAndGet(fidelityLevel);
+		CostFunctionOutput_IF output = costFunction.evaluateCostFunction(fidelityLevel, parameters);
+		if (!(output instanceof ScalarCostFunctionOutput_IF)){
+			throw new IllegalArgumentException("The multi fidelity cost function must return a ScalarCostFunctionOutput_IF");
+		}
+		return (ScalarCostFunctionOutput_IF)output;
+	}
+	/**
+	 * Returns the fitness of the incumbent, or infinity before the first feasible point at the
+	 * highest fidelity so nothing is screened out
+	 */
+	private double getIncumbentFitness(){
+		synchronized(incumbentLock){
+			return incumbent != null ? incumbent.getFitness() : Double.POSITIVE_INFINITY;
+		}
+	}
+	/**
+	 * Returns the best point evaluated at the highest fidelity (null before the first feasible point)
+	 * @return
+	 */
+	public FidelityOutput getIncumbent(){
+		synchronized(incumbentLock){
+			return incumbent;
+		}
+	}
+	/**
+	 * Forgets the current best point, as is required before starting a new optimization
+	 */
+	public void reset(){
+		synchronized(incumbentLock){
+			incumbent = null;
+		}
+	}
+	/**
+	 * Returns the number of evaluations made at the given fidelity level
+	 * @param fidelityLevel
+	 * @return
+	 */
+	public long getNumberOfEvaluations(int fidelityLevel){
+		return evaluations.get(fidelityLevel);
+	}
+	/**
+	 * Returns the cost of all evaluations in units of evaluations at the highest fidelity
+	 * @return
+	 */
+	public double getCostOfEvaluations(){
+		double cost = 0.0;
+		for (int i_level = 0;i_level <= highestLevel;i_level++){
+			cost += evaluations.get(i_level)*costFunction.getRelativeCost(i_level);
+		}
+		return cost;
+	}
+	/**
+	 * Returns the learned correlation between the given lower level and the highest level
+	 * @param fidelityLevel
+	 * @return
+	 */
+	public double getCorrelation(int fidelityLevel){
+		return relations[fidelityLevel].getCorrelation();
+	}
+	/**
+	 * Sets the number of prediction standard deviations by which a point must be predicted to be
+	 * worse than the incumbent to be screened out. The default is 2.
+	 * @param confidence
+	 * @return
+	 */
+	public FidelityScreeningCostFunction setConfidence(double confidence){
+		this.confidence = confidence;
+		return this;
+	}
+	/**
+	 * Sets the minimum correlation and number of points evaluated at both levels before a level
+	 * screens out points. The defaults are 0.7 and 10.
+	 * @param minCorrelation
+	 * @param minPairs
+	 * @return
+	 */
+	public FidelityScreeningCostFunction setScreeningRequirements(double minCorrelation, int minPairs){
+		this.minCorrelation = minCorrelation;
+		this.minPairs = Math.max(3, minPairs);
+		return this;
+	}
+	/**
+	 * Sets the fraction of points promoted to the highest fidelity regardless of their
+	 * prediction. The default is 0.05.
+	 * @param explorationProbability
+	 * @return
+	 */
+	public FidelityScreeningCostFunction setExplorationProbability(double explorationProbability){
+		this.explorationProbability = explorationProbability;
+		return this;
+	}
+
+	public FidelityScreeningCostFunction setRandomSeed(long seed){
+		this.random.setSeed(seed);
+		return this;
+	}
+	/**
+	 * Running linear regression of the highest fidelity fitness on the fitness of one lower level
+	 */
+	private static class FidelityRelation{
+		private long count = 0;
+		private double lowerMean = 0.0;
+		private double highestMean = 0.0;
+		private double lowerSquares = 0.0;
+		private double highestSquares = 0.0;
+		private double products = 0.0;
+
+		private synchronized void add(double lowerFitness, double highestFitness){
+			count++;
+			double lowerDeviation = lowerFitness - lowerMean;
+			double highestDeviation = highestFitness - highestMean;
+			lowerMean += lowerDeviation/count;
+			highestMean += highestDeviation/count;
+			lowerSquares += lowerDeviation*(lowerFitness - lowerMean);
+			highestSquares += highestDeviation*(highestFitness - highestMean);
+			products += lowerDeviation*(highestFitness - highestMean);
+		}
+
+		private synchronized double getCorrelation(){
+			if (count < 2 || lowerSquares <= 0.0 || highestSquares <= 0.0){
+				return Double.NaN;
+			}
+			return products/Math.sqrt(lowerSquares*highestSquares);
+		}
+		/**
+		 * Returns the predicted highest fidelity fitness and the standard deviation of the
+		 * prediction, or null if the relation is not yet reliable
+		 */
+		private synchronized double[] predict(double lowerFitness, int minPairs, double minCorrelation){
+			double correlation = getCorrelation();
+			if (count < minPairs || !(correlation >= minCorrelation)){
+				return null;
+			}
+			double slope = products/lowerSquares;
+			double residualVariance = Math.max(0.0, (highestSquares - slope*products)/(count - 2));
+			double distance = lowerFitness - lowerMean;
+			double deviation = Math.sqrt(residualVariance*(1.0 + 1.0/count + distance*distance/lowerSquares));
+			return new double[]{highestMean + slope*distance, deviation};
+		}
+	}
+}
@@ -0,0 +1,574 @@
+package optimization.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import optimization.BatchCostFunction_IF;
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.EliteArchive;
+import optimization.EvaluationListener_IF;
+import optimization.OptUtils;
+import optimization.Optimizer_IF;
+import optimization.ParallelEvaluator;
+import optimization.Parameter;
+import optimization.RunStatistics;
+import optimization.SolutionSnapshot;
+
+/**
+ * <pre>
+ * This class performs a generational Genetic Algorithm given a user defined cost function.
+ * Unlike the particle swarm, which moves a categorical code through the categories in between,
+ * every parameter type has its own operators:
+ *   DOUBLE:      SBX or uniform crossover, polynomial mutation within the bounds
+ *   INTEGER:     uniform crossover, a mutation step of at least one integer within the bounds
+ *   CATEGORICAL: uniform crossover, resampling one of the other codes of the categoricalMap
+ * </pre>
+ * <pre>
+ * Parents are chosen by tournament selection and the best individuals of a generation are
+ * copied unchanged into the next one (elitism). Feasible solutions always rank above solutions
+ * outside of the restraints. The genes of the population are kept in primitive arrays, which are
+ * copied into the parameters only to evaluate the offspring, so a generation can be evaluated
+ * with one call to a <b>BatchCostFunction_IF</b> or in parallel with a <b>ParallelEvaluator</b>.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class GeneticAlgorithm implements Optimizer_IF{
+
+	/**
+	 * Crossover operator used for parameters of numeric type Double
+	 */
+	public enum DoubleCrossover{
+		/**
+		 * Simulated binary crossover: children are spread around the parents with a spread
+		 * controlled by the distribution index
+		 */
+		SBX,
+		/**
+		 * Every gene is taken from either parent with equal probability
+		 */
+		UNIFORM
+	}
+
+	private final Parameter[] template;
+	private final int populationSize;
+	private final int maxGenerations;
+	private double[][] population;
+	private double[][] offspring;
+	private CostFunctionOutput_IF[] populationOutputs;
+	private Parameter[][] offspringParameters;
+	private double[][] batchValues;
+	private int[][] categoricalCodes;
+	private DoubleCrossover doubleCrossover = DoubleCrossover.SBX;
+	private double crossoverProbability = 0.9;
+	//Probability of mutating a gene. Defaults to one over the number of parameters.
+	private Double mutationProbability = null;
+	private double crossoverDistributionIndex = 15.0;
+	private double mutationDistributionIndex = 20.0;
+	private int tournamentSize = 2;
+	private int numberOfElites = 1;
+	private BestDiscoveredSolution best;
+	private ParallelEvaluator parallelEvaluator;
+	private RunStatistics runStatistics = new RunStatistics();
+	private Random random = new Random();
+	private boolean verbose = true;
+	//Set optimization to run until a time limit is reached
+	private boolean runForSpecifiedTime = false;
+	//Max runtime is seconds
+	private double maxRunTime = 300;
+	private double startTime;
+	private List<EvaluationListener_IF> evaluationListeners = new ArrayList<EvaluationListener_IF>();
+	//The elite archive is disabled unless a size is set
+	private EliteArchive eliteArchive = null;
+
+	/**
+	 * Constructor that defines the number of individuals, maximum number of generations and the
+	 * parameters used in the cost function
+	 * @param populationSize
+	 * @param maxGenerations
+	 * @param parameters
+	 */
+	public GeneticAlgorithm(int populationSize, int maxGenerations, Parameter... parameters){
+		this.template = OptUtils.cloneParameterArray(parameters);
+		this.populationSize = populationSize;
+		this.maxGenerations = maxGenerations;
+		this.categoricalCodes = new int[template.length][];
+		for (int i_param = 0;i_param < template.length;i_param++){
+			if (template[i_param].paramType == Parameter.ParameterType.CATEGORICAL){
+				categoricalCodes[i_param] = template[i_param].categoricalMap.values().stream()
+						.mapToInt(Integer::intValue).sorted().toArray();
+			}
+		}
+	}
+
+	@Override
+	public BestDiscoveredSolution optimize(CostFunction_IF costFunction) {
+		startTime = Double.valueOf(System.nanoTime())/1E9;
+		runStatistics.reset();
+		best = null;
+		if (eliteArchive != null){
+			eliteArchive.clear();
+		}
+		population = new double[populationSize][template.length];
+		offspring = new double[populationSize][template.length];
+		offspringParameters = new Parameter[populationSize][];
+		for (int i_ind = 0;i_ind < populationSize;i_ind++){
+			offspringParameters[i_ind] = OptUtils.cloneParameterArray(template);
+			for (int i_param = 0;i_param < template.length;i_param++){
+				offspring[i_ind][i_param] = getRandomGene(i_param);
+			}
+		}
+		//The initial population is evaluated as the offspring of generation zero
+		CostFunctionOutput_IF[] offspringOutputs = evaluate(costFunction, 0, 0);
+		if (best != null && best.getCostFunctionOutput().isOptimizationCriterionSatisified()){
+			return best;
+		}
+		swapPopulations(offspringOutputs);
+		int numberOfElites = Math.min(this.numberOfElites, populationSize);
+		for (int i_gen = 1;i_gen < maxGenerations;i_gen++){
+			int[] elites = getElites(numberOfElites);
+			for (int i_elite = 0;i_elite < elites.length;i_elite++){
+				System.arraycopy(population[elites[i_elite]], 0, offspring[i_elite], 0, template.length);
+			}
+			for (int i_ind = numberOfElites;i_ind < populationSize;i_ind += 2){
+				double[] firstParent = population[selectByTournament()];
+				double[] secondParent = population[selectByTournament()];
+				double[] secondChild = i_ind + 1 < populationSize ? offspring[i_ind + 1] : new double[template.length];
+				crossover(firstParent, secondParent, offspring[i_ind], secondChild);
+				mutate(offspring[i_ind]);
+				mutate(secondChild);
+			}
+			offspringOutputs = evaluate(costFunction, i_gen, numberOfElites);
+			for (int i_elite = 0;i_elite < elites.length;i_elite++){
+				offspringOutputs[i_elite] = populationOutputs[elites[i_elite]];
+			}
+			if (verbose){
+				if (best != null){
+					System.out.println("Generation: " + String.valueOf(i_gen) + ",Best Value: " + best.getCostFunctionOutput().getOutputAsString());
+				} else {
+					System.out.println("Generation: " + String.valueOf(i_gen) + ", No value meeting constraints found.");
+				}
+			}
+			if (best != null && best.getCostFunctionOutput().isOptimizationCriterionSatisified()){
+				return best;
+			}
+			swapPopulations(offspringOutputs);
+			double elapsedTime = Double.valueOf(System.nanoTime())/1E9;
+			if (runForSpecifiedTime && elapsedTime - startTime > maxRunTime){
+				break;
+			}
+		}
+		return best;
+	}
+
+	private void swapPopulations(CostFunctionOutput_IF[] offspringOutputs){
+		double[][] previousPopulation = population;
+		population = offspring;
+		offspring = previousPopulation;
+		populationOutputs = offspringOutputs;
+	}
+	/**
+	 * Evaluates the offspring from the given index on, notifies the listeners and keeps the best
+	 * feasible solution
+	 * @param costFunction
+	 * @param i_gen
+	 * @param firstIndex
+	 * @return the outputs of all offspring, with null below the first index
+	 */
+	private CostFunctionOutput_IF[] evaluate(CostFunction_IF costFunction, int i_gen, int firstIndex){
+		int numberOfOffspring = populationSize - firstIndex;
+		Parameter[][] parameterSets = new Parameter[numberOfOffspring][];
+		for (int i_ind = firstIndex;i_ind < populationSize;i_ind++){
+			Parameter[] parameters = offspringParameters[i_ind];
+			for (int i_param = 0;i_param < template.length;i_param++){
+				parameters[i_param].setCurrentValue(offspring[i_ind][i_param]);
+			}
+			parameterSets[i_ind - firstIndex] = parameters;
+		}
+		CostFunctionOutput_IF[] outputs = null;
+		if (parallelEvaluator != null){
+			long deadlineNanos = Long.MAX_VALUE;
+			if (runForSpecifiedTime){
+				deadlineNanos = (long)((startTime + maxRunTime)*1E9);
+			}
+			outputs = parallelEvaluator.evaluate(costFunction, parameterSets, runStatistics, deadlineNanos);
+		} else if (costFunction instanceof BatchCostFunction_IF){
+			outputs = evaluateBatch((BatchCostFunction_IF)costFunction, firstIndex);
+		}
+		runStatistics.addGeneration();
+		CostFunctionOutput_IF[] offspringOutputs = new CostFunctionOutput_IF[populationSize];
+		for (int i_ind = firstIndex;i_ind < populationSize;i_ind++){
+			Parameter[] parameters = offspringParameters[i_ind];
+			CostFunctionOutput_IF output = outputs != null ? outputs[i_ind - firstIndex]
+					: costFunction.evaluateCostFunction(parameters);
+			runStatistics.addEvaluations(1);
+			offspringOutputs[i_ind] = output;
+			for (EvaluationListener_IF listener : evaluationListeners){
+				listener.evaluationCompleted(i_gen, parameters, output);
+			}
+			if (eliteArchive != null){
+				eliteArchive.offer(offspring[i_ind], output);
+			}
+			if (output.isSolutionWithinRestraints() && (best == null
+					|| best.getCostFunctionOutput().isNewCostFunctionOutputBetter(output)
+					|| (output.isOptimizationCriterionSatisified() && !best.getCostFunctionOutput().isOptimizationCriterionSatisified()))){
+				best = new BestDiscoveredSolution(parameters, output);
+			}
+		}
+		return offspringOutputs;
+	}
+	/**
+	 * Evaluates the offspring with one call to a batch cost function. The genes are copied into
+	 * reused primitive columns.
+	 * @param costFunction
+	 * @param firstIndex
+	 * @return
+	 */
+	private CostFunctionOutput_IF[] evaluateBatch(BatchCostFunction_IF costFunction, int firstIndex){
+		int numberOfOffspring = populationSize - firstIndex;
+		if (batchValues == null){
+			batchValues = new double[template.length][populationSize];
+		}
+		for (int i_ind = firstIndex;i_ind < populationSize;i_ind++){
+			Parameter[] parameters = offspringParameters[i_ind];
+			for (int i_param = 0;i_param < template.length;i_param++){
+				batchValues[i_param][i_ind - firstIndex] = parameters[i_param].getCurrentValueAsDouble();
+			}
+		}
+		return costFunction.evaluateBatch(template, batchValues, numberOfOffspring);
+	}
+	/**
+	 * Returns true if the first output ranks above the second: feasible outputs rank above
+	 * infeasible ones, and feasible outputs are compared with the cost function output
+	 */
+	private static boolean isBetter(CostFunctionOutput_IF first, CostFunctionOutput_IF second){
+		boolean firstFeasible = first.isSolutionWithinRestraints();
+		boolean secondFeasible = second.isSolutionWithinRestraints();
+		if (firstFeasible != secondFeasible){
+			return firstFeasible;
+		}
+		return firstFeasible && second.isNewCostFunctionOutputBetter(first);
+	}
+	/**
+	 * Returns the indices of the best individuals of the population, best first
+	 */
+	private int[] getElites(int numberOfElites){
+		int[] elites = new int[numberOfElites];
+		boolean[] chosen = new boolean[populationSize];
+		for (int i_elite = 0;i_elite < numberOfElites;i_elite++){
+			int bestIndex = -1;
+			for (int i_ind = 0;i_ind < populationSize;i_ind++){
+				if (!chosen[i_ind] && (bestIndex < 0 || isBetter(populationOutputs[i_ind], populationOutputs[bestIndex]))){
+					bestIndex = i_ind;
+				}
+			}
+			chosen[bestIndex] = true;
+			elites[i_elite] = bestIndex;
+		}
+		return elites;
+	}
+	private int selectByTournament(){
+		int winner = random.nextInt(populationSize);
+		for (int i_round = 1;i_round < tournamentSize;i_round++){
+			int challenger = random.nextInt(populationSize);
+			if (isBetter(populationOutputs[challenger], populationOutputs[winner])){
+				winner = challenger;
+			}
+		}
+		return winner;
+	}
+	/**
+	 * Writes the children of the two parents. Without crossover the children are copies of the
+	 * parents.
+	 */
+	private void crossover(double[] firstParent, double[] secondParent, double[] firstChild, double[] secondChild){
+		System.arraycopy(firstParent, 0, firstChild, 0, template.length);
+		System.arraycopy(secondParent, 0, secondChild, 0, template.length);
+		if (random.nextDouble() >= crossoverProbability){
+			return;
+		}
+		for (int i_param = 0;i_param < template.length;i_param++){
+			if (template[i_param].paramType == Parameter.ParameterType.DOUBLE && doubleCrossover == DoubleCrossover.SBX){
+				simulatedBinaryCrossover(i_param, firstParent[i_param], secondParent[i_param], firstChild, secondChild);
+			} else if (random.nextBoolean()){
+				firstChild[i_param] = secondParent[i_param];
+				secondChild[i_param] = firstParent[i_param];
+			}
+		}
+	}
+	/**
+	 * Bounded simulated binary crossover of one gene (Deb and Agrawal). Half of the genes are
+	 * left unchanged so that the parents' values of some parameters are kept together.
+	 */
+	private void simulatedBinaryCrossover(int i_param, double firstValue, double secondValue, double[] firstChild, double[] secondChild){
+		if (random.nextBoolean() || Math.abs(firstValue - secondValue) < 1E-14){
+			return;
+		}
+		double lowerBound = template[i_param].lowerBound.doubleValue();
+		double upperBound = template[i_param].upperBound.doubleValue();
+		double lowerValue = Math.min(firstValue, secondValue);
+		double upperValue = Math.max(firstValue, secondValue);
+		double difference = upperValue - lowerValue;
+		double u = random.nextDouble();
+		double beta = 1.0 + 2.0*(lowerValue - lowerBound)/difference;
+		double lowerChild = 0.5*(lowerValue + upperValue - getSpreadFactor(beta, u)*difference);
+		beta = 1.0 + 2.0*(upperBound - upperValue)/difference;
+		double upperChild = 0.5*(lowerValue + upperValue + getSpreadFactor(beta, u)*difference);
+		lowerChild = Math.max(lowerBound, Math.min(upperBound, lowerChild));
+		upperChild = Math.max(lowerBound, Math.min(upperBound, upperChild));
+		if (random.nextBoolean()){
+			firstChild[i_param] = lowerChild;
+			secondChild[i_param] = upperChild;
+		} else {
+			firstChild[i_param] = upperChild;
+			secondChild[i_param] = lowerChild;
+		}
+	}
+	/**
+	 * Returns the spread factor of the bounded SBX for a side whose distance to its bound is
+	 * given by beta
+	 */
+	private double getSpreadFactor(double beta, double u){
+		double alpha = 2.0 - Math.pow(beta, -(crossoverDistributionIndex + 1.0));
+		if (u <= 1.0/alpha){
+			return Math.pow(u*alpha, 1.0/(crossoverDistributionIndex + 1.0));
+		}
+		return Math.pow(1.0/(2.0 - u*alpha), 1.0/(crossoverDistributionIndex + 1.0));
+	}
+	private void mutate(double[] genes){
+		double probability = mutationProbability != null ? mutationProbability : 1.0/template.length;
+		for (int i_param = 0;i_param < template.length;i_param++){
+			if (random.nextDouble() >= probability){
+				continue;
+			}
+			Parameter parameter = template[i_param];
+			switch(parameter.paramType){
+			case DOUBLE:
+				genes[i_param] = mutatePolynomially(i_param, genes[i_param]);
+				break;
+			case INTEGER:
+				genes[i_param] = mutateInteger(i_param, genes[i_param]);
+				break;
+			case CATEGORICAL:
+				int[] codes = categoricalCodes[i_param];
+				if (codes.length > 1){
+					//Another category is drawn with equal probability
+					int i_code = random.nextInt(codes.length - 1);
+					if (i_code >= indexOf(codes, (int)genes[i_param])){
+						i_code++;
+					}
+					genes[i_param] = codes[i_code];
+				}
+				break;
+			}
+		}
+	}
+	/**
+	 * Polynomial mutation within the bounds of the parameter (Deb and Deb)
+	 */
+	private double mutatePolynomially(int i_param, double value){
+		double lowerBound = template[i_param].lowerBound.doubleValue();
+		double upperBound = template[i_param].upperBound.doubleValue();
+		double range = upperBound - lowerBound;
+		if (range <= 0.0){
+			return value;
+		}
+		double u = random.nextDouble();
+		double exponent = 1.0/(mutationDistributionIndex + 1.0);
+		double delta;
+		if (u < 0.5){
+			double distance = 1.0 - (value - lowerBound)/range;
+			delta = Math.pow(2.0*u + (1.0 - 2.0*u)*Math.pow(distance, mutationDistributionIndex + 1.0), exponent) - 1.0;
+		} else {
+			double distance = 1.0 - (upperBound - value)/range;
+			delta = 1.0 - Math.pow(2.0*(1.0 - u) + 2.0*(u - 0.5)*Math.pow(distance, mutationDistributionIndex + 1.0), exponent);
+		}
+		return Math.max(lowerBound, Math.min(upperBound, value + delta*range));
+	}
+	/**
+	 * Moves an integer gene by at least one in a random direction. The size of the step is drawn
+	 * from a geometric distribution whose mean grows with the range of the parameter.
+	 */
+	private double mutateInteger(int i_param, double value){
+		int lowerBound = template[i_param].lowerBound.intValue();
+		int upperBound = template[i_param].upperBound.intValue();
+		if (upperBound <= lowerBound){
+			return value;
+		}
+		double meanStep = Math.max(1.0, (upperBound - lowerBound)/10.0);
+		int step = 1 + (int)Math.floor(Math.log(1.0 - random.nextDouble())/Math.log(1.0 - 1.0/meanStep));
+		if (meanStep <= 1.0){
+			step = 1;
+		}
+		int current = (int)Math.round(value);
+		boolean up = random.nextBoolean();
+		if (current + step > upperBound){
+			up = false;
+		} else if (current - step < lowerBound){
+			up = true;
+		}
+		int mutated = up ? current + step : current - step;
+		return Math.max(lowerBound, Math.min(upperBound, mutated));
+	}
+	private static int indexOf(int[] codes, int code){
+		for (int i_code = 0;i_code < codes.length;i_code++){
+			if (codes[i_code] == code){
+				return i_code;
+			}
+		}
+		return -1;
+	}
+	private double getRandomGene(int i_param){
+		Parameter parameter = template[i_param];
+		switch(parameter.paramType){
+		case CATEGORICAL:
+			return categoricalCodes[i_param][random.nextInt(categoricalCodes[i_param].length)];
+		case INTEGER:
+			int lowerBound = parameter.lowerBound.intValue();
+			return lowerBound + random.nextInt(parameter.upperBound.intValue() - lowerBound + 1);
+		default:
+			return parameter.lowerBound.doubleValue() + random.nextDouble()*parameter.getRangeOfParameterValue();
+		}
+	}
+
+	/**
+	 * Sets the crossover operator used for parameters of numeric type Double. The default is SBX.
+	 * @param doubleCrossover
+	 * @return
+	 */
+	public GeneticAlgorithm setDoubleCrossover(DoubleCrossover doubleCrossover){
+		this.doubleCrossover = doubleCrossover;
+		return this;
+	}
+	/**
+	 * Sets the probability that a pair of parents is recombined. The default is 0.9.
+	 * @param crossoverProbability
+	 * @return
+	 */
+	public GeneticAlgorithm setCrossoverProbability(double crossoverProbability){
+		this.crossoverProbability = crossoverProbability;
+		return this;
+	}
+	/**
+	 * Sets the probability that a gene of a child is mutated. The default is one over the number
+	 * of parameters.
+	 * @param mutationProbability
+	 * @return
+	 */
+	public GeneticAlgorithm setMutationProbability(double mutationProbability){
+		this.mutationProbability = mutationProbability;
+		return this;
+	}
+	/**
+	 * Sets the distribution indices of the SBX crossover and the polynomial mutation. Larger values
+	 * keep the children closer to their parents. The defaults are 15 and 20.
+	 * @param crossoverDistributionIndex
+	 * @param mutationDistributionIndex
+	 * @return
+	 */
+	public GeneticAlgorithm setDistributionIndices(double crossoverDistributionIndex, double mutationDistributionIndex){
+		this.crossoverDistributionIndex = crossoverDistributionIndex;
+		this.mutationDistributionIndex = mutationDistributionIndex;
+		return this;
+	}
+	/**
+	 * Sets the number of individuals competing for every selected parent. The default is 2.
+	 * @param tournamentSize
+	 * @return
+	 */
+	public GeneticAlgorithm setTournamentSize(int tournamentSize){
+		this.tournamentSize = Math.max(1, tournamentSize);
+		return this;
+	}
+	/**
+	 * Sets the number of best individuals copied unchanged into the next generation. The default is 1.
+	 * @param numberOfElites
+	 * @return
+	 */
+	public GeneticAlgorithm setNumberOfElites(int numberOfElites){
+		this.numberOfElites = Math.max(0, numberOfElites);
+		return this;
+	}
+	/**
+	 * Sets the evaluator used to evaluate the offspring of every generation in parallel, which
+	 * also applies its per-evaluation timeouts. The evaluator is not closed by the algorithm.
+	 * @param parallelEvaluator
+	 * @return
+	 */
+	public GeneticAlgorithm setParallelEvaluator(ParallelEvaluator parallelEvaluator){
+		this.parallelEvaluator = parallelEvaluator;
+		return this;
+	}
+	/**
+	 * Adds a listener that is notified of every cost function evaluation made by the algorithm
+	 * @param listener
+	 * @return
+	 */
+	public GeneticAlgorithm addEvaluationListener(EvaluationListener_IF listener){
+		this.evaluationListeners.add(listener);
+		return this;
+	}
+	/**
+	 * Sets whether the best value of every generation is printed. The default is true.
+	 * @param verbose
+	 * @return
+	 */
+	public GeneticAlgorithm setVerbose(boolean verbose){
+		this.verbose = verbose;
+		return this;
+	}
+	/**
+	 * Sets the seed of the random number generator used for the initial population and the operators
+	 * @param seed
+	 * @return
+	 */
+	public GeneticAlgorithm setRandomSeed(long seed){
+		this.random.setSeed(seed);
+		return this;
+	}
+	/**
+	 * Sets the algorithm to stop after the given number of seconds even if the maximum number of
+	 * generations has not been reached
+	 * @param secToRunFor
+	 * @return
+	 */
+	public GeneticAlgorithm setOptimizationToRunForPeriodOfTime(double secToRunFor){
+		this.maxRunTime = secToRunFor;
+		this.runForSpecifiedTime = true;
+		return this;
+	}
+	/**
+	 * Keeps the given number of best distinct feasible solutions evaluated during the run.
+	 * Solutions whose values all lie within the distinctness tolerance, as a fraction of the
+	 * parameter range, count as the same solution. A size of 0 disables the archive, which is
+	 * the default.
+	 * @param eliteArchiveSize
+	 * @param distinctnessTolerance
+	 * @return
+	 */
+	public GeneticAlgorithm setEliteArchiveSize(int eliteArchiveSize, double distinctnessTolerance){
+		if (eliteArchiveSize > 0){
+			this.eliteArchive = new EliteArchive(eliteArchiveSize, template).setDistinctnessTolerance(distinctnessTolerance);
+		} else {
+			this.eliteArchive = null;
+		}
+		return this;
+	}
+	/**
+	 * Returns the solutions of the elite archive, best first, or an empty list if the archive is disabled
+	 * @return
+	 */
+	public List<SolutionSnapshot> getEliteSolutions(){
+		return eliteArchive != null ? eliteArchive.getSolutions() : new ArrayList<SolutionSnapshot>();
+	}
+	/**
+	 * Returns the statistics of the last (or current) call to <b>optimize</b>
+	 * @return
+	 */
+	public RunStatistics getRunStatistics(){
+		return runStatistics;
+	}
+}
@@ -0,0 +1,262 @@
+package optimization.moo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.EvaluationListener_IF;
+import optimization.MultiObjectiveCostFunctionOutput_IF;
+import optimization.Optimizer_IF;
+import optimization.pso.Particle;
+import optimization.pso.ParticleParameter;
+
+/**
+ * <pre>
+ * This class performs Multi-Objective Particle Swarm Optimization (MOPSO) given a user
+ * defined cost function whose output implements <b>MultiObjectiveCostFunctionOutput_IF</b>.
+ * </pre>
+ * <pre>
+ * Every feasible evaluation is offered to a bounded external <b>ParetoArchive</b>. Instead of
+ * a single swarm best, each particle is pulled toward a leader drawn from the archive with a
+ * crowding distance tournament, which spreads the swarm along the front. A personal best is
+ * replaced when the new output dominates it, or with a probability of one half when neither
+ * output dominates the other. A mutation operator whose reach shrinks with the generation
+ * count keeps the swarm from collapsing onto one region of the front early on.
+ * </pre>
+ * <pre>
+ * <b>Note</b>: The whole front is obtained with <b>getParetoFront()</b> after the run. The
+ * solution returned by <b>optimize</b> is the front member closest to the ideal point.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class MultiObjectiveParticleSwarm implements Optimizer_IF{
+
+	private List<Particle> particles = new ArrayList<Particle>();
+	private ParetoArchive archive;
+	private final int archiveSize;
+	private double[][] personalBestPositions;
+	private double[][] personalBestObjectives;
+	private int maxGenerations;
+	private double socialCoefficient = 1.5;
+	private double cognitiveCoefficient = 1.5;
+	private double inertialCoefficient = 0.4;
+	private double mutationRate = 0.5;
+	private Random random = new Random();
+	//Set optimization to run until a time limit is reached
+	private boolean runForSpecifiedTime = false;
+	//Max runtime is seconds
+	private double maxRunTime = 300;
+	private boolean verbose = true;
+	private List<EvaluationListener_IF> evaluationListeners = new ArrayList<EvaluationListener_IF>();
+
+	/**
+	 * Constructor that defines the number of particles, maximum optimization generations, maximum percentage of
+	 * it's range that a given parameter can travel in a given generation, the maximum number of solutions kept
+	 * in the Pareto archive as well as the parameters used in the cost function.
+	 * @param numberOfParticles
+	 * @param maxGenerations
+	 * @param maxDecPercRangePerOptStep
+	 * @param archiveSize
+	 * @param parameters
+	 */
+	public MultiObjectiveParticleSwarm(int numberOfParticles, int maxGenerations, Double maxDecPercRangePerOptStep,
+			int archiveSize, ParticleParameter... parameters){
+		for (ParticleParameter parameter : parameters){
+			parameter.setVelocityLimitFromRange(maxDecPercRangePerOptStep);
+		}
+		for (int i_part = 0;i_part < numberOfParticles;i_part++){
+			particles.add(new Particle(parameters));
+		}
+		this.personalBestPositions = new double[numberOfParticles][];
+		this.personalBestObjectives = new double[numberOfParticles][];
+		this.maxGenerations = maxGenerations;
+		this.archiveSize = archiveSize;
+		this.archive = new ParetoArchive(archiveSize);
+	}
+
+	@Override
+	public BestDiscoveredSolution optimize(CostFunction_IF costFunction) {
+		double startTime = Double.valueOf(System.nanoTime())/1E9;
+		//A new run must not pick leaders or personal bests from the front of an earlier run
+		archive = new ParetoArchive(archiveSize);
+		personalBestPositions = new double[particles.size()][];
+		personalBestObjectives = new double[particles.size()][];
+		for (int i_gen = 0;i_gen < maxGenerations;i_gen++){
+			for (int i_part = 0;i_part < particles.size();i_part++){
+				ParticleParameter[] parameters = particles.get(i_part).getParameters();
+				CostFunctionOutput_IF output = costFunction.evaluateCostFunction(parameters);
+				for (EvaluationListener_IF listener : evaluationListeners){
+					listener.evaluationCompleted(i_gen, parameters, output);
+				}
+				if (!(output instanceof MultiObjectiveCostFunctionOutput_IF)){
+					throw new IllegalArgumentException("Cost function output must implement MultiObjectiveCostFunctionOutput_IF");
+				}
+				if (output.isSolutionWithinRestraints()){
+					double[] objectives = ((MultiObjectiveCostFunctionOutput_IF)output).getObjectiveValues();
+					archive.addCandidate(parameters, (MultiObjectiveCostFunctionOutput_IF)output);
+					updatePersonalBest(i_part, parameters, objectives);
+				}
+			}
+			archive.update();
+			double generationFraction = (double)i_gen/(double)maxGenerations;
+			for (int i_part = 0;i_part < particles.size();i_part++){
+				moveParticle(i_part, archive.selectLeader(random));
+				mutateParticle(i_part, generationFraction);
+			}
+			if (verbose){
+				System.out.println("Generation: " + String.valueOf(i_gen) + ", Pareto front size: " + String.valueOf(archive.size()));
+			}
+			double elapsedTime = Double.valueOf(System.nanoTime())/1E9;
+			if (runForSpecifiedTime && elapsedTime - startTime > maxRunTime){
+				break;
+			}
+		}
+		return archive.getCompromiseSolution();
+	}
+
+	private void updatePersonalBest(int i_part, ParticleParameter[] parameters, double[] objectives){
+		double[] bestObjectives = personalBestObjectives[i_part];
+		boolean replace = bestObjectives == null
+				|| NonDominatedSorting.dominates(objectives, bestObjectives)
+				|| (!NonDominatedSorting.dominates(bestObjectives, objectives) && random.nextBoolean());
+		if (replace){
+			double[] position = personalBestPositions[i_part];
+			if (position == null){
+				position = new double[parameters.length];
+				personalBestPositions[i_part] = position;
+			}
+			for (int i_param = 0;i_param < parameters.length;i_param++){
+				position[i_param] = parameters[i_param].getCurrentValueAsDouble();
+			}
+			personalBestObjectives[i_part] = objectives.clone();
+		}
+	}
+
+	private void moveParticle(int i_part, BestDiscoveredSolution leader){
+		ParticleParameter[] parameters = particles.get(i_part).getParameters();
+		double[] personalBest = personalBestPositions[i_part];
+		List<Number> leaderValues = leader == null ? null : leader.getParameterValues();
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			ParticleParameter param = parameters[i_param];
+			double position = param.getCurrentValueAsDouble();
+			double velocity;
+			if (leaderValues == null || personalBest == null){
+				velocity = (2.0*random.nextDouble() - 1.0)*param.getVelocityLimit();
+			} else {
+				velocity = inertialCoefficient*param.getParticleVelocity()
+						+ random.nextDouble()*cognitiveCoefficient*(personalBest[i_param] - position)
+						+ random.nextDouble()*socialCoefficient*(leaderValues.get(i_param).doubleValue() - position);
+			}
+			param.setParticleVelocity(velocity);
+			param.updateAndBoundCurrentValue(position + param.getParticleVelocity(), random);
+		}
+	}
+	/**
+	 * Moves one randomly chosen parameter of the particle to a random value within a
+	 * window around its current value. Both the probability and the width of the window
+	 * decrease as the optimization progresses.
+	 */
+	private void mutateParticle(int i_part, double generationFraction){
+		if (mutationRate <= 0.0){
+			return;
+		}
+		double mutationScale = Math.pow(1.0 - generationFraction, 1.0/mutationRate);
+		if (random.nextDouble() >= mutationScale){
+			return;
+		}
+		ParticleParameter[] parameters = particles.get(i_part).getParameters();
+		ParticleParameter param = parameters[random.nextInt(parameters.length)];
+		double window = mutationScale*param.getRangeOfParameterValue();
+		param.updateAndBoundCurrentValue(param.getCurrentValueAsDouble() + (2.0*random.nextDouble() - 1.0)*window, random);
+	}
+	/**
+	 * Returns the non-dominated solutions found over the run sorted by their first objective
+	 * @return
+	 */
+	public List<BestDiscoveredSolution> getParetoFront(){
+		return archive.getSolutions();
+	}
+	/**
+	 * Sets the inertial, cognitive and social coefficients of the velocity update
+	 * @param inertialCoefficient
+	 * @param cognitiveCoefficient
+	 * @param socialCoefficient
+	 * @return
+	 */
+	public MultiObjectiveParticleSwarm setCoefficients(double inertialCoefficient, double cognitiveCoefficient, double socialCoefficient){
+		this.inertialCoefficient = inertialCoefficient;
+		this.cognitiveCoefficient = cognitiveCoefficient;
+		this.socialCoefficient = socialCoefficient;
+		return this;
+	}
+	/**
+	 * Adds a listener that is notified of every cost function evaluation made by the swarm
+	 * @param listener
+	 * @return
+	 */
+	public MultiObjectiveParticleSwarm addEvaluationListener(EvaluationListener_IF listener){
+		this.evaluationListeners.add(listener);
+		return this;
+	}
+	/**
+	 * Sets the rate (between 0 and 1) that controls how long into the run mutation is applied.
+	 * A rate of 0 disables mutation.
+	 * @param mutationRate
+	 * @return
+	 * @throws IllegalArgumentException if the rate is negative
+	 */
+	public MultiObjectiveParticleSwarm setMutationRate(double mutationRate){
+		if (!(mutationRate >= 0.0)){
+			throw new IllegalArgumentException("The mutation rate must not be negative: " + mutationRate);
+		}
+		this.mutationRate = mutationRate;
+		return this;
+	}
+	/**
+	 * Sets the seed of the random number generator of the swarm and redraws the position all
+	 * particles start from with it. The generator also draws the velocity updates, the leaders,
+	 * the mutations and the values of parameters reinitialized at their bounds, so two swarms with
+	 * the same settings and seed follow the same trajectory for a deterministic cost function.
+	 * @param seed
+	 * @return
+	 */
+	public MultiObjectiveParticleSwarm setRandomSeed(long seed){
+		this.random.setSeed(seed);
+		ParticleParameter[] start = particles.get(0).getParameters();
+		for (ParticleParameter parameter : start){
+			parameter.renitializeValue(random);
+		}
+		for (int i_part = 1;i_part < particles.size();i_part++){
+			ParticleParameter[] parameters = particles.get(i_part).getParameters();
+			for (int i_param = 0;i_param < parameters.length;i_param++){
+				parameters[i_param].setCurrentValue(start[i_param].getCurrentValueAsDouble());
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Sets whether the size of the Pareto front is printed every generation. The default is true.
+	 * @param verbose
+	 * @return
+	 */
+	public MultiObjectiveParticleSwarm setVerbose(boolean verbose){
+		this.verbose = verbose;
+		return this;
+	}
+	/**
+	 * This method will stop the optimization after a period of time defined in seconds even
+	 * if the maximum number of generations has not been reached.
+	 * @param secToRunFor
+	 * @return
+	 */
+	public MultiObjectiveParticleSwarm setOptimizationToRunForPeriodOfTime(double secToRunFor){
+		this.maxRunTime = secToRunFor;
+		this.runForSpecifiedTime = true;
+		return this;
+	}
+}
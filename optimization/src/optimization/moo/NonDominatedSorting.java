@@ -0,0 +1,201 @@
+package optimization.moo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * <pre>
+ * This class provides static methods to sort a set of objective vectors into
+ * non-dominated fronts. All objectives are minimized.
+ * </pre>
+ * <pre>
+ * For two objectives the fronts are assigned with a sweep over the points sorted
+ * by the first objective and a binary search over the fronts found so far, which
+ * is O(N log N). For three or more objectives the Efficient Non-dominated Sort with
+ * binary search (ENS-BS) is used, which only compares a point against the members
+ * of the fronts visited by the binary search.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class NonDominatedSorting {
+
+	/**
+	 * Returns true if objective vector a dominates objective vector b
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static boolean dominates(double[] a, double[] b){
+		boolean strictlyBetter = false;
+		for (int i_obj = 0;i_obj < a.length;i_obj++){
+			if (a[i_obj] > b[i_obj]){
+				return false;
+			} else if (a[i_obj] < b[i_obj]){
+				strictlyBetter = true;
+			}
+		}
+		return strictlyBetter;
+	}
+	/**
+	 * Sorts the objective vectors into non-dominated fronts
+	 * @param objectives one objective vector per point
+	 * @return the front index of each point (0 is the non-dominated front)
+	 */
+	public static int[] getFrontIndices(double[][] objectives){
+		int[] ranks = new int[objectives.length];
+		if (objectives.length == 0){
+			return ranks;
+		}
+		Integer[] order = lexicographicOrder(objectives);
+		if (objectives[0].length == 2){
+			sortTwoObjectives(objectives, order, ranks);
+		} else {
+			sortEfficientBinarySearch(objectives, order, ranks);
+		}
+		return ranks;
+	}
+	/**
+	 * Returns the indices of the points in the first (non-dominated) front
+	 * @param objectives
+	 * @return
+	 */
+	public static int[] getFirstFront(double[][] objectives){
+		int[] ranks = getFrontIndices(objectives);
+		return IntStream.range(0, ranks.length).filter((i_point) -> ranks[i_point] == 0).toArray();
+	}
+	/**
+	 * Points are processed in lexicographic order so that no point can be dominated by
+	 * a point processed after it.
+	 */
+	private static Integer[] lexicographicOrder(double[][] objectives){
+		Integer[] order = new Integer[objectives.length];
+		for (int i_point = 0;i_point < order.length;i_point++){
+			order[i_point] = i_point;
+		}
+		Arrays.sort(order, new Comparator<Integer>(){
+			@Override
+			public int compare(Integer a, Integer b) {
+				double[] objA = objectives[a];
+				double[] objB = objectives[b];
+				for (int i_obj = 0;i_obj < objA.length;i_obj++){
+					int comparison = Double.compare(objA[i_obj], objB[i_obj]);
+					if (comparison != 0){
+						return comparison;
+					}
+				}
+				return 0;
+			}
+		});
+		return order;
+	}
+	/**
+	 * Within a front sorted by the first objective the second objective is decreasing, so
+	 * only the minimum second objective of each front has to be stored. These minima are
+	 * non-decreasing with the front index which allows a binary search for the first front
+	 * that does not dominate the point.
+	 */
+	private static void sortTwoObjectives(double[][] objectives, Integer[] order, int[] ranks){
+		double[] frontMinimum = new double[order.length];
+		int numberOfFronts = 0;
+		for (int i_sorted = 0;i_sorted < order.length;i_sorted++){
+			int point = order[i_sorted];
+			if (i_sorted > 0 && Arrays.equals(objectives[point], objectives[order[i_sorted - 1]])){
+				//Duplicate points do not dominate each other
+				ranks[point] = ranks[order[i_sorted - 1]];
+				continue;
+			}
+			double f2 = objectives[point][1];
+			int low = 0;
+			int high = numberOfFronts;
+			while (low < high){
+				int mid = (low + high) >>> 1;
+				if (frontMinimum[mid] > f2){
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			ranks[point] = low;
+			frontMinimum[low] = f2;
+			if (low == numberOfFronts){
+				numberOfFronts++;
+			}
+		}
+	}
+	/**
+	 * ENS-BS: a point is dominated by a front if any member dominates it. Members are
+	 * checked from the most recently added since they are the most likely to dominate.
+	 */
+	private static void sortEfficientBinarySearch(double[][] objectives, Integer[] order, int[] ranks){
+		List<List<Integer>> fronts = new ArrayList<List<Integer>>();
+		for (int i_sorted = 0;i_sorted < order.length;i_sorted++){
+			int point = order[i_sorted];
+			int low = 0;
+			int high = fronts.size();
+			while (low < high){
+				int mid = (low + high) >>> 1;
+				if (isDominatedByFront(objectives, fronts.get(mid), point)){
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			if (low == fronts.size()){
+				fronts.add(new ArrayList<Integer>());
+			}
+			fronts.get(low).add(point);
+			ranks[point] = low;
+		}
+	}
+
+	private static boolean isDominatedByFront(double[][] objectives, List<Integer> front, int point){
+		for (int i_member = front.size() - 1;i_member >= 0;i_member--){
+			if (dominates(objectives[front.get(i_member)], objectives[point])){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Computes the crowding distance of each point within a front. Boundary points of
+	 * each objective are assigned an infinite distance.
+	 * @param objectives one objective vector per point of the front
+	 * @return crowding distance per point
+	 */
+	public static double[] getCrowdingDistances(double[][] objectives){
+		int numberOfPoints = objectives.length;
+		double[] distances = new double[numberOfPoints];
+		if (numberOfPoints == 0){
+			return distances;
+		}
+		if (numberOfPoints <= 2){
+			Arrays.fill(distances, Double.POSITIVE_INFINITY);
+			return distances;
+		}
+		Integer[] order = new Integer[numberOfPoints];
+		for (int i_obj = 0;i_obj < objectives[0].length;i_obj++){
+			final int objective = i_obj;
+			for (int i_point = 0;i_point < numberOfPoints;i_point++){
+				order[i_point] = i_point;
+			}
+			Arrays.sort(order, (a, b) -> Double.compare(objectives[a][objective], objectives[b][objective]));
+			double minValue = objectives[order[0]][objective];
+			double objRange = objectives[order[numberOfPoints - 1]][objective] - minValue;
+			distances[order[0]] = Double.POSITIVE_INFINITY;
+			distances[order[numberOfPoints - 1]] = Double.POSITIVE_INFINITY;
+			if (objRange <= 0.0){
+				continue;
+			}
+			for (int i_sorted = 1;i_sorted < numberOfPoints - 1;i_sorted++){
+				distances[order[i_sorted]] += (objectives[order[i_sorted + 1]][objective]
+						- objectives[order[i_sorted - 1]][objective])/objRange;
+			}
+		}
+		return distances;
+	}
+}
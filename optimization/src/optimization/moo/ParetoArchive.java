@@ -0,0 +1,195 @@
+package optimization.moo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import optimization.BestDiscoveredSolution;
+import optimization.MultiObjectiveCostFunctionOutput_IF;
+import optimization.Parameter;
+
+/**
+ * <pre>
+ * This class stores a bounded set of mutually non-dominated solutions (an external
+ * Pareto archive).
+ * </pre>
+ * <pre>
+ * Candidates are merged into the archive a generation at a time. The merged set is
+ * sorted with <b>NonDominatedSorting</b> and only the first front is kept. When the
+ * first front is larger than the capacity of the archive, the most crowded member
+ * (smallest crowding distance) is removed and the crowding distances are recomputed
+ * until the archive fits.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class ParetoArchive {
+
+	private int capacity;
+	private List<BestDiscoveredSolution> solutions = new ArrayList<BestDiscoveredSolution>();
+	private List<double[]> objectiveValues = new ArrayList<double[]>();
+	private double[] crowdingDistances = new double[0];
+	private List<BestDiscoveredSolution> pendingSolutions = new ArrayList<BestDiscoveredSolution>();
+	private List<double[]> pendingObjectiveValues = new ArrayList<double[]>();
+
+	public ParetoArchive(int capacity){
+		this.capacity = capacity;
+	}
+	/**
+	 * Queues a candidate to be merged into the archive on the next call to <b>update</b>.
+	 * Candidates that are dominated by (or equal to) a current member are rejected before
+	 * their parameters are copied.
+	 * @param parameters
+	 * @param output
+	 * @return true if the candidate was queued
+	 */
+	public boolean addCandidate(Parameter[] parameters, MultiObjectiveCostFunctionOutput_IF output){
+		double[] candidateObjectives = output.getObjectiveValues();
+		for (double[] memberObjectives : objectiveValues){
+			if (NonDominatedSorting.dominates(memberObjectives, candidateObjectives)
+					|| Arrays.equals(memberObjectives, candidateObjectives)){
+				return false;
+			}
+		}
+		pendingSolutions.add(new BestDiscoveredSolution(parameters, output));
+		pendingObjectiveValues.add(candidateObjectives.clone());
+		return true;
+	}
+	/**
+	 * Merges all queued candidates into the archive, keeps the non-dominated front and
+	 * truncates it to the archive capacity by crowding distance.
+	 * @return true if any candidate entered the archive
+	 */
+	public boolean update(){
+		if (pendingSolutions.isEmpty()){
+			return false;
+		}
+		List<BestDiscoveredSolution> mergedSolutions = new ArrayList<BestDiscoveredSolution>(solutions);
+		List<double[]> mergedObjectives = new ArrayList<double[]>(objectiveValues);
+		mergedSolutions.addAll(pendingSolutions);
+		mergedObjectives.addAll(pendingObjectiveValues);
+		int numberOfOldMembers = solutions.size();
+		pendingSolutions.clear();
+		pendingObjectiveValues.clear();
+
+		int[] firstFront = NonDominatedSorting.getFirstFront(mergedObjectives.toArray(new double[0][]));
+		List<BestDiscoveredSolution> frontSolutions = new ArrayList<BestDiscoveredSolution>();
+		List<double[]> frontObjectives = new ArrayList<double[]>();
+		boolean newMemberAdded = false;
+		for (int i_point : firstFront){
+			if (i_point >= numberOfOldMembers){
+				if (containsObjectives(frontObjectives, mergedObjectives.get(i_point))){
+					//Duplicate objective vectors only take up archive space
+					continue;
+				}
+				newMemberAdded = true;
+			}
+			frontSolutions.add(mergedSolutions.get(i_point));
+			frontObjectives.add(mergedObjectives.get(i_point));
+		}
+		double[] distances = NonDominatedSorting.getCrowdingDistances(frontObjectives.toArray(new double[0][]));
+		while (frontSolutions.size() > capacity){
+			int mostCrowded = 0;
+			for (int i_member = 1;i_member < distances.length;i_member++){
+				if (distances[i_member] < distances[mostCrowded]){
+					mostCrowded = i_member;
+				}
+			}
+			frontSolutions.remove(mostCrowded);
+			frontObjectives.remove(mostCrowded);
+			distances = NonDominatedSorting.getCrowdingDistances(frontObjectives.toArray(new double[0][]));
+		}
+		this.solutions = frontSolutions;
+		this.objectiveValues = frontObjectives;
+		this.crowdingDistances = distances;
+		return newMemberAdded;
+	}
+
+	private static boolean containsObjectives(List<double[]> objectives, double[] candidate){
+		for (double[] existing : objectives){
+			if (Arrays.equals(existing, candidate)){
+				return true;
+			}
+		}
+		return false;
+	}
+	/**
+	 * Selects a leader from the archive with a binary tournament that favors the less
+	 * crowded of two randomly chosen members.
+	 * @param random
+	 * @return the selected archive member or null if the archive is empty
+	 */
+	public BestDiscoveredSolution selectLeader(Random random){
+		if (solutions.isEmpty()){
+			return null;
+		}
+		int first = random.nextInt(solutions.size());
+		int second = random.nextInt(solutions.size());
+		if (crowdingDistances[second] > crowdingDistances[first]){
+			return solutions.get(second);
+		}
+		return solutions.get(first);
+	}
+	/**
+	 * Returns the archive member closest to the ideal point after normalizing each
+	 * objective by its range over the archive.
+	 * @return
+	 */
+	public BestDiscoveredSolution getCompromiseSolution(){
+		if (solutions.isEmpty()){
+			return null;
+		}
+		int numberOfObjectives = objectiveValues.get(0).length;
+		double[] minValues = new double[numberOfObjectives];
+		double[] maxValues = new double[numberOfObjectives];
+		for (int i_obj = 0;i_obj < numberOfObjectives;i_obj++){
+			minValues[i_obj] = Double.POSITIVE_INFINITY;
+			maxValues[i_obj] = Double.NEGATIVE_INFINITY;
+			for (double[] objectives : objectiveValues){
+				minValues[i_obj] = Math.min(minValues[i_obj], objectives[i_obj]);
+				maxValues[i_obj] = Math.max(maxValues[i_obj], objectives[i_obj]);
+			}
+		}
+		int closest = 0;
+		double closestDistance = Double.POSITIVE_INFINITY;
+		for (int i_member = 0;i_member < objectiveValues.size();i_member++){
+			double distance = 0.0;
+			for (int i_obj = 0;i_obj < numberOfObjectives;i_obj++){
+				double objRange = maxValues[i_obj] - minValues[i_obj];
+				if (objRange > 0.0){
+					double normalized = (objectiveValues.get(i_member)[i_obj] - minValues[i_obj])/objRange;
+					distance += normalized*normalized;
+				}
+			}
+			if (distance < closestDistance){
+				closestDistance = distance;
+				closest = i_member;
+			}
+		}
+		return solutions.get(closest);
+	}
+	/**
+	 * Returns the members of the archive sorted by their first objective
+	 * @return
+	 */
+	public List<BestDiscoveredSolution> getSolutions(){
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i_member = 0;i_member < solutions.size();i_member++){
+			order.add(i_member);
+		}
+		Collections.sort(order, Comparator.comparingDouble((i_member) -> objectiveValues.get(i_member)[0]));
+		return order.stream().map((i_member) -> solutions.get(i_member)).collect(Collectors.toList());
+	}
+
+	public int size(){
+		return solutions.size();
+	}
+
+	public int getCapacity(){
+		return capacity;
+	}
+}
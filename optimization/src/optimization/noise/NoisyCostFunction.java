@@ -0,0 +1,271 @@
+package optimization.noise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptUtils;
+import optimization.OptimizationAbortedException;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * This class wraps a stochastic cost function, for which one evaluation is a noisy sample, so
+ * optimizers do not chase lucky draws. The wrapped cost function must return outputs that
+ * implement <b>ScalarCostFunctionOutput_IF</b>.
+ * </pre>
+ * <pre>
+ * Every point is evaluated with a small initial number of replicates and returned as a
+ * <b>NoisyCostFunctionOutput</b> holding their running mean and variance. A feasible point is
+ * then raced against the current best point (the incumbent):
+ * 	- If the difference of the means is larger than the confidence times its standard error,
+ * 	  the race is decided and no more replicates are spent. Points that clearly cannot beat
+ * 	  the incumbent therefore only cost the initial replicates.
+ * 	- Otherwise more replicates are evaluated for the point and the incumbent, allocated as
+ * 	  in OCBA (optimal computing budget allocation) in proportion to their standard
+ * 	  deviations, until the race is decided or both reach the maximum number of replicates.
+ * The incumbent is replaced by a point with a lower mean at the end of its race. Since a few
+ * replicates can underestimate the variance of a point by chance, the variance of every point is
+ * shrunk toward the noise variance pooled over all points.
+ * </pre>
+ * <pre>
+ * Replicates are evaluated in parallel when more than one thread is given, in which case the
+ * wrapped cost function must be thread safe. Setting the initial and maximum number of
+ * replicates equal gives a fixed re-evaluation count.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class NoisyCostFunction implements CostFunction_IF, AutoCloseable {
+
+	private final CostFunction_IF costFunction;
+	private int initialSamples = 2;
+	private int maxSamples = 10;
+	private double confidence = 2.0;
+	private final int numberOfThreads;
+	private final ExecutorService executor;
+	private final Object incumbentLock = new Object();
+	private NoisyCostFunctionOutput incumbent = null;
+	private final AtomicLong numberOfSamples = new AtomicLong();
+	//Variance of the noise pooled over the initial replicates of every point
+	private final Object pooledVarianceLock = new Object();
+	private double pooledSquaredDeviationSum = 0.0;
+	private long pooledDegreesOfFreedom = 0;
+
+	/**
+	 * Constructor that evaluates the replicates on the calling thread
+	 * @param costFunction
+	 */
+	public NoisyCostFunction(CostFunction_IF costFunction){
+		this(costFunction, 1);
+	}
+	/**
+	 * Constructor that evaluates the replicates on the given number of threads
+	 * @param costFunction
+	 * @param numberOfThreads
+	 */
+	public NoisyCostFunction(CostFunction_IF costFunction, int numberOfThreads){
+		this.costFunction = costFunction;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		if (this.numberOfThreads > 1){
+			this.executor = Executors.newFixedThreadPool(this.numberOfThreads, (runnable) -> {
+				Thread thread = new Thread(runnable, "noisy-cost-function");
+				thread.setDaemon(true);
+				return thread;
+			});
+		} else {
+			this.executor = null;
+		}
+	}
+	/**
+	 * Sets the number of replicates every point is evaluated with (at least 2 so its variance
+	 * can be estimated) and the maximum number a race can raise a point to
+	 * @param initialSamples
+	 * @param maxSamples
+	 * @return
+	 */
+	public NoisyCostFunction setSamples(int initialSamples, int maxSamples){
+		this.initialSamples = Math.max(2, initialSamples);
+		this.maxSamples = Math.max(this.initialSamples, maxSamples);
+		return this;
+	}
+	/**
+	 * Sets the number of standard errors by which the means must differ to decide a race.
+	 * The default is 2.
+	 * @param confidence
+	 * @return
+	 */
+	public NoisyCostFunction setConfidence(double confidence){
+		this.confidence = confidence;
+		return this;
+	}
+	/**
+	 * Returns the total number of replicates evaluated by the wrapped cost function
+	 * @return
+	 */
+	public long getNumberOfSamples(){
+		return numberOfSamples.get();
+	}
+	/**
+	 * Returns the output of the current best point (null before the first feasible point)
+	 * @return
+	 */
+	public NoisyCostFunctionOutput getIncumbent(){
+		synchronized(incumbentLock){
+			return incumbent;
+		}
+	}
+	/**
+	 * Forgets the current best point, as is required before starting a new optimization
+	 */
+	public void reset(){
+		synchronized(incumbentLock){
+			incumbent = null;
+		}
+	}
+
+	@Override
+	public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+		NoisyCostFunctionOutput candidate = new NoisyCostFunctionOutput(OptUtils.cloneParameterArray(parameters));
+		List<NoisyCostFunctionOutput> replicates = new ArrayList<NoisyCostFunctionOutput>();
+		for (int i_rep = 0;i_rep < initialSamples;i_rep++){
+			replicates.add(candidate);
+		}
+		evaluateReplicates(replicates);
+		synchronized(pooledVarianceLock){
+			pooledSquaredDeviationSum += candidate.getSquaredDeviationSum();
+			pooledDegreesOfFreedom += initialSamples - 1;
+		}
+		if (!candidate.isSolutionWithinRestraints()){
+			return candidate;
+		}
+		NoisyCostFunctionOutput raceIncumbent;
+		synchronized(incumbentLock){
+			if (incumbent == null){
+				incumbent = candidate;
+				return candidate;
+			}
+			raceIncumbent = incumbent;
+		}
+		race(candidate, raceIncumbent);
+		synchronized(incumbentLock){
+			if (incumbent.isNewCostFunctionOutputBetter(candidate)){
+				incumbent = candidate;
+			}
+		}
+		return candidate;
+	}
+	/**
+	 * Evaluates more replicates of the candidate and incumbent until the difference of their
+	 * means is significant or no more replicates are allowed
+	 * @param candidate
+	 * @param incumbent
+	 */
+	private void race(NoisyCostFunctionOutput candidate, NoisyCostFunctionOutput incumbent){
+		List<NoisyCostFunctionOutput> replicates = new ArrayList<NoisyCostFunctionOutput>(numberOfThreads);
+		while (true){
+			long candidateSamples = candidate.getNumberOfSamples();
+			long incumbentSamples = incumbent.getNumberOfSamples();
+			double candidateVariance = getShrunkVariance(candidate);
+			double incumbentVariance = getShrunkVariance(incumbent);
+			double difference = candidate.getMean() - incumbent.getMean();
+			double standardError = Math.sqrt(candidateVariance/candidateSamples + incumbentVariance/incumbentSamples);
+			if (Math.abs(difference) > confidence*standardError){
+				return;
+			}
+			double candidateDeviation = Math.sqrt(candidateVariance);
+			double incumbentDeviation = Math.sqrt(incumbentVariance);
+			replicates.clear();
+			for (int i_rep = 0;i_rep < numberOfThreads;i_rep++){
+				boolean candidateAllowed = candidateSamples < maxSamples;
+				boolean incumbentAllowed = incumbentSamples < maxSamples;
+				if (!candidateAllowed && !incumbentAllowed){
+					break;
+				}
+				//OCBA for two points: the numbers of replicates are proportional to the deviations
+				if (!incumbentAllowed || (candidateAllowed
+						&& candidateSamples*incumbentDeviation <= incumbentSamples*candidateDeviation)){
+					replicates.add(candidate);
+					candidateSamples++;
+				} else {
+					replicates.add(incumbent);
+					incumbentSamples++;
+				}
+			}
+			if (replicates.isEmpty()){
+				return;
+			}
+			evaluateReplicates(replicates);
+		}
+	}
+	/**
+	 * Returns the variance of the point shrunk toward the pooled noise variance, which is given
+	 * the weight of the initial number of replicates
+	 * @param output
+	 * @return
+	 */
+	private double getShrunkVariance(NoisyCostFunctionOutput output){
+		double pooledVariance;
+		synchronized(pooledVarianceLock){
+			pooledVariance = pooledSquaredDeviationSum/pooledDegreesOfFreedom;
+		}
+		synchronized(output){
+			return (output.getSquaredDeviationSum() + initialSamples*pooledVariance)
+					/(output.getNumberOfSamples() - 1 + initialSamples);
+		}
+	}
+	/**
+	 * Evaluates one replicate for each entry of the list and adds it to that output
+	 * @param replicates
+	 */
+	private void evaluateReplicates(List<NoisyCostFunctionOutput> replicates){
+		numberOfSamples.addAndGet(replicates.size());
+		if (executor == null || replicates.size() == 1){
+			for (NoisyCostFunctionOutput output : replicates){
+				output.addSample(evaluateReplicate(output));
+			}
+			return;
+		}
+		List<Callable<ScalarCostFunctionOutput_IF>> tasks = new ArrayList<Callable<ScalarCostFunctionOutput_IF>>(replicates.size());
+		for (NoisyCostFunctionOutput output : replicates){
+			tasks.add(() -> evaluateReplicate(output));
+		}
+		try {
+			List<Future<ScalarCostFunctionOutput_IF>> futures = executor.invokeAll(tasks);
+			for (int i_rep = 0;i_rep < replicates.size();i_rep++){
+				replicates.get(i_rep).addSample(futures.get(i_rep).get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OptimizationAbortedException("Evaluation of replicates was interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private ScalarCostFunctionOutput_IF evaluateReplicate(NoisyCostFunctionOutput output){
+		CostFunctionOutput_IF sample = costFunction.evaluateCostFunction(output.getParameters());
+		if (!(sample instanceof ScalarCostFunctionOutput_IF)){
+			throw new IllegalArgumentException("The noisy cost function must return a ScalarCostFunctionOutput_IF");
+		}
+		return (ScalarCostFunctionOutput_IF)sample;
+	}
+
+	@Override
+	public void close(){
+		if (executor != null){
+			executor.shutdownNow();
+		}
+	}
+}
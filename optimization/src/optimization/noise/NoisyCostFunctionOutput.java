@@ -0,0 +1,125 @@
+package optimization.noise;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * This class is the output of a <b>NoisyCostFunction</b>. It holds the running mean and
+ * variance (Welford's method) of the fitness of every replicate evaluated at a point, so
+ * outputs are compared by their sample means rather than by single noisy samples.
+ * </pre>
+ * <pre>
+ * The point is feasible and satisfies the optimization criterion when the majority of its
+ * replicates do. The output of the current best point keeps receiving replicates while new
+ * points are raced against it, so its mean is refined over the run.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class NoisyCostFunctionOutput implements ScalarCostFunctionOutput_IF {
+
+	private final Parameter[] parameters;
+	private long numberOfSamples = 0;
+	private double mean = 0.0;
+	//Sum of squared differences from the mean
+	private double squaredDeviationSum = 0.0;
+	private long numberWithinRestraints = 0;
+	private long numberSatisfyingCriterion = 0;
+	private CostFunctionOutput_IF lastSample = null;
+
+	NoisyCostFunctionOutput(Parameter[] parameters){
+		this.parameters = parameters;
+	}
+	/**
+	 * Adds a replicate evaluated at the parameters of this output
+	 * @param sample
+	 */
+	synchronized void addSample(ScalarCostFunctionOutput_IF sample){
+		numberOfSamples++;
+		double difference = sample.getFitness() - mean;
+		mean += difference/numberOfSamples;
+		squaredDeviationSum += difference*(sample.getFitness() - mean);
+		if (sample.isSolutionWithinRestraints()){
+			numberWithinRestraints++;
+		}
+		if (sample.isOptimizationCriterionSatisified()){
+			numberSatisfyingCriterion++;
+		}
+		lastSample = sample;
+	}
+	/**
+	 * Returns the parameter values the replicates were evaluated at
+	 * @return
+	 */
+	public Parameter[] getParameters(){
+		return parameters;
+	}
+
+	public synchronized long getNumberOfSamples(){
+		return numberOfSamples;
+	}
+
+	public synchronized double getMean(){
+		return mean;
+	}
+	/**
+	 * Returns the unbiased sample variance of the fitness of the replicates
+	 * @return
+	 */
+	public synchronized double getVariance(){
+		return numberOfSamples > 1 ? squaredDeviationSum/(numberOfSamples - 1) : Double.POSITIVE_INFINITY;
+	}
+	/**
+	 * Returns the sum of the squared differences of the replicates from their mean
+	 * @return
+	 */
+	synchronized double getSquaredDeviationSum(){
+		return squaredDeviationSum;
+	}
+	/**
+	 * Returns the squared standard error of the mean
+	 * @return
+	 */
+	public synchronized double getVarianceOfMean(){
+		return getVariance()/numberOfSamples;
+	}
+	/**
+	 * Returns the output of the last replicate
+	 * @return
+	 */
+	public synchronized CostFunctionOutput_IF getLastSample(){
+		return lastSample;
+	}
+
+	@Override
+	public double getFitness() {
+		return getMean();
+	}
+
+	@Override
+	public boolean isNewCostFunctionOutputBetter(CostFunctionOutput_IF newCFOutput) {
+		return ((NoisyCostFunctionOutput)newCFOutput).getMean() < getMean();
+	}
+
+	@Override
+	public synchronized boolean isOptimizationCriterionSatisified() {
+		return 2*numberSatisfyingCriterion > numberOfSamples;
+	}
+
+	@Override
+	public synchronized boolean isSolutionWithinRestraints() {
+		return 2*numberWithinRestraints > numberOfSamples;
+	}
+
+	@Override
+	public void printOutput() {
+		System.out.println(getOutputAsString());
+	}
+
+	@Override
+	public synchronized String getOutputAsString() {
+		return mean + " +/- " + Math.sqrt(getVarianceOfMean()) + " (" + numberOfSamples + " samples)";
+	}
+}
@@ -0,0 +1,412 @@
+package optimization.portfolio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptimizationAbortedException;
+import optimization.Optimizer_IF;
+import optimization.Parameter;
+
+/**
+ * <pre>
+ * This class races a portfolio of optimizers (any <b>Optimizer_IF</b> implementations, such as
+ * <b>ParticleSwarm</b>s with different settings) against each other on one shared evaluation
+ * budget.
+ * </pre>
+ * <pre>
+ * Every member runs its own optimization on a shared thread pool, but each of its cost function
+ * evaluations first needs a permit. Permits are handed out in quanta and at most <b>parallelism</b>
+ * members hold a quantum at any time. Whenever a slot frees up, the waiting member with the highest
+ * discounted upper confidence bound (D-UCB) gets the next quantum, so the budget flows toward the
+ * members that are improving fastest while stagnating members are still retried now and then.
+ * The reward of a quantum is 1 if it improved the portfolio best, 0.5 if it only improved the
+ * member's own best and 0 otherwise.
+ * </pre>
+ * <pre>
+ * All members are stopped, by an <b>OptimizationAbortedException</b> thrown from their cost
+ * function, as soon as one of them satisfies the optimization criterion or the budget is used up.
+ * The best solution found by any member is returned. If a member fails, the other members are
+ * stopped and the failure is rethrown from <b>optimize</b>.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class OptimizerPortfolio implements Optimizer_IF{
+
+	//Discount applied to the bandit statistics of every member after each quantum
+	private static final double DISCOUNT = 0.9;
+	private static final double REWARD_PORTFOLIO_BEST = 1.0;
+	private static final double REWARD_MEMBER_BEST = 0.5;
+
+	private List<Member> members = new ArrayList<Member>();
+	private long evaluationBudget;
+	private int evaluationsPerQuantum = 500;
+	private int parallelism;
+	private double explorationCoefficient = 1.0;
+	private ExecutorService executor = null;
+
+	//Scheduling state, guarded by lock
+	private final Object lock = new Object();
+	private long evaluationsAllocated = 0;
+	private long evaluationsUsed = 0;
+	private int slotsInUse = 0;
+	private boolean stopped = false;
+	private BestDiscoveredSolution bestSolution = null;
+	private int bestMemberIndex = -1;
+
+	/**
+	 * <pre>
+	 * Constructor that defines the total number of cost function evaluations shared by the members
+	 * and the optimizers in the portfolio.
+	 * </pre>
+	 * <b>Note:</b> By default half of the members (at least one) hold a quantum at any time so the
+	 * bandit always has a choice to make.
+	 * @param evaluationBudget
+	 * @param optimizers
+	 */
+	public OptimizerPortfolio(long evaluationBudget, Optimizer_IF... optimizers){
+		this.evaluationBudget = evaluationBudget;
+		for (int i_member = 0;i_member < optimizers.length;i_member++){
+			members.add(new Member(i_member, optimizers[i_member]));
+		}
+		this.parallelism = Math.max(1, optimizers.length/2);
+	}
+
+	@Override
+	public BestDiscoveredSolution optimize(CostFunction_IF costFunction) {
+		synchronized(lock){
+			evaluationsAllocated = 0;
+			evaluationsUsed = 0;
+			slotsInUse = 0;
+			stopped = false;
+			bestSolution = null;
+			bestMemberIndex = -1;
+			members.forEach((member) -> member.reset(costFunction));
+		}
+		ExecutorService pool = executor;
+		if (pool == null){
+			pool = Executors.newFixedThreadPool(members.size(), (runnable) -> {
+				Thread thread = new Thread(runnable, "portfolio-member");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		RuntimeException failure = null;
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (Member member : members){
+				futures.add(pool.submit(() -> runMember(member)));
+			}
+			for (int i_member = 0;i_member < futures.size();i_member++){
+				try {
+					futures.get(i_member).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					synchronized(lock){
+						stop();
+					}
+					break;
+				} catch (ExecutionException e) {
+					//The other members were stopped by the failing member, wait for them before reporting it
+					if (failure == null){
+						failure = e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause()
+								: new IllegalStateException("Portfolio member " + getMemberName(members.get(i_member)) + " failed", e.getCause());
+					}
+				}
+			}
+		} finally {
+			if (executor == null){
+				pool.shutdownNow();
+			}
+		}
+		if (failure != null){
+			throw failure;
+		}
+		synchronized(lock){
+			return bestSolution;
+		}
+	}
+
+	private static String getMemberName(Member member){
+		return String.valueOf(member.index) + " (" + member.optimizer.getClass().getSimpleName() + ")";
+	}
+
+	private void runMember(Member member){
+		try {
+			member.optimizer.optimize(member);
+		} catch (OptimizationAbortedException e){
+			//Stopped by the portfolio
+		} catch (RuntimeException | Error e){
+			//Stop the other members right away, the failure is reported by optimize
+			synchronized(lock){
+				stop();
+			}
+			throw e;
+		} finally {
+			memberFinished(member);
+		}
+	}
+	/**
+	 * Blocks until the member holds a permit for one evaluation
+	 * @param member
+	 * @throws OptimizationAbortedException if the portfolio has stopped
+	 */
+	private void acquirePermit(Member member){
+		synchronized(lock){
+			while (true){
+				if (stopped){
+					throw new OptimizationAbortedException("Portfolio optimization stopped");
+				}
+				if (member.remainingPermits > 0){
+					member.remainingPermits--;
+					return;
+				}
+				if (member.holdingSlot){
+					completeQuantum(member);
+				}
+				member.waiting = true;
+				dispatch();
+				if (member.remainingPermits == 0 && !stopped){
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new OptimizationAbortedException("Portfolio optimization interrupted");
+					}
+				}
+			}
+		}
+	}
+
+	private void recordEvaluation(Member member, Parameter[] parameters, CostFunctionOutput_IF output){
+		synchronized(lock){
+			member.evaluations++;
+			evaluationsUsed++;
+			if (output.isSolutionWithinRestraints() && (member.bestOutput == null || member.bestOutput.isNewCostFunctionOutputBetter(output))){
+				member.bestOutput = output;
+				if (bestSolution == null || bestSolution.getCostFunctionOutput().isNewCostFunctionOutputBetter(output)){
+					bestSolution = new BestDiscoveredSolution(parameters, output);
+					bestMemberIndex = member.index;
+					member.improvedPortfolioBest = true;
+				}
+			}
+			if (output.isOptimizationCriterionSatisified()){
+				if (bestSolution == null || bestSolution.getCostFunctionOutput() != output){
+					bestSolution = new BestDiscoveredSolution(parameters, output);
+					bestMemberIndex = member.index;
+				}
+				stop();
+			}
+		}
+	}
+	/**
+	 * Releases the slot of a member and updates its bandit statistics with the reward of the quantum
+	 */
+	private void completeQuantum(Member member){
+		slotsInUse--;
+		member.holdingSlot = false;
+		double reward = 0.0;
+		if (member.improvedPortfolioBest){
+			reward = REWARD_PORTFOLIO_BEST;
+		} else if (member.bestOutput != member.bestOutputAtQuantumStart){
+			reward = REWARD_MEMBER_BEST;
+		}
+		for (Member other : members){
+			other.discountedQuanta *= DISCOUNT;
+			other.discountedReward *= DISCOUNT;
+		}
+		member.discountedQuanta += 1.0;
+		member.discountedReward += reward;
+	}
+	/**
+	 * Grants quanta to the waiting members with the highest upper confidence bound until every slot
+	 * is in use. Stops the portfolio once the budget is allocated and every slot has been released.
+	 */
+	private void dispatch(){
+		while (slotsInUse < parallelism){
+			Member next = null;
+			double nextBound = Double.NEGATIVE_INFINITY;
+			for (Member member : members){
+				if (!member.waiting || member.finished){
+					continue;
+				}
+				double bound = getUpperConfidenceBound(member);
+				if (next == null || bound > nextBound){
+					next = member;
+					nextBound = bound;
+				}
+			}
+			if (next == null){
+				return;
+			}
+			long remainingBudget = evaluationBudget - evaluationsAllocated;
+			if (remainingBudget <= 0){
+				if (slotsInUse == 0){
+					stop();
+				}
+				return;
+			}
+			long quantum = Math.min(evaluationsPerQuantum, remainingBudget);
+			next.remainingPermits = quantum;
+			next.holdingSlot = true;
+			next.waiting = false;
+			next.quanta++;
+			next.bestOutputAtQuantumStart = next.bestOutput;
+			next.improvedPortfolioBest = false;
+			evaluationsAllocated += quantum;
+			slotsInUse++;
+			lock.notifyAll();
+		}
+	}
+
+	private double getUpperConfidenceBound(Member member){
+		if (member.quanta == 0){
+			return Double.POSITIVE_INFINITY;
+		}
+		double totalQuanta = 0.0;
+		for (Member other : members){
+			totalQuanta += other.discountedQuanta;
+		}
+		double meanReward = member.discountedReward/member.discountedQuanta;
+		return meanReward + explorationCoefficient*Math.sqrt(Math.log(Math.max(1.0, totalQuanta))/member.discountedQuanta);
+	}
+
+	private void memberFinished(Member member){
+		synchronized(lock){
+			if (member.holdingSlot){
+				//Unused permits go back to the budget
+				evaluationsAllocated -= member.remainingPermits;
+				member.remainingPermits = 0;
+				completeQuantum(member);
+			}
+			member.finished = true;
+			member.waiting = false;
+			dispatch();
+			lock.notifyAll();
+		}
+	}
+
+	private void stop(){
+		stopped = true;
+		lock.notifyAll();
+	}
+	/**
+	 * Sets the number of evaluations granted to a member at a time. A quantum should cover several
+	 * generations of the member so that its improvement can be judged. The default is 500.
+	 * @param evaluationsPerQuantum
+	 * @return
+	 */
+	public OptimizerPortfolio setEvaluationsPerQuantum(int evaluationsPerQuantum){
+		this.evaluationsPerQuantum = Math.max(1, evaluationsPerQuantum);
+		return this;
+	}
+	/**
+	 * Sets the number of members that may hold a quantum, and so evaluate, at the same time
+	 * @param parallelism
+	 * @return
+	 */
+	public OptimizerPortfolio setParallelism(int parallelism){
+		this.parallelism = Math.max(1, parallelism);
+		return this;
+	}
+	/**
+	 * Sets the weight of the exploration term of the upper confidence bound. The default is 1.
+	 * @param explorationCoefficient
+	 * @return
+	 */
+	public OptimizerPortfolio setExplorationCoefficient(double explorationCoefficient){
+		this.explorationCoefficient = explorationCoefficient;
+		return this;
+	}
+	/**
+	 * Sets the thread pool the members are run on. Each running member occupies one thread of
+	 * the pool for its whole optimization, so members beyond the size of the pool only start
+	 * once earlier members finish. By default a pool with a thread per member is created.
+	 * @param executor
+	 * @return
+	 */
+	public OptimizerPortfolio setExecutor(ExecutorService executor){
+		this.executor = executor;
+		return this;
+	}
+
+	public long getEvaluationsUsed(){
+		synchronized(lock){
+			return evaluationsUsed;
+		}
+	}
+	/**
+	 * Returns the number of evaluations made by the member at the given index in the last optimization
+	 * @param memberIndex
+	 * @return
+	 */
+	public long getMemberEvaluations(int memberIndex){
+		synchronized(lock){
+			return members.get(memberIndex).evaluations;
+		}
+	}
+	/**
+	 * Returns the index of the member that found the returned solution or -1 if none was found
+	 * @return
+	 */
+	public int getBestMemberIndex(){
+		synchronized(lock){
+			return bestMemberIndex;
+		}
+	}
+	/**
+	 * A member of the portfolio. It is handed to its optimizer as the cost function so that every
+	 * evaluation passes through the scheduler.
+	 */
+	private class Member implements CostFunction_IF{
+		private final int index;
+		private final Optimizer_IF optimizer;
+		private CostFunction_IF costFunction;
+		private long remainingPermits;
+		private boolean holdingSlot;
+		private boolean waiting;
+		private boolean finished;
+		private long evaluations;
+		private int quanta;
+		private double discountedQuanta;
+		private double discountedReward;
+		private CostFunctionOutput_IF bestOutput;
+		private CostFunctionOutput_IF bestOutputAtQuantumStart;
+		private boolean improvedPortfolioBest;
+
+		private Member(int index, Optimizer_IF optimizer){
+			this.index = index;
+			this.optimizer = optimizer;
+		}
+
+		private void reset(CostFunction_IF costFunction){
+			this.costFunction = costFunction;
+			remainingPermits = 0;
+			holdingSlot = false;
+			waiting = false;
+			finished = false;
+			evaluations = 0;
+			quanta = 0;
+			discountedQuanta = 0.0;
+			discountedReward = 0.0;
+			bestOutput = null;
+			bestOutputAtQuantumStart = null;
+			improvedPortfolioBest = false;
+		}
+
+		@Override
+		public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+			acquirePermit(this);
+			CostFunctionOutput_IF output = costFunction.evaluateCostFunction(parameters);
+			recordEvaluation(this, parameters, output);
+			return output;
+		}
+	}
+}
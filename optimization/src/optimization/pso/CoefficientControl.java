@@ -0,0 +1,170 @@
+package optimization.pso;
+
+/**
+ * <pre>
+ * This class controls the inertial, cognitive and social coefficients a <b>ParticleSwarm</b>
+ * uses in each generation.
+ * </pre>
+ * <pre>
+ * Supported strategies:
+ * 	CONSTANT              - the coefficients set on the swarm are used unchanged (default)
+ * 	LINEAR_DECREASING     - w decreases linearly from a start to an end value over the run
+ * 	NONLINEAR_DECREASING  - w = w<sub>end</sub> + (w<sub>start</sub> - w<sub>end</sub>)*(1 - t)<sup>n</sup>, where t is the run progress (0 to 1)
+ * 	CONSTRICTION          - Clerc's constriction factor X = 2/|2 - phi - sqrt(phi<sup>2</sup> - 4phi)|, phi = phi<sub>cog</sub> + phi<sub>soc</sub> &gt; 4,
+ * 	                        with w = X, c<sub>cog</sub> = X*phi<sub>cog</sub> and c<sub>soc</sub> = X*phi<sub>soc</sub>
+ * 	SUCCESS_RATE_ADAPTIVE - w = w<sub>min</sub> + (w<sub>max</sub> - w<sub>min</sub>)*S, where S is the fraction of particles that
+ * 	                        improved their personal best in the previous generation
+ * </pre>
+ * <pre>
+ * <b>Note</b>: A swarm keeps its own copy of the control, so one control can configure several
+ * swarms. The adaptive state of the copy is reset at the start of every optimization and after
+ * every restart.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class CoefficientControl {
+
+	/**
+	 * Enumeration of supported inertia strategies
+	 * @author Matt
+	 *
+	 */
+	public enum InertiaStrategy{
+		CONSTANT,
+		LINEAR_DECREASING,
+		NONLINEAR_DECREASING,
+		CONSTRICTION,
+		SUCCESS_RATE_ADAPTIVE
+	}
+
+	private InertiaStrategy strategy;
+	private double startInertia = 0.9;
+	private double endInertia = 0.4;
+	private double exponent = 1.0;
+	private double constrictionFactor = 1.0;
+	private double cognitivePhi = 0.0;
+	private double socialPhi = 0.0;
+	private static final double INITIAL_SUCCESS_RATE = 0.5;
+	//Success rate of the previous generation
+	private double successRate = INITIAL_SUCCESS_RATE;
+
+	private CoefficientControl(InertiaStrategy strategy){
+		this.strategy = strategy;
+	}
+
+	public static CoefficientControl constant(){
+		return new CoefficientControl(InertiaStrategy.CONSTANT);
+	}
+
+	public static CoefficientControl linearDecreasingInertia(double startInertia, double endInertia){
+		CoefficientControl control = new CoefficientControl(InertiaStrategy.LINEAR_DECREASING);
+		control.startInertia = startInertia;
+		control.endInertia = endInertia;
+		return control;
+	}
+
+	public static CoefficientControl nonlinearDecreasingInertia(double startInertia, double endInertia, double exponent){
+		CoefficientControl control = new CoefficientControl(InertiaStrategy.NONLINEAR_DECREASING);
+		control.startInertia = startInertia;
+		control.endInertia = endInertia;
+		control.exponent = exponent;
+		return control;
+	}
+	/**
+	 * Clerc's constriction. The usual choice is phi<sub>cog</sub> = phi<sub>soc</sub> = 2.05 (X = 0.7298).
+	 * @param cognitivePhi
+	 * @param socialPhi
+	 * @return
+	 */
+	public static CoefficientControl constriction(double cognitivePhi, double socialPhi){
+		double phi = cognitivePhi + socialPhi;
+		if (phi <= 4.0){
+			throw new IllegalArgumentException("Constriction requires phiCognitive + phiSocial > 4");
+		}
+		CoefficientControl control = new CoefficientControl(InertiaStrategy.CONSTRICTION);
+		control.cognitivePhi = cognitivePhi;
+		control.socialPhi = socialPhi;
+		control.constrictionFactor = 2.0/Math.abs(2.0 - phi - Math.sqrt(phi*phi - 4.0*phi));
+		return control;
+	}
+
+	public static CoefficientControl successRateAdaptiveInertia(double minInertia, double maxInertia){
+		CoefficientControl control = new CoefficientControl(InertiaStrategy.SUCCESS_RATE_ADAPTIVE);
+		control.endInertia = minInertia;
+		control.startInertia = maxInertia;
+		return control;
+	}
+
+	public InertiaStrategy getStrategy(){
+		return strategy;
+	}
+	/**
+	 * Returns the inertial coefficient for the current generation
+	 * @param baseInertia coefficient set on the swarm
+	 * @param progress fraction (0 to 1) of the run completed
+	 * @return
+	 */
+	double getInertialCoefficient(double baseInertia, double progress){
+		double t = Math.min(1.0, Math.max(0.0, progress));
+		switch(strategy){
+		case LINEAR_DECREASING:
+			return startInertia - (startInertia - endInertia)*t;
+		case NONLINEAR_DECREASING:
+			return endInertia + (startInertia - endInertia)*Math.pow(1.0 - t, exponent);
+		case CONSTRICTION:
+			return constrictionFactor;
+		case SUCCESS_RATE_ADAPTIVE:
+			return endInertia + (startInertia - endInertia)*successRate;
+		default:
+			return baseInertia;
+		}
+	}
+
+	double getCognitiveCoefficient(double baseCognitive){
+		if (strategy == InertiaStrategy.CONSTRICTION){
+			return constrictionFactor*cognitivePhi;
+		}
+		return baseCognitive;
+	}
+
+	double getSocialCoefficient(double baseSocial){
+		if (strategy == InertiaStrategy.CONSTRICTION){
+			return constrictionFactor*socialPhi;
+		}
+		return baseSocial;
+	}
+
+	/**
+	 * Returns a control with the same strategy and settings and its own adaptive state
+	 * @return
+	 */
+	CoefficientControl copy(){
+		CoefficientControl control = new CoefficientControl(strategy);
+		control.startInertia = startInertia;
+		control.endInertia = endInertia;
+		control.exponent = exponent;
+		control.constrictionFactor = constrictionFactor;
+		control.cognitivePhi = cognitivePhi;
+		control.socialPhi = socialPhi;
+		return control;
+	}
+	/**
+	 * Resets the adaptive state, called by the swarm at the start of a run and after a restart
+	 */
+	void initialize(){
+		this.successRate = INITIAL_SUCCESS_RATE;
+	}
+
+	void generationCompleted(double successRate){
+		this.successRate = successRate;
+	}
+
+	double getSuccessRate(){
+		return successRate;
+	}
+
+	void setSuccessRate(double successRate){
+		this.successRate = successRate;
+	}
+}
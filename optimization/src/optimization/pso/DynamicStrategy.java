@@ -0,0 +1,94 @@
+package optimization.pso;
+
+/**
+ * <pre>
+ * This class sets how a <b>ParticleSwarm</b> tracks a moving optimum when the environment of
+ * the cost function changes during a run.
+ * </pre>
+ * <pre>
+ * A change is signaled by a cost function implementing <b>DynamicCostFunction_IF</b>. Other cost
+ * functions are checked every generation by re-evaluating the swarm best, which is stale when its
+ * fitness (requires <b>ScalarCostFunctionOutput_IF</b>) differs by more than a relative tolerance.
+ * This detection is only suited to deterministic cost functions.
+ * </pre>
+ * <pre>
+ * After a change the swarm
+ * 	- stores the swarm best in a memory of past optima. The memory is kept diverse by replacing
+ * 	  the stored optimum nearest to a new one when the new one is within the exclusion radius or
+ * 	  the memory is full.
+ * 	- re-evaluates every personal best and rebuilds the swarm best from them
+ * 	- re-evaluates the memory and moves the particles with the worst personal bests to the stored
+ * 	  optima that beat them
+ * 	- reinitializes a fraction of the remaining worst particles to restore diversity
+ * The optimization criterion does not end a dynamic run, which continues for the set number of
+ * generations or time while tracking the optimum.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class DynamicStrategy {
+
+	private int memorySize;
+	private double exclusionRadius = 0.1;
+	private double randomizedFraction = 0.2;
+	private double changeDetectionTolerance = 1E-9;
+
+	private DynamicStrategy(int memorySize){
+		this.memorySize = memorySize;
+	}
+	/**
+	 * Tracks the optimum with a memory of the given number of past optima
+	 * @param memorySize
+	 * @return
+	 */
+	public static DynamicStrategy withMemory(int memorySize){
+		return new DynamicStrategy(Math.max(0, memorySize));
+	}
+	/**
+	 * Sets the normalized distance within which a new optimum replaces a stored optimum
+	 * instead of being added to the memory. The default is 0.1.
+	 * @param exclusionRadius
+	 * @return
+	 */
+	public DynamicStrategy setExclusionRadius(double exclusionRadius){
+		this.exclusionRadius = exclusionRadius;
+		return this;
+	}
+	/**
+	 * Sets the fraction (0 to 1) of the particles that are reinitialized after a change.
+	 * The default is 0.2.
+	 * @param randomizedFraction
+	 * @return
+	 */
+	public DynamicStrategy setRandomizedFraction(double randomizedFraction){
+		this.randomizedFraction = Math.min(1.0, Math.max(0.0, randomizedFraction));
+		return this;
+	}
+	/**
+	 * Sets the relative difference of the re-evaluated swarm best fitness that is detected as a
+	 * change for cost functions that do not signal changes. A negative tolerance disables the
+	 * detection.
+	 * @param changeDetectionTolerance
+	 * @return
+	 */
+	public DynamicStrategy setChangeDetectionTolerance(double changeDetectionTolerance){
+		this.changeDetectionTolerance = changeDetectionTolerance;
+		return this;
+	}
+
+	int getMemorySize(){
+		return memorySize;
+	}
+
+	double getExclusionRadius(){
+		return exclusionRadius;
+	}
+
+	double getRandomizedFraction(){
+		return randomizedFraction;
+	}
+
+	double getChangeDetectionTolerance(){
+		return changeDetectionTolerance;
+	}
+}
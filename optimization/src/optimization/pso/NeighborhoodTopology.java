@@ -0,0 +1,263 @@
+package optimization.pso;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <pre>
+ * This class defines which particles inform each other in a <b>ParticleSwarm</b>. A particle is
+ * pulled toward the best personal best among its neighbors (which always include itself) instead
+ * of the single swarm best, which slows the spread of information through the swarm and reduces
+ * premature convergence.
+ * </pre>
+ * <pre>
+ * Supported topologies:
+ * 	GLOBAL         - every particle informs every other particle (the original behavior)
+ * 	RING           - each particle is informed by the given number of particles on each side (lbest)
+ * 	VON_NEUMANN    - each particle is informed by its four neighbors on a wrapped grid
+ * 	RANDOM_DYNAMIC - each particle informs itself and a given number of random particles; the links
+ * 	                 are redrawn after every generation in which the swarm best did not improve
+ * Any topology can be made fully informed (FIPS), in which case every neighbor with a best value
+ * pulls on the particle instead of only the best neighbor.
+ * </pre>
+ * The neighbor lists are precomputed into reused primitive arrays sized for the topology, so
+ * lookups do not allocate and rewiring only does when a row of a random topology has to grow.
+ * The lists of the global topology are only built for the fully informed update.
+ * @author Matt
+ *
+ */
+public class NeighborhoodTopology {
+
+	/**
+	 * Enumeration of supported topology types
+	 * @author Matt
+	 *
+	 */
+	public enum TopologyType{
+		GLOBAL,
+		RING,
+		VON_NEUMANN,
+		RANDOM_DYNAMIC
+	}
+
+	private TopologyType topologyType;
+	private int neighborhoodSize;
+	private boolean fullyInformed = false;
+	private int numberOfParticles = 0;
+	private int[][] neighbors = new int[0][];
+	private int[] numberOfNeighbors = new int[0];
+
+	private NeighborhoodTopology(TopologyType topologyType, int neighborhoodSize){
+		this.topologyType = topologyType;
+		this.neighborhoodSize = neighborhoodSize;
+	}
+	/**
+	 * Every particle is informed by the swarm best
+	 * @return
+	 */
+	public static NeighborhoodTopology global(){
+		return new NeighborhoodTopology(TopologyType.GLOBAL, 0);
+	}
+	/**
+	 * Each particle is informed by itself and the given number of particles on each side of
+	 * it on a ring
+	 * @param neighborsPerSide
+	 * @return
+	 */
+	public static NeighborhoodTopology ring(int neighborsPerSide){
+		return new NeighborhoodTopology(TopologyType.RING, Math.max(1, neighborsPerSide));
+	}
+	/**
+	 * Each particle is informed by itself and the particles above, below, left and right of it
+	 * on a wrapped grid
+	 * @return
+	 */
+	public static NeighborhoodTopology vonNeumann(){
+		return new NeighborhoodTopology(TopologyType.VON_NEUMANN, 4);
+	}
+	/**
+	 * Each particle informs itself and the given number of randomly chosen particles. The links
+	 * are redrawn whenever a generation ends without improving the swarm best.
+	 * @param informantsPerParticle
+	 * @return
+	 */
+	public static NeighborhoodTopology randomDynamic(int informantsPerParticle){
+		return new NeighborhoodTopology(TopologyType.RANDOM_DYNAMIC, Math.max(1, informantsPerParticle));
+	}
+	/**
+	 * Sets the swarm to use the Fully Informed Particle Swarm update with this topology
+	 * @param fullyInformed
+	 * @return
+	 */
+	public NeighborhoodTopology setFullyInformed(boolean fullyInformed){
+		this.fullyInformed = fullyInformed;
+		if (topologyType == TopologyType.GLOBAL && numberOfParticles > 0){
+			buildGlobal();
+		}
+		return this;
+	}
+
+	/**
+	 * Returns a topology of the same type and settings with its own neighbor lists, built by
+	 * <b>initialize</b>
+	 * @return
+	 */
+	NeighborhoodTopology copy(){
+		NeighborhoodTopology topology = new NeighborhoodTopology(topologyType, neighborhoodSize);
+		topology.fullyInformed = fullyInformed;
+		return topology;
+	}
+
+	public boolean isFullyInformed(){
+		return fullyInformed;
+	}
+
+	public TopologyType getTopologyType(){
+		return topologyType;
+	}
+	/**
+	 * Returns true if the particles are only pulled toward the swarm best
+	 * @return
+	 */
+	public boolean isGlobalBest(){
+		return topologyType == TopologyType.GLOBAL && !fullyInformed;
+	}
+	/**
+	 * Builds the neighbor lists for the given number of particles. Called by the swarm whenever
+	 * its number of particles changes.
+	 * @param numberOfParticles
+	 * @param random
+	 */
+	void initialize(int numberOfParticles, Random random){
+		this.numberOfParticles = numberOfParticles;
+		this.numberOfNeighbors = new int[numberOfParticles];
+		switch(topologyType){
+		case GLOBAL:
+			buildGlobal();
+			break;
+		case RING:
+			allocateRows(Math.min(numberOfParticles, 2*neighborhoodSize + 1));
+			for (int i_part = 0;i_part < numberOfParticles;i_part++){
+				addNeighbor(i_part, i_part);
+				for (int offset = 1;offset <= neighborhoodSize;offset++){
+					addNeighbor(i_part, Math.floorMod(i_part - offset, numberOfParticles));
+					addNeighbor(i_part, Math.floorMod(i_part + offset, numberOfParticles));
+				}
+			}
+			break;
+		case VON_NEUMANN:
+			allocateRows(Math.min(numberOfParticles, 5));
+			int columns = (int)Math.ceil(Math.sqrt(numberOfParticles));
+			for (int i_part = 0;i_part < numberOfParticles;i_part++){
+				int rowStart = (i_part/columns)*columns;
+				int rowLength = Math.min(columns, numberOfParticles - rowStart);
+				addNeighbor(i_part, i_part);
+				addNeighbor(i_part, rowStart + Math.floorMod(i_part - rowStart - 1, rowLength));
+				addNeighbor(i_part, rowStart + Math.floorMod(i_part - rowStart + 1, rowLength));
+				addNeighbor(i_part, Math.floorMod(i_part - columns, numberOfParticles));
+				addNeighbor(i_part, Math.floorMod(i_part + columns, numberOfParticles));
+			}
+			break;
+		case RANDOM_DYNAMIC:
+			//Rows grow when a particle happens to inform more particles than expected
+			allocateRows(Math.min(numberOfParticles, neighborhoodSize + 1));
+			rewire(random);
+			break;
+		}
+	}
+	/**
+	 * The swarm best is used instead of the lists unless the swarm is fully informed, so the
+	 * lists (every particle in every row) are only built then
+	 */
+	private void buildGlobal(){
+		if (!fullyInformed){
+			this.neighbors = new int[numberOfParticles][0];
+			Arrays.fill(numberOfNeighbors, 0);
+			return;
+		}
+		allocateRows(numberOfParticles);
+		for (int i_part = 0;i_part < numberOfParticles;i_part++){
+			for (int j_part = 0;j_part < numberOfParticles;j_part++){
+				neighbors[i_part][j_part] = j_part;
+			}
+			numberOfNeighbors[i_part] = numberOfParticles;
+		}
+	}
+
+	private void allocateRows(int rowCapacity){
+		this.neighbors = new int[numberOfParticles][Math.max(1, rowCapacity)];
+	}
+	/**
+	 * Called by the swarm at the end of every generation
+	 * @param swarmBestImproved
+	 * @param random
+	 */
+	void generationCompleted(boolean swarmBestImproved, Random random){
+		if (topologyType == TopologyType.RANDOM_DYNAMIC && !swarmBestImproved){
+			rewire(random);
+		}
+	}
+
+	private void rewire(Random random){
+		for (int i_part = 0;i_part < numberOfParticles;i_part++){
+			numberOfNeighbors[i_part] = 0;
+		}
+		//Particle i informs particle j, so i is added to the neighbor list of j
+		for (int i_part = 0;i_part < numberOfParticles;i_part++){
+			addNeighbor(i_part, i_part);
+			for (int i_link = 0;i_link < neighborhoodSize;i_link++){
+				addNeighbor(random.nextInt(numberOfParticles), i_part);
+			}
+		}
+	}
+
+	private void addNeighbor(int i_part, int neighbor){
+		for (int i_neigh = 0;i_neigh < numberOfNeighbors[i_part];i_neigh++){
+			if (neighbors[i_part][i_neigh] == neighbor){
+				return;
+			}
+		}
+		if (numberOfNeighbors[i_part] == neighbors[i_part].length){
+			//Only a random topology can fill a row; a row never holds more than every particle
+			neighbors[i_part] = Arrays.copyOf(neighbors[i_part], Math.min(numberOfParticles, 2*neighbors[i_part].length));
+		}
+		neighbors[i_part][numberOfNeighbors[i_part]++] = neighbor;
+	}
+
+	/**
+	 * Returns copies of the neighbor lists of all particles, for checkpoints
+	 * @return
+	 */
+	int[][] getLinks(){
+		int[][] links = new int[numberOfParticles][];
+		for (int i_part = 0;i_part < numberOfParticles;i_part++){
+			links[i_part] = Arrays.copyOf(neighbors[i_part], numberOfNeighbors[i_part]);
+		}
+		return links;
+	}
+	/**
+	 * Replaces the neighbor lists with lists of the same number of particles taken from <b>getLinks</b>
+	 * @param links
+	 */
+	void setLinks(int[][] links){
+		for (int i_part = 0;i_part < numberOfParticles;i_part++){
+			if (links[i_part].length > neighbors[i_part].length){
+				neighbors[i_part] = new int[links[i_part].length];
+			}
+			System.arraycopy(links[i_part], 0, neighbors[i_part], 0, links[i_part].length);
+			numberOfNeighbors[i_part] = links[i_part].length;
+		}
+	}
+
+	int getNumberOfParticles(){
+		return numberOfParticles;
+	}
+
+	public int getNumberOfNeighbors(int particleIndex){
+		return numberOfNeighbors[particleIndex];
+	}
+
+	public int getNeighbor(int particleIndex, int neighborIndex){
+		return neighbors[particleIndex][neighborIndex];
+	}
+}
@@ -1,97 +1,213 @@
-package optimization.pso;
-
-import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import optimization.BestDiscoveredSolution;
-import optimization.CostFunctionOutput_IF;
-/**
- * <pre>
- * This class represents the Particle portion of the Particle Swarm Optimization
- * algorithm. It stores all of the <b>ParticleParameter</b>(s) as well as the best 
- * solution that the Particle has found (<b>BestDiscoveredSolution</b>)
- * </pre>
- * <pre>
- * The class currently uses the basic PSO update algorithm:
- * v<sub>i+1</sub> = w*v<sub>i</sub> 
- * 		+ r<sub>1</sub>c<sub>cog</sub>*(b<sub>part</sub> - p<sub>i</sub>) 
- * 		+ r<sub>2</sub>c<sub>soc</sub>*(b<sub>swarm</sub> - p<sub>i</sub>)
- * </pre>
- * @author Matt
- *
- */
-
-public class Particle {
-	
-	private ParticleParameter[] parameters = null;
-	private BestDiscoveredSolution bestValue = null;
-	
-	public Particle(ParticleParameter... parameters){
-
-		this.parameters = Stream.of(parameters).map((parameter) -> {
-			try {
-				return parameter.clone();
-			} catch (CloneNotSupportedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-				
-			}
-			return parameter;
-		}).collect(Collectors.toList()).toArray(new ParticleParameter[parameters.length]);
-		
-
-	}
-	
-	
-	public ParticleParameter[] getParameters() {
-		return parameters;
-	}
-
-
-	public void setParameters(ParticleParameter[] parameters) {
-		this.parameters = parameters;
-	}
-	
-	public void setBestValueToNull(){
-		this.bestValue = null;
-	}
-
-	public List<Number> getParameterValues(){
-		return Stream.of(this.parameters).map((param) -> param.getCurrentValue()).collect(Collectors.toList());
-	}
-	public void updateParameters(double inertialCoeff, double cognitveCoeff, double socialCoeff, BestDiscoveredSolution swarmBest, CostFunctionOutput_IF costFunctionOutput){
-		//if this is the first particle call then initialize best value
-		if (bestValue == null){
-			if (costFunctionOutput.isSolutionWithinRestraints()){
-				this.bestValue = new BestDiscoveredSolution(parameters,costFunctionOutput);
-			}
-			for (ParticleParameter param : parameters){
-				double negOrPos = -1;
-				if ((new Random()).nextBoolean()){
-					negOrPos = 1.0;
-				}
-				param.setParticleVelocity(negOrPos*Math.random()*param.getVelocityLimit());
-				//Update parameter value
-				param.updateAndBoundCurrentValue(param.getCurrentValueAsDouble() + param.getParticleVelocity());
-			}
-		} else {
-			if (bestValue.getCostFunctionOutput().isNewCostFunctionOutputBetter(costFunctionOutput)){
-				this.bestValue = new BestDiscoveredSolution(parameters,costFunctionOutput);
-			}
-
-			for (int i_param = 0;i_param < parameters.length;i_param++){
-				
-				double velSelfComponent = inertialCoeff*parameters[i_param].getParticleVelocity() + 
-						Math.random()*cognitveCoeff*(bestValue.getParameterValues().get(i_param).doubleValue() - parameters[i_param].getCurrentValueAsDouble());
-				double velSwarmComponent = Math.random()*socialCoeff*(swarmBest.getParameterValues().get(i_param).doubleValue() - parameters[i_param].getCurrentValueAsDouble());
-				parameters[i_param].setParticleVelocity(velSelfComponent + velSwarmComponent);
-				//Update parameter value
-				parameters[i_param].updateAndBoundCurrentValue(parameters[i_param].getCurrentValueAsDouble() + parameters[i_param].getParticleVelocity());
-			}
-		}
-	}
-	
-	
-}
+package optimization.pso;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.SolutionSnapshot;
+import optimization.TimedOutCostFunctionOutput;
+/**
+ * <pre>
+ * This class represents the Particle portion of the Particle Swarm Optimization
+ * algorithm. It stores all of the <b>ParticleParameter</b>(s) as well as the best 
+ * solution that the Particle has found (<b>BestDiscoveredSolution</b>)
+ * </pre>
+ * <pre>
+ * The class currently uses the basic PSO update algorithm:
+ * v<sub>i+1</sub> = w*v<sub>i</sub> 
+ * 		+ r<sub>1</sub>c<sub>cog</sub>*(b<sub>part</sub> - p<sub>i</sub>) 
+ * 		+ r<sub>2</sub>c<sub>soc</sub>*(b<sub>swarm</sub> - p<sub>i</sub>)
+ * </pre>
+ * @author Matt
+ *
+ */
+
+public class Particle {
+	
+	private ParticleParameter[] parameters = null;
+	private BestDiscoveredSolution bestValue = null;
+	//Primitive copy of the parameter values of bestValue so velocity updates do not allocate
+	private double[] bestPosition = null;
+	private Random random = new Random();
+	//True if the last call to updateBestValue replaced the best value
+	private boolean bestImproved = false;
+	
+	public Particle(ParticleParameter... parameters){
+
+		this.parameters = Stream.of(parameters).map((parameter) -> {
+			try {
+				return parameter.clone();
+			} catch (CloneNotSupportedException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+				
+			}
+			return parameter;
+		}).collect(Collectors.toList()).toArray(new ParticleParameter[parameters.length]);
+		this.bestPosition = new double[parameters.length];
+
+	}
+	
+	
+	public ParticleParameter[] getParameters() {
+		return parameters;
+	}
+
+
+	public void setParameters(ParticleParameter[] parameters) {
+		this.parameters = parameters;
+	}
+	
+	public void setBestValueToNull(){
+		this.bestValue = null;
+	}
+	
+	public BestDiscoveredSolution getBestValue(){
+		return bestValue;
+	}
+	
+	public void setBestValue(BestDiscoveredSolution bestValue){
+		this.bestValue = bestValue;
+		if (bestValue != null){
+			SolutionSnapshot snapshot = bestValue.getSnapshot();
+			for (int i_param = 0;i_param < parameters.length;i_param++){
+				bestPosition[i_param] = snapshot.getValue(i_param);
+			}
+		}
+	}
+	/**
+	 * Returns the parameter values of the best value found by the particle. The array is
+	 * reused by the particle and is only valid while <b>getBestValue()</b> is not null.
+	 * @return
+	 */
+	public double[] getBestPosition(){
+		return bestPosition;
+	}
+	/**
+	 * Sets the random number generator used for the velocity update and for reinitializing
+	 * parameters that leave their bounds. Sharing one generator across the swarm makes a run
+	 * reproducible from its seed.
+	 * @param random
+	 */
+	public void setRandom(Random random){
+		this.random = random;
+	}
+
+	public List<Number> getParameterValues(){
+		return Stream.of(this.parameters).map((param) -> param.getCurrentValue()).collect(Collectors.toList());
+	}
+	public void updateParameters(double inertialCoeff, double cognitveCoeff, double socialCoeff, BestDiscoveredSolution swarmBest, CostFunctionOutput_IF costFunctionOutput){
+		if (updateBestValue(costFunctionOutput)){
+			double[] swarmBestPosition = swarmBest.getSnapshot().getValues();
+			moveToward(inertialCoeff, cognitveCoeff, socialCoeff, swarmBestPosition);
+		} else {
+			initializeVelocity();
+		}
+	}
+	/**
+	 * Updates the best value of the particle with the output of its current parameter values.
+	 * @param costFunctionOutput
+	 * @return false if this was the first update of the particle (best value was null), in which
+	 * case the particle should be moved with <b>initializeVelocity</b>
+	 */
+	public boolean updateBestValue(CostFunctionOutput_IF costFunctionOutput){
+		bestImproved = false;
+		//if this is the first particle call then initialize best value
+		if (bestValue == null){
+			if (costFunctionOutput.isSolutionWithinRestraints()){
+				setBestValue(new BestDiscoveredSolution(parameters,costFunctionOutput));
+				bestImproved = true;
+			}
+			return false;
+		}
+		//A timed out evaluation cannot be compared by the user defined output
+		if (!(costFunctionOutput instanceof TimedOutCostFunctionOutput)
+				&& bestValue.getCostFunctionOutput().isNewCostFunctionOutputBetter(costFunctionOutput)){
+			setBestValue(new BestDiscoveredSolution(parameters,costFunctionOutput));
+			bestImproved = true;
+		}
+		return true;
+	}
+	/**
+	 * Returns true if the last call to <b>updateBestValue</b> replaced the best value of the particle
+	 * @return
+	 */
+	public boolean isBestImproved(){
+		return bestImproved;
+	}
+	/**
+	 * Moves the particle with a random velocity within the velocity limits
+	 */
+	public void initializeVelocity(){
+		for (ParticleParameter param : parameters){
+			double negOrPos = -1;
+			if (random.nextBoolean()){
+				negOrPos = 1.0;
+			}
+			param.setParticleVelocity(negOrPos*random.nextDouble()*param.getVelocityLimit());
+			//Update parameter value
+			param.updateAndBoundCurrentValue(param.getCurrentValueAsDouble() + param.getParticleVelocity(), random);
+		}
+	}
+	/**
+	 * Moves the particle with the basic PSO update toward its own best position and the
+	 * given social best position (the swarm best or the best of its neighborhood)
+	 * @param inertialCoeff
+	 * @param cognitveCoeff
+	 * @param socialCoeff
+	 * @param socialBestPosition
+	 */
+	public void moveToward(double inertialCoeff, double cognitveCoeff, double socialCoeff, double[] socialBestPosition){
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			
+			double velSelfComponent = inertialCoeff*parameters[i_param].getParticleVelocity() + 
+					random.nextDouble()*cognitveCoeff*(bestPosition[i_param] - parameters[i_param].getCurrentValueAsDouble());
+			double velSwarmComponent = random.nextDouble()*socialCoeff*(socialBestPosition[i_param] - parameters[i_param].getCurrentValueAsDouble());
+			parameters[i_param].setParticleVelocity(velSelfComponent + velSwarmComponent);
+			//Update parameter value
+			parameters[i_param].updateAndBoundCurrentValue(parameters[i_param].getCurrentValueAsDouble() + parameters[i_param].getParticleVelocity(), random);
+		}
+	}
+	/**
+	 * <pre>
+	 * Moves the particle with the Fully Informed Particle Swarm (FIPS) update in which every
+	 * informant with a best value pulls on the particle with an equal share of the total
+	 * acceleration coefficient:
+	 * v<sub>i+1</sub> = w*v<sub>i</sub> + sum<sub>k</sub> r<sub>k</sub>(c/K)*(b<sub>k</sub> - p<sub>i</sub>)
+	 * </pre>
+	 * @param inertialCoeff
+	 * @param accelerationCoeff
+	 * @param swarm all particles of the swarm
+	 * @param topology
+	 * @param particleIndex index of this particle in the swarm
+	 */
+	public void moveFullyInformed(double inertialCoeff, double accelerationCoeff, List<Particle> swarm,
+			NeighborhoodTopology topology, int particleIndex){
+		int numberOfNeighbors = topology.getNumberOfNeighbors(particleIndex);
+		int numberOfInformants = 0;
+		for (int i_neigh = 0;i_neigh < numberOfNeighbors;i_neigh++){
+			if (swarm.get(topology.getNeighbor(particleIndex, i_neigh)).getBestValue() != null){
+				numberOfInformants++;
+			}
+		}
+		double informantCoeff = accelerationCoeff/numberOfInformants;
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			double position = parameters[i_param].getCurrentValueAsDouble();
+			double velocity = inertialCoeff*parameters[i_param].getParticleVelocity();
+			for (int i_neigh = 0;i_neigh < numberOfNeighbors;i_neigh++){
+				Particle informant = swarm.get(topology.getNeighbor(particleIndex, i_neigh));
+				if (informant.getBestValue() != null){
+					velocity += random.nextDouble()*informantCoeff*(informant.getBestPosition()[i_param] - position);
+				}
+			}
+			parameters[i_param].setParticleVelocity(velocity);
+			//Update parameter value
+			parameters[i_param].updateAndBoundCurrentValue(position + parameters[i_param].getParticleVelocity(), random);
+		}
+	}
+	
+	
+}
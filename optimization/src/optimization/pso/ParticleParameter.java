@@ -1,46 +1,81 @@
-package optimization.pso;
-
-import optimization.Parameter;
-/**
- * This class extends the class <b>Parameter</b> to also store the 
- * velocity value/limits for a given parameter required for the PSO
- * algorithm.
- * @author Matt
- *
- */
-public class ParticleParameter extends Parameter{
-	public Double particleVelocity = 0.0;
-	private Double velocityLimit;
-	public void setParticleVelocity(Double velocity){
-		if (Math.abs(velocity) < velocityLimit){
-			this.particleVelocity = velocity;
-		} else {
-			this.particleVelocity = Math.signum(velocity)*velocityLimit;
-		}
-	}
-	public ParticleParameter(Double lowerBound, Double upperBound){
-		super(lowerBound,upperBound);
-	}
-	public ParticleParameter(Integer lowerBound, Integer upperBound){
-		super(lowerBound,upperBound);
-	}
-	public ParticleParameter(String... categoricalStrings){
-		super(categoricalStrings);
-	}
-	public ParticleParameter(Enum<? extends Object>[] categoricalEnum){
-		super(categoricalEnum);
-	}
-	public void setVelocityLimit(Double velocityLimit){
-		this.velocityLimit = velocityLimit;
-	}
-	@Override
-	public ParticleParameter clone() throws CloneNotSupportedException{
-		return (ParticleParameter)super.clone();
-	}
-	public Double getParticleVelocity() {
-		return particleVelocity;
-	}
-	public Double getVelocityLimit() {
-		return velocityLimit;
-	}
+package optimization.pso;
+
+import optimization.Parameter;
+/**
+ * This class extends the class <b>Parameter</b> to also store the 
+ * velocity value/limits for a given parameter required for the PSO
+ * algorithm.
+ * @author Matt
+ *
+ */
+public class ParticleParameter extends Parameter{
+	public Double particleVelocity = 0.0;
+	private Double velocityLimit;
+	public void setParticleVelocity(Double velocity){
+		if (Math.abs(velocity) < velocityLimit){
+			this.particleVelocity = velocity;
+		} else {
+			this.particleVelocity = Math.signum(velocity)*velocityLimit;
+		}
+	}
+	public ParticleParameter(Double lowerBound, Double upperBound){
+		super(lowerBound,upperBound);
+	}
+	public ParticleParameter(Integer lowerBound, Integer upperBound){
+		super(lowerBound,upperBound);
+	}
+	public ParticleParameter(String... categoricalStrings){
+		super(categoricalStrings);
+	}
+	public ParticleParameter(Enum<? extends Object>[] categoricalEnum){
+		super(categoricalEnum);
+	}
+	public void setVelocityLimit(Double velocityLimit){
+		this.velocityLimit = velocityLimit;
+	}
+	/**
+	 * Sets the velocity limit to a percentage of the parameter range for parameters of numeric
+	 * type Double. The velocity limit for parameters with numeric type Integer is set to 1.
+	 * @param maxDecPercRangePerOptStep
+	 */
+	public void setVelocityLimitFromRange(Double maxDecPercRangePerOptStep){
+		switch(getParamType()){
+		case INTEGER:
+			setVelocityLimit(1.0);
+			break;
+		case CATEGORICAL:
+			setVelocityLimit(1.0);
+			break;
+		case DOUBLE:
+			setVelocityLimit(getRangeOfParameterValue()*maxDecPercRangePerOptStep);
+			break;
+		}
+	}
+	/**
+	 * Sets the velocity limit to a fraction of the parameter range for parameters of every numeric
+	 * type. The velocity limit for parameters with numeric type Integer is not set below 1 since
+	 * smaller steps are rounded away.
+	 * @param fractionOfRange
+	 */
+	public void setVelocityLimitFromFractionOfRange(double fractionOfRange){
+		double limit = getRangeOfParameterValue()*fractionOfRange;
+		switch(getParamType()){
+		case DOUBLE:
+			setVelocityLimit(limit);
+			break;
+		default:
+			setVelocityLimit(Math.max(1.0, limit));
+			break;
+		}
+	}
+	@Override
+	public ParticleParameter clone() throws CloneNotSupportedException{
+		return (ParticleParameter)super.clone();
+	}
+	public Double getParticleVelocity() {
+		return particleVelocity;
+	}
+	public Double getVelocityLimit() {
+		return velocityLimit;
+	}
 }
\ No newline at end of file
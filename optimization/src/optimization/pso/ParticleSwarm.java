@@ -1,12 +1,32 @@
 package optimization.pso;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
+import optimization.BatchCostFunction_IF;
 import optimization.CostFunction_IF;
+import optimization.DynamicCostFunction_IF;
+import optimization.EliteArchive;
 import optimization.BestDiscoveredSolution;
 import optimization.CostFunctionOutput_IF;
+import optimization.EvaluationListener_IF;
+import optimization.OptUtils;
 import optimization.Optimizer_IF;
+import optimization.ParallelEvaluator;
+import optimization.Parameter;
+import optimization.RunStatistics;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.SolutionSnapshot;
 
 /**
  * <pre>
@@ -27,7 +47,26 @@ import optimization.Optimizer_IF;
  * the best swarm value has not been updated. The object will keep the
  * best overall value (best value found over all reinitializations) and
  * return this instance of <b>BestDiscoveredSolution</b> at the end of 
- * the optimization.
+ * the optimization. A <b>RestartStrategy</b> can instead detect stagnation from the
+ * swarm diversity, keep the elite particles through a restart and grow the swarm
+ * after every restart.
+ * </pre>
+ * <pre>
+ * <b>Note</b>: Long runs can periodically checkpoint the full swarm state to a
+ * file (<b>setCheckpointing</b>) and a new swarm constructed with the same
+ * settings can continue the run from that file (<b>resumeFromCheckpoint</b>).
+ * </pre>
+ * <pre>
+ * <b>Note</b>: By default the particles are evaluated one after the other. A
+ * <b>ParallelEvaluator</b> (<b>setParallelEvaluator</b>) evaluates each generation
+ * in parallel with per-evaluation timeouts and speculative re-execution of slow
+ * evaluations. The cost function must then be thread safe. Otherwise a cost function
+ * implementing <b>BatchCostFunction_IF</b> evaluates each generation with a single call.
+ * </pre>
+ * <pre>
+ * <b>Note</b>: With a <b>DynamicStrategy</b> (<b>setDynamicStrategy</b>) the swarm keeps
+ * tracking the optimum of a cost function whose environment changes during the run
+ * instead of having to be restarted for every change.
  * </pre>
  * @author Matt
  *
@@ -37,16 +76,57 @@ public class ParticleSwarm implements Optimizer_IF{
 	private List<Particle> particles = new ArrayList<Particle>();
 	private BestDiscoveredSolution swarmOverallBest = null;
 	private BestDiscoveredSolution swarmBest = null;
+	//Primitive copy of the parameter values of swarmBest so velocity updates do not allocate
+	private double[] swarmBestPosition = null;
+	private NeighborhoodTopology topology = NeighborhoodTopology.global();
 	private int maxGenerations;
 	private double socialCoefficient = 2.0;
 	private double cognitiveCoefficient = 2.0;
 	private double inertialCoefficient = 1.0;
+	private CoefficientControl coefficientControl = CoefficientControl.constant();
+	private VelocityLimitControl velocityLimitControl = VelocityLimitControl.fixed();
+	//Coefficients used for the particle updates of the current generation
+	private double currentSocialCoefficient = socialCoefficient;
+	private double currentCognitiveCoefficient = cognitiveCoefficient;
+	private double currentInertialCoefficient = inertialCoefficient;
 	private int convergenceLimit = 5;
+	private RestartStrategy restartStrategy = RestartStrategy.full();
+	private int numberOfRestarts = 0;
+	//Lower bounds and inverse ranges of the parameters used to normalize positions for the diversity
+	private double[] lowerBounds;
+	private double[] inverseRanges;
+	//Sums of the normalized positions of the particles moved in the current generation
+	private double[] positionSums;
+	private double diversity = Double.NaN;
 	//Set optimization to run indefinitely until a time limit is specified
 	private boolean runForSpecifiedTime = false;
 	//Max runtime is seconds
 	private double maxRunTime = 300;
 	private Double startTime = null;
+	private Random random = new Random();
+	//Checkpointing is disabled until a checkpoint file is specified
+	private Path checkpointFile = null;
+	private int generationsPerCheckpoint = 1;
+	private ExecutorService checkpointWriter = null;
+	private Future<?> checkpointWrite = null;
+	//State restored from a checkpoint that is applied at the start of the next optimization
+	private SwarmCheckpoint resumedCheckpoint = null;
+	private List<EvaluationListener_IF> evaluationListeners = new ArrayList<EvaluationListener_IF>();
+	private boolean verbose = true;
+	//Evaluations are sequential unless a parallel evaluator is set
+	private ParallelEvaluator parallelEvaluator = null;
+	private RunStatistics runStatistics = new RunStatistics();
+	//Primitive columns of the particle positions passed to batch cost functions
+	private double[][] batchValues = null;
+	//Dynamic mode is disabled unless a strategy is set
+	private DynamicStrategy dynamicStrategy = null;
+	private Long environmentVersion = null;
+	//Positions of past optima, kept diverse by the exclusion radius of the dynamic strategy
+	private List<double[]> optimaMemory = new ArrayList<double[]>();
+	private int numberOfEnvironmentChanges = 0;
+	private volatile BestDiscoveredSolution currentBest = null;
+	//The elite archive is disabled unless a size is set
+	private EliteArchive eliteArchive = null;
 	/**
 	 * <pre>
 	 * Constructor that defines the number of particles, maximum optimization generations, and maximum percentage of
@@ -54,7 +134,8 @@ public class ParticleSwarm implements Optimizer_IF{
 	 * function.
 	 * <pre>
 	 * <pre>
-	 * <b>Note:</b> The velocity limit for parameters with numeric type Integer is set to 1.
+	 * <b>Note:</b> The velocity limit for parameters with numeric type Integer is set to 1. Both limits
+ * can instead be adapted during the run with <b>setVelocityLimitControl</b>.
 	 * <pre>
 	 * @param numberOfParticles
 	 * @param maxGenerations
@@ -64,24 +145,23 @@ public class ParticleSwarm implements Optimizer_IF{
 	public ParticleSwarm(int numberOfParticles, int maxGenerations,Double maxDecPercRangePerOptStep,ParticleParameter... parameters){
 		this.particles.clear();
 		Stream.of(parameters).forEach(
-				(parameter) -> {
-					switch(parameter.getParamType()){
-					case INTEGER:
-						parameter.setVelocityLimit(1.0);
-						break;
-					case CATEGORICAL:
-						parameter.setVelocityLimit(1.0);
-						break;
-					case DOUBLE:
-						parameter.setVelocityLimit(parameter.getRangeOfParameterValue()*maxDecPercRangePerOptStep);
-						break;
-					}	
-				}
+				(parameter) -> parameter.setVelocityLimitFromRange(maxDecPercRangePerOptStep)
 				);
 		for (int i_part=0; i_part<numberOfParticles;i_part++){
-			particles.add(new Particle(parameters));
+			Particle particle = new Particle(parameters);
+			particle.setRandom(random);
+			particles.add(particle);
 		}
 		this.maxGenerations = maxGenerations;
+		this.topology.initialize(numberOfParticles, random);
+		this.lowerBounds = new double[parameters.length];
+		this.inverseRanges = new double[parameters.length];
+		this.positionSums = new double[parameters.length];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			lowerBounds[i_param] = parameters[i_param].lowerBound.doubleValue();
+			double range = parameters[i_param].getRangeOfParameterValue();
+			inverseRanges[i_param] = range > 0.0 ? 1.0/range : 0.0;
+		}
 	}
 	
 	/**
@@ -90,7 +170,8 @@ public class ParticleSwarm implements Optimizer_IF{
 	 *  all of the parameter values within the particles and sets the best value in 
 	 *  each of the particles as well as in the swarm to <b>null</b>. Doing this will
 	 *  effectively restart the algorithm while maintaining the current generation
-	 *  count.
+	 *  count. A partial restart only reinitializes the particles clustered around
+	 *  the elite particles. The swarm then grows as set by the <b>RestartStrategy</b>.
 	 */
 	private void restartSwarm(){
 		if (swarmOverallBest == null || 
@@ -100,53 +181,196 @@ public class ParticleSwarm implements Optimizer_IF{
 			this.swarmOverallBest = swarmBest;
 
 		}
-		this.swarmBest = null;
-		this.particles.stream().forEach(
-				(particle) ->
-				Stream.of(particle.getParameters()).forEach((param) -> param.renitializeValue())
-				);
-		this.particles.stream().forEach(
-				(particle) -> 
-				particle.setBestValueToNull()
-				
-				);
+		if (restartStrategy.getRestartType() == RestartStrategy.RestartType.PARTIAL){
+			restartClusteredParticles();
+		} else {
+			setSwarmBest(null);
+			this.particles.stream().forEach(
+					(particle) ->
+					reinitializeParticle(particle)
+					);
+		}
+		numberOfRestarts++;
+		runStatistics.addRestart();
+		initializeControls();
+		int grownNumberOfParticles = restartStrategy.getGrownNumberOfParticles(particles.size());
+		if (grownNumberOfParticles > particles.size()){
+			growSwarm(grownNumberOfParticles);
+		}
+	}
+	
+	/**
+	 * Resets the adaptive coefficient and velocity limit state. The limits are applied to the
+	 * particles at the start of the next generation.
+	 */
+	private void initializeControls(){
+		coefficientControl.initialize();
+		velocityLimitControl.initialize();
+	}
+
+	private void reinitializeParticle(Particle particle){
+		Stream.of(particle.getParameters()).forEach((param) -> param.renitializeValue(random));
+		particle.setBestValueToNull();
+	}
+	/**
+	 * Keeps the elite particles (best personal bests) and reinitializes the other particles that
+	 * are within the cluster radius of an elite personal best. The swarm best is kept.
+	 */
+	private void restartClusteredParticles(){
+		int numberOfElites = Math.max(1, (int)Math.ceil(restartStrategy.getEliteFraction()*particles.size()));
+		boolean[] isElite = new boolean[particles.size()];
+		int[] eliteIndices = new int[numberOfElites];
+		int numberFound = 0;
+		while (numberFound < numberOfElites){
+			int bestIndex = -1;
+			for (int i_part = 0;i_part < particles.size();i_part++){
+				Particle particle = particles.get(i_part);
+				if (isElite[i_part] || particle.getBestValue() == null){
+					continue;
+				}
+				if (bestIndex < 0 || particles.get(bestIndex).getBestValue().getCostFunctionOutput()
+						.isNewCostFunctionOutputBetter(particle.getBestValue().getCostFunctionOutput())){
+					bestIndex = i_part;
+				}
+			}
+			if (bestIndex < 0){
+				break;
+			}
+			isElite[bestIndex] = true;
+			eliteIndices[numberFound++] = bestIndex;
+		}
+		double squaredClusterRadius = restartStrategy.getClusterRadius()*restartStrategy.getClusterRadius();
+		for (int i_part = 0;i_part < particles.size();i_part++){
+			if (isElite[i_part]){
+				continue;
+			}
+			Particle particle = particles.get(i_part);
+			for (int i_elite = 0;i_elite < numberFound;i_elite++){
+				double[] eliteBestPosition = particles.get(eliteIndices[i_elite]).getBestPosition();
+				if (getNormalizedSquaredDistance(particle.getParameters(), eliteBestPosition) < squaredClusterRadius){
+					reinitializeParticle(particle);
+					break;
+				}
+			}
+		}
+	}
+	
+	private double getNormalizedSquaredDistance(ParticleParameter[] parameters, double[] position){
+		double squaredDistance = 0.0;
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			double difference = (parameters[i_param].getCurrentValueAsDouble() - position[i_param])*inverseRanges[i_param];
+			squaredDistance += difference*difference;
+		}
+		return squaredDistance;
+	}
+	/**
+	 * Adds randomly initialized particles until the swarm has the given number of particles
+	 * @param numberOfParticles
+	 */
+	private void growSwarm(int numberOfParticles){
+		ParticleParameter[] template = particles.get(0).getParameters();
+		while (particles.size() < numberOfParticles){
+			Particle particle = new Particle(template);
+			particle.setRandom(random);
+			reinitializeParticle(particle);
+			particles.add(particle);
+		}
+		topology.initialize(numberOfParticles, random);
 	}
 	
 	@Override
 	public BestDiscoveredSolution optimize(CostFunction_IF costFunction) {
+		runStatistics.reset();
+		initializeControls();
+		environmentVersion = null;
+		if (eliteArchive != null){
+			eliteArchive.clear();
+		}
+		BestDiscoveredSolution bestSolution = runGenerations(costFunction);
+		awaitCheckpointWrite();
+		return bestSolution;
+	}
+	
+	private BestDiscoveredSolution runGenerations(CostFunction_IF costFunction) {
+		int firstGeneration = 0;
+		int convCount = 0;
+		if (resumedCheckpoint != null){
+			firstGeneration = resumedCheckpoint.generation;
+			convCount = resumedCheckpoint.convergenceCount;
+			startTime = Double.valueOf(System.nanoTime())/1E9 - resumedCheckpoint.elapsedTime;
+			restoreCheckpointState(costFunction);
+			resumedCheckpoint = null;
+		}
 		if (startTime == null){
 			startTime = Double.valueOf(System.nanoTime())/1E9;
 		}
-		int convCount = 0;
-		for (int i_gen = 0; i_gen < maxGenerations;i_gen++){
+		for (int i_gen = firstGeneration; i_gen < maxGenerations;i_gen++){
+			if (dynamicStrategy != null && isEnvironmentChanged(costFunction, i_gen)){
+				respondToEnvironmentChange(costFunction, i_gen);
+				convCount = 0;
+			}
 			boolean betterValueFound = false;
+			int numberOfImprovedParticles = 0;
+			double previousBestFitness = getSwarmBestFitness();
+			double squaredPositionSum = 0.0;
+			Arrays.fill(positionSums, 0.0);
+			updateCoefficients(i_gen);
+			CostFunctionOutput_IF[] outputs = null;
+			if (parallelEvaluator != null){
+				outputs = evaluateInParallel(costFunction);
+			} else if (costFunction instanceof BatchCostFunction_IF){
+				outputs = evaluateBatch((BatchCostFunction_IF)costFunction);
+			}
+			runStatistics.addGeneration();
 			for (int i_part = 0; i_part < particles.size();i_part++){
-				CostFunctionOutput_IF output = costFunction.evaluateCostFunction(particles.get(i_part).getParameters());
-				if (output.isOptimizationCriterionSatisified()){
+				CostFunctionOutput_IF output = outputs != null ? outputs[i_part] 
+						: costFunction.evaluateCostFunction(particles.get(i_part).getParameters());
+				runStatistics.addEvaluations(1);
+				for (EvaluationListener_IF listener : evaluationListeners){
+					listener.evaluationCompleted(i_gen, particles.get(i_part).getParameters(), output);
+				}
+				if (eliteArchive != null){
+					eliteArchive.offer(particles.get(i_part).getParameters(), output);
+				}
+				if (dynamicStrategy == null && output.isOptimizationCriterionSatisified()){
 					return new BestDiscoveredSolution(particles.get(i_part).getParameters(),output);
-				} else if (swarmBest == null || swarmBest.getCostFunctionOutput().isNewCostFunctionOutputBetter(output) 
-						){
-					if (output.isSolutionWithinRestraints()){
-						betterValueFound = true;
-						this.swarmBest = new BestDiscoveredSolution(particles.get(i_part).getParameters(),output);
-					}
+				} else if (output.isSolutionWithinRestraints() && (swarmBest == null 
+						|| swarmBest.getCostFunctionOutput().isNewCostFunctionOutputBetter(output))){
+					betterValueFound = true;
+					setSwarmBest(new BestDiscoveredSolution(particles.get(i_part).getParameters(),output));
+				}
+				moveParticle(i_part, output);
+				if (particles.get(i_part).isBestImproved()){
+					numberOfImprovedParticles++;
 				}
-				particles.get(i_part).updateParameters(inertialCoefficient, cognitiveCoefficient, socialCoefficient, swarmBest, output);
+				squaredPositionSum += accumulatePosition(particles.get(i_part));
 			}
-			if (swarmBest != null){
-				System.out.println("Generation: " + String.valueOf(i_gen) + ",Best Value: " + swarmBest.getCostFunctionOutput().getOutputAsString());
-			} else {
-				System.out.println("Generation: " + String.valueOf(i_gen) + ", No value meeting constraints found.");
+			diversity = getDiversity(squaredPositionSum);
+			boolean significantImprovement = betterValueFound && isSignificantImprovement(previousBestFitness);
+			double successRate = Double.valueOf(numberOfImprovedParticles)/particles.size();
+			coefficientControl.generationCompleted(successRate);
+			velocityLimitControl.generationCompleted(successRate);
+			if (verbose){
+				if (swarmBest != null){
+					System.out.println("Generation: " + String.valueOf(i_gen) + ",Best Value: " + swarmBest.getCostFunctionOutput().getOutputAsString());
+				} else {
+					System.out.println("Generation: " + String.valueOf(i_gen) + ", No value meeting constraints found.");
+				}
 			}
-			if (!betterValueFound && swarmBest != null){
+			topology.generationCompleted(betterValueFound, random);
+			updateCurrentBest();
+			if (!significantImprovement && swarmBest != null){
 				convCount++;
-				if (convCount >= convergenceLimit){
+				if (convCount >= convergenceLimit || diversity < restartStrategy.getDiversityThreshold()){
 					this.restartSwarm();
 					convCount = 0;
 				}
 			} else {
 				convCount = 0;
 			}
+			if (checkpointFile != null && (i_gen + 1) % generationsPerCheckpoint == 0){
+				scheduleCheckpoint(i_gen + 1, convCount);
+			}
 			double elapsedTime = Double.valueOf(System.nanoTime())/1E9;
 			if (runForSpecifiedTime && elapsedTime - startTime > Double.valueOf(maxRunTime)){
 				return swarmOverallBest;
@@ -158,7 +382,7 @@ public class ParticleSwarm implements Optimizer_IF{
 		if (runForSpecifiedTime && !swarmOverallBest.getCostFunctionOutput().isOptimizationCriterionSatisified()){
 			double elapsedTime = Double.valueOf(System.nanoTime())/1E9;
 			if (elapsedTime - startTime < maxRunTime){
-				optimize(costFunction);
+				runGenerations(costFunction);
 			}
 				
 		}
@@ -168,6 +392,723 @@ public class ParticleSwarm implements Optimizer_IF{
 		return swarmBest;
 	}
 	
+	/**
+	 * Evaluates the positions of all particles of the generation with one call to a batch cost
+	 * function. The positions are copied into reused primitive columns.
+	 * @param costFunction
+	 * @return
+	 */
+	private CostFunctionOutput_IF[] evaluateBatch(BatchCostFunction_IF costFunction){
+		ParticleParameter[] template = particles.get(0).getParameters();
+		if (batchValues == null || batchValues[0].length < particles.size()){
+			batchValues = new double[template.length][particles.size()];
+		}
+		for (int i_part = 0;i_part < particles.size();i_part++){
+			ParticleParameter[] parameters = particles.get(i_part).getParameters();
+			for (int i_param = 0;i_param < parameters.length;i_param++){
+				batchValues[i_param][i_part] = parameters[i_param].getCurrentValueAsDouble();
+			}
+		}
+		return costFunction.evaluateBatch(template, batchValues, particles.size());
+	}
+	/**
+	 * Evaluates the particles of the generation with the parallel evaluator. Evaluations still
+	 * running when the time to run for has passed are treated as timed out.
+	 * @param costFunction
+	 * @return
+	 */
+	private CostFunctionOutput_IF[] evaluateInParallel(CostFunction_IF costFunction){
+		Parameter[][] parameterSets = new Parameter[particles.size()][];
+		for (int i_part = 0;i_part < particles.size();i_part++){
+			parameterSets[i_part] = particles.get(i_part).getParameters();
+		}
+		long deadlineNanos = Long.MAX_VALUE;
+		if (runForSpecifiedTime){
+			deadlineNanos = (long)((startTime + maxRunTime)*1E9);
+		}
+		return parallelEvaluator.evaluate(costFunction, parameterSets, runStatistics, deadlineNanos);
+	}
+	/**
+	 * Sets the coefficients and, unless they are fixed, the velocity limits used in the given
+	 * generation from the progress of the run
+	 * @param i_gen
+	 */
+	private void updateCoefficients(int i_gen){
+		double progress = Double.valueOf(i_gen)/maxGenerations;
+		if (runForSpecifiedTime){
+			progress = (Double.valueOf(System.nanoTime())/1E9 - startTime)/maxRunTime;
+		}
+		currentInertialCoefficient = coefficientControl.getInertialCoefficient(inertialCoefficient, progress);
+		currentCognitiveCoefficient = coefficientControl.getCognitiveCoefficient(cognitiveCoefficient);
+		currentSocialCoefficient = coefficientControl.getSocialCoefficient(socialCoefficient);
+		if (!velocityLimitControl.isFixed()){
+			applyVelocityLimitFraction(velocityLimitControl.getFractionOfRange(progress));
+		}
+	}
+	
+	private void applyVelocityLimitFraction(double fractionOfRange){
+		for (Particle particle : particles){
+			for (ParticleParameter parameter : particle.getParameters()){
+				parameter.setVelocityLimitFromFractionOfRange(fractionOfRange);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the normalized position of a particle to the position sums of the generation
+	 * @param particle
+	 * @return squared norm of the normalized position
+	 */
+	private double accumulatePosition(Particle particle){
+		ParticleParameter[] parameters = particle.getParameters();
+		double squaredNorm = 0.0;
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			double normalizedValue = (parameters[i_param].getCurrentValueAsDouble() - lowerBounds[i_param])*inverseRanges[i_param];
+			positionSums[i_param] += normalizedValue;
+			squaredNorm += normalizedValue*normalizedValue;
+		}
+		return squaredNorm;
+	}
+	/**
+	 * Returns the root mean square distance of the particles to their centroid from the sums
+	 * accumulated over the generation: sqrt(mean(|x|<sup>2</sup>) - |mean(x)|<sup>2</sup>)
+	 */
+	private double getDiversity(double squaredPositionSum){
+		int numberOfParticles = particles.size();
+		double squaredCentroidNorm = 0.0;
+		for (double positionSum : positionSums){
+			double centroid = positionSum/numberOfParticles;
+			squaredCentroidNorm += centroid*centroid;
+		}
+		return Math.sqrt(Math.max(0.0, squaredPositionSum/numberOfParticles - squaredCentroidNorm));
+	}
+	
+	private double getSwarmBestFitness(){
+		if (swarmBest != null && swarmBest.getCostFunctionOutput() instanceof ScalarCostFunctionOutput_IF){
+			return ((ScalarCostFunctionOutput_IF)swarmBest.getCostFunctionOutput()).getFitness();
+		}
+		return Double.NaN;
+	}
+	
+	private boolean isSignificantImprovement(double previousBestFitness){
+		double currentBestFitness = getSwarmBestFitness();
+		if (restartStrategy.getMinimumRelativeImprovement() <= 0.0 || Double.isNaN(previousBestFitness) || Double.isNaN(currentBestFitness)){
+			return true;
+		}
+		return previousBestFitness - currentBestFitness > restartStrategy.getMinimumRelativeImprovement()*Math.abs(previousBestFitness);
+	}
+	
+	private void setSwarmBest(BestDiscoveredSolution swarmBest){
+		this.swarmBest = swarmBest;
+		this.swarmBestPosition = getValuesOf(swarmBest);
+	}
+	/**
+	 * Updates the best value of the particle with its latest output and moves it according to
+	 * the neighborhood topology of the swarm
+	 * @param i_part
+	 * @param output
+	 */
+	private void moveParticle(int i_part, CostFunctionOutput_IF output){
+		Particle particle = particles.get(i_part);
+		if (!particle.updateBestValue(output)){
+			particle.initializeVelocity();
+		} else if (topology.isFullyInformed()){
+			particle.moveFullyInformed(currentInertialCoefficient, currentCognitiveCoefficient + currentSocialCoefficient, particles, topology, i_part);
+		} else if (topology.isGlobalBest()){
+			particle.moveToward(currentInertialCoefficient, currentCognitiveCoefficient, currentSocialCoefficient, swarmBestPosition);
+		} else {
+			particle.moveToward(currentInertialCoefficient, currentCognitiveCoefficient, currentSocialCoefficient, getNeighborhoodBestPosition(i_part));
+		}
+	}
+	/**
+	 * Returns the best position among the personal bests of the neighbors of a particle
+	 * (the particle itself included)
+	 */
+	private double[] getNeighborhoodBestPosition(int i_part){
+		Particle neighborhoodBest = null;
+		for (int i_neigh = 0;i_neigh < topology.getNumberOfNeighbors(i_part);i_neigh++){
+			Particle neighbor = particles.get(topology.getNeighbor(i_part, i_neigh));
+			if (neighbor.getBestValue() == null){
+				continue;
+			}
+			if (neighborhoodBest == null || neighborhoodBest.getBestValue().getCostFunctionOutput()
+					.isNewCostFunctionOutputBetter(neighbor.getBestValue().getCostFunctionOutput())){
+				neighborhoodBest = neighbor;
+			}
+		}
+		return neighborhoodBest.getBestPosition();
+	}
+	/**
+	 * Captures the state of the swarm at the end of a generation. Only primitive copies are
+	 * made here; encoding and writing the file happens on the checkpoint writer thread.
+	 * @param nextGeneration generation the resumed run starts at
+	 * @param convCount
+	 * @return
+	 */
+	private SwarmCheckpoint captureCheckpoint(int nextGeneration, int convCount){
+		int numberOfParameters = particles.get(0).getParameters().length;
+		SwarmCheckpoint checkpoint = new SwarmCheckpoint(particles.size(), numberOfParameters);
+		checkpoint.generation = nextGeneration;
+		checkpoint.convergenceCount = convCount;
+		checkpoint.elapsedTime = Double.valueOf(System.nanoTime())/1E9 - startTime;
+		checkpoint.numberOfRestarts = numberOfRestarts;
+		checkpoint.numberOfEnvironmentChanges = numberOfEnvironmentChanges;
+		checkpoint.successRate = coefficientControl.getSuccessRate();
+		checkpoint.velocityLimitFraction = velocityLimitControl.getCurrentFraction();
+		checkpoint.diversity = diversity;
+		checkpoint.runStatistics = runStatistics.getCounts();
+		for (int i_part = 0;i_part < particles.size();i_part++){
+			Particle particle = particles.get(i_part);
+			ParticleParameter[] parameters = particle.getParameters();
+			int offset = i_part*numberOfParameters;
+			for (int i_param = 0;i_param < numberOfParameters;i_param++){
+				checkpoint.positions[offset + i_param] = parameters[i_param].getCurrentValueAsDouble();
+				checkpoint.velocities[offset + i_param] = parameters[i_param].getParticleVelocity();
+			}
+			if (particle.getBestValue() != null){
+				checkpoint.hasPersonalBest[i_part] = true;
+				SolutionSnapshot bestValue = particle.getBestValue().getSnapshot();
+				checkpoint.personalBestOutputs[i_part] = bestValue.getCostFunctionOutput();
+				for (int i_param = 0;i_param < numberOfParameters;i_param++){
+					checkpoint.personalBests[offset + i_param] = bestValue.getValue(i_param);
+				}
+			}
+		}
+		checkpoint.swarmBest = getValuesOf(swarmBest);
+		checkpoint.swarmBestOutput = swarmBest != null ? swarmBest.getCostFunctionOutput() : null;
+		checkpoint.swarmOverallBest = getValuesOf(swarmOverallBest);
+		checkpoint.swarmOverallBestOutput = swarmOverallBest != null ? swarmOverallBest.getCostFunctionOutput() : null;
+		checkpoint.environmentVersion = environmentVersion;
+		//Stored optima are replaced, never modified, so the arrays can be shared
+		checkpoint.optimaMemory = optimaMemory.toArray(new double[optimaMemory.size()][]);
+		if (topology.getTopologyType() == NeighborhoodTopology.TopologyType.RANDOM_DYNAMIC){
+			checkpoint.links = topology.getLinks();
+		}
+		if (eliteArchive != null){
+			List<SolutionSnapshot> elites = eliteArchive.getSolutions();
+			checkpoint.eliteValues = new double[elites.size()][];
+			checkpoint.eliteOutputs = new CostFunctionOutput_IF[elites.size()];
+			for (int i_elite = 0;i_elite < elites.size();i_elite++){
+				checkpoint.eliteValues[i_elite] = elites.get(i_elite).getValues();
+				checkpoint.eliteOutputs[i_elite] = elites.get(i_elite).getCostFunctionOutput();
+			}
+		}
+		checkpoint.swarmRandomState = SwarmCheckpoint.serializeRandom(random);
+		return checkpoint;
+	}
+	
+	private static double[] getValuesOf(BestDiscoveredSolution solution){
+		if (solution == null){
+			return null;
+		}
+		return solution.getSnapshot().getValues();
+	}
+	/**
+	 * Hands a checkpoint to the writer thread. If the previous checkpoint is still being written
+	 * this one is skipped so the generation loop never waits on the disk.
+	 * @throws UncheckedIOException if the previous checkpoint could not be written
+	 */
+	private void scheduleCheckpoint(int nextGeneration, int convCount){
+		if (checkpointWrite != null && !checkpointWrite.isDone()){
+			return;
+		}
+		awaitCheckpointWrite();
+		if (checkpointWriter == null){
+			checkpointWriter = Executors.newSingleThreadExecutor((runnable) -> {
+				Thread thread = new Thread(runnable, "pso-checkpoint-writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		SwarmCheckpoint checkpoint = captureCheckpoint(nextGeneration, convCount);
+		Path file = checkpointFile;
+		checkpointWrite = checkpointWriter.submit((Callable<Void>)() -> {
+			checkpoint.write(file);
+			return null;
+		});
+	}
+	/**
+	 * Waits for the last checkpoint write and reports its failure, so a run that is meant to be
+	 * recoverable does not go on without a valid checkpoint
+	 * @throws UncheckedIOException if the checkpoint could not be written
+	 */
+	private void awaitCheckpointWrite(){
+		if (checkpointWrite == null){
+			return;
+		}
+		Future<?> write = checkpointWrite;
+		try {
+			write.get();
+			checkpointWrite = null;
+		} catch (InterruptedException e) {
+			//The write finishes on the writer thread and is checked again by the next call
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			checkpointWrite = null;
+			if (e.getCause() instanceof IOException){
+				throw new UncheckedIOException("Could not write the checkpoint " + checkpointFile, (IOException)e.getCause());
+			}
+			if (e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException("Could not write the checkpoint " + checkpointFile, e.getCause());
+		}
+	}
+	/**
+	 * Restores the state of a checkpoint written by a swarm with the same settings and number of
+	 * parameters: positions, velocities, best values with their outputs, adaptive coefficient and
+	 * velocity limit state, topology links, memory of past optima, elite archive, restart count,
+	 * run statistics and the random number generator of the swarm. A swarm that grew through
+	 * restarts is grown to the checkpointed number of particles. The next call to <b>optimize</b>
+	 * continues the run where the checkpointed run left off, as if it had not been interrupted.
+	 * <pre>
+	 * <b>Note</b>: If the outputs could not be stored (see <b>SwarmCheckpoint</b>), the best values
+	 * are evaluated again at the start of <b>optimize</b>. These evaluations are counted and passed
+	 * to the evaluation listeners like any other.
+	 * </pre>
+	 * @param checkpointFile
+	 * @return
+	 * @throws IOException if the file can not be read or was written for a different swarm
+	 */
+	public ParticleSwarm resumeFromCheckpoint(Path checkpointFile) throws IOException{
+		SwarmCheckpoint checkpoint = SwarmCheckpoint.read(checkpointFile);
+		int numberOfParameters = particles.get(0).getParameters().length;
+		if (checkpoint.numberOfParticles > particles.size()){
+			//The checkpointed swarm grew through restarts
+			growSwarm(checkpoint.numberOfParticles);
+		}
+		if (checkpoint.numberOfParticles != particles.size() || checkpoint.numberOfParameters != numberOfParameters){
+			throw new IOException("Checkpoint does not match the swarm: " + checkpoint.numberOfParticles + " particles and "
+					+ checkpoint.numberOfParameters + " parameters");
+		}
+		if (!velocityLimitControl.isFixed()){
+			//The velocities are bounded by the limits in place when they are set
+			applyVelocityLimitFraction(checkpoint.velocityLimitFraction);
+		}
+		for (int i_part = 0;i_part < particles.size();i_part++){
+			ParticleParameter[] parameters = particles.get(i_part).getParameters();
+			for (int i_param = 0;i_param < numberOfParameters;i_param++){
+				parameters[i_param].setCurrentValue(checkpoint.positions[i_part*numberOfParameters + i_param]);
+				parameters[i_param].setParticleVelocity(checkpoint.velocities[i_part*numberOfParameters + i_param]);
+			}
+		}
+		if (checkpoint.links != null && topology.getTopologyType() == NeighborhoodTopology.TopologyType.RANDOM_DYNAMIC){
+			topology.setLinks(checkpoint.links);
+		}
+		this.random = SwarmCheckpoint.deserializeRandom(checkpoint.swarmRandomState);
+		particles.forEach((particle) -> particle.setRandom(random));
+		this.resumedCheckpoint = checkpoint;
+		return this;
+	}
+	
+	/**
+	 * Restores the state of the resumed checkpoint that is reset by <b>optimize</b> or needs the
+	 * cost function
+	 */
+	private void restoreCheckpointState(CostFunction_IF costFunction){
+		SwarmCheckpoint checkpoint = resumedCheckpoint;
+		coefficientControl.setSuccessRate(checkpoint.successRate);
+		velocityLimitControl.setCurrentFraction(checkpoint.velocityLimitFraction);
+		runStatistics.setCounts(checkpoint.runStatistics);
+		numberOfRestarts = checkpoint.numberOfRestarts;
+		numberOfEnvironmentChanges = checkpoint.numberOfEnvironmentChanges;
+		diversity = checkpoint.diversity;
+		environmentVersion = checkpoint.environmentVersion;
+		optimaMemory = new ArrayList<double[]>(Arrays.asList(checkpoint.optimaMemory));
+		int numberOfParameters = particles.get(0).getParameters().length;
+		for (int i_part = 0;i_part < particles.size();i_part++){
+			Particle particle = particles.get(i_part);
+			particle.setBestValueToNull();
+			if (checkpoint.hasPersonalBest[i_part]){
+				double[] bestValues = new double[numberOfParameters];
+				System.arraycopy(checkpoint.personalBests, i_part*numberOfParameters, bestValues, 0, numberOfParameters);
+				particle.setBestValue(restoreSolution(costFunction, checkpoint, bestValues, checkpoint.personalBestOutputs[i_part]));
+			}
+		}
+		setSwarmBest(restoreSolution(costFunction, checkpoint, checkpoint.swarmBest, checkpoint.swarmBestOutput));
+		if (swarmBest != null && Arrays.equals(checkpoint.swarmOverallBest, checkpoint.swarmBest)
+				&& checkpoint.swarmOverallBestOutput == checkpoint.swarmBestOutput){
+			//Serialization keeps shared outputs shared, so this was the same solution
+			this.swarmOverallBest = swarmBest;
+		} else {
+			this.swarmOverallBest = restoreSolution(costFunction, checkpoint, checkpoint.swarmOverallBest, checkpoint.swarmOverallBestOutput);
+		}
+		if (eliteArchive != null){
+			for (int i_elite = 0;i_elite < checkpoint.eliteValues.length;i_elite++){
+				if (checkpoint.hasOutputs){
+					eliteArchive.offer(checkpoint.eliteValues[i_elite], checkpoint.eliteOutputs[i_elite]);
+				} else {
+					evaluateDuringGeneration(costFunction, checkpoint.generation, checkpoint.eliteValues[i_elite]);
+				}
+			}
+		}
+		updateCurrentBest();
+	}
+	/**
+	 * Returns the solution at the given values with its stored output, or evaluates it if the
+	 * checkpoint holds no outputs
+	 */
+	private BestDiscoveredSolution restoreSolution(CostFunction_IF costFunction, SwarmCheckpoint checkpoint, double[] values,
+			CostFunctionOutput_IF output){
+		if (values == null){
+			return null;
+		}
+		if (!checkpoint.hasOutputs){
+			return evaluateDuringGeneration(costFunction, checkpoint.generation, values);
+		}
+		Parameter[] parameters = OptUtils.cloneParameterArray(particles.get(0).getParameters());
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			parameters[i_param].setCurrentValue(values[i_param]);
+		}
+		return new BestDiscoveredSolution(parameters, output);
+	}
+	
+	/**
+	 * Returns true if the environment of the cost function changed since the last generation,
+	 * either as signaled by a <b>DynamicCostFunction_IF</b> or, for other cost functions, as
+	 * detected from a changed fitness of the re-evaluated swarm best
+	 * @param costFunction
+	 * @param i_gen
+	 * @return
+	 */
+	private boolean isEnvironmentChanged(CostFunction_IF costFunction, int i_gen){
+		if (costFunction instanceof DynamicCostFunction_IF){
+			long version = ((DynamicCostFunction_IF)costFunction).getEnvironmentVersion();
+			boolean changed = environmentVersion != null && version != environmentVersion.longValue();
+			environmentVersion = version;
+			return changed;
+		}
+		double tolerance = dynamicStrategy.getChangeDetectionTolerance();
+		if (tolerance < 0.0 || swarmBest == null || !(swarmBest.getCostFunctionOutput() instanceof ScalarCostFunctionOutput_IF)){
+			return false;
+		}
+		double storedFitness = getSwarmBestFitness();
+		BestDiscoveredSolution reevaluated = evaluateDuringGeneration(costFunction, i_gen, swarmBestPosition);
+		double fitness = ((ScalarCostFunctionOutput_IF)reevaluated.getCostFunctionOutput()).getFitness();
+		return Math.abs(fitness - storedFitness) > tolerance*Math.max(1.0, Math.abs(storedFitness));
+	}
+	/**
+	 * Stores the swarm best in the memory of past optima, re-evaluates the personal bests,
+	 * moves the worst particles to the remembered optima that beat them and reinitializes a
+	 * fraction of the remaining worst particles
+	 * @param costFunction
+	 * @param i_gen
+	 */
+	private void respondToEnvironmentChange(CostFunction_IF costFunction, int i_gen){
+		numberOfEnvironmentChanges++;
+		if (swarmBest != null){
+			addToMemory(swarmBestPosition);
+		}
+		if (swarmOverallBest != null && swarmOverallBest != swarmBest){
+			addToMemory(getValuesOf(swarmOverallBest));
+		}
+		swarmOverallBest = null;
+		setSwarmBest(null);
+		if (eliteArchive != null){
+			eliteArchive.clear();
+		}
+		for (Particle particle : particles){
+			if (particle.getBestValue() == null){
+				continue;
+			}
+			BestDiscoveredSolution reevaluated = evaluateDuringGeneration(costFunction, i_gen, particle.getBestPosition());
+			particle.setBestValueToNull();
+			if (reevaluated.getCostFunctionOutput().isSolutionWithinRestraints()){
+				particle.setBestValue(reevaluated);
+				offerSwarmBest(reevaluated);
+			}
+		}
+		int[] order = getParticlesFromWorstBest();
+		int numberMoved = 0;
+		for (double[] optimum : optimaMemory){
+			if (numberMoved >= order.length - 1){
+				break;
+			}
+			BestDiscoveredSolution remembered = evaluateDuringGeneration(costFunction, i_gen, optimum);
+			Particle worstParticle = particles.get(order[numberMoved]);
+			if (!remembered.getCostFunctionOutput().isSolutionWithinRestraints() || (worstParticle.getBestValue() != null
+					&& !worstParticle.getBestValue().getCostFunctionOutput().isNewCostFunctionOutputBetter(remembered.getCostFunctionOutput()))){
+				continue;
+			}
+			ParticleParameter[] parameters = worstParticle.getParameters();
+			for (int i_param = 0;i_param < parameters.length;i_param++){
+				parameters[i_param].setCurrentValue(optimum[i_param]);
+			}
+			worstParticle.setBestValue(remembered);
+			offerSwarmBest(remembered);
+			numberMoved++;
+		}
+		int numberRandomized = (int)Math.round(dynamicStrategy.getRandomizedFraction()*particles.size());
+		for (int i_order = numberMoved;i_order < Math.min(numberMoved + numberRandomized, order.length - 1);i_order++){
+			reinitializeParticle(particles.get(order[i_order]));
+		}
+	}
+
+	private void offerSwarmBest(BestDiscoveredSolution solution){
+		if (swarmBest == null || swarmBest.getCostFunctionOutput().isNewCostFunctionOutputBetter(solution.getCostFunctionOutput())){
+			setSwarmBest(solution);
+		}
+	}
+	/**
+	 * Returns the particle indices ordered from the worst personal best to the best, with the
+	 * particles without a personal best first
+	 */
+	private int[] getParticlesFromWorstBest(){
+		int[] order = new int[particles.size()];
+		boolean[] isOrdered = new boolean[particles.size()];
+		for (int i_order = 0;i_order < order.length;i_order++){
+			int worstIndex = -1;
+			for (int i_part = 0;i_part < particles.size();i_part++){
+				if (isOrdered[i_part]){
+					continue;
+				}
+				BestDiscoveredSolution best = particles.get(i_part).getBestValue();
+				if (worstIndex < 0 || best == null){
+					worstIndex = i_part;
+					if (best == null){
+						break;
+					}
+				} else if (particles.get(worstIndex).getBestValue() != null && best.getCostFunctionOutput()
+						.isNewCostFunctionOutputBetter(particles.get(worstIndex).getBestValue().getCostFunctionOutput())){
+					worstIndex = i_part;
+				}
+			}
+			isOrdered[worstIndex] = true;
+			order[i_order] = worstIndex;
+		}
+		return order;
+	}
+	/**
+	 * Adds a position to the memory of past optima, replacing the nearest stored optimum if it
+	 * is within the exclusion radius or the memory is full
+	 * @param position
+	 */
+	private void addToMemory(double[] position){
+		if (dynamicStrategy.getMemorySize() == 0){
+			return;
+		}
+		int nearestIndex = -1;
+		double nearestSquaredDistance = Double.POSITIVE_INFINITY;
+		for (int i_mem = 0;i_mem < optimaMemory.size();i_mem++){
+			double squaredDistance = 0.0;
+			double[] optimum = optimaMemory.get(i_mem);
+			for (int i_param = 0;i_param < position.length;i_param++){
+				double difference = (optimum[i_param] - position[i_param])*inverseRanges[i_param];
+				squaredDistance += difference*difference;
+			}
+			if (squaredDistance < nearestSquaredDistance){
+				nearestSquaredDistance = squaredDistance;
+				nearestIndex = i_mem;
+			}
+		}
+		double exclusionRadius = dynamicStrategy.getExclusionRadius();
+		if (nearestIndex >= 0 && (nearestSquaredDistance < exclusionRadius*exclusionRadius
+				|| optimaMemory.size() >= dynamicStrategy.getMemorySize())){
+			optimaMemory.set(nearestIndex, position.clone());
+		} else {
+			optimaMemory.add(position.clone());
+		}
+	}
+	/**
+	 * Evaluates the cost function at the given values outside of the particle updates, counting
+	 * the evaluation and notifying the listeners
+	 */
+	private BestDiscoveredSolution evaluateDuringGeneration(CostFunction_IF costFunction, int i_gen, double[] values){
+		BestDiscoveredSolution solution = evaluateAt(costFunction, particles.get(0).getParameters(), values);
+		runStatistics.addEvaluations(1);
+		Parameter[] parameters = solution.getParameters().toArray(new Parameter[0]);
+		for (EvaluationListener_IF listener : evaluationListeners){
+			listener.evaluationCompleted(i_gen, parameters, solution.getCostFunctionOutput());
+		}
+		if (eliteArchive != null){
+			eliteArchive.offer(solution.getSnapshot().getValues(), solution.getCostFunctionOutput());
+		}
+		return solution;
+	}
+	/**
+	 * Publishes the best solution of the current environment for <b>getCurrentBest</b>
+	 */
+	private void updateCurrentBest(){
+		if (swarmOverallBest != null && (swarmBest == null 
+				|| swarmBest.getCostFunctionOutput().isNewCostFunctionOutputBetter(swarmOverallBest.getCostFunctionOutput()))){
+			currentBest = swarmOverallBest;
+		} else {
+			currentBest = swarmBest;
+		}
+	}
+
+	private static BestDiscoveredSolution evaluateAt(CostFunction_IF costFunction, Parameter[] template, double[] values){
+		if (values == null){
+			return null;
+		}
+		Parameter[] parameters = OptUtils.cloneParameterArray(template);
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			parameters[i_param].setCurrentValue(values[i_param]);
+		}
+		return new BestDiscoveredSolution(parameters, costFunction.evaluateCostFunction(parameters));
+	}
+	/**
+	 * Sets the swarm to write its full state to the given file every specified number of
+	 * generations. The file is replaced atomically on every write. A failed write is thrown as an
+	 * <b>UncheckedIOException</b> when the next checkpoint is due or at the end of <b>optimize</b>.
+	 * @param checkpointFile
+	 * @param generationsPerCheckpoint
+	 * @return
+	 */
+	public ParticleSwarm setCheckpointing(Path checkpointFile, int generationsPerCheckpoint){
+		this.checkpointFile = checkpointFile;
+		this.generationsPerCheckpoint = Math.max(1, generationsPerCheckpoint);
+		return this;
+	}
+	/**
+	 * <pre>
+	 * Seeds part of the swarm with the parameter values of solutions found in earlier, related
+	 * runs. The first seeded particle of each solution is placed exactly on it and any further
+	 * particles assigned to the same solution are scattered around it within one velocity limit.
+	 * The remaining particles keep their random initial values to maintain diversity.
+	 * </pre>
+	 * <b>Note:</b> Values outside of the parameter bounds are bounded as in any other update.
+	 * @param priorSolutions
+	 * @param fractionOfSwarm fraction (0 to 1) of the particles to seed
+	 * @return
+	 */
+	public ParticleSwarm setWarmStartSolutions(List<BestDiscoveredSolution> priorSolutions, double fractionOfSwarm){
+		List<double[]> priorValues = new ArrayList<double[]>();
+		for (BestDiscoveredSolution solution : priorSolutions){
+			if (solution != null){
+				priorValues.add(getValuesOf(solution));
+			}
+		}
+		return setWarmStartValues(priorValues, fractionOfSwarm);
+	}
+	/**
+	 * Seeds part of the swarm with prior parameter values, such as those returned by
+	 * <b>SolutionStore.findNearest</b>. See <b>setWarmStartSolutions</b>.
+	 * @param priorValues
+	 * @param fractionOfSwarm fraction (0 to 1) of the particles to seed
+	 * @return
+	 */
+	public ParticleSwarm setWarmStartValues(List<double[]> priorValues, double fractionOfSwarm){
+		if (priorValues.isEmpty()){
+			return this;
+		}
+		int numberToSeed = (int)Math.ceil(Math.min(1.0, Math.max(0.0, fractionOfSwarm))*particles.size());
+		for (int i_part = 0;i_part < numberToSeed;i_part++){
+			double[] values = priorValues.get(i_part % priorValues.size());
+			boolean scatter = i_part >= priorValues.size();
+			ParticleParameter[] parameters = particles.get(i_part).getParameters();
+			for (int i_param = 0;i_param < parameters.length;i_param++){
+				double value = values[i_param];
+				if (scatter){
+					value += (2.0*random.nextDouble() - 1.0)*parameters[i_param].getVelocityLimit();
+				}
+				parameters[i_param].updateAndBoundCurrentValue(value, random);
+			}
+		}
+		return this;
+	}
+	/**
+	 * Sets the neighborhood topology that decides which personal bests a particle is pulled
+	 * toward. The default is the global best topology. The swarm uses its own copy of the
+	 * topology, so one topology can be given to several swarms.
+	 * <pre>
+	 * <b>Note:</b> With a fully informed topology the cognitive and social coefficients are
+	 * summed into one acceleration coefficient shared by all informants.
+	 * </pre>
+	 * @param topology
+	 * @return
+	 */
+	public ParticleSwarm setTopology(NeighborhoodTopology topology){
+		this.topology = topology.copy();
+		this.topology.initialize(particles.size(), random);
+		return this;
+	}
+	/**
+	 * Sets the inertial, cognitive and social coefficients of the velocity update. The defaults
+	 * are 1.0, 2.0 and 2.0.
+	 * @param inertialCoefficient
+	 * @param cognitiveCoefficient
+	 * @param socialCoefficient
+	 * @return
+	 */
+	public ParticleSwarm setCoefficients(double inertialCoefficient, double cognitiveCoefficient, double socialCoefficient){
+		this.inertialCoefficient = inertialCoefficient;
+		this.cognitiveCoefficient = cognitiveCoefficient;
+		this.socialCoefficient = socialCoefficient;
+		return this;
+	}
+	/**
+	 * Sets the strategy that adapts the coefficients over the run. The default keeps the
+	 * coefficients set with <b>setCoefficients</b> constant. The swarm uses its own copy of the control.
+	 * <pre>
+	 * <b>Tip:</b> A linearly decreasing inertia from 0.9 to 0.4 or Clerc's constriction with
+	 * phi<sub>cog</sub> = phi<sub>soc</sub> = 2.05 usually need far fewer evaluations than the
+	 * default inertia of 1.0, which never damps the particle velocities.
+	 * </pre>
+	 * @param coefficientControl
+	 * @return
+	 */
+	public ParticleSwarm setCoefficientControl(CoefficientControl coefficientControl){
+		this.coefficientControl = coefficientControl.copy();
+		return this;
+	}
+	/**
+	 * Sets the strategy that adapts the velocity limits over the run. The default keeps the
+	 * limits set at construction. The swarm uses its own copy of the control.
+	 * @param velocityLimitControl
+	 * @return
+	 */
+	public ParticleSwarm setVelocityLimitControl(VelocityLimitControl velocityLimitControl){
+		this.velocityLimitControl = velocityLimitControl.copy();
+		return this;
+	}
+	/**
+	 * Adds a listener that is notified of every cost function evaluation made by the swarm
+	 * @param listener
+	 * @return
+	 */
+	public ParticleSwarm addEvaluationListener(EvaluationListener_IF listener){
+		this.evaluationListeners.add(listener);
+		return this;
+	}
+	/**
+	 * Sets whether the best value of every generation is printed. The default is true.
+	 * @param verbose
+	 * @return
+	 */
+	public ParticleSwarm setVerbose(boolean verbose){
+		this.verbose = verbose;
+		return this;
+	}
+	/**
+	 * Sets the seed of the random number generator of the swarm and redraws the position all
+	 * particles start from with it. The generator also draws the particle velocity updates, the
+	 * positions of reinitialized particles (restarts, grown swarms and dynamic responses) and the
+	 * scatter of warm started particles. It is not shared with other swarms, so two swarms with
+	 * the same settings and seed follow the same trajectory for a deterministic cost function.
+	 * <pre>
+	 * <b>Note</b>: Set the seed before warm starting the swarm or resuming it from a checkpoint,
+	 * which would otherwise be replaced by the redrawn start position.
+	 * </pre>
+	 * @param seed
+	 * @return
+	 */
+	public ParticleSwarm setRandomSeed(long seed){
+		this.random.setSeed(seed);
+		ParticleParameter[] start = particles.get(0).getParameters();
+		for (ParticleParameter parameter : start){
+			parameter.renitializeValue(random);
+		}
+		for (int i_part = 1;i_part < particles.size();i_part++){
+			ParticleParameter[] parameters = particles.get(i_part).getParameters();
+			for (int i_param = 0;i_param < parameters.length;i_param++){
+				parameters[i_param].setCurrentValue(start[i_param].getCurrentValueAsDouble());
+			}
+		}
+		//Links of a random topology were drawn at construction before the seed was set
+		this.topology.initialize(particles.size(), random);
+		return this;
+	}
 	/**
 	 * <pre>
 	 * This method will set the algorithm to run until the optimization criterion are satisified
@@ -184,6 +1125,99 @@ public class ParticleSwarm implements Optimizer_IF{
 		this.runForSpecifiedTime = true;
 		return this;
 	}
+	/**
+	 * Sets how stagnation is detected and how the swarm is restarted. The default restarts the
+	 * full swarm after the convergence limit is reached without a strict improvement.
+	 * @param restartStrategy
+	 * @return
+	 */
+	public ParticleSwarm setRestartStrategy(RestartStrategy restartStrategy){
+		this.restartStrategy = restartStrategy;
+		return this;
+	}
+	/**
+	 * Returns the diversity of the swarm after the last generation: the root mean square distance
+	 * of the particles to their centroid with every parameter normalized by its range
+	 * @return
+	 */
+	public double getSwarmDiversity(){
+		return diversity;
+	}
+	
+	/**
+	 * Sets the evaluator used to evaluate the particles of every generation in parallel, which
+	 * also applies its per-evaluation timeouts. The evaluator is not closed by the swarm.
+	 * @param parallelEvaluator
+	 * @return
+	 */
+	public ParticleSwarm setParallelEvaluator(ParallelEvaluator parallelEvaluator){
+		this.parallelEvaluator = parallelEvaluator;
+		return this;
+	}
+	/**
+	 * Returns the statistics of the last (or current) call to <b>optimize</b>
+	 * @return
+	 */
+	public RunStatistics getRunStatistics(){
+		return runStatistics;
+	}
+	
+	/**
+	 * Enables the dynamic mode, in which the swarm keeps tracking the optimum after the environment
+	 * of the cost function changes
+	 * @param dynamicStrategy
+	 * @return
+	 */
+	public ParticleSwarm setDynamicStrategy(DynamicStrategy dynamicStrategy){
+		this.dynamicStrategy = dynamicStrategy;
+		return this;
+	}
+	/**
+	 * Returns the best solution found in the current environment as of the last completed
+	 * generation. It can be called from another thread while <b>optimize</b> is running.
+	 * @return
+	 */
+	public BestDiscoveredSolution getCurrentBest(){
+		return currentBest;
+	}
+
+	/**
+	 * Keeps the given number of best distinct feasible solutions evaluated during the run (in the
+	 * current environment in dynamic mode). Solutions whose values all lie within the distinctness
+	 * tolerance, as a fraction of the parameter range, count as the same solution. A size of 0
+	 * disables the archive, which is the default.
+	 * @param eliteArchiveSize
+	 * @param distinctnessTolerance
+	 * @return
+	 */
+	public ParticleSwarm setEliteArchiveSize(int eliteArchiveSize, double distinctnessTolerance){
+		if (eliteArchiveSize > 0){
+			this.eliteArchive = new EliteArchive(eliteArchiveSize, particles.get(0).getParameters())
+					.setDistinctnessTolerance(distinctnessTolerance);
+		} else {
+			this.eliteArchive = null;
+		}
+		return this;
+	}
+	/**
+	 * Returns the solutions of the elite archive, best first, or an empty list if the archive is disabled
+	 * @return
+	 */
+	public List<SolutionSnapshot> getEliteSolutions(){
+		return eliteArchive != null ? eliteArchive.getSolutions() : new ArrayList<SolutionSnapshot>();
+	}
+
+	public int getNumberOfEnvironmentChanges(){
+		return numberOfEnvironmentChanges;
+	}
+	
+	public int getNumberOfRestarts(){
+		return numberOfRestarts;
+	}
+	
+	public int getNumberOfParticles(){
+		return particles.size();
+	}
 	/**
 	 * Sets the number of generations after which the swarm will be reinitialized if there is
 	 * no update the the best swarm value
@@ -0,0 +1,143 @@
+package optimization.pso;
+
+/**
+ * <pre>
+ * This class decides when a <b>ParticleSwarm</b> has stagnated and how it is restarted.
+ * </pre>
+ * <pre>
+ * The swarm counts the generations without a significant improvement of the swarm best and
+ * restarts once the count reaches the convergence limit, or earlier when the swarm diversity
+ * has collapsed below a threshold in a generation without a significant improvement.
+ * 	- An improvement is significant when it is larger than the minimum relative improvement
+ * 	  times the previous best fitness (requires outputs implementing <b>ScalarCostFunctionOutput_IF</b>,
+ * 	  otherwise any strict improvement is significant).
+ * 	- The diversity is the root mean square distance of the particles to their centroid with every
+ * 	  parameter normalized by its range, so it lies between 0 and about 0.5*sqrt(parameters).
+ * </pre>
+ * <pre>
+ * Supported restarts:
+ * 	FULL    - every particle is reinitialized and every personal best is forgotten (the original behavior)
+ * 	PARTIAL - the elite particles keep their position and personal best; of the others only the
+ * 	          particles clustered within a radius of an elite personal best are reinitialized
+ * With either restart the number of particles can be grown by a factor after every restart (IPOP).
+ * </pre>
+ * @author Matt
+ *
+ */
+public class RestartStrategy {
+
+	/**
+	 * Enumeration of supported restart types
+	 * @author Matt
+	 *
+	 */
+	public enum RestartType{
+		FULL,
+		PARTIAL
+	}
+
+	private RestartType restartType;
+	private double eliteFraction = 0.0;
+	private double clusterRadius = 0.05;
+	private double diversityThreshold = 0.0;
+	private double minimumRelativeImprovement = 0.0;
+	private double populationGrowthFactor = 1.0;
+	private int maxNumberOfParticles = Integer.MAX_VALUE;
+
+	private RestartStrategy(RestartType restartType){
+		this.restartType = restartType;
+	}
+	/**
+	 * Reinitializes the whole swarm after the convergence limit is reached without a strict
+	 * improvement
+	 * @return
+	 */
+	public static RestartStrategy full(){
+		return new RestartStrategy(RestartType.FULL);
+	}
+	/**
+	 * Keeps the given fraction of the best particles and reinitializes the particles clustered
+	 * around them. Stagnation is also detected from a collapsed diversity (threshold 0.001) and
+	 * improvements smaller than 1E-6 of the best fitness are ignored.
+	 * @param eliteFraction fraction (0 to 1) of the particles kept
+	 * @return
+	 */
+	public static RestartStrategy partial(double eliteFraction){
+		RestartStrategy strategy = new RestartStrategy(RestartType.PARTIAL);
+		strategy.eliteFraction = Math.min(1.0, Math.max(0.0, eliteFraction));
+		strategy.diversityThreshold = 1E-3;
+		strategy.minimumRelativeImprovement = 1E-6;
+		return strategy;
+	}
+	/**
+	 * Sets the normalized distance to an elite personal best within which a particle is
+	 * considered clustered and is reinitialized by a partial restart
+	 * @param clusterRadius
+	 * @return
+	 */
+	public RestartStrategy setClusterRadius(double clusterRadius){
+		this.clusterRadius = clusterRadius;
+		return this;
+	}
+	/**
+	 * Sets the diversity below which a generation without a significant improvement triggers a
+	 * restart. Zero disables the diversity check.
+	 * @param diversityThreshold
+	 * @return
+	 */
+	public RestartStrategy setDiversityThreshold(double diversityThreshold){
+		this.diversityThreshold = diversityThreshold;
+		return this;
+	}
+	/**
+	 * Sets the smallest improvement, relative to the previous best fitness, that resets the
+	 * stagnation count
+	 * @param minimumRelativeImprovement
+	 * @return
+	 */
+	public RestartStrategy setMinimumRelativeImprovement(double minimumRelativeImprovement){
+		this.minimumRelativeImprovement = minimumRelativeImprovement;
+		return this;
+	}
+	/**
+	 * Sets the factor by which the number of particles grows after every restart, up to the given
+	 * maximum (IPOP). A factor of 2 is the usual choice.
+	 * @param populationGrowthFactor
+	 * @param maxNumberOfParticles
+	 * @return
+	 */
+	public RestartStrategy setPopulationGrowth(double populationGrowthFactor, int maxNumberOfParticles){
+		this.populationGrowthFactor = Math.max(1.0, populationGrowthFactor);
+		this.maxNumberOfParticles = maxNumberOfParticles;
+		return this;
+	}
+
+	public RestartType getRestartType(){
+		return restartType;
+	}
+
+	double getEliteFraction(){
+		return eliteFraction;
+	}
+
+	double getClusterRadius(){
+		return clusterRadius;
+	}
+
+	double getDiversityThreshold(){
+		return diversityThreshold;
+	}
+
+	double getMinimumRelativeImprovement(){
+		return minimumRelativeImprovement;
+	}
+	/**
+	 * Returns the number of particles after a restart of a swarm with the given number of particles
+	 * @param numberOfParticles
+	 * @return
+	 */
+	int getGrownNumberOfParticles(int numberOfParticles){
+		long grown = Math.round(numberOfParticles*populationGrowthFactor);
+		return (int)Math.max(numberOfParticles, Math.min(maxNumberOfParticles, grown));
+	}
+}
@@ -0,0 +1,348 @@
+package optimization.pso;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.RunStatistics;
+
+/**
+ * <pre>
+ * This class holds a snapshot of the complete state of a <b>ParticleSwarm</b> at the end of
+ * a generation and reads/writes it as a compact binary file.
+ * </pre>
+ * <pre>
+ * The file is written to a temporary file with plain channel writes, forced to disk and then
+ * atomically renamed over the previous checkpoint, so a crash never leaves a partially written
+ * checkpoint behind. The file is never memory mapped, since a mapped file can not be replaced
+ * on every platform until the mapping is released. Layout (big endian):
+ * 	int magic, int version, int numberOfParticles, int numberOfParameters,
+ * 	int generation, int convergenceCount, int numberOfRestarts, int numberOfEnvironmentChanges,
+ * 	double elapsedTime, double successRate, double velocityLimitFraction, double diversity,
+ * 	long[7] run statistics,
+ * 	double[particles*parameters] positions, double[particles*parameters] velocities,
+ * 	byte[particles] hasPersonalBest, double[particles*parameters] personalBests,
+ * 	byte hasSwarmBest, double[parameters] swarmBest,
+ * 	byte hasSwarmOverallBest, double[parameters] swarmOverallBest,
+ * 	byte hasEnvironmentVersion, long environmentVersion,
+ * 	int memorySize, double[memorySize*parameters] optima memory,
+ * 	byte hasLinks, particles x (int length, int[length]) neighbor lists,
+ * 	int eliteSize, double[eliteSize*parameters] elite values,
+ * 	int length, byte[length] serialized outputs,
+ * 	int length, byte[length] serialized random number generator state
+ * </pre>
+ * <pre>
+ * <b>Note</b>: The outputs of the personal bests, swarm bests and elite solutions are stored with
+ * Java serialization, so a resumed run continues without evaluating them again. If one of them
+ * does not implement <b>java.io.Serializable</b> no outputs are stored and the resumed swarm
+ * evaluates the stored positions once more.
+ * </pre>
+ * @author Matt
+ *
+ */
+class SwarmCheckpoint {
+	private static final int MAGIC = 0x50534F43;
+	private static final int VERSION = 3;
+
+	int numberOfParticles;
+	int numberOfParameters;
+	int generation;
+	int convergenceCount;
+	int numberOfRestarts;
+	int numberOfEnvironmentChanges;
+	double elapsedTime;
+	//Adaptive coefficient and velocity limit state
+	double successRate;
+	double velocityLimitFraction;
+	double diversity;
+	long[] runStatistics = new long[RunStatistics.NUMBER_OF_COUNTS];
+	double[] positions;
+	double[] velocities;
+	boolean[] hasPersonalBest;
+	double[] personalBests;
+	double[] swarmBest = null;
+	double[] swarmOverallBest = null;
+	Long environmentVersion = null;
+	double[][] optimaMemory = new double[0][];
+	//Neighbor lists of a random topology; other topologies are rebuilt from the number of particles
+	int[][] links = null;
+	double[][] eliteValues = new double[0][];
+	//Outputs are null when read from a file without stored outputs
+	CostFunctionOutput_IF[] personalBestOutputs;
+	CostFunctionOutput_IF swarmBestOutput = null;
+	CostFunctionOutput_IF swarmOverallBestOutput = null;
+	CostFunctionOutput_IF[] eliteOutputs = new CostFunctionOutput_IF[0];
+	boolean hasOutputs = false;
+	byte[] swarmRandomState;
+
+	SwarmCheckpoint(int numberOfParticles, int numberOfParameters){
+		this.numberOfParticles = numberOfParticles;
+		this.numberOfParameters = numberOfParameters;
+		this.positions = new double[numberOfParticles*numberOfParameters];
+		this.velocities = new double[numberOfParticles*numberOfParameters];
+		this.hasPersonalBest = new boolean[numberOfParticles];
+		this.personalBests = new double[numberOfParticles*numberOfParameters];
+		this.personalBestOutputs = new CostFunctionOutput_IF[numberOfParticles];
+	}
+
+	private long getSizeInBytes(byte[] outputState){
+		long numberOfValues = 3L*positions.length + (optimaMemory.length + eliteValues.length)*(long)numberOfParameters;
+		if (swarmBest != null){
+			numberOfValues += numberOfParameters;
+		}
+		if (swarmOverallBest != null){
+			numberOfValues += numberOfParameters;
+		}
+		long numberOfLinks = 0;
+		if (links != null){
+			for (int[] particleLinks : links){
+				numberOfLinks += 1 + particleLinks.length;
+			}
+		}
+		return 8L*Integer.BYTES + 4L*Double.BYTES + (runStatistics.length + 1L)*Long.BYTES + numberOfValues*Double.BYTES
+				+ numberOfParticles + 4L + 4L*Integer.BYTES + numberOfLinks*Integer.BYTES
+				+ outputState.length + swarmRandomState.length;
+	}
+	/**
+	 * Writes the checkpoint to a temporary file next to the target and renames it over the target
+	 * @param checkpointFile
+	 * @throws IOException
+	 */
+	void write(Path checkpointFile) throws IOException{
+		byte[] outputState = serializeOutputs();
+		Path temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName().toString() + ".tmp");
+		long sizeInBytes = getSizeInBytes(outputState);
+		if (sizeInBytes > Integer.MAX_VALUE){
+			throw new IOException("The swarm state of " + sizeInBytes + " bytes is too large for a checkpoint");
+		}
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			ByteBuffer buffer = ByteBuffer.allocate((int)sizeInBytes);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(numberOfParticles).putInt(numberOfParameters);
+			buffer.putInt(generation).putInt(convergenceCount).putInt(numberOfRestarts).putInt(numberOfEnvironmentChanges);
+			buffer.putDouble(elapsedTime).putDouble(successRate).putDouble(velocityLimitFraction).putDouble(diversity);
+			for (long count : runStatistics){
+				buffer.putLong(count);
+			}
+			buffer.asDoubleBuffer().put(positions).put(velocities);
+			buffer.position(buffer.position() + 2*positions.length*Double.BYTES);
+			for (boolean hasBest : hasPersonalBest){
+				buffer.put((byte)(hasBest ? 1 : 0));
+			}
+			buffer.asDoubleBuffer().put(personalBests);
+			buffer.position(buffer.position() + personalBests.length*Double.BYTES);
+			putOptionalArray(buffer, swarmBest);
+			putOptionalArray(buffer, swarmOverallBest);
+			buffer.put((byte)(environmentVersion != null ? 1 : 0)).putLong(environmentVersion != null ? environmentVersion.longValue() : 0L);
+			putArrays(buffer, optimaMemory);
+			buffer.put((byte)(links != null ? 1 : 0));
+			if (links != null){
+				for (int[] particleLinks : links){
+					buffer.putInt(particleLinks.length);
+					for (int link : particleLinks){
+						buffer.putInt(link);
+					}
+				}
+			}
+			putArrays(buffer, eliteValues);
+			buffer.putInt(outputState.length).put(outputState);
+			buffer.putInt(swarmRandomState.length).put(swarmRandomState);
+			buffer.flip();
+			while (buffer.hasRemaining()){
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		try {
+			Files.move(temporaryFile, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e){
+			Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void putOptionalArray(ByteBuffer buffer, double[] values){
+		if (values == null){
+			buffer.put((byte)0);
+			return;
+		}
+		buffer.put((byte)1);
+		for (double value : values){
+			buffer.putDouble(value);
+		}
+	}
+
+	private static void putArrays(ByteBuffer buffer, double[][] arrays){
+		buffer.putInt(arrays.length);
+		for (double[] values : arrays){
+			for (double value : values){
+				buffer.putDouble(value);
+			}
+		}
+	}
+	/**
+	 * Serializes all outputs into one array, or returns an empty array if one of them can not be serialized
+	 */
+	private byte[] serializeOutputs(){
+		List<CostFunctionOutput_IF> outputs = new ArrayList<CostFunctionOutput_IF>(Arrays.asList(personalBestOutputs));
+		outputs.add(swarmBestOutput);
+		outputs.add(swarmOverallBestOutput);
+		outputs.addAll(Arrays.asList(eliteOutputs));
+		for (CostFunctionOutput_IF output : outputs){
+			if (output != null && !(output instanceof Serializable)){
+				return new byte[0];
+			}
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(bytes)){
+			stream.writeObject(outputs.toArray(new CostFunctionOutput_IF[outputs.size()]));
+		} catch (IOException e) {
+			//An output holding fields that can not be serialized, handled like a non serializable output
+			return new byte[0];
+		}
+		return bytes.toByteArray();
+	}
+
+	private void deserializeOutputs(byte[] outputState) throws IOException{
+		if (outputState.length == 0){
+			return;
+		}
+		CostFunctionOutput_IF[] outputs;
+		try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(outputState))){
+			outputs = (CostFunctionOutput_IF[])stream.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+		System.arraycopy(outputs, 0, personalBestOutputs, 0, numberOfParticles);
+		swarmBestOutput = outputs[numberOfParticles];
+		swarmOverallBestOutput = outputs[numberOfParticles + 1];
+		eliteOutputs = Arrays.copyOfRange(outputs, numberOfParticles + 2, outputs.length);
+		hasOutputs = true;
+	}
+	/**
+	 * Reads a checkpoint previously written with <b>write</b>
+	 * @param checkpointFile
+	 * @return
+	 * @throws IOException if the file is not a checkpoint file
+	 */
+	static SwarmCheckpoint read(Path checkpointFile) throws IOException{
+		try (FileChannel channel = FileChannel.open(checkpointFile, StandardOpenOption.READ)){
+			if (channel.size() > Integer.MAX_VALUE){
+				throw new IOException("Unsupported swarm checkpoint file: " + checkpointFile);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int)channel.size());
+			while (buffer.hasRemaining()){
+				if (channel.read(buffer) < 0){
+					throw new IOException("Truncated swarm checkpoint file: " + checkpointFile);
+				}
+			}
+			buffer.flip();
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+				throw new IOException("Unsupported swarm checkpoint file: " + checkpointFile);
+			}
+			SwarmCheckpoint checkpoint = new SwarmCheckpoint(buffer.getInt(), buffer.getInt());
+			checkpoint.generation = buffer.getInt();
+			checkpoint.convergenceCount = buffer.getInt();
+			checkpoint.numberOfRestarts = buffer.getInt();
+			checkpoint.numberOfEnvironmentChanges = buffer.getInt();
+			checkpoint.elapsedTime = buffer.getDouble();
+			checkpoint.successRate = buffer.getDouble();
+			checkpoint.velocityLimitFraction = buffer.getDouble();
+			checkpoint.diversity = buffer.getDouble();
+			for (int i_count = 0;i_count < checkpoint.runStatistics.length;i_count++){
+				checkpoint.runStatistics[i_count] = buffer.getLong();
+			}
+			buffer.asDoubleBuffer().get(checkpoint.positions).get(checkpoint.velocities);
+			buffer.position(buffer.position() + 2*checkpoint.positions.length*Double.BYTES);
+			for (int i_part = 0;i_part < checkpoint.numberOfParticles;i_part++){
+				checkpoint.hasPersonalBest[i_part] = buffer.get() == 1;
+			}
+			buffer.asDoubleBuffer().get(checkpoint.personalBests);
+			buffer.position(buffer.position() + checkpoint.personalBests.length*Double.BYTES);
+			checkpoint.swarmBest = getOptionalArray(buffer, checkpoint.numberOfParameters);
+			checkpoint.swarmOverallBest = getOptionalArray(buffer, checkpoint.numberOfParameters);
+			boolean hasEnvironmentVersion = buffer.get() == 1;
+			long environmentVersion = buffer.getLong();
+			checkpoint.environmentVersion = hasEnvironmentVersion ? Long.valueOf(environmentVersion) : null;
+			checkpoint.optimaMemory = getArrays(buffer, checkpoint.numberOfParameters);
+			if (buffer.get() == 1){
+				checkpoint.links = new int[checkpoint.numberOfParticles][];
+				for (int i_part = 0;i_part < checkpoint.numberOfParticles;i_part++){
+					checkpoint.links[i_part] = new int[buffer.getInt()];
+					for (int i_link = 0;i_link < checkpoint.links[i_part].length;i_link++){
+						checkpoint.links[i_part][i_link] = buffer.getInt();
+					}
+				}
+			}
+			checkpoint.eliteValues = getArrays(buffer, checkpoint.numberOfParameters);
+			checkpoint.deserializeOutputs(getByteArray(buffer));
+			checkpoint.swarmRandomState = getByteArray(buffer);
+			return checkpoint;
+		}
+	}
+
+	private static double[] getOptionalArray(ByteBuffer buffer, int length){
+		if (buffer.get() == 0){
+			return null;
+		}
+		return getArray(buffer, length);
+	}
+
+	private static double[][] getArrays(ByteBuffer buffer, int length){
+		double[][] arrays = new double[buffer.getInt()][];
+		for (int i_array = 0;i_array < arrays.length;i_array++){
+			arrays[i_array] = getArray(buffer, length);
+		}
+		return arrays;
+	}
+
+	private static double[] getArray(ByteBuffer buffer, int length){
+		double[] values = new double[length];
+		for (int i_value = 0;i_value < length;i_value++){
+			values[i_value] = buffer.getDouble();
+		}
+		return values;
+	}
+
+	private static byte[] getByteArray(ByteBuffer buffer){
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return bytes;
+	}
+	/**
+	 * The serialized form of <b>java.util.Random</b> holds its exact internal state
+	 * @param random
+	 * @return
+	 */
+	static byte[] serializeRandom(Random random){
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(bytes)){
+			stream.writeObject(random);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	static Random deserializeRandom(byte[] state) throws IOException{
+		try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(state))){
+			return (Random)stream.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package optimization.pso;
+
+/**
+ * <pre>
+ * This class controls the velocity limits of the parameters of a <b>ParticleSwarm</b> in
+ * each generation.
+ * </pre>
+ * <pre>
+ * Supported strategies:
+ * 	FIXED             - the limits set at construction are used unchanged (default)
+ * 	LINEAR_DECREASING - the limit decreases linearly from a start to an end fraction of the
+ * 	                    parameter range over the run
+ * 	SUCCESS_ADAPTIVE  - the limit grows by 10% after a generation in which more than a fifth
+ * 	                    of the particles improved their personal best and shrinks by 10%
+ * 	                    otherwise, bounded by a minimum and maximum fraction of the range
+ * </pre>
+ * <pre>
+ * Unlike the fixed limits, the adaptive limits apply to INTEGER and CATEGORICAL parameters
+ * as well. Their limit is never set below 1 since smaller steps are rounded away.
+ * </pre>
+ * <pre>
+ * <b>Note</b>: A swarm keeps its own copy of the control, so one control can configure several
+ * swarms. The limit of the copy is reset to its initial fraction at the start of every
+ * optimization and after every restart.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class VelocityLimitControl {
+
+	/**
+	 * Enumeration of supported velocity limit strategies
+	 * @author Matt
+	 *
+	 */
+	public enum VelocityLimitStrategy{
+		FIXED,
+		LINEAR_DECREASING,
+		SUCCESS_ADAPTIVE
+	}
+
+	private static final double TARGET_SUCCESS_RATE = 0.2;
+	private static final double ADAPTATION_FACTOR = 1.1;
+
+	private VelocityLimitStrategy strategy;
+	private double startFraction;
+	private double endFraction;
+	private double minFraction;
+	private double maxFraction;
+	private double initialFraction;
+	private double currentFraction;
+
+	private VelocityLimitControl(VelocityLimitStrategy strategy){
+		this.strategy = strategy;
+	}
+
+	public static VelocityLimitControl fixed(){
+		return new VelocityLimitControl(VelocityLimitStrategy.FIXED);
+	}
+
+	public static VelocityLimitControl linearDecreasing(double startFraction, double endFraction){
+		VelocityLimitControl control = new VelocityLimitControl(VelocityLimitStrategy.LINEAR_DECREASING);
+		control.startFraction = startFraction;
+		control.endFraction = endFraction;
+		control.initialFraction = startFraction;
+		control.currentFraction = startFraction;
+		return control;
+	}
+
+	public static VelocityLimitControl successAdaptive(double initialFraction, double minFraction, double maxFraction){
+		VelocityLimitControl control = new VelocityLimitControl(VelocityLimitStrategy.SUCCESS_ADAPTIVE);
+		control.minFraction = minFraction;
+		control.maxFraction = maxFraction;
+		control.initialFraction = Math.min(maxFraction, Math.max(minFraction, initialFraction));
+		control.currentFraction = control.initialFraction;
+		return control;
+	}
+
+	public VelocityLimitStrategy getStrategy(){
+		return strategy;
+	}
+
+	boolean isFixed(){
+		return strategy == VelocityLimitStrategy.FIXED;
+	}
+	/**
+	 * Returns the velocity limit as a fraction of the parameter range for the current generation
+	 * @param progress fraction (0 to 1) of the run completed
+	 * @return
+	 */
+	double getFractionOfRange(double progress){
+		if (strategy == VelocityLimitStrategy.LINEAR_DECREASING){
+			double t = Math.min(1.0, Math.max(0.0, progress));
+			currentFraction = startFraction - (startFraction - endFraction)*t;
+		}
+		return currentFraction;
+	}
+
+	/**
+	 * Returns a control with the same strategy and settings and its own current limit
+	 * @return
+	 */
+	VelocityLimitControl copy(){
+		VelocityLimitControl control = new VelocityLimitControl(strategy);
+		control.startFraction = startFraction;
+		control.endFraction = endFraction;
+		control.minFraction = minFraction;
+		control.maxFraction = maxFraction;
+		control.initialFraction = initialFraction;
+		control.currentFraction = initialFraction;
+		return control;
+	}
+	/**
+	 * Resets the current limit, called by the swarm at the start of a run and after a restart
+	 */
+	void initialize(){
+		this.currentFraction = initialFraction;
+	}
+
+	void generationCompleted(double successRate){
+		if (strategy == VelocityLimitStrategy.SUCCESS_ADAPTIVE){
+			if (successRate > TARGET_SUCCESS_RATE){
+				currentFraction = Math.min(maxFraction, currentFraction*ADAPTATION_FACTOR);
+			} else {
+				currentFraction = Math.max(minFraction, currentFraction/ADAPTATION_FACTOR);
+			}
+		}
+	}
+	double getCurrentFraction(){
+		return currentFraction;
+	}
+
+	void setCurrentFraction(double currentFraction){
+		this.currentFraction = currentFraction;
+	}
+}
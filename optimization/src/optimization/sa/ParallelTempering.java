@@ -0,0 +1,708 @@
+package optimization.sa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.EvaluationListener_IF;
+import optimization.OptUtils;
+import optimization.Optimizer_IF;
+import optimization.Parameter;
+import optimization.RunStatistics;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * This class performs parallel tempering (replica exchange simulated annealing) given a user
+ * defined cost function. It complements the particle swarm on rugged landscapes with many deep
+ * local minima, such as Eggholder or Holder table: hot replicas keep crossing between basins
+ * while cold replicas refine the best ones, instead of the whole population contracting.
+ * </pre>
+ * <pre>
+ * Every replica runs a Metropolis random walk at one rung of a temperature ladder on its own
+ * thread. A move changes one parameter:
+ *   DOUBLE:      a normal step, scaled to the range of the parameter, reflected at the bounds
+ *   INTEGER:     the same step rounded to at least one integer, reflected at the bounds
+ *   CATEGORICAL: one of the other codes of the categoricalMap
+ * After every <b>movesPerExchange</b> moves a replica proposes to exchange rungs with the replica
+ * one rung hotter, so good solutions found by hot replicas sink down to the cold ones.
+ * </pre>
+ * <pre>
+ * The replicas never wait for each other. The ladder (temperature of every rung and replica at
+ * every rung) is an immutable object, and an exchange replaces it with one compare-and-set; an
+ * exchange that loses the race to another exchange is dropped. The energy a replica compares
+ * against is the one its neighbor published at the end of its last block of moves.
+ * </pre>
+ * <pre>
+ * Both the ladder and the step sizes adapt during the run. The step size of every parameter at
+ * every rung is steered toward a move acceptance rate of 0.44, and the gaps between the
+ * logarithms of neighboring temperatures toward an exchange acceptance rate of 0.23 with the
+ * coldest and hottest temperatures kept fixed. Unless set, the hottest temperature is the
+ * standard deviation of the energies of the random starting points and the coldest one a
+ * thousandth of it.
+ * </pre>
+ * <pre>
+ * Temperatures apply to outputs implementing <b>ScalarCostFunctionOutput_IF</b>, whose fitness is
+ * the energy. Other outputs are only accepted if <b>isNewCostFunctionOutputBetter</b> and are never
+ * exchanged. Solutions outside of the restraints have an infinite energy. The cost function is
+ * called from several threads at once and must be thread safe.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class ParallelTempering implements Optimizer_IF{
+
+	private static final double TARGET_MOVE_ACCEPTANCE = 0.44;
+	private static final double TARGET_EXCHANGE_ACCEPTANCE = 0.23;
+	private static final double MIN_STEP_SIZE = 1E-9;
+	private static final double MAX_STEP_SIZE = 1.0;
+	//Exchanges attempted across a gap before its acceptance rate is used to adapt the ladder
+	private static final int MIN_EXCHANGE_ATTEMPTS = 10;
+
+	private final Parameter[] template;
+	private final int numberOfReplicas;
+	private final long movesPerReplica;
+	private int[][] categoricalCodes;
+	private int movesPerExchange = 20;
+	private int exchangesPerAdaptation = 10;
+	private double initialStepSize = 0.1;
+	private boolean adaptiveLadder = true;
+	private boolean adaptiveStepSizes = true;
+	//The temperature range is derived from the starting points unless it is set
+	private Double minTemperature = null;
+	private Double maxTemperature = null;
+	private Long randomSeed = null;
+	private boolean verbose = true;
+	//Set optimization to run until a time limit is reached
+	private boolean runForSpecifiedTime = false;
+	//Max runtime is seconds
+	private double maxRunTime = 300;
+	private List<EvaluationListener_IF> evaluationListeners = new ArrayList<EvaluationListener_IF>();
+	private RunStatistics runStatistics = new RunStatistics();
+
+	//State of the current run, shared by the replica threads
+	private final AtomicReference<Ladder> ladder = new AtomicReference<Ladder>();
+	private AtomicReferenceArray<double[]> stepSizes;
+	private AtomicLongArray exchangeAttempts;
+	private AtomicLongArray exchangeAcceptances;
+	//Energy of every replica at the end of its last block of moves, as raw long bits
+	private AtomicLongArray publishedEnergies;
+	private final AtomicReference<BestDiscoveredSolution> best = new AtomicReference<BestDiscoveredSolution>();
+	private volatile boolean stopped = false;
+	private double startTime;
+
+	/**
+	 * Constructor that runs one replica per available processor
+	 * @param movesPerReplica maximum number of moves (cost function evaluations) of every replica
+	 * @param parameters
+	 */
+	public ParallelTempering(long movesPerReplica, Parameter... parameters){
+		this(Runtime.getRuntime().availableProcessors(), movesPerReplica, parameters);
+	}
+	/**
+	 * Constructor that defines the number of replicas, the maximum number of moves of every
+	 * replica and the parameters used in the cost function
+	 * @param numberOfReplicas number of rungs of the temperature ladder, each run on its own thread
+	 * @param movesPerReplica maximum number of moves (cost function evaluations) of every replica
+	 * @param parameters
+	 */
+	public ParallelTempering(int numberOfReplicas, long movesPerReplica, Parameter... parameters){
+		this.template = OptUtils.cloneParameterArray(parameters);
+		this.numberOfReplicas = Math.max(1, numberOfReplicas);
+		this.movesPerReplica = movesPerReplica;
+		this.categoricalCodes = new int[template.length][];
+		for (int i_param = 0;i_param < template.length;i_param++){
+			if (template[i_param].paramType == Parameter.ParameterType.CATEGORICAL){
+				categoricalCodes[i_param] = template[i_param].categoricalMap.values().stream()
+						.mapToInt(Integer::intValue).sorted().toArray();
+			}
+		}
+	}
+
+	@Override
+	public BestDiscoveredSolution optimize(CostFunction_IF costFunction) {
+		startTime = Double.valueOf(System.nanoTime())/1E9;
+		runStatistics.reset();
+		best.set(null);
+		stopped = false;
+		exchangeAttempts = new AtomicLongArray(Math.max(1, numberOfReplicas - 1));
+		exchangeAcceptances = new AtomicLongArray(Math.max(1, numberOfReplicas - 1));
+		publishedEnergies = new AtomicLongArray(numberOfReplicas);
+		stepSizes = new AtomicReferenceArray<double[]>(numberOfReplicas);
+		double[] initialStepSizes = new double[template.length];
+		Arrays.fill(initialStepSizes, Math.max(MIN_STEP_SIZE, Math.min(MAX_STEP_SIZE, initialStepSize)));
+		for (int i_rung = 0;i_rung < numberOfReplicas;i_rung++){
+			stepSizes.set(i_rung, initialStepSizes);
+		}
+		Random seeds = randomSeed != null ? new Random(randomSeed) : new Random();
+		List<Replica> replicas = new ArrayList<Replica>();
+		for (int i_rep = 0;i_rep < numberOfReplicas;i_rep++){
+			replicas.add(new Replica(i_rep, new Random(seeds.nextLong()), costFunction));
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(numberOfReplicas, (runnable) -> {
+			Thread thread = new Thread(runnable, "tempering-replica");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			//The starting points are evaluated first, since the default ladder depends on their energies
+			runOnAll(pool, replicas, (replica) -> replica.start());
+			ladder.set(new Ladder(createTemperatures(replicas)));
+			if (!stopped){
+				runOnAll(pool, replicas, (replica) -> replica.run());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		long blocks = 0;
+		for (Replica replica : replicas){
+			runStatistics.addEvaluations(replica.evaluations);
+			blocks += replica.blocks;
+		}
+		for (long i_gen = 0;i_gen < blocks/numberOfReplicas;i_gen++){
+			runStatistics.addGeneration();
+		}
+		return best.get();
+	}
+
+	private interface ReplicaTask{
+		public void runOn(Replica replica);
+	}
+
+	private void runOnAll(ExecutorService pool, List<Replica> replicas, ReplicaTask task){
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (Replica replica : replicas){
+			futures.add(pool.submit((Callable<Void>)() -> {
+				try {
+					task.runOn(replica);
+				} catch (RuntimeException | Error e) {
+					//Stop the other replicas right away, the failure is rethrown by runOnAll
+					stopped = true;
+					throw e;
+				}
+				return null;
+			}));
+		}
+		RuntimeException failure = null;
+		for (Future<?> future : futures){
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				stopped = true;
+				break;
+			} catch (ExecutionException e) {
+				stopped = true;
+				if (failure == null){
+					failure = e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause()
+							: new IllegalStateException("A replica failed", e.getCause());
+				}
+			}
+		}
+		if (failure != null){
+			throw failure;
+		}
+	}
+	/**
+	 * Returns a geometric ladder between the minimum and maximum temperatures
+	 */
+	private double[] createTemperatures(List<Replica> replicas){
+		double hottest = maxTemperature != null ? maxTemperature : getEnergySpread(replicas);
+		double coldest = minTemperature != null ? minTemperature : hottest*1E-3;
+		coldest = Math.min(coldest, hottest);
+		double[] temperatures = new double[numberOfReplicas];
+		for (int i_rung = 0;i_rung < numberOfReplicas;i_rung++){
+			double fraction = numberOfReplicas > 1 ? Double.valueOf(i_rung)/(numberOfReplicas - 1) : 0.0;
+			temperatures[i_rung] = coldest*Math.pow(hottest/coldest, fraction);
+		}
+		return temperatures;
+	}
+	/**
+	 * Returns the standard deviation of the finite starting energies, or 1 if there are too few
+	 */
+	private static double getEnergySpread(List<Replica> replicas){
+		double sum = 0.0;
+		double squaredSum = 0.0;
+		int count = 0;
+		for (Replica replica : replicas){
+			if (!Double.isNaN(replica.currentEnergy) && !Double.isInfinite(replica.currentEnergy)){
+				sum += replica.currentEnergy;
+				squaredSum += replica.currentEnergy*replica.currentEnergy;
+				count++;
+			}
+		}
+		if (count < 2){
+			return 1.0;
+		}
+		double mean = sum/count;
+		double spread = Math.sqrt(Math.max(0.0, squaredSum/count - mean*mean));
+		return spread > 0.0 ? spread : 1.0;
+	}
+	/**
+	 * Replaces the best solution if the output is better, preferring solutions that satisfy the
+	 * optimization criterion, and stops the run once the criterion is satisfied
+	 */
+	private void offerBest(Parameter[] parameters, CostFunctionOutput_IF output){
+		if (!output.isSolutionWithinRestraints()){
+			return;
+		}
+		BestDiscoveredSolution solution = null;
+		while (true){
+			BestDiscoveredSolution current = best.get();
+			if (current != null && !current.getCostFunctionOutput().isNewCostFunctionOutputBetter(output)
+					&& !(output.isOptimizationCriterionSatisified() && !current.getCostFunctionOutput().isOptimizationCriterionSatisified())){
+				return;
+			}
+			if (solution == null){
+				solution = new BestDiscoveredSolution(parameters, output);
+			}
+			if (best.compareAndSet(current, solution)){
+				break;
+			}
+		}
+		if (output.isOptimizationCriterionSatisified()){
+			stopped = true;
+		}
+	}
+	/**
+	 * Moves the temperatures so the exchange acceptance rate of every gap approaches the target.
+	 * The coldest temperature is kept and the counts are restarted.
+	 */
+	private void adaptLadder(){
+		if (numberOfReplicas < 2){
+			return;
+		}
+		double[] logGaps = new double[numberOfReplicas - 1];
+		boolean adapted = false;
+		while (true){
+			Ladder current = ladder.get();
+			for (int i_gap = 0;i_gap < logGaps.length;i_gap++){
+				logGaps[i_gap] = Math.log(current.temperatures[i_gap + 1]/current.temperatures[i_gap]);
+				long attempts = exchangeAttempts.get(i_gap);
+				if (attempts >= MIN_EXCHANGE_ATTEMPTS){
+					double acceptanceRate = Double.valueOf(exchangeAcceptances.get(i_gap))/attempts;
+					logGaps[i_gap] *= Math.exp(acceptanceRate - TARGET_EXCHANGE_ACCEPTANCE);
+					adapted = true;
+				}
+			}
+			if (!adapted){
+				return;
+			}
+			//The coldest and hottest temperatures are kept, so only the spacing in between changes
+			double totalLogGap = Math.log(current.temperatures[numberOfReplicas - 1]/current.temperatures[0]);
+			double adaptedLogGap = 0.0;
+			for (double logGap : logGaps){
+				adaptedLogGap += logGap;
+			}
+			for (int i_gap = 0;i_gap < logGaps.length;i_gap++){
+				logGaps[i_gap] *= totalLogGap/adaptedLogGap;
+			}
+			double[] temperatures = new double[numberOfReplicas];
+			temperatures[0] = current.temperatures[0];
+			for (int i_gap = 0;i_gap < logGaps.length;i_gap++){
+				temperatures[i_gap + 1] = temperatures[i_gap]*Math.exp(logGaps[i_gap]);
+			}
+			temperatures[numberOfReplicas - 1] = current.temperatures[numberOfReplicas - 1];
+			if (ladder.compareAndSet(current, current.withTemperatures(temperatures))){
+				break;
+			}
+		}
+		for (int i_gap = 0;i_gap < logGaps.length;i_gap++){
+			if (exchangeAttempts.get(i_gap) >= MIN_EXCHANGE_ATTEMPTS){
+				exchangeAttempts.set(i_gap, 0);
+				exchangeAcceptances.set(i_gap, 0);
+			}
+		}
+	}
+	/**
+	 * Returns the energy of an output: the fitness of scalar outputs, infinity outside of the
+	 * restraints and NaN for outputs that cannot be ranked by energy
+	 */
+	private static double getEnergy(CostFunctionOutput_IF output){
+		if (!output.isSolutionWithinRestraints()){
+			return Double.POSITIVE_INFINITY;
+		}
+		if (output instanceof ScalarCostFunctionOutput_IF){
+			double fitness = ((ScalarCostFunctionOutput_IF)output).getFitness();
+			return Double.isNaN(fitness) ? Double.POSITIVE_INFINITY : fitness;
+		}
+		return Double.NaN;
+	}
+	/**
+	 * Immutable state of the temperature ladder
+	 */
+	private static class Ladder{
+		private final double[] temperatures;
+		private final int[] replicaAtRung;
+		private final int[] rungOfReplica;
+
+		private Ladder(double[] temperatures){
+			this.temperatures = temperatures;
+			this.replicaAtRung = new int[temperatures.length];
+			this.rungOfReplica = new int[temperatures.length];
+			for (int i_rung = 0;i_rung < temperatures.length;i_rung++){
+				replicaAtRung[i_rung] = i_rung;
+				rungOfReplica[i_rung] = i_rung;
+			}
+		}
+
+		private Ladder(double[] temperatures, int[] replicaAtRung, int[] rungOfReplica){
+			this.temperatures = temperatures;
+			this.replicaAtRung = replicaAtRung;
+			this.rungOfReplica = rungOfReplica;
+		}
+		/**
+		 * Returns the ladder with the replicas of the given rung and the rung above exchanged
+		 */
+		private Ladder withExchange(int rung){
+			int[] replicaAtRung = this.replicaAtRung.clone();
+			int[] rungOfReplica = this.rungOfReplica.clone();
+			int lower = replicaAtRung[rung];
+			int upper = replicaAtRung[rung + 1];
+			replicaAtRung[rung] = upper;
+			replicaAtRung[rung + 1] = lower;
+			rungOfReplica[lower] = rung + 1;
+			rungOfReplica[upper] = rung;
+			return new Ladder(temperatures, replicaAtRung, rungOfReplica);
+		}
+
+		private Ladder withTemperatures(double[] temperatures){
+			return new Ladder(temperatures, replicaAtRung, rungOfReplica);
+		}
+	}
+	/**
+	 * One random walk. Its fields are only used by the thread running it.
+	 */
+	private class Replica{
+		private final int id;
+		private final Random random;
+		private final CostFunction_IF costFunction;
+		private final Parameter[] parameters;
+		private final double[] current;
+		private CostFunctionOutput_IF currentOutput = null;
+		private double currentEnergy = Double.POSITIVE_INFINITY;
+		private final long[] moveAttempts;
+		private final long[] moveAcceptances;
+		private long evaluations = 0;
+		private long blocks = 0;
+
+		private Replica(int id, Random random, CostFunction_IF costFunction){
+			this.id = id;
+			this.random = random;
+			this.costFunction = costFunction;
+			this.parameters = OptUtils.cloneParameterArray(template);
+			this.current = new double[template.length];
+			this.moveAttempts = new long[template.length];
+			this.moveAcceptances = new long[template.length];
+		}
+		/**
+		 * Evaluates a random starting point
+		 */
+		private void start(){
+			for (int i_param = 0;i_param < template.length;i_param++){
+				current[i_param] = getRandomValue(i_param);
+				parameters[i_param].setCurrentValue(current[i_param]);
+			}
+			currentOutput = evaluate(0);
+			currentEnergy = getEnergy(currentOutput);
+			publishedEnergies.set(id, Double.doubleToRawLongBits(currentEnergy));
+		}
+
+		private void run(){
+			long moves = 0;
+			while (moves < movesPerReplica && !stopped){
+				Ladder view = ladder.get();
+				int rung = view.rungOfReplica[id];
+				double temperature = view.temperatures[rung];
+				double[] rungStepSizes = stepSizes.get(rung);
+				double[] blockStepSizes = rungStepSizes.clone();
+				Arrays.fill(moveAttempts, 0);
+				Arrays.fill(moveAcceptances, 0);
+				for (int i_move = 0;i_move < movesPerExchange && moves < movesPerReplica && !stopped;i_move++){
+					move(temperature, blockStepSizes);
+					moves++;
+				}
+				if (adaptiveStepSizes && adaptStepSizes(blockStepSizes)){
+					//Dropped if another replica updated the rung in the meantime
+					stepSizes.compareAndSet(rung, rungStepSizes, blockStepSizes);
+				}
+				publishedEnergies.set(id, Double.doubleToRawLongBits(currentEnergy));
+				attemptExchange();
+				blocks++;
+				if (id == 0 && blocks % exchangesPerAdaptation == 0){
+					if (adaptiveLadder){
+						adaptLadder();
+					}
+					if (verbose){
+						BestDiscoveredSolution solution = best.get();
+						if (solution != null){
+							System.out.println("Generation: " + String.valueOf(blocks) + ",Best Value: " + solution.getCostFunctionOutput().getOutputAsString());
+						} else {
+							System.out.println("Generation: " + String.valueOf(blocks) + ", No value meeting constraints found.");
+						}
+					}
+				}
+				double elapsedTime = Double.valueOf(System.nanoTime())/1E9;
+				if (runForSpecifiedTime && elapsedTime - startTime > maxRunTime){
+					stopped = true;
+				}
+			}
+		}
+		/**
+		 * Proposes a change of one parameter and accepts it by the Metropolis criterion
+		 */
+		private void move(double temperature, double[] blockStepSizes){
+			int i_param = random.nextInt(template.length);
+			double previous = current[i_param];
+			double proposed = propose(i_param, previous, blockStepSizes[i_param]);
+			moveAttempts[i_param]++;
+			if (proposed == previous){
+				return;
+			}
+			parameters[i_param].setCurrentValue(proposed);
+			CostFunctionOutput_IF output = evaluate((int)blocks);
+			double energy = getEnergy(output);
+			if (isAccepted(output, energy, temperature)){
+				current[i_param] = proposed;
+				currentOutput = output;
+				currentEnergy = energy;
+				moveAcceptances[i_param]++;
+			} else {
+				parameters[i_param].setCurrentValue(previous);
+			}
+		}
+
+		private boolean isAccepted(CostFunctionOutput_IF output, double energy, double temperature){
+			if (Double.isNaN(energy) || Double.isNaN(currentEnergy)){
+				return output.isSolutionWithinRestraints() && (!currentOutput.isSolutionWithinRestraints()
+						|| currentOutput.isNewCostFunctionOutputBetter(output));
+			}
+			if (Double.isInfinite(energy) && Double.isInfinite(currentEnergy)){
+				//Both outside of the restraints: wander until the restraints are met
+				return true;
+			}
+			double increase = energy - currentEnergy;
+			return increase <= 0.0 || random.nextDouble() < Math.exp(-increase/temperature);
+		}
+
+		private CostFunctionOutput_IF evaluate(int generation){
+			CostFunctionOutput_IF output = costFunction.evaluateCostFunction(parameters);
+			evaluations++;
+			for (EvaluationListener_IF listener : evaluationListeners){
+				listener.evaluationCompleted(generation, parameters, output);
+			}
+			offerBest(parameters, output);
+			return output;
+		}
+		/**
+		 * Proposes to exchange rungs with the replica one rung hotter. The exchange is dropped if
+		 * the ladder changed since it was read.
+		 */
+		private void attemptExchange(){
+			Ladder view = ladder.get();
+			int rung = view.rungOfReplica[id];
+			if (rung >= numberOfReplicas - 1){
+				return;
+			}
+			double otherEnergy = Double.longBitsToDouble(publishedEnergies.get(view.replicaAtRung[rung + 1]));
+			double exponent = (1.0/view.temperatures[rung] - 1.0/view.temperatures[rung + 1])*(currentEnergy - otherEnergy);
+			if (Double.isNaN(exponent)){
+				return;
+			}
+			exchangeAttempts.incrementAndGet(rung);
+			if ((exponent >= 0.0 || random.nextDouble() < Math.exp(exponent))
+					&& ladder.compareAndSet(view, view.withExchange(rung))){
+				exchangeAcceptances.incrementAndGet(rung);
+			}
+		}
+		/**
+		 * Scales the step size of every moved numeric parameter toward the target acceptance rate
+		 * @return true if a step size changed
+		 */
+		private boolean adaptStepSizes(double[] blockStepSizes){
+			boolean changed = false;
+			for (int i_param = 0;i_param < template.length;i_param++){
+				if (moveAttempts[i_param] == 0 || categoricalCodes[i_param] != null){
+					continue;
+				}
+				double acceptanceRate = Double.valueOf(moveAcceptances[i_param])/moveAttempts[i_param];
+				blockStepSizes[i_param] *= Math.exp(acceptanceRate - TARGET_MOVE_ACCEPTANCE);
+				blockStepSizes[i_param] = Math.max(MIN_STEP_SIZE, Math.min(MAX_STEP_SIZE, blockStepSizes[i_param]));
+				changed = true;
+			}
+			return changed;
+		}
+
+		private double propose(int i_param, double value, double stepSize){
+			Parameter parameter = template[i_param];
+			switch(parameter.paramType){
+			case CATEGORICAL:
+				int[] codes = categoricalCodes[i_param];
+				if (codes.length < 2){
+					return value;
+				}
+				int index = random.nextInt(codes.length - 1);
+				if (codes[index] == (int)Math.round(value)){
+					index = codes.length - 1;
+				}
+				return codes[index];
+			case INTEGER:
+				int lowerBound = parameter.lowerBound.intValue();
+				int upperBound = parameter.upperBound.intValue();
+				if (upperBound <= lowerBound){
+					return value;
+				}
+				long step = Math.round(random.nextGaussian()*stepSize*(upperBound - lowerBound));
+				if (step == 0){
+					step = random.nextBoolean() ? 1 : -1;
+				}
+				return Math.round(reflect(Math.round(value) + step, lowerBound, upperBound));
+			default:
+				return reflect(value + random.nextGaussian()*stepSize*parameter.getRangeOfParameterValue(),
+						parameter.lowerBound.doubleValue(), parameter.upperBound.doubleValue());
+			}
+		}
+
+		private double getRandomValue(int i_param){
+			Parameter parameter = template[i_param];
+			switch(parameter.paramType){
+			case CATEGORICAL:
+				return categoricalCodes[i_param][random.nextInt(categoricalCodes[i_param].length)];
+			case INTEGER:
+				int lowerBound = parameter.lowerBound.intValue();
+				return lowerBound + random.nextInt(parameter.upperBound.intValue() - lowerBound + 1);
+			default:
+				return parameter.lowerBound.doubleValue() + random.nextDouble()*parameter.getRangeOfParameterValue();
+			}
+		}
+	}
+	/**
+	 * Reflects a value at the bounds, clamping steps longer than the range
+	 */
+	private static double reflect(double value, double lowerBound, double upperBound){
+		if (value < lowerBound){
+			value = 2.0*lowerBound - value;
+		}
+		if (value > upperBound){
+			value = 2.0*upperBound - value;
+		}
+		return Math.max(lowerBound, Math.min(upperBound, value));
+	}
+	/**
+	 * Sets the number of moves every replica makes between exchange attempts
+	 * @param movesPerExchange
+	 * @return
+	 */
+	public ParallelTempering setMovesPerExchange(int movesPerExchange){
+		this.movesPerExchange = Math.max(1, movesPerExchange);
+		return this;
+	}
+	/**
+	 * Sets the number of exchange attempts of the first replica between adaptations of the ladder
+	 * @param exchangesPerAdaptation
+	 * @return
+	 */
+	public ParallelTempering setExchangesPerAdaptation(int exchangesPerAdaptation){
+		this.exchangesPerAdaptation = Math.max(1, exchangesPerAdaptation);
+		return this;
+	}
+	/**
+	 * Sets the fixed temperature range of the ladder. By default it is derived from the energies
+	 * of the starting points.
+	 * @param minTemperature temperature of the coldest rung
+	 * @param maxTemperature temperature of the hottest rung
+	 * @return
+	 */
+	public ParallelTempering setTemperatureRange(double minTemperature, double maxTemperature){
+		this.minTemperature = minTemperature;
+		this.maxTemperature = maxTemperature;
+		return this;
+	}
+	/**
+	 * Sets the starting step size of the numeric parameters as a fraction of their range
+	 * @param initialStepSize
+	 * @return
+	 */
+	public ParallelTempering setInitialStepSize(double initialStepSize){
+		this.initialStepSize = initialStepSize;
+		return this;
+	}
+	/**
+	 * Enables or disables the adaptation of the temperature ladder and of the step sizes
+	 * @param adaptiveLadder
+	 * @param adaptiveStepSizes
+	 * @return
+	 */
+	public ParallelTempering setAdaptation(boolean adaptiveLadder, boolean adaptiveStepSizes){
+		this.adaptiveLadder = adaptiveLadder;
+		this.adaptiveStepSizes = adaptiveStepSizes;
+		return this;
+	}
+	/**
+	 * Adds a listener that is notified of every cost function evaluation, on the thread of the replica
+	 * @param listener
+	 * @return
+	 */
+	public ParallelTempering addEvaluationListener(EvaluationListener_IF listener){
+		this.evaluationListeners.add(listener);
+		return this;
+	}
+
+	public ParallelTempering setVerbose(boolean verbose){
+		this.verbose = verbose;
+		return this;
+	}
+	/**
+	 * Seeds the random numbers of the replicas. Since the replicas run concurrently, runs are
+	 * only repeatable with a single replica.
+	 * @param seed
+	 * @return
+	 */
+	public ParallelTempering setRandomSeed(long seed){
+		this.randomSeed = seed;
+		return this;
+	}
+	/**
+	 * Sets the optimization to run for the given number of seconds unless the moves of the
+	 * replicas are used up first
+	 * @param secToRunFor
+	 * @return
+	 */
+	public ParallelTempering setOptimizationToRunForPeriodOfTime(double secToRunFor){
+		this.maxRunTime = secToRunFor;
+		this.runForSpecifiedTime = true;
+		return this;
+	}
+	/**
+	 * Returns the temperatures of the ladder of the last run, coldest first
+	 * @return
+	 */
+	public double[] getTemperatures(){
+		Ladder current = ladder.get();
+		return current != null ? current.temperatures.clone() : new double[0];
+	}
+	/**
+	 * Returns the statistics of the last call to <b>optimize</b>. Generations count the exchange
+	 * rounds per replica.
+	 * @return
+	 */
+	public RunStatistics getRunStatistics(){
+		return runStatistics;
+	}
+
+	public int getNumberOfReplicas(){
+		return numberOfReplicas;
+	}
+}
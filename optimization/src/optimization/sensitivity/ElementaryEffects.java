@@ -0,0 +1,94 @@
+package optimization.sensitivity;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * <pre>
+ * Result of a <b>MorrisAnalysis</b>, with effects per whole range of every parameter:
+ *   mean:               average effect; effects of opposite sign cancel out
+ *   absolute mean (mu*): average size of the effect, used to rank the parameters
+ *   standard deviation: spread of the effect, large for nonlinear effects and interactions
+ * A parameter with a small absolute mean has little influence anywhere in the bounds.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class ElementaryEffects {
+	private final String[] parameterNames;
+	private final double[] mean;
+	private final double[] absoluteMean;
+	private final double[] absoluteMeanConfidence;
+	private final double[] standardDeviation;
+	private final long[] numberOfEffects;
+	private final long numberOfEvaluations;
+
+	ElementaryEffects(String[] parameterNames, double[] mean, double[] absoluteMean, double[] absoluteMeanConfidence,
+			double[] standardDeviation, long[] numberOfEffects, long numberOfEvaluations){
+		this.parameterNames = parameterNames;
+		this.mean = mean;
+		this.absoluteMean = absoluteMean;
+		this.absoluteMeanConfidence = absoluteMeanConfidence;
+		this.standardDeviation = standardDeviation;
+		this.numberOfEffects = numberOfEffects;
+		this.numberOfEvaluations = numberOfEvaluations;
+	}
+
+	public int getNumberOfParameters(){
+		return mean.length;
+	}
+
+	public String getParameterName(int i_param){
+		return parameterNames[i_param];
+	}
+
+	public double getMean(int i_param){
+		return mean[i_param];
+	}
+
+	public double getAbsoluteMean(int i_param){
+		return absoluteMean[i_param];
+	}
+	/**
+	 * Returns the half width of the 95% confidence interval of the absolute mean
+	 * @param i_param
+	 * @return
+	 */
+	public double getAbsoluteMeanConfidence(int i_param){
+		return absoluteMeanConfidence[i_param];
+	}
+
+	public double getStandardDeviation(int i_param){
+		return standardDeviation[i_param];
+	}
+
+	public long getNumberOfEffects(int i_param){
+		return numberOfEffects[i_param];
+	}
+
+	public long getNumberOfEvaluations(){
+		return numberOfEvaluations;
+	}
+	/**
+	 * Returns the indices of the parameters from the largest to the smallest absolute mean
+	 * @return
+	 */
+	public int[] getParametersByImportance(){
+		return IntStream.range(0, absoluteMean.length).boxed()
+				.sorted(Comparator.comparingDouble((Integer i_param) -> absoluteMean[i_param]).reversed())
+				.mapToInt(Integer::intValue).toArray();
+	}
+	/**
+	 * Returns the effects as comma separated lines, one per parameter
+	 */
+	@Override
+	public String toString(){
+		StringBuilder text = new StringBuilder("Parameter,Mean,Absolute Mean,+/-,Standard Deviation\n");
+		for (int i_param = 0;i_param < mean.length;i_param++){
+			text.append(parameterNames[i_param]).append(',')
+				.append(String.format("%.4g,%.4g,%.4g,%.4g", mean[i_param], absoluteMean[i_param],
+						absoluteMeanConfidence[i_param], standardDeviation[i_param])).append('\n');
+		}
+		return text.append("Evaluations: ").append(numberOfEvaluations).toString();
+	}
+}
@@ -0,0 +1,230 @@
+package optimization.sensitivity;
+
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptUtils;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * This class screens the parameters of a cost function with the elementary effects method of
+ * Morris. It needs far fewer evaluations than a <b>SobolAnalysis</b>, (number of parameters + 1)
+ * per trajectory with tens of trajectories typically being enough, and is used to rule out
+ * unimportant parameters before a variance based analysis or an optimization.
+ * </pre>
+ * <pre>
+ * Every trajectory starts at a random point of a grid with <b>numberOfLevels</b> levels per
+ * parameter over the unit cube and moves one parameter at a time, in random order, by
+ * numberOfLevels/(2*(numberOfLevels - 1)). The elementary effect of a parameter is the change of
+ * the output divided by that step, so effects are per whole range of the parameter. The unit
+ * cube is mapped onto the parameters as in <b>SobolAnalysis</b>.
+ * </pre>
+ * <pre>
+ * Trajectories are evaluated in chunks on a thread pool and only running moments of the effects
+ * are kept. Effects with an output value that is not a number are left out. The cost function
+ * is called from several threads at once and must be thread safe.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class MorrisAnalysis {
+
+	private static final double Z_95 = 1.959964;
+
+	private final Parameter[] template;
+	private final long numberOfTrajectories;
+	private int numberOfLevels = 4;
+	private int chunkSize = 16;
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+	private Long randomSeed = null;
+	private String[] parameterNames = null;
+	private ToDoubleFunction<CostFunctionOutput_IF> outputValue = MorrisAnalysis::getFitness;
+	private boolean verbose = false;
+
+	/**
+	 * Constructor that defines the number of trajectories and the parameters of the cost function
+	 * @param numberOfTrajectories
+	 * @param parameters
+	 */
+	public MorrisAnalysis(long numberOfTrajectories, Parameter... parameters){
+		this.template = OptUtils.cloneParameterArray(parameters);
+		this.numberOfTrajectories = numberOfTrajectories;
+	}
+	/**
+	 * Computes the elementary effects of the parameters on the output of the cost function
+	 * @param costFunction
+	 * @return
+	 */
+	public ElementaryEffects analyze(CostFunction_IF costFunction){
+		int numberOfParameters = template.length;
+		UnitCube unitCube = new UnitCube(template);
+		long seed = randomSeed != null ? randomSeed : new SplittableRandom().nextLong();
+		long numberOfChunks = (numberOfTrajectories + chunkSize - 1)/chunkSize;
+		Chunk total = new Chunk(numberOfParameters);
+		ParallelChunks.run(numberOfThreads, numberOfChunks,
+				(i_chunk) -> evaluateChunk(costFunction, unitCube, seed, i_chunk),
+				(chunk) -> total.merge(chunk), verbose);
+		double[] mean = new double[numberOfParameters];
+		double[] absoluteMean = new double[numberOfParameters];
+		double[] absoluteMeanConfidence = new double[numberOfParameters];
+		double[] standardDeviation = new double[numberOfParameters];
+		long[] numberOfEffects = new long[numberOfParameters];
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			mean[i_param] = total.effects[i_param].getMean();
+			absoluteMean[i_param] = total.absoluteEffects[i_param].getMean();
+			absoluteMeanConfidence[i_param] = Z_95*total.absoluteEffects[i_param].getStandardError();
+			standardDeviation[i_param] = Math.sqrt(total.effects[i_param].getVariance());
+			numberOfEffects[i_param] = total.effects[i_param].getCount();
+		}
+		return new ElementaryEffects(getParameterNames(), mean, absoluteMean, absoluteMeanConfidence, standardDeviation,
+				numberOfEffects, total.evaluations);
+	}
+
+	private Chunk evaluateChunk(CostFunction_IF costFunction, UnitCube unitCube, long seed, long i_chunk){
+		int numberOfParameters = template.length;
+		Chunk chunk = new Chunk(numberOfParameters);
+		SplittableRandom random = new SplittableRandom(ParallelChunks.getChunkSeed(seed, i_chunk));
+		Parameter[] parameters = OptUtils.cloneParameterArray(template);
+		double[] point = new double[numberOfParameters];
+		int[] order = new int[numberOfParameters];
+		double delta = numberOfLevels/(2.0*(numberOfLevels - 1));
+		long firstTrajectory = i_chunk*chunkSize;
+		long lastTrajectory = Math.min(numberOfTrajectories, firstTrajectory + chunkSize);
+		for (long i_traj = firstTrajectory;i_traj < lastTrajectory;i_traj++){
+			for (int i_param = 0;i_param < numberOfParameters;i_param++){
+				//Random level of the grid; the step from it stays within the unit cube in one direction
+				point[i_param] = random.nextInt(numberOfLevels)/(numberOfLevels - 1.0);
+				order[i_param] = i_param;
+			}
+			for (int i_param = numberOfParameters - 1;i_param > 0;i_param--){
+				int swap = random.nextInt(i_param + 1);
+				int index = order[i_param];
+				order[i_param] = order[swap];
+				order[swap] = index;
+			}
+			unitCube.set(parameters, point, 0);
+			double previousValue = outputValue.applyAsDouble(costFunction.evaluateCostFunction(parameters));
+			chunk.evaluations++;
+			for (int i_step = 0;i_step < numberOfParameters;i_step++){
+				int i_param = order[i_step];
+				double step = point[i_param] + delta <= 1.0 + 1E-12 ? delta : -delta;
+				point[i_param] += step;
+				unitCube.set(parameters[i_param], i_param, point[i_param]);
+				double value = outputValue.applyAsDouble(costFunction.evaluateCostFunction(parameters));
+				chunk.evaluations++;
+				if (!Double.isNaN(value) && !Double.isNaN(previousValue)){
+					double effect = (value - previousValue)/step;
+					chunk.effects[i_param].add(effect);
+					chunk.absoluteEffects[i_param].add(Math.abs(effect));
+				}
+				previousValue = value;
+			}
+		}
+		return chunk;
+	}
+
+	private String[] getParameterNames(){
+		if (parameterNames != null){
+			return parameterNames.clone();
+		}
+		String[] names = new String[template.length];
+		for (int i_param = 0;i_param < template.length;i_param++){
+			names[i_param] = "Parameter " + String.valueOf(i_param);
+		}
+		return names;
+	}
+	/**
+	 * Returns the fitness of feasible scalar outputs and NaN otherwise
+	 */
+	private static double getFitness(CostFunctionOutput_IF output){
+		if (output instanceof ScalarCostFunctionOutput_IF && output.isSolutionWithinRestraints()){
+			return ((ScalarCostFunctionOutput_IF)output).getFitness();
+		}
+		return Double.NaN;
+	}
+	/**
+	 * Running moments of the effects of one chunk of trajectories
+	 */
+	private static class Chunk{
+		private final StreamingMoments[] effects;
+		private final StreamingMoments[] absoluteEffects;
+		private long evaluations = 0;
+
+		private Chunk(int numberOfParameters){
+			effects = new StreamingMoments[numberOfParameters];
+			absoluteEffects = new StreamingMoments[numberOfParameters];
+			for (int i_param = 0;i_param < numberOfParameters;i_param++){
+				effects[i_param] = new StreamingMoments();
+				absoluteEffects[i_param] = new StreamingMoments();
+			}
+		}
+
+		private void merge(Chunk other){
+			for (int i_param = 0;i_param < effects.length;i_param++){
+				effects[i_param].merge(other.effects[i_param]);
+				absoluteEffects[i_param].merge(other.absoluteEffects[i_param]);
+			}
+			evaluations += other.evaluations;
+		}
+	}
+	/**
+	 * Sets the number of grid levels per parameter, which should be even. The default is 4.
+	 * @param numberOfLevels
+	 * @return
+	 */
+	public MorrisAnalysis setNumberOfLevels(int numberOfLevels){
+		this.numberOfLevels = Math.max(2, numberOfLevels);
+		return this;
+	}
+	/**
+	 * Sets the number of trajectories evaluated by one task
+	 * @param chunkSize
+	 * @return
+	 */
+	public MorrisAnalysis setChunkSize(int chunkSize){
+		this.chunkSize = Math.max(1, chunkSize);
+		return this;
+	}
+
+	public MorrisAnalysis setNumberOfThreads(int numberOfThreads){
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		return this;
+	}
+	/**
+	 * Seeds the random trajectories. The trajectories do not depend on the number of threads.
+	 * @param seed
+	 * @return
+	 */
+	public MorrisAnalysis setRandomSeed(long seed){
+		this.randomSeed = seed;
+		return this;
+	}
+	/**
+	 * Sets the names of the parameters used in the results
+	 * @param parameterNames
+	 * @return
+	 */
+	public MorrisAnalysis setParameterNames(String... parameterNames){
+		this.parameterNames = parameterNames.clone();
+		return this;
+	}
+	/**
+	 * Sets the number analyzed for every output. By default it is the fitness of feasible
+	 * <b>ScalarCostFunctionOutput_IF</b> outputs. Outputs mapped to NaN are left out.
+	 * @param outputValue
+	 * @return
+	 */
+	public MorrisAnalysis setOutputValue(ToDoubleFunction<CostFunctionOutput_IF> outputValue){
+		this.outputValue = outputValue;
+		return this;
+	}
+
+	public MorrisAnalysis setVerbose(boolean verbose){
+		this.verbose = verbose;
+		return this;
+	}
+}
@@ -0,0 +1,84 @@
+package optimization.sensitivity;
+
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+import optimization.OptimizationAbortedException;
+
+/**
+ * <pre>
+ * Runs the chunks of a sampling plan on a thread pool and hands every chunk result to a
+ * consumer on the calling thread as soon as it is done. At most two chunks per thread are
+ * submitted at a time, so the memory used does not grow with the number of chunks. The first
+ * chunk that fails stops the run and its exception is rethrown, since an estimate from the
+ * remaining chunks would silently use fewer samples than requested.
+ * </pre>
+ * @author Matt
+ *
+ */
+final class ParallelChunks {
+
+	private ParallelChunks(){
+	}
+	/**
+	 * Returns only once every chunk has been merged; a failed chunk or an interrupt ends the run
+	 * with an exception instead.
+	 * @param numberOfThreads
+	 * @param numberOfChunks
+	 * @param chunkTask computes the result of the chunk with the given index
+	 * @param merge receives every chunk result, on the calling thread
+	 * @param verbose prints the progress every tenth of the chunks
+	 * @throws OptimizationAbortedException if the calling thread is interrupted
+	 */
+	static <T> void run(int numberOfThreads, long numberOfChunks, LongFunction<T> chunkTask, Consumer<T> merge, boolean verbose){
+		ExecutorService pool = Executors.newFixedThreadPool(numberOfThreads, (runnable) -> {
+			Thread thread = new Thread(runnable, "sensitivity-chunk");
+			thread.setDaemon(true);
+			return thread;
+		});
+		CompletionService<T> completionService = new ExecutorCompletionService<T>(pool);
+		long maxInFlight = 2L*numberOfThreads;
+		long submitted = 0;
+		long finished = 0;
+		try {
+			while (finished < numberOfChunks){
+				while (submitted < numberOfChunks && submitted - finished < maxInFlight){
+					long i_chunk = submitted;
+					completionService.submit(() -> chunkTask.apply(i_chunk));
+					submitted++;
+				}
+				try {
+					merge.accept(completionService.take().get());
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException){
+						throw (RuntimeException)e.getCause();
+					}
+					throw new IllegalStateException("A chunk of the sampling plan failed", e.getCause());
+				}
+				finished++;
+				if (verbose && numberOfChunks >= 10 && finished % (numberOfChunks/10) == 0){
+					System.out.println("Chunks: " + String.valueOf(finished) + "/" + String.valueOf(numberOfChunks));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OptimizationAbortedException("Interrupted after " + finished + " of " + numberOfChunks + " chunks");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	/**
+	 * Returns the seed of the random numbers of a chunk, well spread for consecutive indices
+	 */
+	static long getChunkSeed(long seed, long i_chunk){
+		long mixed = seed + (i_chunk + 1)*0x9E3779B97F4A7C15L;
+		mixed = (mixed ^ (mixed >>> 30))*0xBF58476D1CE4E5B9L;
+		mixed = (mixed ^ (mixed >>> 27))*0x94D049BB133111EBL;
+		return mixed ^ (mixed >>> 31);
+	}
+}
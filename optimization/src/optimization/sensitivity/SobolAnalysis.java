@@ -0,0 +1,281 @@
+package optimization.sensitivity;
+
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptUtils;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * This class computes the Sobol first order and total order sensitivity indices of the output of
+ * a cost function to each of its parameters, to find out which inputs matter before optimizing.
+ * The parameters are sampled uniformly within their bounds (integers and categories in equally
+ * likely bins).
+ * </pre>
+ * <pre>
+ * The sampling follows Saltelli: two independent sample matrices A and B (the two halves of a
+ * Sobol sequence, or random numbers) and, for every parameter i, the matrix AB_i that is A with
+ * column i taken from B. Every row therefore costs (number of parameters + 2) evaluations. The
+ * first order index uses the estimator of Saltelli (2010), mean(f(B)*(f(AB_i) - f(A)))/V, with
+ * f(B) centered by the mean of a small independent pilot sample, and the total order index the
+ * one of Jansen, mean((f(A) - f(AB_i))^2)/2/V, where V is the variance of f over A and B.
+ * </pre>
+ * <pre>
+ * The rows are evaluated in chunks on a thread pool. Every chunk only keeps running moments of
+ * the estimator terms, which are merged as the chunks complete, so the memory used is the same
+ * for a thousand or millions of rows. Rows with an output value that is not a number (by
+ * default outputs outside of the restraints) are left out. The cost function is called from
+ * several threads at once and must be thread safe.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class SobolAnalysis {
+
+	/**
+	 * Source of the points of the sample matrices A and B
+	 */
+	public enum SamplingMethod{
+		/**
+		 * Sobol low-discrepancy sequence, which converges faster for smooth outputs. The numbers
+		 * of rows that are powers of two are the most uniform.
+		 */
+		SOBOL,
+		/**
+		 * Independent uniform random numbers
+		 */
+		RANDOM
+	}
+
+	private static final double Z_95 = 1.959964;
+	private static final int PILOT_SIZE = 64;
+
+	private final Parameter[] template;
+	private final long numberOfSamples;
+	private SamplingMethod samplingMethod = SamplingMethod.SOBOL;
+	private int chunkSize = 1024;
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+	private Long randomSeed = null;
+	private String[] parameterNames = null;
+	private ToDoubleFunction<CostFunctionOutput_IF> outputValue = SobolAnalysis::getFitness;
+	private boolean verbose = false;
+
+	/**
+	 * Constructor that defines the number of rows of the sample matrices and the parameters of
+	 * the cost function
+	 * @param numberOfSamples number of rows; the cost function is evaluated
+	 * (number of parameters + 2) times per row
+	 * @param parameters
+	 */
+	public SobolAnalysis(long numberOfSamples, Parameter... parameters){
+		this.template = OptUtils.cloneParameterArray(parameters);
+		this.numberOfSamples = numberOfSamples;
+	}
+	/**
+	 * Computes the indices of the output of the cost function
+	 * @param costFunction
+	 * @return
+	 */
+	public SobolIndices analyze(CostFunction_IF costFunction){
+		int numberOfParameters = template.length;
+		UnitCube unitCube = new UnitCube(template);
+		long seed = randomSeed != null ? randomSeed : new SplittableRandom().nextLong();
+		double shift = getPilotMean(costFunction, unitCube, seed);
+		SobolSequence sequence = samplingMethod == SamplingMethod.SOBOL ? new SobolSequence(2*numberOfParameters) : null;
+		long numberOfChunks = (numberOfSamples + chunkSize - 1)/chunkSize;
+		Chunk total = new Chunk(numberOfParameters);
+		ParallelChunks.run(numberOfThreads, numberOfChunks,
+				(i_chunk) -> evaluateChunk(costFunction, unitCube, sequence, seed, shift, i_chunk),
+				(chunk) -> total.merge(chunk), verbose);
+		double variance = total.outputs.getVariance();
+		double[] firstOrder = new double[numberOfParameters];
+		double[] firstOrderConfidence = new double[numberOfParameters];
+		double[] totalOrder = new double[numberOfParameters];
+		double[] totalOrderConfidence = new double[numberOfParameters];
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			firstOrder[i_param] = total.firstOrderTerms[i_param].getMean()/variance;
+			firstOrderConfidence[i_param] = Z_95*total.firstOrderTerms[i_param].getStandardError()/variance;
+			totalOrder[i_param] = total.totalOrderTerms[i_param].getMean()/variance;
+			totalOrderConfidence[i_param] = Z_95*total.totalOrderTerms[i_param].getStandardError()/variance;
+		}
+		return new SobolIndices(getParameterNames(), firstOrder, firstOrderConfidence, totalOrder, totalOrderConfidence,
+				total.outputs.getMean(), variance, total.outputs.getCount()/2, total.discardedSamples,
+				total.evaluations + PILOT_SIZE);
+	}
+	/**
+	 * Returns the mean output at independent random points, used to center the first order terms
+	 */
+	private double getPilotMean(CostFunction_IF costFunction, UnitCube unitCube, long seed){
+		SplittableRandom random = new SplittableRandom(ParallelChunks.getChunkSeed(seed, -2));
+		Parameter[] parameters = OptUtils.cloneParameterArray(template);
+		StreamingMoments pilot = new StreamingMoments();
+		for (int i_pilot = 0;i_pilot < PILOT_SIZE;i_pilot++){
+			for (int i_param = 0;i_param < parameters.length;i_param++){
+				unitCube.set(parameters[i_param], i_param, random.nextDouble());
+			}
+			double value = outputValue.applyAsDouble(costFunction.evaluateCostFunction(parameters));
+			if (!Double.isNaN(value)){
+				pilot.add(value);
+			}
+		}
+		if (pilot.getCount() == 0){
+			throw new IllegalArgumentException("No output value of the pilot sample is a number. Outputs must implement "
+					+ "ScalarCostFunctionOutput_IF or an output value must be set.");
+		}
+		return pilot.getMean();
+	}
+
+	private Chunk evaluateChunk(CostFunction_IF costFunction, UnitCube unitCube, SobolSequence sequence, long seed,
+			double shift, long i_chunk){
+		int numberOfParameters = template.length;
+		Chunk chunk = new Chunk(numberOfParameters);
+		Parameter[] parameters = OptUtils.cloneParameterArray(template);
+		double[] point = new double[2*numberOfParameters];
+		double[] mixedValues = new double[numberOfParameters];
+		long firstRow = i_chunk*chunkSize;
+		long lastRow = Math.min(numberOfSamples, firstRow + chunkSize);
+		//The first point of the Sobol sequence (all zeros) is skipped
+		SobolSequence.Generator generator = sequence != null ? sequence.generatorFrom(firstRow + 1) : null;
+		SplittableRandom random = sequence == null ? new SplittableRandom(ParallelChunks.getChunkSeed(seed, i_chunk)) : null;
+		for (long i_row = firstRow;i_row < lastRow;i_row++){
+			if (generator != null){
+				generator.next(point);
+			} else {
+				for (int i_dim = 0;i_dim < point.length;i_dim++){
+					point[i_dim] = random.nextDouble();
+				}
+			}
+			unitCube.set(parameters, point, numberOfParameters);
+			double valueB = outputValue.applyAsDouble(costFunction.evaluateCostFunction(parameters));
+			unitCube.set(parameters, point, 0);
+			double valueA = outputValue.applyAsDouble(costFunction.evaluateCostFunction(parameters));
+			boolean valid = !Double.isNaN(valueA) && !Double.isNaN(valueB);
+			for (int i_param = 0;i_param < numberOfParameters;i_param++){
+				unitCube.set(parameters[i_param], i_param, point[numberOfParameters + i_param]);
+				mixedValues[i_param] = outputValue.applyAsDouble(costFunction.evaluateCostFunction(parameters));
+				unitCube.set(parameters[i_param], i_param, point[i_param]);
+				valid &= !Double.isNaN(mixedValues[i_param]);
+			}
+			chunk.evaluations += numberOfParameters + 2;
+			if (!valid){
+				chunk.discardedSamples++;
+				continue;
+			}
+			chunk.outputs.add(valueA);
+			chunk.outputs.add(valueB);
+			for (int i_param = 0;i_param < numberOfParameters;i_param++){
+				double difference = valueA - mixedValues[i_param];
+				chunk.firstOrderTerms[i_param].add((valueB - shift)*(mixedValues[i_param] - valueA));
+				chunk.totalOrderTerms[i_param].add(0.5*difference*difference);
+			}
+		}
+		return chunk;
+	}
+
+	private String[] getParameterNames(){
+		if (parameterNames != null){
+			return parameterNames.clone();
+		}
+		String[] names = new String[template.length];
+		for (int i_param = 0;i_param < template.length;i_param++){
+			names[i_param] = "Parameter " + String.valueOf(i_param);
+		}
+		return names;
+	}
+	/**
+	 * Returns the fitness of feasible scalar outputs and NaN otherwise
+	 */
+	private static double getFitness(CostFunctionOutput_IF output){
+		if (output instanceof ScalarCostFunctionOutput_IF && output.isSolutionWithinRestraints()){
+			return ((ScalarCostFunctionOutput_IF)output).getFitness();
+		}
+		return Double.NaN;
+	}
+	/**
+	 * Running moments of one chunk of rows
+	 */
+	private static class Chunk{
+		private final StreamingMoments outputs = new StreamingMoments();
+		private final StreamingMoments[] firstOrderTerms;
+		private final StreamingMoments[] totalOrderTerms;
+		private long discardedSamples = 0;
+		private long evaluations = 0;
+
+		private Chunk(int numberOfParameters){
+			firstOrderTerms = new StreamingMoments[numberOfParameters];
+			totalOrderTerms = new StreamingMoments[numberOfParameters];
+			for (int i_param = 0;i_param < numberOfParameters;i_param++){
+				firstOrderTerms[i_param] = new StreamingMoments();
+				totalOrderTerms[i_param] = new StreamingMoments();
+			}
+		}
+
+		private void merge(Chunk other){
+			outputs.merge(other.outputs);
+			for (int i_param = 0;i_param < firstOrderTerms.length;i_param++){
+				firstOrderTerms[i_param].merge(other.firstOrderTerms[i_param]);
+				totalOrderTerms[i_param].merge(other.totalOrderTerms[i_param]);
+			}
+			discardedSamples += other.discardedSamples;
+			evaluations += other.evaluations;
+		}
+	}
+
+	public SobolAnalysis setSamplingMethod(SamplingMethod samplingMethod){
+		this.samplingMethod = samplingMethod;
+		return this;
+	}
+	/**
+	 * Sets the number of rows evaluated by one task
+	 * @param chunkSize
+	 * @return
+	 */
+	public SobolAnalysis setChunkSize(int chunkSize){
+		this.chunkSize = Math.max(1, chunkSize);
+		return this;
+	}
+
+	public SobolAnalysis setNumberOfThreads(int numberOfThreads){
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		return this;
+	}
+	/**
+	 * Seeds the random numbers of the pilot sample and of the RANDOM sampling method. The points
+	 * sampled do not depend on the number of threads.
+	 * @param seed
+	 * @return
+	 */
+	public SobolAnalysis setRandomSeed(long seed){
+		this.randomSeed = seed;
+		return this;
+	}
+	/**
+	 * Sets the names of the parameters used in the results
+	 * @param parameterNames
+	 * @return
+	 */
+	public SobolAnalysis setParameterNames(String... parameterNames){
+		this.parameterNames = parameterNames.clone();
+		return this;
+	}
+	/**
+	 * Sets the number analyzed for every output, for example one objective of a multi objective
+	 * output. By default it is the fitness of feasible <b>ScalarCostFunctionOutput_IF</b> outputs.
+	 * Outputs mapped to NaN are left out.
+	 * @param outputValue
+	 * @return
+	 */
+	public SobolAnalysis setOutputValue(ToDoubleFunction<CostFunctionOutput_IF> outputValue){
+		this.outputValue = outputValue;
+		return this;
+	}
+
+	public SobolAnalysis setVerbose(boolean verbose){
+		this.verbose = verbose;
+		return this;
+	}
+}
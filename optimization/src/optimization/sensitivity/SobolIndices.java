@@ -0,0 +1,122 @@
+package optimization.sensitivity;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * <pre>
+ * Result of a <b>SobolAnalysis</b>. The first order index of a parameter is the fraction of the
+ * output variance explained by that parameter alone, the total order index the fraction it
+ * explains including all of its interactions with the other parameters. A total order index
+ * close to zero means the parameter can be fixed at any value within its bounds. The confidence
+ * values are the half widths of 95% confidence intervals.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class SobolIndices {
+	private final String[] parameterNames;
+	private final double[] firstOrder;
+	private final double[] firstOrderConfidence;
+	private final double[] totalOrder;
+	private final double[] totalOrderConfidence;
+	private final double mean;
+	private final double variance;
+	private final long numberOfSamples;
+	private final long numberOfDiscardedSamples;
+	private final long numberOfEvaluations;
+
+	SobolIndices(String[] parameterNames, double[] firstOrder, double[] firstOrderConfidence, double[] totalOrder,
+			double[] totalOrderConfidence, double mean, double variance, long numberOfSamples, long numberOfDiscardedSamples,
+			long numberOfEvaluations){
+		this.parameterNames = parameterNames;
+		this.firstOrder = firstOrder;
+		this.firstOrderConfidence = firstOrderConfidence;
+		this.totalOrder = totalOrder;
+		this.totalOrderConfidence = totalOrderConfidence;
+		this.mean = mean;
+		this.variance = variance;
+		this.numberOfSamples = numberOfSamples;
+		this.numberOfDiscardedSamples = numberOfDiscardedSamples;
+		this.numberOfEvaluations = numberOfEvaluations;
+	}
+
+	public int getNumberOfParameters(){
+		return firstOrder.length;
+	}
+
+	public String getParameterName(int i_param){
+		return parameterNames[i_param];
+	}
+
+	public double getFirstOrder(int i_param){
+		return firstOrder[i_param];
+	}
+
+	public double getFirstOrderConfidence(int i_param){
+		return firstOrderConfidence[i_param];
+	}
+
+	public double getTotalOrder(int i_param){
+		return totalOrder[i_param];
+	}
+
+	public double getTotalOrderConfidence(int i_param){
+		return totalOrderConfidence[i_param];
+	}
+	/**
+	 * Returns the indices of the parameters from the largest to the smallest total order index
+	 * @return
+	 */
+	public int[] getParametersByImportance(){
+		return IntStream.range(0, totalOrder.length).boxed()
+				.sorted(Comparator.comparingDouble((Integer i_param) -> totalOrder[i_param]).reversed())
+				.mapToInt(Integer::intValue).toArray();
+	}
+	/**
+	 * Returns the mean output over the sample matrices A and B
+	 * @return
+	 */
+	public double getMean(){
+		return mean;
+	}
+	/**
+	 * Returns the output variance over the sample matrices A and B
+	 * @return
+	 */
+	public double getVariance(){
+		return variance;
+	}
+	/**
+	 * Returns the number of rows used
+	 * @return
+	 */
+	public long getNumberOfSamples(){
+		return numberOfSamples;
+	}
+	/**
+	 * Returns the number of rows left out because an output value was not a number
+	 * @return
+	 */
+	public long getNumberOfDiscardedSamples(){
+		return numberOfDiscardedSamples;
+	}
+
+	public long getNumberOfEvaluations(){
+		return numberOfEvaluations;
+	}
+	/**
+	 * Returns the indices as comma separated lines, one per parameter
+	 */
+	@Override
+	public String toString(){
+		StringBuilder text = new StringBuilder("Parameter,First Order,+/-,Total Order,+/-\n");
+		for (int i_param = 0;i_param < firstOrder.length;i_param++){
+			text.append(parameterNames[i_param]).append(',')
+				.append(String.format("%.4f,%.4f,%.4f,%.4f", firstOrder[i_param], firstOrderConfidence[i_param],
+						totalOrder[i_param], totalOrderConfidence[i_param])).append('\n');
+		}
+		return text.append("Samples: ").append(numberOfSamples).append(", Discarded: ").append(numberOfDiscardedSamples)
+				.append(", Evaluations: ").append(numberOfEvaluations).append(", Variance: ").append(variance).toString();
+	}
+}
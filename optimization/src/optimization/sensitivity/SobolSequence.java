@@ -0,0 +1,195 @@
+package optimization.sensitivity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <pre>
+ * Sobol low-discrepancy sequence in any number of dimensions. The primitive polynomials are
+ * found by search, in the order of the Joe and Kuo tables, and the first dimensions use the
+ * initial direction numbers of those tables. Further dimensions use random odd initial direction
+ * numbers from a fixed seed, which is still a valid but less uniform sequence.
+ * </pre>
+ * <pre>
+ * Points are generated in Gray code order, so a generator can start at any index and then
+ * produce every following point with one XOR per dimension.
+ * </pre>
+ * @author Matt
+ *
+ */
+class SobolSequence {
+	private static final int BITS = 52;
+	private static final double SCALE = Math.pow(2.0, -BITS);
+	//Initial direction numbers of dimensions 2 to 21 (Joe and Kuo, new-joe-kuo-6.21201)
+	private static final int[][] INITIAL_DIRECTION_NUMBERS = {
+			{1},
+			{1,3},
+			{1,3,1},
+			{1,1,1},
+			{1,1,3,3},
+			{1,3,5,13},
+			{1,1,5,5,17},
+			{1,1,5,5,5},
+			{1,1,7,11,19},
+			{1,1,5,1,1},
+			{1,1,1,3,11},
+			{1,3,5,5,31},
+			{1,3,3,9,7,49},
+			{1,1,1,15,21,21},
+			{1,3,1,13,27,49},
+			{1,1,1,15,7,5},
+			{1,3,1,15,13,25},
+			{1,1,5,5,19,61},
+			{1,3,7,11,23,15,103},
+			{1,3,7,13,13,15,69}};
+
+	private final int dimensions;
+	//directions[i_dim][i_bit]
+	private final long[][] directions;
+
+	SobolSequence(int dimensions){
+		this.dimensions = dimensions;
+		this.directions = new long[dimensions][BITS];
+		for (int i_bit = 0;i_bit < BITS;i_bit++){
+			directions[0][i_bit] = 1L << (BITS - 1 - i_bit);
+		}
+		List<long[]> polynomials = getPrimitivePolynomials(dimensions - 1);
+		Random random = new Random(21201);
+		for (int i_dim = 1;i_dim < dimensions;i_dim++){
+			int degree = (int)polynomials.get(i_dim - 1)[0];
+			long coefficients = polynomials.get(i_dim - 1)[1];
+			long[] m = new long[BITS];
+			for (int i_bit = 0;i_bit < Math.min(degree, BITS);i_bit++){
+				if (i_dim - 1 < INITIAL_DIRECTION_NUMBERS.length){
+					m[i_bit] = INITIAL_DIRECTION_NUMBERS[i_dim - 1][i_bit];
+				} else {
+					//Any odd number below 2^(i_bit + 1)
+					m[i_bit] = 2L*(long)(random.nextDouble()*(1L << i_bit)) + 1L;
+				}
+			}
+			for (int i_bit = degree;i_bit < BITS;i_bit++){
+				long value = m[i_bit - degree] ^ (m[i_bit - degree] << degree);
+				for (int i_coef = 1;i_coef < degree;i_coef++){
+					if (((coefficients >>> (degree - 1 - i_coef)) & 1L) != 0){
+						value ^= m[i_bit - i_coef] << i_coef;
+					}
+				}
+				m[i_bit] = value;
+			}
+			for (int i_bit = 0;i_bit < BITS;i_bit++){
+				directions[i_dim][i_bit] = m[i_bit] << (BITS - 1 - i_bit);
+			}
+		}
+	}
+
+	int getDimensions(){
+		return dimensions;
+	}
+	/**
+	 * Returns a generator of the points from the given index on
+	 * @param index
+	 * @return
+	 */
+	Generator generatorFrom(long index){
+		return new Generator(index);
+	}
+	/**
+	 * Generator of consecutive points, used by one thread
+	 */
+	class Generator{
+		private long index;
+		private final long[] state = new long[dimensions];
+
+		private Generator(long index){
+			this.index = index;
+			long grayCode = index ^ (index >>> 1);
+			for (int i_bit = 0;grayCode != 0;i_bit++, grayCode >>>= 1){
+				if ((grayCode & 1L) != 0){
+					for (int i_dim = 0;i_dim < dimensions;i_dim++){
+						state[i_dim] ^= directions[i_dim][i_bit];
+					}
+				}
+			}
+		}
+		/**
+		 * Writes the current point into the array and moves to the next one
+		 * @param point
+		 */
+		void next(double[] point){
+			for (int i_dim = 0;i_dim < dimensions;i_dim++){
+				point[i_dim] = state[i_dim]*SCALE;
+			}
+			index++;
+			int changedBit = Long.numberOfTrailingZeros(index);
+			for (int i_dim = 0;i_dim < dimensions;i_dim++){
+				state[i_dim] ^= directions[i_dim][changedBit];
+			}
+		}
+	}
+	/**
+	 * Returns the degree and the inner coefficients (without the leading and constant terms) of
+	 * the given number of primitive polynomials over GF(2), by increasing degree and coefficients
+	 */
+	private static List<long[]> getPrimitivePolynomials(int count){
+		List<long[]> polynomials = new ArrayList<long[]>();
+		for (int degree = 1;polynomials.size() < count;degree++){
+			for (long coefficients = 0;coefficients < (1L << (degree - 1)) && polynomials.size() < count;coefficients++){
+				long polynomial = (1L << degree) | (coefficients << 1) | 1L;
+				if (isPrimitive(polynomial, degree)){
+					polynomials.add(new long[]{degree, coefficients});
+				}
+			}
+		}
+		return polynomials;
+	}
+	/**
+	 * A polynomial of the given degree is primitive if x has the order 2^degree - 1 modulo the polynomial
+	 */
+	private static boolean isPrimitive(long polynomial, int degree){
+		long order = (1L << degree) - 1;
+		if (powerOfX(order, polynomial, degree) != 1L){
+			return false;
+		}
+		long remaining = order;
+		for (long factor = 2;factor*factor <= remaining;factor++){
+			if (remaining % factor == 0){
+				if (powerOfX(order/factor, polynomial, degree) == 1L){
+					return false;
+				}
+				while (remaining % factor == 0){
+					remaining /= factor;
+				}
+			}
+		}
+		return remaining == 1 || remaining == order || powerOfX(order/remaining, polynomial, degree) != 1L;
+	}
+
+	private static long powerOfX(long exponent, long polynomial, int degree){
+		long result = 1L;
+		long base = 2L;
+		while (exponent > 0){
+			if ((exponent & 1L) != 0){
+				result = multiply(result, base, polynomial, degree);
+			}
+			base = multiply(base, base, polynomial, degree);
+			exponent >>>= 1;
+		}
+		return result;
+	}
+
+	private static long multiply(long first, long second, long polynomial, int degree){
+		long result = 0L;
+		while (second != 0){
+			if ((second & 1L) != 0){
+				result ^= first;
+			}
+			second >>>= 1;
+			first <<= 1;
+			if (((first >>> degree) & 1L) != 0){
+				first ^= polynomial;
+			}
+		}
+		return result;
+	}
+}
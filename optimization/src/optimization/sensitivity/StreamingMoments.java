@@ -0,0 +1,52 @@
+package optimization.sensitivity;
+
+/**
+ * Running count, mean and sum of squared deviations of a stream of values (Welford). Moments of
+ * separate streams are merged exactly (Chan et al.), so every chunk of samples can keep its own
+ * moments and only those are combined.
+ * @author Matt
+ *
+ */
+final class StreamingMoments {
+	private long count = 0;
+	private double mean = 0.0;
+	private double squaredDeviations = 0.0;
+
+	void add(double value){
+		count++;
+		double deviation = value - mean;
+		mean += deviation/count;
+		squaredDeviations += deviation*(value - mean);
+	}
+
+	void merge(StreamingMoments other){
+		if (other.count == 0){
+			return;
+		}
+		long mergedCount = count + other.count;
+		double deviation = other.mean - mean;
+		mean += deviation*other.count/mergedCount;
+		squaredDeviations += other.squaredDeviations + deviation*deviation*count/mergedCount*other.count;
+		count = mergedCount;
+	}
+
+	long getCount(){
+		return count;
+	}
+
+	double getMean(){
+		return count > 0 ? mean : Double.NaN;
+	}
+	/**
+	 * Returns the sample variance
+	 */
+	double getVariance(){
+		return count > 1 ? squaredDeviations/(count - 1) : Double.NaN;
+	}
+	/**
+	 * Returns the standard error of the mean
+	 */
+	double getStandardError(){
+		return Math.sqrt(getVariance()/count);
+	}
+}
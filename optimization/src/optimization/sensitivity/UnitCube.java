@@ -0,0 +1,61 @@
+package optimization.sensitivity;
+
+import optimization.Parameter;
+
+/**
+ * Maps points of the unit cube onto parameter values: numbers linearly onto their bounds and
+ * integers and categories onto equally wide bins.
+ * @author Matt
+ *
+ */
+final class UnitCube {
+	private final Parameter[] template;
+	private final int[][] categoricalCodes;
+
+	UnitCube(Parameter[] template){
+		this.template = template;
+		this.categoricalCodes = new int[template.length][];
+		for (int i_param = 0;i_param < template.length;i_param++){
+			if (template[i_param].paramType == Parameter.ParameterType.CATEGORICAL){
+				categoricalCodes[i_param] = template[i_param].categoricalMap.values().stream()
+						.mapToInt(Integer::intValue).sorted().toArray();
+			}
+		}
+	}
+	/**
+	 * Sets a parameter to the value at the given unit coordinate
+	 * @param parameter
+	 * @param i_param
+	 * @param unitValue
+	 */
+	void set(Parameter parameter, int i_param, double unitValue){
+		Parameter definition = template[i_param];
+		switch(definition.paramType){
+		case CATEGORICAL:
+			int[] codes = categoricalCodes[i_param];
+			parameter.setCurrentValue(codes[getBin(unitValue, codes.length)]);
+			break;
+		case INTEGER:
+			int lowerBound = definition.lowerBound.intValue();
+			parameter.setCurrentValue(lowerBound + getBin(unitValue, definition.upperBound.intValue() - lowerBound + 1));
+			break;
+		default:
+			parameter.setCurrentValue(definition.lowerBound.doubleValue() + unitValue*definition.getRangeOfParameterValue());
+		}
+	}
+	/**
+	 * Sets every parameter to the value at the given unit coordinates, read from the offset on
+	 * @param parameters
+	 * @param unitValues
+	 * @param offset
+	 */
+	void set(Parameter[] parameters, double[] unitValues, int offset){
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			set(parameters[i_param], i_param, unitValues[offset + i_param]);
+		}
+	}
+
+	private static int getBin(double unitValue, int numberOfBins){
+		return Math.max(0, Math.min(numberOfBins - 1, (int)Math.floor(unitValue*numberOfBins)));
+	}
+}
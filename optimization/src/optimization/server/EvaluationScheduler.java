@@ -0,0 +1,172 @@
+package optimization.server;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptimizationAbortedException;
+import optimization.Parameter;
+
+/**
+ * <pre>
+ * This class runs the cost function evaluations of every job of an <b>OptimizationServer</b>
+ * on a fixed number of worker threads (one per core by default).
+ * </pre>
+ * <pre>
+ * Jobs are shared fairly with start-time weighted fair queuing: every job has a virtual time
+ * that advances by the wall time of each of its evaluations divided by its priority, and the
+ * workers always take the next evaluation of the ready job with the smallest virtual time. A
+ * job with expensive evaluations is charged for them and so can not starve the other jobs, and
+ * a job that becomes ready again starts at the current virtual time instead of catching up on
+ * the time it was idle.
+ * </pre>
+ * @author Matt
+ *
+ */
+class EvaluationScheduler {
+
+	private final Object lock = new Object();
+	private final PriorityQueue<OptimizationJob> readyJobs = new PriorityQueue<OptimizationJob>(
+			Comparator.comparingDouble((OptimizationJob job) -> job.virtualTime).thenComparingLong(OptimizationJob::getId));
+	private double currentVirtualTime = 0.0;
+	private boolean shutdown = false;
+	private Thread[] workers;
+
+	EvaluationScheduler(int numberOfWorkers){
+		workers = new Thread[numberOfWorkers];
+		for (int i_worker = 0;i_worker < numberOfWorkers;i_worker++){
+			workers[i_worker] = new Thread(this::runWorker, "optimization-server-worker-" + i_worker);
+			workers[i_worker].setDaemon(true);
+			workers[i_worker].start();
+		}
+	}
+	/**
+	 * Queues an evaluation for the job and blocks until a worker has run it
+	 * @param job
+	 * @param costFunction
+	 * @param parameters
+	 * @return
+	 * @throws OptimizationAbortedException if the job is cancelled or the server is shut down
+	 */
+	CostFunctionOutput_IF evaluate(OptimizationJob job, CostFunction_IF costFunction, Parameter[] parameters){
+		EvaluationTask task = new EvaluationTask(costFunction, parameters);
+		synchronized(lock){
+			if (shutdown || job.isCancelled()){
+				throw new OptimizationAbortedException("Job " + job.getId() + " was cancelled");
+			}
+			job.pendingTasks.add(task);
+			if (!job.ready){
+				job.virtualTime = Math.max(job.virtualTime, currentVirtualTime);
+				job.ready = true;
+				readyJobs.add(job);
+			}
+			lock.notify();
+		}
+		try {
+			return task.result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OptimizationAbortedException("Job " + job.getId() + " was interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+	/**
+	 * Fails the queued evaluations of a cancelled job. Evaluations already running complete.
+	 * @param job
+	 */
+	void cancel(OptimizationJob job){
+		synchronized(lock){
+			if (job.ready){
+				readyJobs.remove(job);
+				job.ready = false;
+			}
+			EvaluationTask task;
+			while ((task = job.pendingTasks.poll()) != null){
+				task.result.completeExceptionally(new OptimizationAbortedException("Job " + job.getId() + " was cancelled"));
+			}
+		}
+	}
+
+	private void runWorker(){
+		while (true){
+			OptimizationJob job;
+			EvaluationTask task;
+			synchronized(lock){
+				while (readyJobs.isEmpty() && !shutdown){
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (shutdown){
+					return;
+				}
+				job = readyJobs.poll();
+				task = job.pendingTasks.poll();
+				currentVirtualTime = job.virtualTime;
+				if (job.pendingTasks.isEmpty()){
+					job.ready = false;
+				} else {
+					readyJobs.add(job);
+				}
+			}
+			long startTime = System.nanoTime();
+			try {
+				task.result.complete(task.costFunction.evaluateCostFunction(task.parameters));
+			} catch (Throwable t){
+				task.result.completeExceptionally(t);
+			}
+			double elapsedTime = (System.nanoTime() - startTime)/1E9;
+			synchronized(lock){
+				if (job.ready){
+					readyJobs.remove(job);
+					job.virtualTime += elapsedTime/job.getPriority();
+					readyJobs.add(job);
+				} else {
+					job.virtualTime += elapsedTime/job.getPriority();
+				}
+			}
+		}
+	}
+	/**
+	 * Stops the workers and fails every queued evaluation
+	 */
+	void shutdown(){
+		synchronized(lock){
+			shutdown = true;
+			for (OptimizationJob job : readyJobs){
+				EvaluationTask task;
+				while ((task = job.pendingTasks.poll()) != null){
+					task.result.completeExceptionally(new OptimizationAbortedException("Optimization server was shut down"));
+				}
+				job.ready = false;
+			}
+			readyJobs.clear();
+			lock.notifyAll();
+		}
+	}
+
+	int getNumberOfWorkers(){
+		return workers.length;
+	}
+	/**
+	 * A queued cost function evaluation
+	 */
+	static class EvaluationTask{
+		private final CostFunction_IF costFunction;
+		private final Parameter[] parameters;
+		private final CompletableFuture<CostFunctionOutput_IF> result = new CompletableFuture<CostFunctionOutput_IF>();
+		private EvaluationTask(CostFunction_IF costFunction, Parameter[] parameters){
+			this.costFunction = costFunction;
+			this.parameters = parameters;
+		}
+	}
+}
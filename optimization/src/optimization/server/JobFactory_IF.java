@@ -0,0 +1,17 @@
+package optimization.server;
+
+import java.util.Map;
+
+import optimization.CostFunction_IF;
+import optimization.Optimizer_IF;
+
+/**
+ * This interface details the methods required to create the cost function and optimizer of a
+ * job submitted through the <b>OptimizationHttpFrontEnd</b> from the settings of the request.
+ * @author Matt
+ *
+ */
+public interface JobFactory_IF {
+	public CostFunction_IF createCostFunction(Map<String,String> settings);
+	public Optimizer_IF createOptimizer(Map<String,String> settings);
+}
@@ -0,0 +1,257 @@
+package optimization.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import optimization.BestDiscoveredSolution;
+
+/**
+ * <pre>
+ * This class is a minimal local HTTP front end for an <b>OptimizationServer</b>. Jobs are
+ * created by registered <b>JobFactory_IF</b>s from the settings given in the request.
+ * </pre>
+ * <pre>
+ * Endpoints (responses are JSON):
+ * 	POST   /jobs?type=name&amp;priority=n&amp;...  submits a job, other settings are passed to the factory
+ * 	GET    /jobs                           lists every job
+ * 	GET    /jobs/{id}                      returns the status of a job
+ * 	GET    /jobs/{id}/progress             streams a line each time the status or best value changes
+ * 	                                       (at most every 100 ms and at least every second) until the
+ * 	                                       job is finished
+ * 	DELETE /jobs/{id}                      cancels a job (POST /jobs/{id}/cancel also works)
+ * </pre>
+ * Settings can be given in the query string or as a form encoded request body.
+ * @author Matt
+ *
+ */
+public class OptimizationHttpFrontEnd {
+
+	private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+	//Improvements arriving faster than this are merged into one line
+	private static final long MIN_PROGRESS_INTERVAL_MILLIS = 100;
+
+	private final OptimizationServer server;
+	private final Map<String,JobFactory_IF> jobFactories = new ConcurrentHashMap<String,JobFactory_IF>();
+	private HttpServer httpServer = null;
+	private ExecutorService requestHandlers = null;
+
+	public OptimizationHttpFrontEnd(OptimizationServer server){
+		this.server = server;
+	}
+	/**
+	 * Registers a factory for the jobs submitted with the given type
+	 * @param type
+	 * @param jobFactory
+	 * @return
+	 */
+	public OptimizationHttpFrontEnd registerJobType(String type, JobFactory_IF jobFactory){
+		jobFactories.put(type, jobFactory);
+		return this;
+	}
+	/**
+	 * Starts listening on the loopback interface
+	 * @param port
+	 * @return
+	 * @throws IOException
+	 */
+	public OptimizationHttpFrontEnd start(int port) throws IOException{
+		httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+		requestHandlers = Executors.newCachedThreadPool((runnable) -> {
+			Thread thread = new Thread(runnable, "optimization-http");
+			thread.setDaemon(true);
+			return thread;
+		});
+		httpServer.setExecutor(requestHandlers);
+		httpServer.createContext("/jobs", this::handle);
+		httpServer.start();
+		return this;
+	}
+
+	public int getPort(){
+		return httpServer.getAddress().getPort();
+	}
+
+	public void stop(){
+		if (httpServer != null){
+			httpServer.stop(0);
+			requestHandlers.shutdownNow();
+		}
+	}
+
+	private void handle(HttpExchange exchange) throws IOException{
+		try {
+			String[] path = exchange.getRequestURI().getPath().split("/");
+			String method = exchange.getRequestMethod();
+			//path[0] is empty and path[1] is "jobs"
+			if (path.length == 2){
+				if (method.equals("POST")){
+					submit(exchange);
+				} else if (method.equals("GET")){
+					List<String> summaries = server.getJobs().stream().map(OptimizationHttpFrontEnd::toJson).collect(Collectors.toList());
+					respond(exchange, 200, "[" + String.join(",", summaries) + "]");
+				} else {
+					respond(exchange, 405, error("Method not allowed"));
+				}
+				return;
+			}
+			OptimizationJob job = server.getJob(parseId(path[2]));
+			if (job == null){
+				respond(exchange, 404, error("No job " + path[2]));
+			} else if (path.length == 3 && method.equals("GET")){
+				respond(exchange, 200, toJson(job));
+			} else if ((path.length == 3 && method.equals("DELETE")) || (path.length == 4 && path[3].equals("cancel") && method.equals("POST"))){
+				job.cancel();
+				respond(exchange, 200, toJson(job));
+			} else if (path.length == 4 && path[3].equals("progress") && method.equals("GET")){
+				streamProgress(exchange, job);
+			} else {
+				respond(exchange, 404, error("Unknown request"));
+			}
+		} catch (IllegalArgumentException e){
+			respond(exchange, 400, error(e.getMessage()));
+		} catch (RuntimeException e){
+			respond(exchange, 500, error(String.valueOf(e)));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void submit(HttpExchange exchange) throws IOException{
+		Map<String,String> settings = parseSettings(exchange.getRequestURI().getRawQuery());
+		settings.putAll(parseSettings(new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8)));
+		JobFactory_IF jobFactory = jobFactories.get(settings.get("type"));
+		if (jobFactory == null){
+			throw new IllegalArgumentException("Unknown job type: " + settings.get("type"));
+		}
+		int priority = settings.containsKey("priority") ? Integer.parseInt(settings.get("priority")) : 1;
+		OptimizationJob job = server.submit(jobFactory.createOptimizer(settings), jobFactory.createCostFunction(settings), priority);
+		respond(exchange, 201, toJson(job));
+	}
+
+	private void streamProgress(HttpExchange exchange, OptimizationJob job) throws IOException{
+		exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream output = exchange.getResponseBody();
+		long version = -1;
+		try {
+			while (true){
+				output.write((toJson(job) + "\n").getBytes(StandardCharsets.UTF_8));
+				output.flush();
+				if (job.isFinished()){
+					return;
+				}
+				long lastWriteTime = System.currentTimeMillis();
+				version = job.awaitProgress(version, PROGRESS_INTERVAL_MILLIS);
+				long sinceLastWrite = System.currentTimeMillis() - lastWriteTime;
+				if (sinceLastWrite < MIN_PROGRESS_INTERVAL_MILLIS && !job.isFinished()){
+					Thread.sleep(MIN_PROGRESS_INTERVAL_MILLIS - sinceLastWrite);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e){
+			//The client closed the stream
+		}
+	}
+
+	private static long parseId(String id){
+		try {
+			return Long.parseLong(id);
+		} catch (NumberFormatException e){
+			throw new IllegalArgumentException("Invalid job id: " + id);
+		}
+	}
+
+	private static Map<String,String> parseSettings(String encoded) throws UnsupportedEncodingException{
+		Map<String,String> settings = new HashMap<String,String>();
+		if (encoded == null || encoded.isEmpty()){
+			return settings;
+		}
+		for (String pair : encoded.split("&")){
+			int separator = pair.indexOf('=');
+			if (separator > 0){
+				settings.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"), URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+			}
+		}
+		return settings;
+	}
+
+	private static byte[] readAll(InputStream input) throws IOException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = input.read(buffer)) > 0){
+			bytes.write(buffer, 0, read);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void respond(HttpExchange exchange, int code, String body) throws IOException{
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(code, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+
+	private static String error(String message){
+		return "{\"error\":" + quote(message) + "}";
+	}
+
+	static String toJson(OptimizationJob job){
+		StringBuilder json = new StringBuilder();
+		json.append("{\"id\":").append(job.getId())
+			.append(",\"status\":\"").append(job.getStatus()).append('"')
+			.append(",\"priority\":").append(job.getPriority())
+			.append(",\"evaluations\":").append(job.getEvaluations());
+		BestDiscoveredSolution bestSolution = job.getBestSolution();
+		if (bestSolution != null){
+			json.append(",\"best\":").append(quote(bestSolution.getCostFunctionOutput().getOutputAsString()))
+				.append(",\"parameters\":[").append(bestSolution.getParameterValues().stream().map(String::valueOf).collect(Collectors.joining(",")))
+				.append(']');
+		}
+		if (job.getFailureMessage() != null){
+			json.append(",\"failure\":").append(quote(job.getFailureMessage()));
+		}
+		return json.append('}').toString();
+	}
+
+	private static String quote(String value){
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char character : String.valueOf(value).toCharArray()){
+			switch(character){
+			case '"':
+				quoted.append("\\\"");
+				break;
+			case '\\':
+				quoted.append("\\\\");
+				break;
+			case '\n':
+				quoted.append("\\n");
+				break;
+			default:
+				if (character < 0x20){
+					quoted.append(String.format("\\u%04x", (int)character));
+				} else {
+					quoted.append(character);
+				}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+}
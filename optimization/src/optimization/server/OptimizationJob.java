@@ -0,0 +1,193 @@
+package optimization.server;
+
+import java.util.ArrayDeque;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptimizationAbortedException;
+import optimization.Optimizer_IF;
+import optimization.Parameter;
+
+/**
+ * <pre>
+ * This class represents an optimization submitted to an <b>OptimizationServer</b>. It tracks
+ * the status, the number of evaluations and the best solution found so far, and can be polled,
+ * waited on or cancelled from any thread.
+ * </pre>
+ * <pre>
+ * The optimizer of the job is run with a cost function that passes every evaluation to the
+ * shared scheduler of the server.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class OptimizationJob {
+
+	/**
+	 * Enumeration of job states
+	 * @author Matt
+	 *
+	 */
+	public enum JobStatus{
+		QUEUED,
+		RUNNING,
+		COMPLETED,
+		CANCELLED,
+		FAILED
+	}
+
+	private final long id;
+	private final int priority;
+	private final Optimizer_IF optimizer;
+	private final CostFunction_IF costFunction;
+	private final EvaluationScheduler scheduler;
+	private final long submitTime = System.currentTimeMillis();
+	private volatile JobStatus status = JobStatus.QUEUED;
+	private volatile boolean cancelled = false;
+	private long evaluations = 0;
+	private BestDiscoveredSolution bestSolution = null;
+	private String failureMessage = null;
+	//Incremented on every change of status or best solution
+	private long version = 0;
+
+	//Scheduling state, guarded by the lock of the scheduler
+	final ArrayDeque<EvaluationScheduler.EvaluationTask> pendingTasks = new ArrayDeque<EvaluationScheduler.EvaluationTask>();
+	double virtualTime = 0.0;
+	boolean ready = false;
+
+	OptimizationJob(long id, int priority, Optimizer_IF optimizer, CostFunction_IF costFunction, EvaluationScheduler scheduler){
+		this.id = id;
+		this.priority = Math.max(1, priority);
+		this.optimizer = optimizer;
+		this.costFunction = costFunction;
+		this.scheduler = scheduler;
+	}
+	/**
+	 * Runs the optimization on the calling thread
+	 */
+	void run(){
+		if (cancelled){
+			return;
+		}
+		setStatus(JobStatus.RUNNING);
+		try {
+			BestDiscoveredSolution result = optimizer.optimize((parameters) -> evaluate(parameters));
+			synchronized(this){
+				if (result != null){
+					bestSolution = result;
+				}
+			}
+			setStatus(cancelled ? JobStatus.CANCELLED : JobStatus.COMPLETED);
+		} catch (OptimizationAbortedException e){
+			setStatus(JobStatus.CANCELLED);
+		} catch (RuntimeException e){
+			synchronized(this){
+				failureMessage = String.valueOf(e);
+			}
+			setStatus(JobStatus.FAILED);
+		}
+	}
+
+	private CostFunctionOutput_IF evaluate(Parameter[] parameters){
+		if (cancelled){
+			throw new OptimizationAbortedException("Job " + id + " was cancelled");
+		}
+		CostFunctionOutput_IF output = scheduler.evaluate(this, costFunction, parameters);
+		synchronized(this){
+			evaluations++;
+			if (output.isSolutionWithinRestraints() && (bestSolution == null
+					|| bestSolution.getCostFunctionOutput().isNewCostFunctionOutputBetter(output))){
+				bestSolution = new BestDiscoveredSolution(parameters, output);
+				version++;
+				notifyAll();
+			}
+		}
+		return output;
+	}
+
+	private void setStatus(JobStatus status){
+		synchronized(this){
+			this.status = status;
+			version++;
+			notifyAll();
+		}
+	}
+	/**
+	 * Cancels the job. A queued job never starts and a running job is stopped at its next
+	 * evaluation, keeping the best solution found so far.
+	 */
+	public void cancel(){
+		cancelled = true;
+		scheduler.cancel(this);
+		synchronized(this){
+			if (status == JobStatus.QUEUED){
+				setStatus(JobStatus.CANCELLED);
+			}
+		}
+	}
+
+	public boolean isCancelled(){
+		return cancelled;
+	}
+
+	public boolean isFinished(){
+		return status != JobStatus.QUEUED && status != JobStatus.RUNNING;
+	}
+	/**
+	 * Blocks until the job is finished
+	 * @return the best solution found
+	 * @throws InterruptedException
+	 */
+	public synchronized BestDiscoveredSolution awaitCompletion() throws InterruptedException{
+		while (!isFinished()){
+			wait();
+		}
+		return bestSolution;
+	}
+	/**
+	 * Blocks until the status or best solution of the job changes from the given version or the
+	 * timeout elapses
+	 * @param lastVersion version returned by the previous call (0 for the first call)
+	 * @param timeoutMillis
+	 * @return the current version
+	 * @throws InterruptedException
+	 */
+	public synchronized long awaitProgress(long lastVersion, long timeoutMillis) throws InterruptedException{
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		long remaining = timeoutMillis;
+		while (version == lastVersion && !isFinished() && remaining > 0){
+			wait(remaining);
+			remaining = deadline - System.currentTimeMillis();
+		}
+		return version;
+	}
+
+	public long getId(){
+		return id;
+	}
+
+	public int getPriority(){
+		return priority;
+	}
+
+	public long getSubmitTime(){
+		return submitTime;
+	}
+
+	public JobStatus getStatus(){
+		return status;
+	}
+
+	public synchronized long getEvaluations(){
+		return evaluations;
+	}
+
+	public synchronized BestDiscoveredSolution getBestSolution(){
+		return bestSolution;
+	}
+
+	public synchronized String getFailureMessage(){
+		return failureMessage;
+	}
+}
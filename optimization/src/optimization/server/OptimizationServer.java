@@ -0,0 +1,179 @@
+package optimization.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import optimization.CostFunction_IF;
+import optimization.Optimizer_IF;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+
+/**
+ * <pre>
+ * This class is an embeddable server that runs many optimization jobs at once.
+ * </pre>
+ * <pre>
+ * Submitted jobs are queued by priority (then by submission order) and up to a maximum number
+ * of them are active at a time. Each active job runs its optimizer on a lightweight driver
+ * thread, but every cost function evaluation is executed by the shared <b>EvaluationScheduler</b>,
+ * which has one worker per core and shares the workers fairly between the active jobs in
+ * proportion to their priorities. The machine is therefore kept busy whenever enough jobs are
+ * active without oversubscribing the cores, and one job with slow evaluations can not starve
+ * the others.
+ * </pre>
+ * <pre>
+ * <b>Note:</b> Only the cost function evaluations are scheduled. The bookkeeping of the optimizers
+ * runs on the driver threads, which spend nearly all of their time waiting for evaluations.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class OptimizationServer {
+
+	private final EvaluationScheduler scheduler;
+	private final int maxActiveJobs;
+	private final AtomicLong nextJobId = new AtomicLong(1);
+	private final Map<Long,OptimizationJob> jobs = new ConcurrentHashMap<Long,OptimizationJob>();
+	private final PriorityQueue<OptimizationJob> queuedJobs = new PriorityQueue<OptimizationJob>(
+			Comparator.comparingInt((OptimizationJob job) -> -job.getPriority()).thenComparingLong(OptimizationJob::getId));
+	private final ExecutorService drivers;
+	private int numberOfActiveJobs = 0;
+	private boolean shutdown = false;
+
+	/**
+	 * Constructor with one evaluation worker per available processor and up to four active
+	 * jobs per worker
+	 */
+	public OptimizationServer(){
+		this(Runtime.getRuntime().availableProcessors(), 4*Runtime.getRuntime().availableProcessors());
+	}
+	/**
+	 * Constructor that defines the number of evaluation workers and the maximum number of jobs
+	 * that are active at the same time. Further jobs wait in the queue.
+	 * @param numberOfWorkers
+	 * @param maxActiveJobs
+	 */
+	public OptimizationServer(int numberOfWorkers, int maxActiveJobs){
+		this.scheduler = new EvaluationScheduler(Math.max(1, numberOfWorkers));
+		this.maxActiveJobs = Math.max(1, maxActiveJobs);
+		this.drivers = Executors.newCachedThreadPool((runnable) -> {
+			Thread thread = new Thread(runnable, "optimization-server-job");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	/**
+	 * Submits a job that optimizes the cost function with the given optimizer
+	 * @param optimizer
+	 * @param costFunction
+	 * @param priority share of the workers relative to other jobs (at least 1); higher priority
+	 * jobs are also started first
+	 * @return
+	 */
+	public OptimizationJob submit(Optimizer_IF optimizer, CostFunction_IF costFunction, int priority){
+		OptimizationJob job = new OptimizationJob(nextJobId.getAndIncrement(), priority, optimizer, costFunction, scheduler);
+		jobs.put(job.getId(), job);
+		synchronized(this){
+			if (shutdown){
+				job.cancel();
+				return job;
+			}
+			queuedJobs.add(job);
+			startQueuedJobs();
+		}
+		return job;
+	}
+	/**
+	 * Submits a job that optimizes the cost function over the given parameters with a
+	 * <b>ParticleSwarm</b> that does not print its progress
+	 * @param costFunction
+	 * @param priority
+	 * @param numberOfParticles
+	 * @param maxGenerations
+	 * @param parameters
+	 * @return
+	 */
+	public OptimizationJob submit(CostFunction_IF costFunction, int priority, int numberOfParticles, int maxGenerations,
+			ParticleParameter... parameters){
+		ParticleSwarm swarm = new ParticleSwarm(numberOfParticles, maxGenerations, 0.1, parameters).setVerbose(false);
+		return submit(swarm, costFunction, priority);
+	}
+
+	private synchronized void startQueuedJobs(){
+		while (!shutdown && numberOfActiveJobs < maxActiveJobs && !queuedJobs.isEmpty()){
+			OptimizationJob job = queuedJobs.poll();
+			if (job.isCancelled()){
+				continue;
+			}
+			numberOfActiveJobs++;
+			drivers.execute(() -> {
+				try {
+					job.run();
+				} finally {
+					jobFinished();
+				}
+			});
+		}
+	}
+
+	private synchronized void jobFinished(){
+		numberOfActiveJobs--;
+		startQueuedJobs();
+	}
+
+	public OptimizationJob getJob(long id){
+		return jobs.get(id);
+	}
+	/**
+	 * Returns every job submitted to the server ordered by id
+	 * @return
+	 */
+	public List<OptimizationJob> getJobs(){
+		List<OptimizationJob> allJobs = new ArrayList<OptimizationJob>(jobs.values());
+		allJobs.sort(Comparator.comparingLong(OptimizationJob::getId));
+		return allJobs;
+	}
+	/**
+	 * Removes a finished job from the server
+	 * @param id
+	 * @return true if the job was removed
+	 */
+	public boolean removeJob(long id){
+		OptimizationJob job = jobs.get(id);
+		if (job == null || !job.isFinished()){
+			return false;
+		}
+		return jobs.remove(id) != null;
+	}
+
+	public synchronized int getNumberOfActiveJobs(){
+		return numberOfActiveJobs;
+	}
+
+	public synchronized int getNumberOfQueuedJobs(){
+		return queuedJobs.size();
+	}
+
+	public int getNumberOfWorkers(){
+		return scheduler.getNumberOfWorkers();
+	}
+	/**
+	 * Cancels every job and stops the workers
+	 */
+	public void shutdown(){
+		synchronized(this){
+			shutdown = true;
+			queuedJobs.clear();
+		}
+		jobs.values().forEach(OptimizationJob::cancel);
+		scheduler.shutdown();
+		drivers.shutdown();
+	}
+}
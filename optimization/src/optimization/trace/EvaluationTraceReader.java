@@ -0,0 +1,149 @@
+package optimization.trace;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <pre>
+ * This class streams a trace file written by <b>EvaluationTraceRecorder</b> back one block
+ * at a time. Each block is exposed as primitive column arrays so that analysis code can work
+ * on a column without touching the others.
+ * </pre>
+ * <pre>
+ * Usage:
+ * 	try (EvaluationTraceReader reader = new EvaluationTraceReader(traceFile)){
+ * 		while (reader.nextBlock()){
+ * 			double[] fitness = reader.getFitness();
+ * 			for (int i_record = 0;i_record &lt; reader.getBlockSize();i_record++){ ... }
+ * 		}
+ * 	}
+ * </pre>
+ * The column arrays are reused between blocks and may be longer than the block size.
+ * @author Matt
+ *
+ */
+public class EvaluationTraceReader implements AutoCloseable {
+
+	private final FileChannel channel;
+	private final int numberOfParameters;
+	private final long startEpochMillis;
+	private long filePosition = EvaluationTraceRecorder.HEADER_BYTES;
+	private int blockSize = 0;
+	private long[] timestamps = new long[0];
+	private long[] threadIds = new long[0];
+	private int[] generations = new int[0];
+	private byte[] feasible = new byte[0];
+	private double[] fitness = new double[0];
+	private double[][] parameterValues;
+
+	public EvaluationTraceReader(Path traceFile) throws IOException{
+		this.channel = FileChannel.open(traceFile, StandardOpenOption.READ);
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, EvaluationTraceRecorder.HEADER_BYTES);
+		if (header.getInt() != EvaluationTraceRecorder.FILE_MAGIC || header.getInt() != EvaluationTraceRecorder.VERSION){
+			channel.close();
+			throw new IOException("Unsupported evaluation trace file: " + traceFile);
+		}
+		this.numberOfParameters = header.getInt();
+		this.startEpochMillis = header.getLong();
+		this.parameterValues = new double[numberOfParameters][0];
+	}
+	/**
+	 * Reads the next block of records
+	 * @return false when the end of the file has been reached
+	 * @throws IOException if the file is corrupt
+	 */
+	public boolean nextBlock() throws IOException{
+		if (filePosition + 2*Integer.BYTES > channel.size()){
+			return false;
+		}
+		MappedByteBuffer blockHeader = channel.map(FileChannel.MapMode.READ_ONLY, filePosition, 2*Integer.BYTES);
+		if (blockHeader.getInt() != EvaluationTraceRecorder.BLOCK_MAGIC){
+			throw new IOException("Corrupt evaluation trace block at byte " + filePosition);
+		}
+		int count = blockHeader.getInt();
+		long blockBytes = count*(2L*Long.BYTES + Integer.BYTES + 1L + Double.BYTES + (long)numberOfParameters*Double.BYTES);
+		if (filePosition + 2*Integer.BYTES + blockBytes > channel.size()){
+			return false;
+		}
+		ensureCapacity(count);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, filePosition + 2*Integer.BYTES, blockBytes);
+		buffer.asLongBuffer().get(timestamps, 0, count);
+		buffer.position(buffer.position() + count*Long.BYTES);
+		buffer.asLongBuffer().get(threadIds, 0, count);
+		buffer.position(buffer.position() + count*Long.BYTES);
+		buffer.asIntBuffer().get(generations, 0, count);
+		buffer.position(buffer.position() + count*Integer.BYTES);
+		buffer.get(feasible, 0, count);
+		buffer.asDoubleBuffer().get(fitness, 0, count);
+		buffer.position(buffer.position() + count*Double.BYTES);
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			buffer.asDoubleBuffer().get(parameterValues[i_param], 0, count);
+			buffer.position(buffer.position() + count*Double.BYTES);
+		}
+		filePosition += 2*Integer.BYTES + blockBytes;
+		blockSize = count;
+		return true;
+	}
+
+	private void ensureCapacity(int count){
+		if (timestamps.length >= count){
+			return;
+		}
+		timestamps = new long[count];
+		threadIds = new long[count];
+		generations = new int[count];
+		feasible = new byte[count];
+		fitness = new double[count];
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			parameterValues[i_param] = new double[count];
+		}
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+	public int getNumberOfParameters() {
+		return numberOfParameters;
+	}
+	/**
+	 * Wall clock time in milliseconds at which the recorder was created
+	 * @return
+	 */
+	public long getStartEpochMillis() {
+		return startEpochMillis;
+	}
+	/**
+	 * Nanoseconds since the recorder was created at which each evaluation completed
+	 * @return
+	 */
+	public long[] getTimestamps() {
+		return timestamps;
+	}
+	public long[] getThreadIds() {
+		return threadIds;
+	}
+	public int[] getGenerations() {
+		return generations;
+	}
+	/**
+	 * 1 if the output was within the restraints of the cost function, 0 otherwise
+	 * @return
+	 */
+	public byte[] getFeasible() {
+		return feasible;
+	}
+	public double[] getFitness() {
+		return fitness;
+	}
+	public double[] getParameterValues(int parameterIndex) {
+		return parameterValues[parameterIndex];
+	}
+
+	@Override
+	public void close() throws IOException{
+		channel.close();
+	}
+}
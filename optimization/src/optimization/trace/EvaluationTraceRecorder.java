@@ -0,0 +1,326 @@
+package optimization.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.EvaluationListener_IF;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * This class records every cost function evaluation it is notified of to an append-only
+ * binary trace file. Register it with an optimizer as an <b>EvaluationListener_IF</b> and
+ * close it when the run is complete.
+ * </pre>
+ * <pre>
+ * Evaluating threads copy the record into a preallocated lock-free ring buffer made of
+ * primitive arrays (a slot is claimed with a CAS on the tail sequence and published with an
+ * ordered store of its sequence number). A single drain thread moves published records into
+ * column arrays and appends them to the file as blocks with positional writes from one reused
+ * direct buffer, so the memory used does not grow with the length of the trace. When
+ * the ring is full the evaluating thread yields until the drain thread catches up, so no
+ * record is ever dropped.
+ * </pre>
+ * <pre>
+ * If a write fails, the file is cut back to the last complete block and no further records
+ * are accepted. The first failure is thrown from <b>flush</b> and <b>close</b>.
+ * </pre>
+ * <pre>
+ * File layout (big endian):
+ * 	header: int magic, int version, int numberOfParameters, long startEpochMillis
+ * 	blocks: int blockMagic, int count, long[count] nanosSinceStart, long[count] threadIds,
+ * 	        int[count] generations, byte[count] feasible, double[count] fitness,
+ * 	        numberOfParameters x double[count] parameter values
+ * </pre>
+ * <b>Note</b>: The fitness column is NaN for outputs that do not implement <b>ScalarCostFunctionOutput_IF</b>.
+ * @author Matt
+ *
+ */
+public class EvaluationTraceRecorder implements EvaluationListener_IF, AutoCloseable {
+	static final int FILE_MAGIC = 0x54524345;
+	static final int BLOCK_MAGIC = 0x54524342;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 3*Integer.BYTES + Long.BYTES;
+	private static final long FLUSH_INTERVAL_NANOS = 100_000_000L;
+
+	private final int numberOfParameters;
+	private final int mask;
+	private final long startNanos = System.nanoTime();
+	//Ring buffer slots
+	private final long[] ringTimestamps;
+	private final long[] ringThreadIds;
+	private final int[] ringGenerations;
+	private final boolean[] ringFeasible;
+	private final double[] ringFitness;
+	private final double[] ringParameters;
+	private final AtomicLongArray published;
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+	//Column arrays of the block being assembled by the drain thread
+	private final int blockSize;
+	private final long[] blockTimestamps;
+	private final long[] blockThreadIds;
+	private final int[] blockGenerations;
+	private final byte[] blockFeasible;
+	private final double[] blockFitness;
+	private final double[][] blockParameters;
+	private int blockCount = 0;
+	//Encoded block, sized for a full block
+	private final ByteBuffer blockBuffer;
+
+	private final FileChannel channel;
+	private long filePosition;
+	private final Thread drainThread;
+	private volatile boolean closed = false;
+	//Written by the drain thread only
+	private volatile long recordsWritten = 0;
+	//First write failure, after which records are no longer accepted
+	private volatile IOException failure = null;
+	private volatile boolean flushRequested = false;
+
+	/**
+	 * Creates (or truncates) the trace file and starts the drain thread
+	 * @param traceFile
+	 * @param numberOfParameters number of parameters passed to every evaluation
+	 * @param ringCapacity number of records the ring buffer holds, rounded up to a power of two
+	 * @throws IOException
+	 */
+	public EvaluationTraceRecorder(Path traceFile, int numberOfParameters, int ringCapacity) throws IOException{
+		this.numberOfParameters = numberOfParameters;
+		int capacity = Integer.highestOneBit(Math.max(2, ringCapacity - 1)) << 1;
+		this.mask = capacity - 1;
+		this.ringTimestamps = new long[capacity];
+		this.ringThreadIds = new long[capacity];
+		this.ringGenerations = new int[capacity];
+		this.ringFeasible = new boolean[capacity];
+		this.ringFitness = new double[capacity];
+		this.ringParameters = new double[capacity*numberOfParameters];
+		this.published = new AtomicLongArray(capacity);
+		for (int i_slot = 0;i_slot < capacity;i_slot++){
+			published.set(i_slot, -1L);
+		}
+		this.blockSize = Math.max(1, capacity/2);
+		this.blockTimestamps = new long[blockSize];
+		this.blockThreadIds = new long[blockSize];
+		this.blockGenerations = new int[blockSize];
+		this.blockFeasible = new byte[blockSize];
+		this.blockFitness = new double[blockSize];
+		this.blockParameters = new double[numberOfParameters][blockSize];
+		this.blockBuffer = ByteBuffer.allocateDirect((int)getBlockBytes(blockSize));
+
+		this.channel = FileChannel.open(traceFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(FILE_MAGIC).putInt(VERSION).putInt(numberOfParameters).putLong(System.currentTimeMillis());
+		header.flip();
+		this.filePosition = 0;
+		writeFully(header);
+
+		this.drainThread = new Thread(this::drain, "evaluation-trace-drain");
+		this.drainThread.setDaemon(true);
+		this.drainThread.start();
+	}
+	/**
+	 * Creates a recorder with a ring buffer of 65536 records
+	 * @param traceFile
+	 * @param numberOfParameters
+	 * @throws IOException
+	 */
+	public EvaluationTraceRecorder(Path traceFile, int numberOfParameters) throws IOException{
+		this(traceFile, numberOfParameters, 1 << 16);
+	}
+
+	@Override
+	public void evaluationCompleted(int generation, Parameter[] parameters, CostFunctionOutput_IF output) {
+		if (failure != null){
+			return;
+		}
+		long timestamp = System.nanoTime() - startNanos;
+		long sequence = claimSlot();
+		int slot = (int)(sequence & mask);
+		ringTimestamps[slot] = timestamp;
+		ringThreadIds[slot] = Thread.currentThread().getId();
+		ringGenerations[slot] = generation;
+		ringFeasible[slot] = output.isSolutionWithinRestraints();
+		ringFitness[slot] = output instanceof ScalarCostFunctionOutput_IF
+				? ((ScalarCostFunctionOutput_IF)output).getFitness() : Double.NaN;
+		int offset = slot*numberOfParameters;
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			ringParameters[offset + i_param] = parameters[i_param].getCurrentValueAsDouble();
+		}
+		published.lazySet(slot, sequence);
+	}
+
+	private long claimSlot(){
+		long cachedHead = head.get();
+		while (true){
+			long sequence = tail.get();
+			if (sequence - cachedHead > mask){
+				cachedHead = head.get();
+				if (sequence - cachedHead > mask){
+					Thread.yield();
+					continue;
+				}
+			}
+			if (tail.compareAndSet(sequence, sequence + 1)){
+				return sequence;
+			}
+		}
+	}
+
+	private void drain(){
+		long lastFlush = System.nanoTime();
+		while (true){
+			boolean wasClosed = closed;
+			long sequence = head.get();
+			int slot = (int)(sequence & mask);
+			if (published.get(slot) == sequence){
+				copyToBlock(slot);
+				head.lazySet(sequence + 1);
+				if (blockCount == blockSize){
+					writeBlock();
+					lastFlush = System.nanoTime();
+				}
+				continue;
+			}
+			if (wasClosed && sequence == tail.get()){
+				break;
+			}
+			if (blockCount > 0 && (flushRequested || System.nanoTime() - lastFlush > FLUSH_INTERVAL_NANOS)){
+				writeBlock();
+				lastFlush = System.nanoTime();
+			}
+			LockSupport.parkNanos(50_000L);
+		}
+		writeBlock();
+	}
+
+	private void copyToBlock(int slot){
+		blockTimestamps[blockCount] = ringTimestamps[slot];
+		blockThreadIds[blockCount] = ringThreadIds[slot];
+		blockGenerations[blockCount] = ringGenerations[slot];
+		blockFeasible[blockCount] = (byte)(ringFeasible[slot] ? 1 : 0);
+		blockFitness[blockCount] = ringFitness[slot];
+		int offset = slot*numberOfParameters;
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			blockParameters[i_param][blockCount] = ringParameters[offset + i_param];
+		}
+		blockCount++;
+	}
+
+	private long getBlockBytes(int count){
+		return 2L*Integer.BYTES + count*(2L*Long.BYTES + Integer.BYTES + 1L + Double.BYTES
+				+ (long)numberOfParameters*Double.BYTES);
+	}
+
+	private void writeBlock(){
+		if (blockCount == 0){
+			return;
+		}
+		if (failure != null){
+			//The trace is already incomplete, records claimed before the failure are discarded
+			blockCount = 0;
+			return;
+		}
+		int count = blockCount;
+		ByteBuffer buffer = blockBuffer;
+		buffer.clear();
+		buffer.putInt(BLOCK_MAGIC).putInt(count);
+		buffer.asLongBuffer().put(blockTimestamps, 0, count);
+		buffer.position(buffer.position() + count*Long.BYTES);
+		buffer.asLongBuffer().put(blockThreadIds, 0, count);
+		buffer.position(buffer.position() + count*Long.BYTES);
+		buffer.asIntBuffer().put(blockGenerations, 0, count);
+		buffer.position(buffer.position() + count*Integer.BYTES);
+		buffer.put(blockFeasible, 0, count);
+		buffer.asDoubleBuffer().put(blockFitness, 0, count);
+		buffer.position(buffer.position() + count*Double.BYTES);
+		for (int i_param = 0;i_param < numberOfParameters;i_param++){
+			buffer.asDoubleBuffer().put(blockParameters[i_param], 0, count);
+			buffer.position(buffer.position() + count*Double.BYTES);
+		}
+		buffer.flip();
+		long blockStart = filePosition;
+		try {
+			writeFully(buffer);
+			recordsWritten += count;
+		} catch (IOException e) {
+			//Remove the part of the block that was written so the file only holds complete blocks
+			try {
+				channel.truncate(blockStart);
+			} catch (IOException truncateFailure) {
+				e.addSuppressed(truncateFailure);
+			}
+			filePosition = blockStart;
+			failure = e;
+		}
+		blockCount = 0;
+	}
+	/**
+	 * Writes the remaining bytes of the buffer at the end of the file
+	 */
+	private void writeFully(ByteBuffer buffer) throws IOException{
+		while (buffer.hasRemaining()){
+			filePosition += channel.write(buffer, filePosition);
+		}
+	}
+	/**
+	 * Returns the number of records appended to the file so far
+	 * @return
+	 */
+	public long getRecordsWritten(){
+		return recordsWritten;
+	}
+	/**
+	 * Blocks until every record completed before the call has been appended to the file
+	 * @throws IOException the first write failure of the recorder
+	 */
+	public void flush() throws IOException{
+		long target = tail.get();
+		flushRequested = true;
+		try {
+			while (recordsWritten < target && failure == null && drainThread.isAlive()){
+				LockSupport.parkNanos(50_000L);
+				if (Thread.currentThread().isInterrupted()){
+					break;
+				}
+			}
+		} finally {
+			flushRequested = false;
+		}
+		if (failure != null){
+			throw failure;
+		}
+	}
+	/**
+	 * Drains all pending records to the file and closes it
+	 * @throws IOException the first write failure of the recorder, or a failure to close the file
+	 */
+	@Override
+	public void close() throws IOException{
+		closed = true;
+		try {
+			drainThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			if (failure == null){
+				channel.force(true);
+			}
+		} finally {
+			channel.close();
+		}
+		if (failure != null){
+			throw failure;
+		}
+	}
+}
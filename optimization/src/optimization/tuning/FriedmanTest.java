@@ -0,0 +1,133 @@
+package optimization.tuning;
+
+/**
+ * <pre>
+ * Friedman test over a table of ranks (one row per block, one column per candidate) and the
+ * post-hoc comparison of rank sums used by F-Race (Conover, Practical Nonparametric Statistics).
+ * </pre>
+ * <pre>
+ * The chi-square and Student t distributions are approximated from the normal distribution
+ * (Wilson-Hilferty and Cornish-Fisher), which is accurate to a few percent in the tail
+ * probabilities at the block counts of a race.
+ * </pre>
+ * @author Matt
+ *
+ */
+class FriedmanTest {
+	private final double[] rankSums;
+	private final int numberOfBlocks;
+	private final int numberOfCandidates;
+	private final double statistic;
+	private final double rankVariance;
+
+	/**
+	 * @param ranks ranks[i_block][i_cand], with ties given their average rank
+	 */
+	FriedmanTest(double[][] ranks){
+		numberOfBlocks = ranks.length;
+		numberOfCandidates = ranks[0].length;
+		rankSums = new double[numberOfCandidates];
+		double squaredRankSum = 0.0;
+		for (double[] blockRanks : ranks){
+			for (int i_cand = 0;i_cand < numberOfCandidates;i_cand++){
+				rankSums[i_cand] += blockRanks[i_cand];
+				squaredRankSum += blockRanks[i_cand]*blockRanks[i_cand];
+			}
+		}
+		double correction = numberOfBlocks*numberOfCandidates*(numberOfCandidates + 1.0)*(numberOfCandidates + 1.0)/4.0;
+		rankVariance = squaredRankSum - correction;
+		double deviationSum = 0.0;
+		for (int i_cand = 0;i_cand < numberOfCandidates;i_cand++){
+			double deviation = rankSums[i_cand] - numberOfBlocks*(numberOfCandidates + 1.0)/2.0;
+			deviationSum += deviation*deviation;
+		}
+		statistic = rankVariance > 0.0 ? (numberOfCandidates - 1.0)*deviationSum/rankVariance : 0.0;
+	}
+	/**
+	 * Returns true if the null hypothesis that all candidates perform alike is rejected
+	 * @param significanceLevel
+	 * @return
+	 */
+	boolean isSignificant(double significanceLevel){
+		return numberOfBlocks > 1 && getChiSquareTail(statistic, numberOfCandidates - 1) < significanceLevel;
+	}
+	/**
+	 * Returns the difference of rank sums above which two candidates differ significantly
+	 * @param significanceLevel
+	 * @return
+	 */
+	double getCriticalDifference(double significanceLevel){
+		double degreesOfFreedom = (numberOfBlocks - 1.0)*(numberOfCandidates - 1.0);
+		double t = getStudentQuantile(1.0 - significanceLevel/2.0, degreesOfFreedom);
+		double variance = 2.0*numberOfBlocks*rankVariance*(1.0 - statistic/(numberOfBlocks*(numberOfCandidates - 1.0)))/degreesOfFreedom;
+		return t*Math.sqrt(Math.max(0.0, variance));
+	}
+
+	double[] getRankSums(){
+		return rankSums;
+	}
+
+	/**
+	 * Ranks the values of one block in increasing order, ties receiving their average rank
+	 * @param compare compare[i][j] &lt; 0 if candidate i is better than candidate j
+	 * @return
+	 */
+	static double[] rank(int[][] compare){
+		double[] ranks = new double[compare.length];
+		for (int i_cand = 0;i_cand < compare.length;i_cand++){
+			ranks[i_cand] = 1.0;
+			for (int j_cand = 0;j_cand < compare.length;j_cand++){
+				if (j_cand == i_cand){
+					continue;
+				}
+				if (compare[j_cand][i_cand] < 0){
+					ranks[i_cand] += 1.0;
+				} else if (compare[j_cand][i_cand] == 0){
+					ranks[i_cand] += 0.5;
+				}
+			}
+		}
+		return ranks;
+	}
+
+	private static double getChiSquareTail(double x, double degreesOfFreedom){
+		if (x <= 0.0){
+			return 1.0;
+		}
+		double variance = 2.0/(9.0*degreesOfFreedom);
+		double z = (Math.cbrt(x/degreesOfFreedom) - (1.0 - variance))/Math.sqrt(variance);
+		return 1.0 - getNormalCdf(z);
+	}
+
+	private static double getStudentQuantile(double p, double degreesOfFreedom){
+		double z = getNormalQuantile(p);
+		double z3 = z*z*z;
+		double z5 = z3*z*z;
+		return z + (z3 + z)/(4.0*degreesOfFreedom) + (5.0*z5 + 16.0*z3 + 3.0*z)/(96.0*degreesOfFreedom*degreesOfFreedom);
+	}
+	/**
+	 * Standard normal cumulative distribution (Abramowitz and Stegun 7.1.26)
+	 */
+	private static double getNormalCdf(double z){
+		double x = Math.abs(z)/Math.sqrt(2.0);
+		double t = 1.0/(1.0 + 0.3275911*x);
+		double erf = 1.0 - t*(0.254829592 + t*(-0.284496736 + t*(1.421413741 + t*(-1.453152027 + t*1.061405429))))*Math.exp(-x*x);
+		return z >= 0.0 ? 0.5*(1.0 + erf) : 0.5*(1.0 - erf);
+	}
+	/**
+	 * Standard normal quantile for p above one half, by bisection of the cumulative distribution
+	 */
+	private static double getNormalQuantile(double p){
+		double lower = 0.0;
+		double upper = 10.0;
+		for (int i_iter = 0;i_iter < 60;i_iter++){
+			double middle = 0.5*(lower + upper);
+			if (getNormalCdf(middle) < p){
+				lower = middle;
+			} else {
+				upper = middle;
+			}
+		}
+		return 0.5*(lower + upper);
+	}
+}
@@ -0,0 +1,458 @@
+package optimization.tuning;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.OptUtils;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+
+/**
+ * <pre>
+ * This class chooses the <b>ParticleSwarm</b> settings (number of particles, velocity limit as
+ * a fraction of the parameter range and convergence limit) for a class of problems by racing
+ * candidate settings on representative cost functions, as in F-Race and irace.
+ * </pre>
+ * <pre>
+ * Every run is given the same number of evaluations, so the number of generations follows from
+ * the number of particles. A race runs all surviving candidates on one problem instance (a cost
+ * function and a seed) at a time, in parallel, and ranks them: runs reaching the optimization
+ * criterion rank by the number of evaluations needed, the other runs by their best output. Once
+ * enough instances have been run, a Friedman test on the ranks decides whether the candidates
+ * differ, and candidates whose rank sum is significantly worse than the best one are eliminated.
+ * The tuning budget (the total number of runs) is split over several races; after every race
+ * new candidates are sampled around the survivors with a shrinking spread.
+ * </pre>
+ * <pre>
+ * <b>Note</b>: The cost functions are called from several threads at once and have to be thread safe.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class ParticleSwarmTuner {
+
+	private final String problemClass;
+	private final long evaluationsPerRun;
+	private final List<Instance> instances = new ArrayList<Instance>();
+	private final List<double[]> initialSettings = new ArrayList<double[]>();
+	private int numberOfCandidates = 24;
+	private int tuningBudget = 600;
+	private int numberOfIterations = 3;
+	private int firstTest = 5;
+	private double significanceLevel = 0.05;
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+	private int[] particleRange = {5, 100};
+	private double[] stepRange = {0.002, 0.5};
+	private int[] convergenceLimitRange = {3, 500};
+	private Random random = new Random();
+	private boolean verbose = true;
+	private long runsUsed;
+	private long seedCounter;
+
+	private static class Instance{
+		CostFunction_IF costFunction;
+		ParticleParameter[] parameters;
+		Instance(CostFunction_IF costFunction, ParticleParameter[] parameters){
+			this.costFunction = costFunction;
+			this.parameters = parameters;
+		}
+	}
+
+	/**
+	 * Candidate settings, stored as coordinates in [0, 1] on a logarithmic scale of every setting
+	 */
+	private class Candidate{
+		double[] coordinates;
+		List<RunResult> results = new ArrayList<RunResult>();
+		double rankSum;
+		Candidate(double[] coordinates){
+			this.coordinates = coordinates;
+		}
+		int getNumberOfParticles(){
+			return (int)Math.round(fromCoordinate(coordinates[0], particleRange[0], particleRange[1]));
+		}
+		double getStep(){
+			return fromCoordinate(coordinates[1], stepRange[0], stepRange[1]);
+		}
+		int getConvergenceLimit(){
+			return (int)Math.round(fromCoordinate(coordinates[2], convergenceLimitRange[0], convergenceLimitRange[1]));
+		}
+		int getMaxGenerations(){
+			return (int)Math.max(1, evaluationsPerRun/getNumberOfParticles());
+		}
+		TunedProfile toProfile(){
+			return new TunedProfile(problemClass, getNumberOfParticles(), getMaxGenerations(), getStep(), getConvergenceLimit());
+		}
+	}
+
+	private static class RunResult{
+		boolean reached;
+		long evaluations;
+		CostFunctionOutput_IF output;
+	}
+
+	/**
+	 * Constructor that defines the name of the problem class stored with the profile and the
+	 * number of evaluations given to every run
+	 * @param problemClass
+	 * @param evaluationsPerRun
+	 */
+	public ParticleSwarmTuner(String problemClass, long evaluationsPerRun){
+		this.problemClass = problemClass;
+		this.evaluationsPerRun = evaluationsPerRun;
+	}
+	/**
+	 * Adds a representative cost function of the problem class together with its parameters
+	 * @param costFunction
+	 * @param parameters
+	 * @return
+	 */
+	public ParticleSwarmTuner addInstance(CostFunction_IF costFunction, ParticleParameter... parameters){
+		instances.add(new Instance(costFunction, parameters));
+		return this;
+	}
+	/**
+	 * Adds settings that race in the first iteration next to the sampled candidates, for example
+	 * the settings in use before tuning
+	 * @param numberOfParticles
+	 * @param maxDecPercRangePerOptStep
+	 * @param convergenceLimit
+	 * @return
+	 */
+	public ParticleSwarmTuner addCandidate(int numberOfParticles, double maxDecPercRangePerOptStep, int convergenceLimit){
+		initialSettings.add(new double[]{numberOfParticles, maxDecPercRangePerOptStep, convergenceLimit});
+		return this;
+	}
+
+	/**
+	 * Runs the races and returns the profile of the best surviving candidate
+	 * @return
+	 * @throws IllegalStateException if a run of a candidate fails, naming the candidate, instance and seed
+	 */
+	public TunedProfile tune(){
+		if (instances.isEmpty()){
+			throw new IllegalStateException("No problem instances were added to the tuner");
+		}
+		runsUsed = 0;
+		seedCounter = 0;
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, numberOfThreads), (runnable) -> {
+			Thread thread = new Thread(runnable, "swarm-tuner");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Candidate> candidates = new ArrayList<Candidate>();
+			for (double[] settings : initialSettings){
+				candidates.add(new Candidate(new double[]{
+						toCoordinate(settings[0], particleRange[0], particleRange[1]),
+						toCoordinate(settings[1], stepRange[0], stepRange[1]),
+						toCoordinate(settings[2], convergenceLimitRange[0], convergenceLimitRange[1])}));
+			}
+			List<Candidate> survivors = new ArrayList<Candidate>();
+			for (int i_iter = 0;i_iter < numberOfIterations;i_iter++){
+				double spread = 0.25*(1.0 - Double.valueOf(i_iter)/numberOfIterations);
+				while (candidates.size() < numberOfCandidates){
+					candidates.add(sampleCandidate(survivors, spread));
+				}
+				long iterationBudget = (tuningBudget - runsUsed)/(numberOfIterations - i_iter);
+				survivors = race(pool, candidates, iterationBudget);
+				if (verbose){
+					System.out.println("Iteration: " + i_iter + ", Runs: " + runsUsed + ", Best: " + survivors.get(0).toProfile());
+				}
+				//The survivors race again on new instances with fresh results
+				candidates = new ArrayList<Candidate>();
+				for (Candidate survivor : survivors){
+					candidates.add(new Candidate(survivor.coordinates));
+				}
+			}
+			return survivors.get(0).toProfile();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	/**
+	 * Races the candidates until one is left or the budget of the race is used and returns the
+	 * survivors, best first
+	 */
+	private List<Candidate> race(ExecutorService pool, List<Candidate> candidates, long raceBudget){
+		List<Candidate> alive = new ArrayList<Candidate>(candidates);
+		long raceRuns = 0;
+		int numberOfBlocks = 0;
+		while (alive.size() > 1 && raceRuns + alive.size() <= raceBudget){
+			int instanceIndex = (int)(seedCounter % instances.size());
+			Instance instance = instances.get(instanceIndex);
+			long seed = seedCounter++;
+			List<Future<RunResult>> futures = new ArrayList<Future<RunResult>>();
+			for (Candidate candidate : alive){
+				futures.add(pool.submit(() -> run(candidate, instance, seed)));
+			}
+			for (int i_cand = 0;i_cand < alive.size();i_cand++){
+				RunResult result;
+				try {
+					result = futures.get(i_cand).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return sortByRankSum(alive, numberOfBlocks);
+				} catch (ExecutionException e) {
+					//A failed run would otherwise rank as the worst result of the block
+					throw new IllegalStateException("Run of candidate " + alive.get(i_cand).toProfile() + " failed on instance "
+							+ instanceIndex + " with seed " + seed, e.getCause());
+				}
+				alive.get(i_cand).results.add(result);
+			}
+			raceRuns += alive.size();
+			runsUsed += alive.size();
+			numberOfBlocks++;
+			if (numberOfBlocks >= firstTest){
+				alive = eliminate(alive, numberOfBlocks);
+			}
+		}
+		return sortByRankSum(alive, numberOfBlocks);
+	}
+	/**
+	 * Ranks the results of the surviving candidates on the last blocks they all ran and removes
+	 * the candidates that are significantly worse than the best one
+	 */
+	private List<Candidate> eliminate(List<Candidate> alive, int numberOfBlocks){
+		FriedmanTest test = new FriedmanTest(getRanks(alive, numberOfBlocks));
+		if (!test.isSignificant(significanceLevel)){
+			return alive;
+		}
+		double[] rankSums = test.getRankSums();
+		double bestRankSum = Double.POSITIVE_INFINITY;
+		for (double rankSum : rankSums){
+			bestRankSum = Math.min(bestRankSum, rankSum);
+		}
+		double criticalDifference = test.getCriticalDifference(significanceLevel);
+		List<Candidate> survivors = new ArrayList<Candidate>();
+		for (int i_cand = 0;i_cand < alive.size();i_cand++){
+			if (rankSums[i_cand] - bestRankSum <= criticalDifference){
+				survivors.add(alive.get(i_cand));
+			}
+		}
+		if (verbose && survivors.size() < alive.size()){
+			System.out.println("Block: " + numberOfBlocks + ", Eliminated: " + (alive.size() - survivors.size())
+					+ ", Surviving: " + survivors.size());
+		}
+		return survivors;
+	}
+
+	private double[][] getRanks(List<Candidate> alive, int numberOfBlocks){
+		double[][] ranks = new double[numberOfBlocks][];
+		for (int i_block = 0;i_block < numberOfBlocks;i_block++){
+			int[][] compare = new int[alive.size()][alive.size()];
+			for (int i_cand = 0;i_cand < alive.size();i_cand++){
+				RunResult first = getResult(alive.get(i_cand), i_block, numberOfBlocks);
+				for (int j_cand = 0;j_cand < alive.size();j_cand++){
+					compare[i_cand][j_cand] = compare(first, getResult(alive.get(j_cand), i_block, numberOfBlocks));
+				}
+			}
+			ranks[i_block] = FriedmanTest.rank(compare);
+		}
+		return ranks;
+	}
+	/**
+	 * Returns the result of the given block, counting blocks from the start of the race. Candidates
+	 * entering a race have no earlier results, so the results of all alive candidates line up.
+	 */
+	private static RunResult getResult(Candidate candidate, int i_block, int numberOfBlocks){
+		return candidate.results.get(candidate.results.size() - numberOfBlocks + i_block);
+	}
+
+	private List<Candidate> sortByRankSum(List<Candidate> alive, int numberOfBlocks){
+		if (numberOfBlocks > 0){
+			double[] rankSums = new FriedmanTest(getRanks(alive, numberOfBlocks)).getRankSums();
+			for (int i_cand = 0;i_cand < alive.size();i_cand++){
+				alive.get(i_cand).rankSum = rankSums[i_cand];
+			}
+		}
+		List<Candidate> sorted = new ArrayList<Candidate>(alive);
+		sorted.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.rankSum));
+		return sorted;
+	}
+	/**
+	 * Returns a negative number if the first result is better than the second, zero if neither is
+	 * better and a positive number otherwise
+	 */
+	private static int compare(RunResult first, RunResult second){
+		if (first.reached != second.reached){
+			return first.reached ? -1 : 1;
+		}
+		if (first.reached){
+			return Long.compare(first.evaluations, second.evaluations);
+		}
+		if (first.output == null || second.output == null){
+			return first.output == second.output ? 0 : (first.output == null ? 1 : -1);
+		}
+		if (first.output.isSolutionWithinRestraints() != second.output.isSolutionWithinRestraints()){
+			return first.output.isSolutionWithinRestraints() ? -1 : 1;
+		}
+		if (second.output.isNewCostFunctionOutputBetter(first.output)){
+			return -1;
+		}
+		return first.output.isNewCostFunctionOutputBetter(second.output) ? 1 : 0;
+	}
+
+	private RunResult run(Candidate candidate, Instance instance, long seed){
+		long[] evaluations = new long[1];
+		ParticleSwarm swarm = new ParticleSwarm(candidate.getNumberOfParticles(), candidate.getMaxGenerations(), candidate.getStep(),
+				(ParticleParameter[])OptUtils.cloneParameterArray(instance.parameters))
+				.setConvergenceLimit(candidate.getConvergenceLimit())
+				.setRandomSeed(seed)
+				.setVerbose(false)
+				.addEvaluationListener((generation, parameters, output) -> evaluations[0]++);
+		BestDiscoveredSolution solution = swarm.optimize(instance.costFunction);
+		RunResult result = new RunResult();
+		result.evaluations = evaluations[0];
+		if (solution != null){
+			result.output = solution.getCostFunctionOutput();
+			result.reached = result.output.isOptimizationCriterionSatisified();
+		}
+		return result;
+	}
+	/**
+	 * Samples a candidate uniformly, or around a randomly chosen survivor of the last race
+	 */
+	private Candidate sampleCandidate(List<Candidate> survivors, double spread){
+		double[] coordinates = new double[3];
+		if (survivors.isEmpty()){
+			for (int i_coord = 0;i_coord < coordinates.length;i_coord++){
+				coordinates[i_coord] = random.nextDouble();
+			}
+		} else {
+			double[] parent = survivors.get(random.nextInt(survivors.size())).coordinates;
+			for (int i_coord = 0;i_coord < coordinates.length;i_coord++){
+				coordinates[i_coord] = Math.max(0.0, Math.min(1.0, parent[i_coord] + spread*random.nextGaussian()));
+			}
+		}
+		return new Candidate(coordinates);
+	}
+
+	private static double toCoordinate(double value, double lowerBound, double upperBound){
+		double coordinate = Math.log(value/lowerBound)/Math.log(upperBound/lowerBound);
+		return Math.max(0.0, Math.min(1.0, coordinate));
+	}
+
+	private static double fromCoordinate(double coordinate, double lowerBound, double upperBound){
+		return lowerBound*Math.pow(upperBound/lowerBound, coordinate);
+	}
+
+	/**
+	 * Sets the number of candidates in every race. The default is 24.
+	 * @param numberOfCandidates
+	 * @return
+	 */
+	public ParticleSwarmTuner setNumberOfCandidates(int numberOfCandidates){
+		this.numberOfCandidates = Math.max(2, numberOfCandidates);
+		return this;
+	}
+	/**
+	 * Sets the total number of optimizer runs of the tuning. The default is 600.
+	 * @param tuningBudget
+	 * @return
+	 */
+	public ParticleSwarmTuner setTuningBudget(int tuningBudget){
+		this.tuningBudget = tuningBudget;
+		return this;
+	}
+	/**
+	 * Sets the number of races the tuning budget is split over. The default is 3.
+	 * @param numberOfIterations
+	 * @return
+	 */
+	public ParticleSwarmTuner setNumberOfIterations(int numberOfIterations){
+		this.numberOfIterations = Math.max(1, numberOfIterations);
+		return this;
+	}
+	/**
+	 * Sets the number of instances run in a race before candidates can be eliminated. The default is 5.
+	 * @param firstTest
+	 * @return
+	 */
+	public ParticleSwarmTuner setFirstTest(int firstTest){
+		this.firstTest = Math.max(2, firstTest);
+		return this;
+	}
+	/**
+	 * Sets the significance level of the Friedman test and of the eliminations. The default is 0.05.
+	 * @param significanceLevel
+	 * @return
+	 */
+	public ParticleSwarmTuner setSignificanceLevel(double significanceLevel){
+		this.significanceLevel = significanceLevel;
+		return this;
+	}
+	/**
+	 * Sets the number of runs made in parallel. The default is the number of available processors.
+	 * @param numberOfThreads
+	 * @return
+	 */
+	public ParticleSwarmTuner setNumberOfThreads(int numberOfThreads){
+		this.numberOfThreads = numberOfThreads;
+		return this;
+	}
+	/**
+	 * Sets the range of the number of particles. The default is 5 to 100.
+	 * @param minParticles
+	 * @param maxParticles
+	 * @return
+	 */
+	public ParticleSwarmTuner setParticleRange(int minParticles, int maxParticles){
+		this.particleRange = new int[]{minParticles, maxParticles};
+		return this;
+	}
+	/**
+	 * Sets the range of the velocity limit as a fraction of the parameter range. The default is 0.002 to 0.5.
+	 * @param minStep
+	 * @param maxStep
+	 * @return
+	 */
+	public ParticleSwarmTuner setStepRange(double minStep, double maxStep){
+		this.stepRange = new double[]{minStep, maxStep};
+		return this;
+	}
+	/**
+	 * Sets the range of the convergence limit. The default is 3 to 500.
+	 * @param minConvergenceLimit
+	 * @param maxConvergenceLimit
+	 * @return
+	 */
+	public ParticleSwarmTuner setConvergenceLimitRange(int minConvergenceLimit, int maxConvergenceLimit){
+		this.convergenceLimitRange = new int[]{minConvergenceLimit, maxConvergenceLimit};
+		return this;
+	}
+	/**
+	 * Sets the seed of the random number generator used to sample the candidates
+	 * @param seed
+	 * @return
+	 */
+	public ParticleSwarmTuner setRandomSeed(long seed){
+		this.random.setSeed(seed);
+		return this;
+	}
+	/**
+	 * Sets whether the eliminations and the best candidate of every race are printed. The default is true.
+	 * @param verbose
+	 * @return
+	 */
+	public ParticleSwarmTuner setVerbose(boolean verbose){
+		this.verbose = verbose;
+		return this;
+	}
+	/**
+	 * Returns the number of optimizer runs made by the last call to <b>tune</b>
+	 * @return
+	 */
+	public long getRunsUsed(){
+		return runsUsed;
+	}
+}
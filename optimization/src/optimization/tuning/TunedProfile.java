@@ -0,0 +1,115 @@
+package optimization.tuning;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import optimization.pso.ParticleSwarm;
+import optimization.pso.ParticleParameter;
+
+/**
+ * <pre>
+ * This class stores the <b>ParticleSwarm</b> settings chosen for a class of problems by the
+ * <b>ParticleSwarmTuner</b>, so that runs on new problems of the class do not have to guess the
+ * number of particles, generations, velocity limit and convergence limit. The profile is saved
+ * as a properties file that can be read and edited by hand:
+ *   problemClass=housing
+ *   numberOfParticles=24
+ *   maxGenerations=625
+ *   maxDecPercRangePerOptStep=0.042
+ *   convergenceLimit=37
+ * </pre>
+ * @author Matt
+ *
+ */
+public class TunedProfile {
+	private final String problemClass;
+	private final int numberOfParticles;
+	private final int maxGenerations;
+	private final double maxDecPercRangePerOptStep;
+	private final int convergenceLimit;
+
+	public TunedProfile(String problemClass, int numberOfParticles, int maxGenerations, double maxDecPercRangePerOptStep,
+			int convergenceLimit){
+		this.problemClass = problemClass;
+		this.numberOfParticles = numberOfParticles;
+		this.maxGenerations = maxGenerations;
+		this.maxDecPercRangePerOptStep = maxDecPercRangePerOptStep;
+		this.convergenceLimit = convergenceLimit;
+	}
+	/**
+	 * Returns a swarm using the settings of the profile
+	 * @param parameters
+	 * @return
+	 */
+	public ParticleSwarm createSwarm(ParticleParameter... parameters){
+		return new ParticleSwarm(numberOfParticles, maxGenerations, maxDecPercRangePerOptStep, parameters)
+				.setConvergenceLimit(convergenceLimit);
+	}
+	/**
+	 * Writes the profile to a properties file
+	 * @param profileFile
+	 * @throws IOException
+	 */
+	public void save(Path profileFile) throws IOException{
+		Properties properties = new Properties();
+		properties.setProperty("problemClass", problemClass);
+		properties.setProperty("numberOfParticles", String.valueOf(numberOfParticles));
+		properties.setProperty("maxGenerations", String.valueOf(maxGenerations));
+		properties.setProperty("maxDecPercRangePerOptStep", String.valueOf(maxDecPercRangePerOptStep));
+		properties.setProperty("convergenceLimit", String.valueOf(convergenceLimit));
+		try (OutputStream stream = Files.newOutputStream(profileFile)){
+			properties.store(stream, "ParticleSwarm profile tuned for " + problemClass);
+		}
+	}
+	/**
+	 * Reads a profile previously written with <b>save</b>
+	 * @param profileFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static TunedProfile load(Path profileFile) throws IOException{
+		Properties properties = new Properties();
+		try (InputStream stream = Files.newInputStream(profileFile)){
+			properties.load(stream);
+		}
+		try {
+			return new TunedProfile(properties.getProperty("problemClass", ""),
+					Integer.parseInt(properties.getProperty("numberOfParticles")),
+					Integer.parseInt(properties.getProperty("maxGenerations")),
+					Double.parseDouble(properties.getProperty("maxDecPercRangePerOptStep")),
+					Integer.parseInt(properties.getProperty("convergenceLimit")));
+		} catch (NumberFormatException | NullPointerException e){
+			throw new IOException("Incomplete swarm profile: " + profileFile, e);
+		}
+	}
+
+	public String getProblemClass() {
+		return problemClass;
+	}
+
+	public int getNumberOfParticles() {
+		return numberOfParticles;
+	}
+
+	public int getMaxGenerations() {
+		return maxGenerations;
+	}
+
+	public double getMaxDecPercRangePerOptStep() {
+		return maxDecPercRangePerOptStep;
+	}
+
+	public int getConvergenceLimit() {
+		return convergenceLimit;
+	}
+
+	@Override
+	public String toString(){
+		return problemClass + ": particles " + numberOfParticles + ", generations " + maxGenerations
+				+ ", step " + String.format("%.4f", maxDecPercRangePerOptStep) + ", convergence limit " + convergenceLimit;
+	}
+}
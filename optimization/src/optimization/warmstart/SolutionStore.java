@@ -0,0 +1,177 @@
+package optimization.warmstart;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import optimization.BestDiscoveredSolution;
+
+/**
+ * <pre>
+ * This class stores the parameter values of solutions found in earlier runs keyed by a
+ * vector of scenario features (for example sale price, appreciation and number of roommates)
+ * so that a run for a new scenario can be warm started from the solutions of the most
+ * similar scenarios already solved.
+ * </pre>
+ * <pre>
+ * Nearest neighbors are found with a linear scan using a Euclidean distance in which every
+ * feature is divided by its range over the stored scenarios, so features with large units
+ * (prices) do not drown out features with small units (rates). The store can be saved to and
+ * loaded from a compact binary file so that it persists across sweeps.
+ * </pre>
+ * All methods are synchronized so runs of a sweep may share one store across threads.
+ * @author Matt
+ *
+ */
+public class SolutionStore {
+	private static final int MAGIC = 0x534F4C53;
+
+	private final int numberOfFeatures;
+	private final int numberOfParameters;
+	private List<double[]> features = new ArrayList<double[]>();
+	private List<double[]> parameterValues = new ArrayList<double[]>();
+	private double[] minFeatures;
+	private double[] maxFeatures;
+
+	public SolutionStore(int numberOfFeatures, int numberOfParameters){
+		this.numberOfFeatures = numberOfFeatures;
+		this.numberOfParameters = numberOfParameters;
+		this.minFeatures = new double[numberOfFeatures];
+		this.maxFeatures = new double[numberOfFeatures];
+		for (int i_feat = 0;i_feat < numberOfFeatures;i_feat++){
+			minFeatures[i_feat] = Double.POSITIVE_INFINITY;
+			maxFeatures[i_feat] = Double.NEGATIVE_INFINITY;
+		}
+	}
+	/**
+	 * Stores the parameter values of a solution under the given scenario features
+	 * @param scenarioFeatures
+	 * @param solution
+	 */
+	public synchronized void add(double[] scenarioFeatures, BestDiscoveredSolution solution){
+		add(scenarioFeatures, solution.getSnapshot().getValues());
+	}
+	/**
+	 * Stores parameter values under the given scenario features
+	 * @param scenarioFeatures
+	 * @param values
+	 */
+	public synchronized void add(double[] scenarioFeatures, double[] values){
+		if (scenarioFeatures.length != numberOfFeatures || values.length != numberOfParameters){
+			throw new IllegalArgumentException("Expected " + numberOfFeatures + " features and " + numberOfParameters + " parameter values");
+		}
+		features.add(scenarioFeatures.clone());
+		parameterValues.add(values.clone());
+		for (int i_feat = 0;i_feat < numberOfFeatures;i_feat++){
+			minFeatures[i_feat] = Math.min(minFeatures[i_feat], scenarioFeatures[i_feat]);
+			maxFeatures[i_feat] = Math.max(maxFeatures[i_feat], scenarioFeatures[i_feat]);
+		}
+	}
+	/**
+	 * Returns the parameter values stored for the scenarios nearest to the given one,
+	 * nearest first
+	 * @param scenarioFeatures
+	 * @param numberOfNeighbors
+	 * @return
+	 */
+	public synchronized List<double[]> findNearest(double[] scenarioFeatures, int numberOfNeighbors){
+		int numberToReturn = Math.min(numberOfNeighbors, features.size());
+		List<double[]> neighbors = new ArrayList<double[]>();
+		if (numberToReturn <= 0){
+			return neighbors;
+		}
+		int[] nearest = new int[numberToReturn];
+		double[] nearestDistances = new double[numberToReturn];
+		int numberFound = 0;
+		for (int i_entry = 0;i_entry < features.size();i_entry++){
+			double distance = getNormalizedDistance(scenarioFeatures, features.get(i_entry));
+			if (numberFound == numberToReturn && distance >= nearestDistances[numberFound - 1]){
+				continue;
+			}
+			//Insertion into the sorted list of nearest entries
+			int i_insert = numberFound < numberToReturn ? numberFound++ : numberFound - 1;
+			while (i_insert > 0 && nearestDistances[i_insert - 1] > distance){
+				nearest[i_insert] = nearest[i_insert - 1];
+				nearestDistances[i_insert] = nearestDistances[i_insert - 1];
+				i_insert--;
+			}
+			nearest[i_insert] = i_entry;
+			nearestDistances[i_insert] = distance;
+		}
+		for (int i_near = 0;i_near < numberFound;i_near++){
+			neighbors.add(parameterValues.get(nearest[i_near]).clone());
+		}
+		return neighbors;
+	}
+
+	private double getNormalizedDistance(double[] a, double[] b){
+		double distance = 0.0;
+		for (int i_feat = 0;i_feat < numberOfFeatures;i_feat++){
+			double featureRange = maxFeatures[i_feat] - minFeatures[i_feat];
+			double difference = a[i_feat] - b[i_feat];
+			if (featureRange > 0.0){
+				difference /= featureRange;
+			}
+			distance += difference*difference;
+		}
+		return distance;
+	}
+
+	public synchronized int size(){
+		return features.size();
+	}
+	/**
+	 * Writes the store to a binary file
+	 * @param storeFile
+	 * @throws IOException
+	 */
+	public synchronized void save(Path storeFile) throws IOException{
+		try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(storeFile)))){
+			stream.writeInt(MAGIC);
+			stream.writeInt(numberOfFeatures);
+			stream.writeInt(numberOfParameters);
+			stream.writeInt(features.size());
+			for (int i_entry = 0;i_entry < features.size();i_entry++){
+				for (double feature : features.get(i_entry)){
+					stream.writeDouble(feature);
+				}
+				for (double value : parameterValues.get(i_entry)){
+					stream.writeDouble(value);
+				}
+			}
+		}
+	}
+	/**
+	 * Reads a store previously written with <b>save</b>
+	 * @param storeFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static SolutionStore load(Path storeFile) throws IOException{
+		try (DataInputStream stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(storeFile)))){
+			if (stream.readInt() != MAGIC){
+				throw new IOException("Unsupported solution store file: " + storeFile);
+			}
+			SolutionStore store = new SolutionStore(stream.readInt(), stream.readInt());
+			int numberOfEntries = stream.readInt();
+			double[] scenarioFeatures = new double[store.numberOfFeatures];
+			double[] values = new double[store.numberOfParameters];
+			for (int i_entry = 0;i_entry < numberOfEntries;i_entry++){
+				for (int i_feat = 0;i_feat < scenarioFeatures.length;i_feat++){
+					scenarioFeatures[i_feat] = stream.readDouble();
+				}
+				for (int i_param = 0;i_param < values.length;i_param++){
+					values[i_param] = stream.readDouble();
+				}
+				store.add(scenarioFeatures, values);
+			}
+			return store;
+		}
+	}
+}
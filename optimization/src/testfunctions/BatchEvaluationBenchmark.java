@@ -0,0 +1,75 @@
+package testfunctions;
+
+import java.util.Random;
+
+import optimization.BatchCostFunction_IF;
+import optimization.OptUtils;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.pso.ParticleParameter;
+
+/**
+ * <pre>
+ * Measures the time per point of evaluating the analytic test functions one point at a time
+ * (<b>evaluateCostFunction</b>) and in batches (<b>evaluateBatch</b>) over random points, to
+ * check that the test functions are cheap compared to the optimizer when used as calibration
+ * workloads.
+ * </pre>
+ * Usage: BatchEvaluationBenchmark [batchSize] [repetitions]
+ * @author Matt
+ *
+ */
+public class BatchEvaluationBenchmark {
+
+	private static void benchmark(String name, BatchCostFunction_IF costFunction, ParticleParameter[] template,
+			int batchSize, int repetitions){
+		Random random = new Random(1);
+		Parameter[][] points = new Parameter[batchSize][];
+		double[][] values = new double[template.length][batchSize];
+		for (int i_point = 0;i_point < batchSize;i_point++){
+			points[i_point] = OptUtils.cloneParameterArray(template);
+			for (int i_param = 0;i_param < template.length;i_param++){
+				Parameter parameter = points[i_point][i_param];
+				parameter.setCurrentValue(parameter.lowerBound.doubleValue() + random.nextDouble()*parameter.getRangeOfParameterValue());
+				values[i_param][i_point] = parameter.getCurrentValueAsDouble();
+			}
+		}
+		double checksum = 0.0;
+		long scalarNanos = Long.MAX_VALUE;
+		long batchNanos = Long.MAX_VALUE;
+		//The best of the repetitions excludes warm up and compilation
+		for (int i_rep = 0;i_rep < repetitions;i_rep++){
+			long startTime = System.nanoTime();
+			for (int i_point = 0;i_point < batchSize;i_point++){
+				checksum += ((ScalarCostFunctionOutput_IF)costFunction.evaluateCostFunction(points[i_point])).getFitness();
+			}
+			scalarNanos = Math.min(scalarNanos, System.nanoTime() - startTime);
+			startTime = System.nanoTime();
+			checksum -= ((ScalarCostFunctionOutput_IF)costFunction.evaluateBatch(template, values, batchSize)[batchSize - 1]).getFitness();
+			batchNanos = Math.min(batchNanos, System.nanoTime() - startTime);
+		}
+		System.out.println(name + "," + Double.valueOf(scalarNanos)/batchSize + "," + Double.valueOf(batchNanos)/batchSize
+				+ "," + Double.valueOf(scalarNanos)/batchNanos + (Double.isNaN(checksum) ? ",NaN" : ""));
+	}
+
+	public static void main(String[] args){
+		int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		System.out.println("Function,Scalar ns/point,Batch ns/point,Speedup");
+		benchmark("categorical", new TestCategoricalOptimization(), new ParticleParameter[]{
+				new ParticleParameter("mccormick","beale","himmelblau","crossintray","holdertable"),
+				new ParticleParameter(-10.0,10.0),
+				new ParticleParameter(-10.0,10.0)}, batchSize, repetitions);
+		for (String function : new String[]{"beale","himmelblau"}){
+			benchmark(function, new TestCategoricalOptimization(), new ParticleParameter[]{
+					new ParticleParameter(function),
+					new ParticleParameter(-4.5,4.5),
+					new ParticleParameter(-4.5,4.5)}, batchSize, repetitions);
+		}
+		ParticleParameter[] sphereParameters = new ParticleParameter[10];
+		for (int i_param = 0;i_param < sphereParameters.length;i_param++){
+			sphereParameters[i_param] = new ParticleParameter(-5.12, 5.12);
+		}
+		benchmark("sphere-10", new ConvergenceBenchmark.Sphere(), sphereParameters, batchSize, repetitions);
+	}
+}
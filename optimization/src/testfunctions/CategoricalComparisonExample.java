@@ -0,0 +1,78 @@
+package testfunctions;
+
+import java.util.Arrays;
+
+import optimization.BestDiscoveredSolution;
+import optimization.Optimizer_IF;
+import optimization.Parameter;
+import optimization.ga.GeneticAlgorithm;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+
+/**
+ * <pre>
+ * Compares the <b>GeneticAlgorithm</b>, whose operators resample categorical parameters, with the
+ * <b>ParticleSwarm</b>, which moves the categorical code as a continuous coordinate, on
+ * <b>TestCategoricalOptimization</b>. Every run is given the same number of evaluations; the number
+ * of runs reaching the global minimum (Holder table) and the median number of evaluations
+ * needed are printed for both optimizers.
+ * </pre>
+ * Usage: CategoricalComparisonExample [numberOfRuns] [evaluationsPerRun]
+ * @author Matt
+ *
+ */
+public class CategoricalComparisonExample {
+
+	private static final int POPULATION_SIZE = 30;
+
+	private static Parameter[] getParameters(){
+		return new ParticleParameter[]{
+				new ParticleParameter("mccormick","beale","himmelblau","crossintray","holdertable"),
+				new ParticleParameter(-10.0,10.0),
+				new ParticleParameter(-10.0,10.0)};
+	}
+
+	/**
+	 * Returns the number of evaluations made until the optimization criterion was satisfied, or
+	 * -1 if it was not satisfied
+	 */
+	private static long run(Optimizer_IF optimizer, long[] evaluations){
+		BestDiscoveredSolution solution = optimizer.optimize(new TestCategoricalOptimization());
+		if (solution == null || !solution.getCostFunctionOutput().isOptimizationCriterionSatisified()){
+			return -1;
+		}
+		return evaluations[0];
+	}
+
+	private static void printResults(String name, long[] evaluationsToTarget){
+		long[] successful = Arrays.stream(evaluationsToTarget).filter((evaluations) -> evaluations >= 0).sorted().toArray();
+		String median = successful.length > 0 ? String.valueOf(successful[successful.length/2]) : "-";
+		System.out.println(name + "," + successful.length + "/" + evaluationsToTarget.length + "," + median);
+	}
+
+	public static void main(String[] args){
+		int numberOfRuns = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int evaluationsPerRun = args.length > 1 ? Integer.parseInt(args[1]) : 15000;
+		int maxGenerations = evaluationsPerRun/POPULATION_SIZE;
+		long[] geneticEvaluations = new long[numberOfRuns];
+		long[] swarmEvaluations = new long[numberOfRuns];
+		for (int i_run = 0;i_run < numberOfRuns;i_run++){
+			long[] evaluations = new long[1];
+			GeneticAlgorithm geneticAlgorithm = new GeneticAlgorithm(POPULATION_SIZE, maxGenerations, getParameters())
+					.setNumberOfElites(2)
+					.setRandomSeed(i_run)
+					.setVerbose(false)
+					.addEvaluationListener((generation, parameters, output) -> evaluations[0]++);
+			geneticEvaluations[i_run] = run(geneticAlgorithm, evaluations);
+			evaluations[0] = 0;
+			ParticleSwarm swarm = new ParticleSwarm(POPULATION_SIZE, maxGenerations, 0.1, (ParticleParameter[])getParameters())
+					.setRandomSeed(i_run)
+					.setVerbose(false)
+					.addEvaluationListener((generation, parameters, output) -> evaluations[0]++);
+			swarmEvaluations[i_run] = run(swarm, evaluations);
+		}
+		System.out.println("Optimizer,Runs Reaching Target,Median Evaluations");
+		printResults("genetic algorithm", geneticEvaluations);
+		printResults("particle swarm", swarmEvaluations);
+	}
+}
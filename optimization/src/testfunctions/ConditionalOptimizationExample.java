@@ -0,0 +1,80 @@
+package testfunctions;
+
+import java.util.List;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.Parameter;
+import optimization.conditional.ConditionalOptimizer;
+import optimization.conditional.ConditionalParameterSpace;
+import optimization.pso.ParticleParameter;
+
+/**
+ * <pre>
+ * Optimizes over a conditional parameter space with the <b>ConditionalOptimizer</b>. The space
+ * extends <b>TestCategoricalOptimization</b> with an optional penalty on the distance from the
+ * origin:
+ * 	0: function (mccormick, beale, himmelblau, crossintray, holdertable)
+ * 	1: x
+ * 	2: y
+ * 	3: penalty (none, l2)
+ * 	4: penalty weight, only active for the l2 penalty
+ * The inputs are interpreted differently by every function, so the function is added as a
+ * branching parameter and every function is searched separately. The penalty weight is
+ * conditioned on the penalty, so it is only searched in the branches with the l2 penalty.
+ * </pre>
+ * <pre>
+ * The best value of every branch and the evaluations it was granted are printed. The penalty
+ * only adds to the value, so the Holder table branch without a penalty should win.
+ * </pre>
+ * Usage: ConditionalOptimizationExample [evaluationBudget]
+ * @author Matt
+ *
+ */
+public class ConditionalOptimizationExample {
+
+	private static final String[] FUNCTIONS = {"mccormick","beale","himmelblau","crossintray","holdertable"};
+
+	/**
+	 * <b>TestCategoricalOptimization</b> with the penalty weight times the squared distance from the
+	 * origin added when the l2 penalty is chosen
+	 */
+	public static class PenalizedCategoricalOptimization implements CostFunction_IF{
+		private final TestCategoricalOptimization testFunctions = new TestCategoricalOptimization();
+
+		@Override
+		public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+			double value = ((TestCategoricalOptimization.CategoricalOutput)testFunctions.evaluateCostFunction(parameters)).getValue();
+			if ("l2".equals(parameters[3].decode(parameters[3].getCurrentValue().intValue()))){
+				double x = parameters[1].getCurrentValueAsDouble();
+				double y = parameters[2].getCurrentValueAsDouble();
+				value += parameters[4].getCurrentValueAsDouble()*(x*x + y*y);
+			}
+			return new TestCategoricalOptimization.CategoricalOutput(value);
+		}
+	}
+
+	public static void main(String[] args){
+		long evaluationBudget = args.length > 0 ? Long.parseLong(args[0]) : 10000;
+		ConditionalParameterSpace space = new ConditionalParameterSpace(new ParticleParameter(FUNCTIONS),
+				new ParticleParameter(-10.0,10.0),
+				new ParticleParameter(-10.0,10.0),
+				new ParticleParameter("none","l2"),
+				new ParticleParameter(0.0,0.1))
+				.addBranchingParameter(0)
+				.addCondition(4, 3, "l2");
+		ConditionalOptimizer optimizer = new ConditionalOptimizer(space, evaluationBudget).setVerbose(false);
+		BestDiscoveredSolution solution = optimizer.optimize(new PenalizedCategoricalOptimization());
+		List<ConditionalParameterSpace.Branch> branches = space.getBranches();
+		System.out.println("Branch,Searched Parameters,Evaluations,Best Value");
+		for (ConditionalParameterSpace.Branch branch : branches){
+			BestDiscoveredSolution branchBest = optimizer.getBranchBest(branch.getIndex());
+			System.out.println(branch.toString() + "," + branch.getSearchedParameterIndices().length + ","
+					+ optimizer.getBranchEvaluations(branch.getIndex()) + ","
+					+ (branchBest != null ? branchBest.getCostFunctionOutput().getOutputAsString() : "none"));
+		}
+		System.out.println("Evaluations used: " + optimizer.getEvaluationsUsed() + " of " + evaluationBudget);
+		solution.printSolution();
+	}
+}
@@ -0,0 +1,257 @@
+package testfunctions;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import optimization.BatchCostFunction_IF;
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.Parameter;
+import optimization.RandomNumberGenerator;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.pso.CoefficientControl;
+import optimization.pso.NeighborhoodTopology;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+import optimization.pso.RestartStrategy;
+import optimization.pso.VelocityLimitControl;
+
+/**
+ * <pre>
+ * Compares the number of cost function evaluations the <b>ParticleSwarm</b> needs to reach a
+ * target value with each coefficient, velocity limit and restart strategy and with the ring and
+ * von Neumann neighborhood topologies. Every configuration is run
+ * with the same seeds on each benchmark problem and the success rate as well as the median and
+ * mean number of evaluations of the successful runs are printed.
+ * </pre>
+ * Usage: ConvergenceBenchmark [numberOfRuns]
+ * @author Matt
+ *
+ */
+public class ConvergenceBenchmark {
+
+	private static final int NUMBER_OF_PARTICLES = 30;
+	private static final int MAX_GENERATIONS = 1000;
+
+	/**
+	 * Output that satisfies the optimization criterion once the value drops below a target
+	 */
+	public static class TargetOutput implements ScalarCostFunctionOutput_IF{
+		private double value;
+		private double target;
+		public TargetOutput(double value, double target){
+			this.value = value;
+			this.target = target;
+		}
+
+		@Override
+		public double getFitness() {
+			return value;
+		}
+
+		@Override
+		public boolean isNewCostFunctionOutputBetter(CostFunctionOutput_IF newCFOutput) {
+			return ((TargetOutput)newCFOutput).getFitness() < value;
+		}
+
+		@Override
+		public boolean isOptimizationCriterionSatisified() {
+			return value < target;
+		}
+
+		@Override
+		public boolean isSolutionWithinRestraints() {
+			return true;
+		}
+
+		@Override
+		public void printOutput() {
+			System.out.println(getOutputAsString());
+		}
+
+		@Override
+		public String getOutputAsString() {
+			return String.valueOf(value);
+		}
+	}
+	/**
+	 * Sphere function sum(x<sub>i</sub><sup>2</sup>) over Double parameters
+	 */
+	public static class Sphere implements BatchCostFunction_IF{
+		@Override
+		public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+			double sum = 0.0;
+			for (Parameter parameter : parameters){
+				double x = parameter.getCurrentValueAsDouble();
+				sum += x*x;
+			}
+			return new TargetOutput(sum, 1E-6);
+		}
+
+		@Override
+		public CostFunctionOutput_IF[] evaluateBatch(Parameter[] parameters, double[][] values, int numberOfPoints) {
+			return toOutputs(getShiftedSquaredSums(values, numberOfPoints, 0.0), 1E-6);
+		}
+	}
+	/**
+	 * Shifted sphere over mixed Integer and Double parameters with its minimum at x<sub>i</sub> = 7
+	 */
+	public static class MixedSphere implements BatchCostFunction_IF{
+		@Override
+		public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+			double sum = 0.0;
+			for (Parameter parameter : parameters){
+				double x = parameter.getCurrentValueAsDouble() - 7.0;
+				sum += x*x;
+			}
+			return new TargetOutput(sum, 1E-4);
+		}
+
+		@Override
+		public CostFunctionOutput_IF[] evaluateBatch(Parameter[] parameters, double[][] values, int numberOfPoints) {
+			return toOutputs(getShiftedSquaredSums(values, numberOfPoints, 7.0), 1E-4);
+		}
+	}
+	/**
+	 * Returns sum((x<sub>i</sub> - shift)<sup>2</sup>) of every point, accumulated one parameter
+	 * column at a time so the inner loop runs over contiguous values
+	 */
+	private static double[] getShiftedSquaredSums(double[][] values, int numberOfPoints, double shift){
+		double[] sums = new double[numberOfPoints];
+		for (double[] column : values){
+			for (int i_point = 0;i_point < numberOfPoints;i_point++){
+				double x = column[i_point] - shift;
+				sums[i_point] += x*x;
+			}
+		}
+		return sums;
+	}
+
+	private static CostFunctionOutput_IF[] toOutputs(double[] values, double target){
+		CostFunctionOutput_IF[] outputs = new CostFunctionOutput_IF[values.length];
+		for (int i_point = 0;i_point < values.length;i_point++){
+			outputs[i_point] = new TargetOutput(values[i_point], target);
+		}
+		return outputs;
+	}
+
+	private static class Problem{
+		String name;
+		CostFunction_IF costFunction;
+		double maxDecPercRangePerOptStep;
+		Supplier<ParticleParameter[]> parameters;
+		Problem(String name, CostFunction_IF costFunction, double maxDecPercRangePerOptStep, Supplier<ParticleParameter[]> parameters){
+			this.name = name;
+			this.costFunction = costFunction;
+			this.maxDecPercRangePerOptStep = maxDecPercRangePerOptStep;
+			this.parameters = parameters;
+		}
+	}
+
+	private static class Configuration{
+		String name;
+		Supplier<CoefficientControl> coefficientControl;
+		Supplier<VelocityLimitControl> velocityLimitControl;
+		Supplier<RestartStrategy> restartStrategy = RestartStrategy::full;
+		Supplier<NeighborhoodTopology> topology = NeighborhoodTopology::global;
+		Configuration(String name, Supplier<CoefficientControl> coefficientControl, Supplier<VelocityLimitControl> velocityLimitControl){
+			this.name = name;
+			this.coefficientControl = coefficientControl;
+			this.velocityLimitControl = velocityLimitControl;
+		}
+		Configuration(String name, Supplier<CoefficientControl> coefficientControl, Supplier<VelocityLimitControl> velocityLimitControl,
+				Supplier<RestartStrategy> restartStrategy){
+			this(name, coefficientControl, velocityLimitControl);
+			this.restartStrategy = restartStrategy;
+		}
+		Configuration setTopology(Supplier<NeighborhoodTopology> topology){
+			this.topology = topology;
+			return this;
+		}
+	}
+	/**
+	 * Runs one configuration on one problem and returns the number of evaluations until the
+	 * target was reached or -1 if it was not reached
+	 */
+	private static long run(Problem problem, Configuration configuration, long seed){
+		RandomNumberGenerator.UNIFORM.random.setSeed(seed);
+		RandomNumberGenerator.GAUSSIAN.random.setSeed(seed);
+		long[] evaluations = new long[1];
+		ParticleSwarm swarm = new ParticleSwarm(NUMBER_OF_PARTICLES, MAX_GENERATIONS, problem.maxDecPercRangePerOptStep, problem.parameters.get())
+				.setCoefficientControl(configuration.coefficientControl.get())
+				.setVelocityLimitControl(configuration.velocityLimitControl.get())
+				.setRestartStrategy(configuration.restartStrategy.get())
+				.setTopology(configuration.topology.get())
+				.setRandomSeed(seed)
+				.setVerbose(false)
+				.addEvaluationListener((generation, parameters, output) -> evaluations[0]++);
+		BestDiscoveredSolution solution = swarm.optimize(problem.costFunction);
+		if (solution != null && solution.getCostFunctionOutput().isOptimizationCriterionSatisified()){
+			return evaluations[0];
+		}
+		return -1;
+	}
+
+	public static void main(String[] args){
+		int numberOfRuns = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		Problem[] problems = {
+				new Problem("categorical", new TestCategoricalOptimization(), 0.01, () -> new ParticleParameter[]{
+						new ParticleParameter("mccormick","beale","himmelblau","crossintray","holdertable"),
+						new ParticleParameter(-10.0,10.0),
+						new ParticleParameter(-10.0,10.0)}),
+				new Problem("sphere-10", new Sphere(), 0.1, () -> {
+					ParticleParameter[] parameters = new ParticleParameter[10];
+					for (int i_param = 0;i_param < parameters.length;i_param++){
+						parameters[i_param] = new ParticleParameter(-5.12, 5.12);
+					}
+					return parameters;
+				}),
+				new Problem("mixed-10", new MixedSphere(), 0.1, () -> {
+					ParticleParameter[] parameters = new ParticleParameter[10];
+					for (int i_param = 0;i_param < parameters.length;i_param++){
+						parameters[i_param] = i_param % 2 == 0 ? new ParticleParameter(-100, 100) : new ParticleParameter(-100.0, 100.0);
+					}
+					return parameters;
+				})
+		};
+		Configuration[] configurations = {
+				new Configuration("constant", CoefficientControl::constant, VelocityLimitControl::fixed),
+				new Configuration("linear", () -> CoefficientControl.linearDecreasingInertia(0.9, 0.4), VelocityLimitControl::fixed),
+				new Configuration("nonlinear", () -> CoefficientControl.nonlinearDecreasingInertia(0.9, 0.4, 2.0), VelocityLimitControl::fixed),
+				new Configuration("constriction", () -> CoefficientControl.constriction(2.05, 2.05), VelocityLimitControl::fixed),
+				new Configuration("success-rate", () -> CoefficientControl.successRateAdaptiveInertia(0.0, 1.0), VelocityLimitControl::fixed),
+				new Configuration("linear+linear-vmax", () -> CoefficientControl.linearDecreasingInertia(0.9, 0.4),
+						() -> VelocityLimitControl.linearDecreasing(0.2, 0.01)),
+				new Configuration("constriction+adaptive-vmax", () -> CoefficientControl.constriction(2.05, 2.05),
+						() -> VelocityLimitControl.successAdaptive(0.2, 0.001, 0.5)),
+				new Configuration("constriction+partial-restart", () -> CoefficientControl.constriction(2.05, 2.05), VelocityLimitControl::fixed,
+						() -> RestartStrategy.partial(0.2)),
+				new Configuration("constriction+partial-restart+ipop", () -> CoefficientControl.constriction(2.05, 2.05), VelocityLimitControl::fixed,
+						() -> RestartStrategy.partial(0.2).setPopulationGrowth(2.0, 240)),
+				new Configuration("constriction+ring", () -> CoefficientControl.constriction(2.05, 2.05), VelocityLimitControl::fixed)
+						.setTopology(() -> NeighborhoodTopology.ring(1)),
+				new Configuration("constriction+von-neumann", () -> CoefficientControl.constriction(2.05, 2.05), VelocityLimitControl::fixed)
+						.setTopology(NeighborhoodTopology::vonNeumann)
+		};
+		System.out.println("Problem,Configuration,Success Rate,Median Evaluations,Mean Evaluations");
+		for (Problem problem : problems){
+			for (Configuration configuration : configurations){
+				long[] evaluations = new long[numberOfRuns];
+				int numberOfSuccesses = 0;
+				for (int i_run = 0;i_run < numberOfRuns;i_run++){
+					long runEvaluations = run(problem, configuration, i_run);
+					if (runEvaluations >= 0){
+						evaluations[numberOfSuccesses++] = runEvaluations;
+					}
+				}
+				long[] successful = Arrays.copyOf(evaluations, numberOfSuccesses);
+				Arrays.sort(successful);
+				String median = numberOfSuccesses > 0 ? String.valueOf(successful[numberOfSuccesses/2]) : "-";
+				String mean = numberOfSuccesses > 0 ? String.format("%.0f", Arrays.stream(successful).average().getAsDouble()) : "-";
+				System.out.println(problem.name + "," + configuration.name + "," + numberOfSuccesses + "/" + numberOfRuns
+						+ "," + median + "," + mean);
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package testfunctions;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.DynamicCostFunction_IF;
+import optimization.Parameter;
+import optimization.pso.CoefficientControl;
+import optimization.pso.DynamicStrategy;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+
+/**
+ * <pre>
+ * Compares tracking a moving optimum with a single <b>ParticleSwarm</b> in dynamic mode against
+ * starting a new swarm after every change. The cost function is a sphere whose center moves every
+ * time the target value has been reached, alternating between a random step and a return to an
+ * earlier center. The median number of evaluations needed to reach the target after a change is
+ * printed for both approaches.
+ * </pre>
+ * Usage: DynamicTrackingExample [numberOfChanges]
+ * @author Matt
+ *
+ */
+public class DynamicTrackingExample {
+
+	private static final int DIMENSIONS = 5;
+	private static final double TARGET = 1E-4;
+
+	/**
+	 * Sphere function centered on a point that can be moved during a run
+	 */
+	public static class MovingSphere implements DynamicCostFunction_IF{
+		private volatile double[] center = new double[DIMENSIONS];
+		private volatile long environmentVersion = 0;
+
+		public void moveTo(double[] center){
+			this.center = center.clone();
+			environmentVersion++;
+		}
+
+		public double[] getCenter(){
+			return center.clone();
+		}
+
+		@Override
+		public long getEnvironmentVersion() {
+			return environmentVersion;
+		}
+
+		@Override
+		public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+			double[] currentCenter = center;
+			double sum = 0.0;
+			for (int i_param = 0;i_param < parameters.length;i_param++){
+				double x = parameters[i_param].getCurrentValueAsDouble() - currentCenter[i_param];
+				sum += x*x;
+			}
+			return new ConvergenceBenchmark.TargetOutput(sum, TARGET);
+		}
+	}
+
+	private static ParticleSwarm createSwarm(int maxGenerations, long seed){
+		ParticleParameter[] parameters = new ParticleParameter[DIMENSIONS];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			parameters[i_param] = new ParticleParameter(-5.12, 5.12);
+		}
+		return new ParticleSwarm(20, maxGenerations, 0.1, parameters)
+				.setCoefficientControl(CoefficientControl.constriction(2.05, 2.05))
+				.setConvergenceLimit(Integer.MAX_VALUE)
+				.setRandomSeed(seed)
+				.setVerbose(false);
+	}
+	/**
+	 * Returns the centers of the environments: random steps of the given size, every third
+	 * environment returning to the center before the last one
+	 */
+	private static double[][] getCenters(int numberOfChanges, double stepSize, long seed){
+		Random random = new Random(seed);
+		double[][] centers = new double[numberOfChanges + 1][DIMENSIONS];
+		for (int i_env = 1;i_env <= numberOfChanges;i_env++){
+			if (i_env % 3 == 0){
+				centers[i_env] = centers[i_env - 2].clone();
+				continue;
+			}
+			for (int i_param = 0;i_param < DIMENSIONS;i_param++){
+				double step = stepSize*(2.0*random.nextDouble() - 1.0);
+				centers[i_env][i_param] = Math.max(-4.0, Math.min(4.0, centers[i_env - 1][i_param] + step));
+			}
+		}
+		return centers;
+	}
+
+	private static double median(long[] values){
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length/2];
+	}
+
+	public static void main(String[] args){
+		int numberOfChanges = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		double[][] centers = getCenters(numberOfChanges, 0.3, 7);
+		//Dynamic mode: the listener moves the optimum as soon as the target is reached
+		MovingSphere movingSphere = new MovingSphere();
+		long[] evaluationsPerEnvironment = new long[numberOfChanges + 1];
+		int[] environment = {0};
+		ParticleSwarm dynamicSwarm = createSwarm(1000000, 1)
+				.setDynamicStrategy(DynamicStrategy.withMemory(5));
+		dynamicSwarm.addEvaluationListener((generation, parameters, output) -> {
+			if (environment[0] > numberOfChanges){
+				return;
+			}
+			evaluationsPerEnvironment[environment[0]]++;
+			if (output.isOptimizationCriterionSatisified()){
+				environment[0]++;
+				if (environment[0] <= numberOfChanges){
+					movingSphere.moveTo(centers[environment[0]]);
+				} else {
+					//Stop the run by making the target unreachable
+					dynamicSwarm.setOptimizationToRunForPeriodOfTime(0);
+				}
+			}
+		});
+		dynamicSwarm.setOptimizationToRunForPeriodOfTime(60).optimize(movingSphere);
+		//Cold start: a new swarm for every environment
+		long[] coldEvaluations = new long[numberOfChanges + 1];
+		for (int i_env = 0;i_env <= numberOfChanges;i_env++){
+			MovingSphere staticSphere = new MovingSphere();
+			staticSphere.moveTo(centers[i_env]);
+			long[] evaluations = new long[1];
+			int env = i_env;
+			createSwarm(2000, env + 1)
+					.addEvaluationListener((generation, parameters, output) -> evaluations[0]++)
+					.optimize(staticSphere);
+			coldEvaluations[i_env] = evaluations[0];
+		}
+		long[] trackedEvaluations = Arrays.copyOfRange(evaluationsPerEnvironment, 1, numberOfChanges + 1);
+		long[] restartedEvaluations = Arrays.copyOfRange(coldEvaluations, 1, numberOfChanges + 1);
+		System.out.println("Changes tracked: " + Math.min(environment[0], numberOfChanges + 1) + " of " + (numberOfChanges + 1)
+				+ " environments, " + dynamicSwarm.getNumberOfEnvironmentChanges() + " changes detected");
+		System.out.println("Approach,Median Evaluations After Change,Total Evaluations");
+		System.out.println("dynamic," + median(trackedEvaluations) + "," + Arrays.stream(trackedEvaluations).sum());
+		System.out.println("cold start," + median(restartedEvaluations) + "," + Arrays.stream(restartedEvaluations).sum());
+	}
+}
@@ -0,0 +1,84 @@
+package testfunctions;
+
+import java.util.List;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunction_IF;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.SolutionSnapshot;
+import optimization.archive.ArchivedCostFunction;
+import optimization.archive.EvaluationArchive;
+import optimization.expression.ExpressionCostFunction;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+
+/**
+ * <pre>
+ * Runs the <b>ParticleSwarm</b> on the Holder table function with a fixed number of generations,
+ * once evaluating every point and once through an <b>ArchivedCostFunction</b> with each
+ * <b>NearDuplicatePolicy</b>, and prints the evaluations of the function that were made and
+ * saved and the best value found. Then lists the archived points nearest to the last solution.
+ * </pre>
+ * Usage: EvaluationArchiveExample [runs] [epsilon]
+ * @author Matt
+ *
+ */
+public class EvaluationArchiveExample {
+
+	private static final int NUMBER_OF_PARTICLES = 30;
+	private static final int MAX_GENERATIONS = 300;
+
+	private static ParticleParameter[] getParameters(){
+		return new ParticleParameter[]{new ParticleParameter(-10.0, 10.0), new ParticleParameter(-10.0, 10.0)};
+	}
+
+	private static double getValue(BestDiscoveredSolution solution){
+		return ((ScalarCostFunctionOutput_IF)solution.getCostFunctionOutput()).getFitness();
+	}
+
+	private static BestDiscoveredSolution optimize(CostFunction_IF costFunction){
+		ParticleSwarm swarm = new ParticleSwarm(NUMBER_OF_PARTICLES, MAX_GENERATIONS, 0.1, getParameters()).setVerbose(false);
+		BestDiscoveredSolution solution = swarm.optimize(costFunction);
+		//The current best also covers the swarm best found after the last restart
+		if (swarm.getCurrentBest() != null && getValue(swarm.getCurrentBest()) < getValue(solution)){
+			return swarm.getCurrentBest();
+		}
+		return solution;
+	}
+
+	public static void main(String[] args){
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		double epsilon = args.length > 1 ? Double.parseDouble(args[1]) : 1E-3;
+		ExpressionCostFunction holderTable = new ExpressionCostFunction(ParallelTemperingExample.HOLDER_TABLE,
+				new String[]{"x","y"}, getParameters());
+		double plainSum = 0.0;
+		System.out.println("Policy,Evaluations,Skipped,Mean Best Value");
+		for (int i_run = 0;i_run < runs;i_run++){
+			plainSum += getValue(optimize(holderTable));
+		}
+		System.out.println(String.format("none,%d,0,%.6f", runs*NUMBER_OF_PARTICLES*MAX_GENERATIONS, plainSum/runs));
+		ArchivedCostFunction archived = null;
+		BestDiscoveredSolution solution = null;
+		for (ArchivedCostFunction.NearDuplicatePolicy policy : ArchivedCostFunction.NearDuplicatePolicy.values()){
+			long evaluations = 0;
+			long skipped = 0;
+			double sum = 0.0;
+			for (int i_run = 0;i_run < runs;i_run++){
+				archived = new ArchivedCostFunction(holderTable, epsilon, getParameters()).setNearDuplicatePolicy(policy);
+				solution = optimize(archived);
+				evaluations += archived.getNumberOfEvaluations();
+				skipped += archived.getNumberOfSkippedEvaluations();
+				sum += getValue(solution);
+			}
+			System.out.println(String.format("%s,%d,%d,%.6f", policy.toString(), evaluations, skipped, sum/runs));
+		}
+		System.out.println("Archived points nearest to " + solution.getParameterValues() + ":");
+		EvaluationArchive archive = archived.getArchive();
+		double[] values = solution.getSnapshot().getValues();
+		List<SolutionSnapshot> nearest = archive.findNearest(values, 5);
+		for (SolutionSnapshot point : nearest){
+			System.out.println(String.format("%s distance %.2e value %.6f", point.getParameterValues(),
+					archive.getDistance(values, point), point.getFitness()));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package testfunctions;
+
+import java.util.Random;
+
+import optimization.BestDiscoveredSolution;
+import optimization.OptUtils;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.BatchCostFunction_IF;
+import optimization.expression.ExpressionCostFunction;
+import optimization.ga.GeneticAlgorithm;
+import optimization.pso.ParticleParameter;
+
+/**
+ * <pre>
+ * Defines the objective of <b>TestCategoricalOptimization</b> as the text of an
+ * <b>ExpressionCostFunction</b>, checks that both give the same values on random points,
+ * compares the time per point of the hand written and the compiled expression and optimizes
+ * the expression with the <b>GeneticAlgorithm</b>.
+ * </pre>
+ * Usage: ExpressionCostFunctionExample [numberOfPoints] [repetitions]
+ * @author Matt
+ *
+ */
+public class ExpressionCostFunctionExample {
+
+	static final String CATEGORICAL_EXPRESSION =
+			"function == 'mccormick' ? sin(x + y) + (x - y)^2 - 1.5*x + 2.5*y + 1.0"
+			+ " : function == 'beale' ? (1.5 - x + x*y)^2 + (2.25 - x + x*(y*y))^2 + (2.625 - x + x*(y*y)*y)^2"
+			+ " : function == 'himmelblau' ? (x*x + y - 11.0)^2 + (y*y + x - 7.0)^2"
+			+ " : function == 'crossintray' ? -0.0001*pow(abs(sin(x)*sin(y)*exp(abs(100 - hypot(x, y)/pi))) + 1, 0.1)"
+			+ " : function == 'holdertable' ? -abs(sin(x)*cos(y)*exp(abs(1 - hypot(x, y)/pi)))"
+			+ " : 0";
+
+	private static ParticleParameter[] getParameters(){
+		return new ParticleParameter[]{
+				new ParticleParameter("mccormick","beale","himmelblau","crossintray","holdertable"),
+				new ParticleParameter(-10.0,10.0),
+				new ParticleParameter(-10.0,10.0)};
+	}
+	/**
+	 * Returns the best time per point in nanoseconds of evaluating the points one at a time
+	 */
+	private static double timeScalar(BatchCostFunction_IF costFunction, Parameter[][] points, int repetitions, double[] checksum){
+		long bestNanos = Long.MAX_VALUE;
+		for (int i_rep = 0;i_rep < repetitions;i_rep++){
+			long startTime = System.nanoTime();
+			for (Parameter[] point : points){
+				checksum[0] += ((ScalarCostFunctionOutput_IF)costFunction.evaluateCostFunction(point)).getFitness();
+			}
+			bestNanos = Math.min(bestNanos, System.nanoTime() - startTime);
+		}
+		return Double.valueOf(bestNanos)/points.length;
+	}
+	/**
+	 * Returns the best time per point in nanoseconds of evaluating the points in one batch
+	 */
+	private static double timeBatch(BatchCostFunction_IF costFunction, Parameter[] template, double[][] values, int repetitions,
+			double[] checksum){
+		long bestNanos = Long.MAX_VALUE;
+		int numberOfPoints = values[0].length;
+		for (int i_rep = 0;i_rep < repetitions;i_rep++){
+			long startTime = System.nanoTime();
+			checksum[0] += ((ScalarCostFunctionOutput_IF)costFunction.evaluateBatch(template, values, numberOfPoints)[numberOfPoints - 1]).getFitness();
+			bestNanos = Math.min(bestNanos, System.nanoTime() - startTime);
+		}
+		return Double.valueOf(bestNanos)/numberOfPoints;
+	}
+
+	public static void main(String[] args){
+		int numberOfPoints = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		ParticleParameter[] template = getParameters();
+		TestCategoricalOptimization handWritten = new TestCategoricalOptimization();
+		ExpressionCostFunction expression = new ExpressionCostFunction(CATEGORICAL_EXPRESSION,
+				new String[]{"function","x","y"}, template).setTarget(-19.208);
+		Random random = new Random(1);
+		Parameter[][] points = new Parameter[numberOfPoints][];
+		double[][] values = new double[template.length][numberOfPoints];
+		int numberOfDifferences = 0;
+		for (int i_point = 0;i_point < numberOfPoints;i_point++){
+			points[i_point] = OptUtils.cloneParameterArray(template);
+			points[i_point][0].setCurrentValue(random.nextInt(template[0].categoricalMap.size()));
+			points[i_point][1].setCurrentValue(-10.0 + 20.0*random.nextDouble());
+			points[i_point][2].setCurrentValue(-10.0 + 20.0*random.nextDouble());
+			for (int i_param = 0;i_param < template.length;i_param++){
+				values[i_param][i_point] = points[i_point][i_param].getCurrentValueAsDouble();
+			}
+			double handValue = ((ScalarCostFunctionOutput_IF)handWritten.evaluateCostFunction(points[i_point])).getFitness();
+			double expressionValue = ((ScalarCostFunctionOutput_IF)expression.evaluateCostFunction(points[i_point])).getFitness();
+			if (Double.compare(handValue, expressionValue) != 0){
+				numberOfDifferences++;
+			}
+		}
+		System.out.println("Points with different values: " + numberOfDifferences + " of " + numberOfPoints);
+		double[] checksum = new double[1];
+		System.out.println("Cost Function,Scalar ns/point,Batch ns/point");
+		System.out.println("hand written," + timeScalar(handWritten, points, repetitions, checksum) + ","
+				+ timeBatch(handWritten, template, values, repetitions, checksum));
+		System.out.println("expression," + timeScalar(expression, points, repetitions, checksum) + ","
+				+ timeBatch(expression, template, values, repetitions, checksum));
+		GeneticAlgorithm geneticAlgorithm = new GeneticAlgorithm(30, 500, getParameters())
+				.setNumberOfElites(2)
+				.setRandomSeed(1)
+				.setVerbose(false);
+		BestDiscoveredSolution solution = geneticAlgorithm.optimize(expression);
+		solution.printSolution();
+		if (Double.isNaN(checksum[0])){
+			System.out.println("NaN");
+		}
+	}
+}
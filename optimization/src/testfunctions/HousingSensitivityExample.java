@@ -0,0 +1,88 @@
+package testfunctions;
+
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.Parameter;
+import optimization.sensitivity.ElementaryEffects;
+import optimization.sensitivity.MorrisAnalysis;
+import optimization.sensitivity.SobolAnalysis;
+import optimization.sensitivity.SobolIndices;
+
+/**
+ * <pre>
+ * Finds out which inputs of the <b>MarketCorrectionThenBounceBack</b> housing model matter for
+ * the difference between owning and renting after a fixed number of months and for the average
+ * monthly out of pocket cost: sale price, appreciation, HOA fee, number of roommates and
+ * interest rate. The inputs are screened with a <b>MorrisAnalysis</b> and then measured with a
+ * <b>SobolAnalysis</b>.
+ * </pre>
+ * Usage: HousingSensitivityExample [numberOfSamples] [months]
+ * @author Matt
+ *
+ */
+public class HousingSensitivityExample {
+
+	static final String[] INPUT_NAMES = {"salePrice","appreciation","hoaFee","roommates","interestRate"};
+
+	/**
+	 * Cost function over the inputs of the housing model. A new model is created for every
+	 * evaluation, since the model keeps state between evaluations, which also makes the cost
+	 * function thread safe.
+	 */
+	static class HousingInputs implements CostFunction_IF{
+		private final int months;
+
+		HousingInputs(int months){
+			this.months = months;
+		}
+
+		static Parameter[] getParameters(){
+			return new Parameter[]{
+					new Parameter(300000.0, 500000.0),
+					new Parameter(0.5, 4.0),
+					new Parameter(100.0, 500.0),
+					new Parameter(0, 2),
+					new Parameter(2.5, 7.0)};
+		}
+
+		@Override
+		public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+			MarketCorrectionThenBounceBack model = new MarketCorrectionThenBounceBack(parameters[0].getCurrentValueAsDouble(),
+					parameters[1].getCurrentValueAsDouble());
+			model.setHoaFee(parameters[2].getCurrentValueAsDouble());
+			model.setNumberOfRoommates(parameters[3].getCurrentValue().intValue());
+			model.interestRate = parameters[4].getCurrentValueAsDouble();
+			Parameter monthsParameter = new Parameter(0, 360);
+			monthsParameter.setCurrentValue(months);
+			return model.evaluateCostFunction(monthsParameter);
+		}
+	}
+
+	public static void main(String[] args){
+		long numberOfSamples = args.length > 0 ? Long.parseLong(args[0]) : 1 << 16;
+		int months = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+		HousingInputs costFunction = new HousingInputs(months);
+		ElementaryEffects effects = new MorrisAnalysis(100, HousingInputs.getParameters())
+				.setParameterNames(INPUT_NAMES)
+				.setRandomSeed(1)
+				.analyze(costFunction);
+		System.out.println("Morris screening of the difference after " + months + " months");
+		System.out.println(effects);
+		long startTime = System.nanoTime();
+		SobolIndices difference = new SobolAnalysis(numberOfSamples, HousingInputs.getParameters())
+				.setParameterNames(INPUT_NAMES)
+				.setRandomSeed(1)
+				.analyze(costFunction);
+		double seconds = (System.nanoTime() - startTime)/1E9;
+		System.out.println("Sobol indices of the difference after " + months + " months");
+		System.out.println(difference);
+		System.out.println("Evaluations/s: " + Math.round(difference.getNumberOfEvaluations()/seconds));
+		SobolIndices monthlyCost = new SobolAnalysis(numberOfSamples, HousingInputs.getParameters())
+				.setParameterNames(INPUT_NAMES)
+				.setRandomSeed(1)
+				.setOutputValue((output) -> ((MarketCorrectionThenBounceBack.HomeValueOutput)output).getMonthlyCost())
+				.analyze(costFunction);
+		System.out.println("Sobol indices of the average monthly cost");
+		System.out.println(monthlyCost);
+	}
+}
@@ -0,0 +1,460 @@
+package testfunctions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import optimization.OptimizationAbortedException;
+import optimization.Parameter;
+import optimization.QuantileSketch;
+import optimization.ScalarCostFunctionOutput_IF;
+
+/**
+ * <pre>
+ * Monte Carlo engine for the market correction scenario of <b>MarketCorrectionThenBounceBack</b>.
+ * Instead of a single what-if, every path samples the correction per year, the months of
+ * correction, the rate of appreciation after the correction, the rent growth and the interest
+ * rate from configurable distributions and runs the same monthly model. For every path the
+ * break-even month (the first month in which owning has caught up with renting) and the net
+ * difference between owning and renting at a holding period are recorded in streaming quantile
+ * sketches.
+ * </pre>
+ * <pre>
+ * The paths are split into fixed size blocks, each simulated with its own <b>SplittableRandom</b>
+ * stream split from the seed, so the results only depend on the seed and number of paths and
+ * not on the number of threads. The blocks are simulated in parallel and their sketches merged.
+ * </pre>
+ * <pre>
+ * The distributions default to the fixed values of the model and rent that follows the home
+ * value, in which case every path follows the deterministic model. The growth factors are
+ * applied incrementally instead of with a power per month, so the net values only agree with
+ * <b>MarketCorrectionThenBounceBack</b> up to rounding. <b>main</b> checks the agreement before
+ * simulating.
+ * </pre>
+ * Usage: MarketScenarioEngine [numberOfPaths]
+ * @author Matt
+ *
+ */
+public class MarketScenarioEngine implements AutoCloseable {
+
+	private static final int PATHS_PER_BLOCK = 16384;
+	//Draws of a truncated normal sample before the bounds are considered unreachable
+	private static final int MAX_TRUNCATED_NORMAL_DRAWS = 10000;
+
+	/**
+	 * Distribution of a sampled scenario input
+	 */
+	public interface Distribution{
+		public double sample(SplittableRandom random);
+
+		public static Distribution fixed(double value){
+			return (random) -> value;
+		}
+
+		public static Distribution uniform(double lower, double upper){
+			return (random) -> lower + (upper - lower)*random.nextDouble();
+		}
+
+		public static Distribution normal(double mean, double standardDeviation){
+			return (random) -> mean + standardDeviation*nextGaussian(random);
+		}
+		/**
+		 * Normal distribution resampled until the value is within the bounds. A sample fails after
+		 * <b>MAX_TRUNCATED_NORMAL_DRAWS</b> draws outside the bounds, which only happens if the
+		 * bounds hold a negligible part of the normal distribution.
+		 */
+		public static Distribution truncatedNormal(double mean, double standardDeviation, double lower, double upper){
+			if (!(lower < upper)){
+				throw new IllegalArgumentException("The lower bound " + lower + " must be less than the upper bound " + upper);
+			}
+			if (!(standardDeviation > 0.0)){
+				throw new IllegalArgumentException("The standard deviation must be positive");
+			}
+			return (random) -> {
+				for (int i_draw = 0;i_draw < MAX_TRUNCATED_NORMAL_DRAWS;i_draw++){
+					double value = mean + standardDeviation*nextGaussian(random);
+					if (value >= lower && value <= upper){
+						return value;
+					}
+				}
+				throw new IllegalStateException("No value of the normal distribution (" + mean + ", " + standardDeviation
+						+ ") within [" + lower + ", " + upper + "] after " + MAX_TRUNCATED_NORMAL_DRAWS + " draws");
+			};
+		}
+
+		public static Distribution triangular(double lower, double mode, double upper){
+			double modeFraction = (mode - lower)/(upper - lower);
+			return (random) -> {
+				double u = random.nextDouble();
+				if (u < modeFraction){
+					return lower + Math.sqrt(u*(upper - lower)*(mode - lower));
+				}
+				return upper - Math.sqrt((1.0 - u)*(upper - lower)*(upper - mode));
+			};
+		}
+		/**
+		 * Samples a standard normal value with the polar method
+		 */
+		static double nextGaussian(SplittableRandom random){
+			double x, y, squaredRadius;
+			do {
+				x = 2.0*random.nextDouble() - 1.0;
+				y = 2.0*random.nextDouble() - 1.0;
+				squaredRadius = x*x + y*y;
+			} while (squaredRadius >= 1.0 || squaredRadius == 0.0);
+			return x*Math.sqrt(-2.0*Math.log(squaredRadius)/squaredRadius);
+		}
+	}
+	/**
+	 * Break-even and net value distributions of a simulation
+	 */
+	public static class ScenarioResults{
+		private final QuantileSketch breakEvenMonths;
+		private final QuantileSketch netAtHoldingPeriod;
+		private final long numberNeverBreakingEven;
+		private final int horizonMonths;
+
+		private ScenarioResults(QuantileSketch breakEvenMonths, QuantileSketch netAtHoldingPeriod, long numberNeverBreakingEven, int horizonMonths){
+			this.breakEvenMonths = breakEvenMonths;
+			this.netAtHoldingPeriod = netAtHoldingPeriod;
+			this.numberNeverBreakingEven = numberNeverBreakingEven;
+			this.horizonMonths = horizonMonths;
+		}
+		/**
+		 * Returns the break-even month at the given quantile. Paths that do not break even
+		 * within the horizon count as one month past the horizon.
+		 * @param quantile
+		 * @return
+		 */
+		public double getBreakEvenMonth(double quantile){
+			return breakEvenMonths.getQuantile(quantile);
+		}
+		/**
+		 * Returns the net value of owning minus renting at the holding period at the given quantile
+		 * @param quantile
+		 * @return
+		 */
+		public double getNetAtHoldingPeriod(double quantile){
+			return netAtHoldingPeriod.getQuantile(quantile);
+		}
+		/**
+		 * Returns the probability that owning has caught up with renting by the given month
+		 * @param month
+		 * @return
+		 */
+		public double getProbabilityOfBreakingEvenBy(double month){
+			return breakEvenMonths.getCumulativeProbability(month);
+		}
+
+		public double getFractionNeverBreakingEven(){
+			return Double.valueOf(numberNeverBreakingEven)/breakEvenMonths.getCount();
+		}
+
+		public long getNumberOfPaths(){
+			return breakEvenMonths.getCount();
+		}
+
+		public int getHorizonMonths(){
+			return horizonMonths;
+		}
+
+		public QuantileSketch getBreakEvenSketch(){
+			return breakEvenMonths;
+		}
+
+		public QuantileSketch getNetAtHoldingPeriodSketch(){
+			return netAtHoldingPeriod;
+		}
+	}
+
+	private Distribution correctionPercPerYear = null;
+	private Distribution monthsCorrection = null;
+	private Distribution rateOfAppreciation = null;
+	//Annual rent growth in percent, rent follows the home value if not set
+	private Distribution rentGrowth = null;
+	private Distribution interestRate = null;
+	private long numberOfPaths = 100000;
+	private long seed = 0;
+	private int holdingMonths = 60;
+	private double relativeAccuracy = 0.005;
+	private final int numberOfThreads;
+	private final ExecutorService executor;
+
+	/**
+	 * Constructor that simulates the paths on every available processor
+	 */
+	public MarketScenarioEngine(){
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public MarketScenarioEngine(int numberOfThreads){
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.executor = Executors.newFixedThreadPool(this.numberOfThreads, (runnable) -> {
+			Thread thread = new Thread(runnable, "market-scenario");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public MarketScenarioEngine setCorrectionPercPerYear(Distribution correctionPercPerYear){
+		this.correctionPercPerYear = correctionPercPerYear;
+		return this;
+	}
+
+	public MarketScenarioEngine setMonthsCorrection(Distribution monthsCorrection){
+		this.monthsCorrection = monthsCorrection;
+		return this;
+	}
+
+	public MarketScenarioEngine setRateOfAppreciation(Distribution rateOfAppreciation){
+		this.rateOfAppreciation = rateOfAppreciation;
+		return this;
+	}
+	/**
+	 * Sets the distribution of the annual rent growth in percent. By default rent follows the
+	 * home value as in the deterministic model.
+	 * @param rentGrowth
+	 * @return
+	 */
+	public MarketScenarioEngine setRentGrowth(Distribution rentGrowth){
+		this.rentGrowth = rentGrowth;
+		return this;
+	}
+
+	public MarketScenarioEngine setInterestRate(Distribution interestRate){
+		this.interestRate = interestRate;
+		return this;
+	}
+	/**
+	 * Sets the number of paths and the seed they are sampled from. Simulations with the same
+	 * seed use common random numbers, which makes the results of different models comparable.
+	 * @param numberOfPaths
+	 * @param seed
+	 * @return
+	 */
+	public MarketScenarioEngine setPaths(long numberOfPaths, long seed){
+		this.numberOfPaths = numberOfPaths;
+		this.seed = seed;
+		return this;
+	}
+	/**
+	 * Sets the month at which the net value of owning minus renting is recorded. The default is 60.
+	 * It must be within the mortgage term of the simulated model, which is checked by <b>simulate</b>.
+	 * @param holdingMonths
+	 * @return
+	 */
+	public MarketScenarioEngine setHoldingMonths(int holdingMonths){
+		if (holdingMonths < 1){
+			throw new IllegalArgumentException("The holding period must be at least one month");
+		}
+		this.holdingMonths = holdingMonths;
+		return this;
+	}
+
+	public MarketScenarioEngine setRelativeAccuracy(double relativeAccuracy){
+		this.relativeAccuracy = relativeAccuracy;
+		return this;
+	}
+	/**
+	 * Simulates the paths for the home, rent and financing of the given model with the sampled
+	 * market inputs. The horizon is the mortgage term.
+	 * @param model
+	 * @return
+	 */
+	public ScenarioResults simulate(MarketCorrectionThenBounceBack model){
+		if (holdingMonths > model.mortgageTerm){
+			throw new IllegalArgumentException("The holding period of " + holdingMonths
+					+ " months is longer than the mortgage term of " + model.mortgageTerm + " months");
+		}
+		int numberOfBlocks = (int)((numberOfPaths + PATHS_PER_BLOCK - 1)/PATHS_PER_BLOCK);
+		SplittableRandom rootRandom = new SplittableRandom(seed);
+		List<Callable<Object[]>> blocks = new ArrayList<Callable<Object[]>>(numberOfBlocks);
+		for (int i_block = 0;i_block < numberOfBlocks;i_block++){
+			SplittableRandom blockRandom = rootRandom.split();
+			long blockPaths = Math.min(PATHS_PER_BLOCK, numberOfPaths - Long.valueOf(i_block)*PATHS_PER_BLOCK);
+			blocks.add(() -> simulateBlock(model, blockRandom, blockPaths));
+		}
+		QuantileSketch breakEvenMonths = new QuantileSketch(relativeAccuracy);
+		QuantileSketch netAtHoldingPeriod = new QuantileSketch(relativeAccuracy);
+		long numberNeverBreakingEven = 0;
+		try {
+			for (Future<Object[]> block : executor.invokeAll(blocks)){
+				Object[] blockResults = block.get();
+				breakEvenMonths.merge((QuantileSketch)blockResults[0]);
+				netAtHoldingPeriod.merge((QuantileSketch)blockResults[1]);
+				numberNeverBreakingEven += (Long)blockResults[2];
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OptimizationAbortedException("Scenario simulation was interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		return new ScenarioResults(breakEvenMonths, netAtHoldingPeriod, numberNeverBreakingEven, model.mortgageTerm);
+	}
+
+	private Object[] simulateBlock(MarketCorrectionThenBounceBack model, SplittableRandom random, long blockPaths){
+		QuantileSketch breakEvenMonths = new QuantileSketch(relativeAccuracy);
+		QuantileSketch netAtHoldingPeriod = new QuantileSketch(relativeAccuracy);
+		long numberNeverBreakingEven = 0;
+		HashMap<String,Double> lossPercentages = MarketCorrectionThenBounceBack.getLossPercentages();
+		double pmiPercentage = lossPercentages.containsKey("pmi") ? lossPercentages.remove("pmi") : 0.0;
+		double sunkPercentage = lossPercentages.values().stream().mapToDouble(Double::doubleValue).sum();
+		double[] pathResults = new double[2];
+		for (long i_path = 0;i_path < blockPaths;i_path++){
+			double correction = sample(correctionPercPerYear, model.correctionPercPerYear, random);
+			double correctionMonths = sample(monthsCorrection, model.monthsCorrection, random);
+			double appreciation = sample(rateOfAppreciation, model.rateOfAppreciation, random);
+			double rent = rentGrowth != null ? rentGrowth.sample(random) : Double.NaN;
+			double interest = sample(interestRate, model.interestRate, random);
+			simulatePath(model, correction, correctionMonths, appreciation, rent, interest, sunkPercentage, pmiPercentage, pathResults);
+			if (pathResults[0] > model.mortgageTerm){
+				numberNeverBreakingEven++;
+			}
+			breakEvenMonths.add(pathResults[0]);
+			netAtHoldingPeriod.add(pathResults[1]);
+		}
+		return new Object[]{breakEvenMonths, netAtHoldingPeriod, Long.valueOf(numberNeverBreakingEven)};
+	}
+
+	private static double sample(Distribution distribution, double fixedValue, SplittableRandom random){
+		return distribution != null ? distribution.sample(random) : fixedValue;
+	}
+	/**
+	 * Runs the monthly model of <b>MarketCorrectionThenBounceBack</b> for one set of market inputs
+	 * until both the break-even month and the holding period are reached. The monthly growth
+	 * factors are applied incrementally instead of with a power per month.
+	 * @param results receives the break-even month (horizon + 1 if never) and the net value of
+	 * owning minus renting at the holding period
+	 */
+	private void simulatePath(MarketCorrectionThenBounceBack model, double correctionPercPerYear, double monthsCorrection,
+			double rateOfAppreciation, double rentGrowth, double interestRate, double sunkPercentage, double pmiPercentage,
+			double[] results){
+		double salePrice = model.salePrice;
+		double owedValue = salePrice - model.downPayment;
+		double r = interestRate/12.0/100.0;
+		double mortgagePayment = owedValue*r*Math.pow(1.0 + r,model.mortgageTerm)/(Math.pow(1.0 + r,model.mortgageTerm) - 1.0);
+		double totalSunkCostHome = model.downPayment + model.percClosingCost/100.0*salePrice;
+		double monthlyOwnershipCost = model.hoaFee - model.roommateRent*model.numberOfRoommates;
+		double appreciationFactor = Math.pow(1.0 + rateOfAppreciation/100.0, 1.0/12.0);
+		double correctionFactor = Math.pow(1.0 - correctionPercPerYear/100.0, 1.0/12.0);
+		double rentFactor = Double.isNaN(rentGrowth) ? Double.NaN : Math.pow(1.0 + rentGrowth/100.0, 1.0/12.0);
+		double totalCorrection = Math.pow(1.0 - correctionPercPerYear/100.0, monthsCorrection/12.0);
+		double appreciationPower = 1.0;
+		double correctionPower = 1.0;
+		double rentMultiplier = 1.0;
+		boolean chargingPmi = pmiPercentage > 0.0;
+		double rentNet = 0.0;
+		results[0] = model.mortgageTerm + 1;
+		results[1] = Double.NaN;
+		boolean brokenEven = false;
+		for (int i_month = 0;i_month < model.mortgageTerm;i_month++){
+			double appreciationMultiplier;
+			if (monthsCorrection <= 0){
+				appreciationMultiplier = appreciationPower;
+			} else if (i_month <= monthsCorrection){
+				appreciationMultiplier = correctionPower;
+			} else {
+				appreciationMultiplier = appreciationPower*totalCorrection;
+			}
+			double appreciatedHomeValue = salePrice*appreciationMultiplier;
+			totalSunkCostHome += monthlyOwnershipCost*appreciationMultiplier;
+			//Same PMI rule as the deterministic model
+			if (chargingPmi && salePrice - owedValue < 0.2*salePrice){
+				chargingPmi = false;
+			}
+			totalSunkCostHome += appreciatedHomeValue*(sunkPercentage + (chargingPmi ? pmiPercentage : 0.0))/100.0/12.0;
+			double interestPaid = (1 + r)/model.mortgageTerm*owedValue;
+			owedValue -= mortgagePayment - interestPaid;
+			totalSunkCostHome += interestPaid;
+			rentNet -= model.startRent*(Double.isNaN(rentFactor) ? appreciationMultiplier : rentMultiplier);
+
+			double net = appreciatedHomeValue - totalSunkCostHome - owedValue - rentNet;
+			int month = i_month + 1;
+			if (!brokenEven && net >= 0.0){
+				results[0] = month;
+				brokenEven = true;
+			}
+			if (month == holdingMonths){
+				results[1] = net;
+			}
+			if (brokenEven && month >= holdingMonths){
+				return;
+			}
+			appreciationPower *= appreciationFactor;
+			correctionPower *= correctionFactor;
+			if (!Double.isNaN(rentFactor)){
+				rentMultiplier *= rentFactor;
+			}
+		}
+	}
+
+	@Override
+	public void close(){
+		executor.shutdownNow();
+	}
+	/**
+	 * Compares the net value of a path with the fixed inputs of the model against the deterministic
+	 * model for several holding periods and returns the largest relative difference
+	 */
+	private static double getDifferenceFromDeterministicModel(double salePrice, double rateOfAppreciation){
+		HashMap<String,Double> lossPercentages = MarketCorrectionThenBounceBack.getLossPercentages();
+		double pmiPercentage = lossPercentages.containsKey("pmi") ? lossPercentages.remove("pmi") : 0.0;
+		double sunkPercentage = lossPercentages.values().stream().mapToDouble(Double::doubleValue).sum();
+		double maxRelativeDifference = 0.0;
+		double[] pathResults = new double[2];
+		try (MarketScenarioEngine engine = new MarketScenarioEngine(1)){
+			for (int holdingMonths : new int[]{1, 12, 13, 60, 120, 359, 360}){
+				//The deterministic model drops its PMI once, so every holding period gets a new model
+				MarketCorrectionThenBounceBack model = new MarketCorrectionThenBounceBack(salePrice, rateOfAppreciation);
+				engine.setHoldingMonths(holdingMonths);
+				engine.simulatePath(model, model.correctionPercPerYear, model.monthsCorrection, model.rateOfAppreciation, Double.NaN,
+						model.interestRate, sunkPercentage, pmiPercentage, pathResults);
+				Parameter months = new Parameter(0, model.mortgageTerm);
+				months.setCurrentValue(holdingMonths);
+				double deterministicNet = ((ScalarCostFunctionOutput_IF)model.evaluateCostFunction(1, months)).getFitness();
+				double difference = Math.abs(Math.abs(pathResults[1]) - deterministicNet)/Math.max(1.0, deterministicNet);
+				maxRelativeDifference = Math.max(maxRelativeDifference, difference);
+			}
+		}
+		return maxRelativeDifference;
+	}
+
+	public static void main(String[] args){
+		long numberOfPaths = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		double maxRelativeDifference = getDifferenceFromDeterministicModel(400000.0, 2.5);
+		System.out.println("Largest relative difference of a fixed path from the deterministic model: " + maxRelativeDifference);
+		if (maxRelativeDifference > 1E-9){
+			throw new IllegalStateException("Fixed paths differ from the deterministic model by " + maxRelativeDifference);
+		}
+		MarketCorrectionThenBounceBack model = new MarketCorrectionThenBounceBack(400000.0, 2.5);
+		try (MarketScenarioEngine engine = new MarketScenarioEngine()){
+			engine.setCorrectionPercPerYear(Distribution.triangular(0.0, 8.0, 25.0))
+				.setMonthsCorrection(Distribution.uniform(0.0, 36.0))
+				.setRateOfAppreciation(Distribution.normal(3.0, 1.5))
+				.setRentGrowth(Distribution.normal(3.0, 1.0))
+				.setInterestRate(Distribution.truncatedNormal(4.0, 1.0, 2.0, 8.0))
+				.setPaths(numberOfPaths, 42);
+			long startTime = System.nanoTime();
+			ScenarioResults results = engine.simulate(model);
+			double elapsedSeconds = (System.nanoTime() - startTime)/1E9;
+			System.out.println("Simulated " + results.getNumberOfPaths() + " paths in " + elapsedSeconds + " s on "
+					+ engine.numberOfThreads + " threads");
+			System.out.println("Quantile,BreakEvenMonth,NetAt" + engine.holdingMonths + "Months");
+			for (double quantile : new double[]{0.05, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99}){
+				System.out.println(quantile + "," + results.getBreakEvenMonth(quantile) + "," + results.getNetAtHoldingPeriod(quantile));
+			}
+			System.out.println("Probability of breaking even within 5 years: " + results.getProbabilityOfBreakingEvenBy(60));
+			System.out.println("Fraction never breaking even: " + results.getFractionNeverBreakingEven());
+		}
+	}
+}
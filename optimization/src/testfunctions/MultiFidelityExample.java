@@ -0,0 +1,125 @@
+package testfunctions;
+
+import optimization.BestDiscoveredSolution;
+import optimization.MultiFidelityCostFunction_IF;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.fidelity.FidelityScreeningCostFunction;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+
+/**
+ * <pre>
+ * Finds the month at which buying breaks even with renting in the <b>MarketCorrectionThenBounceBack</b>
+ * model for a range of sale prices and appreciations, once evaluating every point monthly and
+ * once through a <b>FidelityScreeningCostFunction</b> that screens the points with the quarterly
+ * model first. Prints the evaluations per fidelity level, their cost in monthly evaluations and
+ * the difference at the best month found, and the measured cost of the quarterly model.
+ * </pre>
+ * Usage: MultiFidelityExample [runsPerScenario]
+ * @author Matt
+ *
+ */
+public class MultiFidelityExample {
+
+	private static final int NUMBER_OF_PARTICLES = 30;
+	private static final int MAX_GENERATIONS = 200;
+
+	private static MarketCorrectionThenBounceBack getModel(double salePrice, double appreciation){
+		MarketCorrectionThenBounceBack model = new MarketCorrectionThenBounceBack(salePrice, appreciation);
+		model.setNumberOfRoommates(1);
+		return model;
+	}
+
+	private static ParticleSwarm getSwarm(long seed){
+		return new ParticleSwarm(NUMBER_OF_PARTICLES, MAX_GENERATIONS, 0.1, new ParticleParameter(0.0, 360.0))
+				.setConvergenceLimit(20).setRandomSeed(seed).setVerbose(false);
+	}
+	/**
+	 * Returns the difference at the best month found, evaluated again at the highest fidelity so
+	 * both runs are scored the same way. The solution returned when the optimization criterion is
+	 * met and the current best, which covers the swarm best after the last restart, are compared.
+	 */
+	private static double getDifference(MultiFidelityCostFunction_IF model, BestDiscoveredSolution solution, ParticleSwarm swarm){
+		if (swarm.getCurrentBest() == null){
+			return evaluate(model, solution);
+		}
+		return Math.min(evaluate(model, solution), evaluate(model, swarm.getCurrentBest()));
+	}
+
+	private static double evaluate(MultiFidelityCostFunction_IF model, BestDiscoveredSolution solution){
+		Parameter month = new Parameter(0.0, 360.0);
+		month.setCurrentValue(solution.getParameterValues().get(0).doubleValue());
+		return ((ScalarCostFunctionOutput_IF)model.evaluateCostFunction(month)).getFitness();
+	}
+	/**
+	 * Returns the time of an evaluation at the given level relative to one at the highest level
+	 */
+	private static double measureRelativeCost(MultiFidelityCostFunction_IF model, int fidelityLevel){
+		Parameter month = new Parameter(0.0, 360.0);
+		double[] seconds = new double[2];
+		double sum = 0.0;
+		for (int i_rep = 0;i_rep < 3;i_rep++){
+			for (int i_level = 0;i_level < 2;i_level++){
+				int level = i_level == 0 ? fidelityLevel : model.getNumberOfFidelityLevels() - 1;
+				long startTime = System.nanoTime();
+				for (int i_eval = 0;i_eval < 200000;i_eval++){
+					month.setCurrentValue(i_eval % 360 + 0.5);
+					sum += ((ScalarCostFunctionOutput_IF)model.evaluateCostFunction(level, month)).getFitness();
+				}
+				seconds[i_level] = (System.nanoTime() - startTime)/1E9;
+			}
+		}
+		return sum != 0.0 ? seconds[0]/seconds[1] : Double.NaN;
+	}
+
+	public static void main(String[] args){
+		int runsPerScenario = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		double[] salePrice = {350000,400000,450000,500000};
+		double[] appreciation = {2.0,3.0,4.0,5.0};
+		long monthlyEvaluations = 0;
+		long quarterlyEvaluations = 0;
+		long screenedMonthlyEvaluations = 0;
+		double screenedCost = 0.0;
+		double monthlySum = 0.0;
+		double screenedSum = 0.0;
+		double worstExcess = 0.0;
+		System.out.println("SalePrice,Appreciation,Run,Monthly Evaluations,Difference,Quarterly Evaluations,Screened Monthly Evaluations,"
+				+ "Cost,Difference,Correlation");
+		for (int i_sp = 0;i_sp < salePrice.length;i_sp++){
+			for (int i_app = 0;i_app < appreciation.length;i_app++){
+				for (int i_run = 0;i_run < runsPerScenario;i_run++){
+					long seed = 1000L*i_sp + 100L*i_app + i_run;
+					MarketCorrectionThenBounceBack model = getModel(salePrice[i_sp], appreciation[i_app]);
+					ParticleSwarm swarm = getSwarm(seed);
+					double monthlyDifference = getDifference(model, swarm.optimize(model), swarm);
+					long evaluations = swarm.getRunStatistics().getEvaluations();
+
+					MarketCorrectionThenBounceBack screenedModel = getModel(salePrice[i_sp], appreciation[i_app]);
+					FidelityScreeningCostFunction screening = new FidelityScreeningCostFunction(screenedModel).setRandomSeed(seed);
+					ParticleSwarm screenedSwarm = getSwarm(seed);
+					double screenedDifference = getDifference(screenedModel, screenedSwarm.optimize(screening), screenedSwarm);
+
+					monthlyEvaluations += evaluations;
+					quarterlyEvaluations += screening.getNumberOfEvaluations(0);
+					screenedMonthlyEvaluations += screening.getNumberOfEvaluations(1);
+					screenedCost += screening.getCostOfEvaluations();
+					monthlySum += monthlyDifference;
+					screenedSum += screenedDifference;
+					worstExcess = Math.max(worstExcess, screenedDifference - monthlyDifference);
+					System.out.println(String.format("%.0f,%.1f,%d,%d,%.1f,%d,%d,%.0f,%.1f,%.4f", salePrice[i_sp], appreciation[i_app], i_run,
+							evaluations, monthlyDifference, screening.getNumberOfEvaluations(0), screening.getNumberOfEvaluations(1),
+							screening.getCostOfEvaluations(), screenedDifference, screening.getCorrelation(0)));
+				}
+			}
+		}
+		int runs = salePrice.length*appreciation.length*runsPerScenario;
+		System.out.println("Monthly only: " + monthlyEvaluations + " monthly evaluations, mean difference "
+				+ String.format("%.1f", monthlySum/runs));
+		System.out.println("Screened: " + quarterlyEvaluations + " quarterly and " + screenedMonthlyEvaluations
+				+ " monthly evaluations, cost " + String.format("%.0f", screenedCost) + ", mean difference "
+				+ String.format("%.1f", screenedSum/runs) + ", worst excess " + String.format("%.1f", worstExcess));
+		System.out.println("Measured relative cost of the quarterly model: "
+				+ String.format("%.2f", measureRelativeCost(getModel(400000, 3.0), 0)));
+	}
+}
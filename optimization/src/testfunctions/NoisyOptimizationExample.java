@@ -0,0 +1,107 @@
+package testfunctions;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.Parameter;
+import optimization.noise.NoisyCostFunction;
+import optimization.pso.CoefficientControl;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+
+/**
+ * <pre>
+ * Optimizes a sphere function with additive Gaussian noise using single samples, a fixed number
+ * of replicates per point and racing with adaptive replicates (<b>NoisyCostFunction</b>). For every
+ * mode the true (noise free) value of the returned best solution and the number of samples used
+ * are printed, averaged over the runs.
+ * </pre>
+ * <pre>
+ * The seed of every run only fixes the swarm's own draws. The noise is drawn from
+ * <b>ThreadLocalRandom</b> on the sampling threads, so the averages change from one invocation
+ * to the next. Seven invocations with 20 runs and a noise standard deviation of 1 gave:
+ * 	single sample           0.37 - 0.56   3,000 samples
+ * 	fixed 10 replicates     0.12 - 0.17   30,000 samples
+ * 	racing 2-10 replicates  0.10 - 0.15   15,500 - 16,400 samples
+ * Compare the modes within one invocation rather than with figures from an earlier one.
+ * </pre>
+ * Usage: NoisyOptimizationExample [numberOfRuns] [noiseStandardDeviation]
+ * @author Matt
+ *
+ */
+public class NoisyOptimizationExample {
+
+	private static final int DIMENSIONS = 5;
+
+	/**
+	 * Sphere function with additive Gaussian noise
+	 */
+	public static class NoisySphere implements CostFunction_IF{
+		private final double noiseStandardDeviation;
+		public NoisySphere(double noiseStandardDeviation){
+			this.noiseStandardDeviation = noiseStandardDeviation;
+		}
+
+		@Override
+		public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+			double noise = noiseStandardDeviation*ThreadLocalRandom.current().nextGaussian();
+			return new ConvergenceBenchmark.TargetOutput(getTrueValue(parameters) + noise, Double.NEGATIVE_INFINITY);
+		}
+
+		public static double getTrueValue(Parameter... parameters){
+			double sum = 0.0;
+			for (Parameter parameter : parameters){
+				double x = parameter.getCurrentValueAsDouble();
+				sum += x*x;
+			}
+			return sum;
+		}
+	}
+
+	private static double run(CostFunction_IF costFunction, long[] samples, long seed){
+		ParticleParameter[] parameters = new ParticleParameter[DIMENSIONS];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			parameters[i_param] = new ParticleParameter(-5.12, 5.12);
+		}
+		ParticleSwarm swarm = new ParticleSwarm(20, 150, 0.1, parameters)
+				.setCoefficientControl(CoefficientControl.constriction(2.05, 2.05))
+				.setConvergenceLimit(Integer.MAX_VALUE)
+				.setRandomSeed(seed)
+				.setVerbose(false)
+				.addEvaluationListener((generation, evaluated, output) -> samples[0]++);
+		BestDiscoveredSolution solution = swarm.optimize(costFunction);
+		return NoisySphere.getTrueValue(solution.getParameters().toArray(new Parameter[0]));
+	}
+
+	public static void main(String[] args){
+		int numberOfRuns = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		double noiseStandardDeviation = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+		NoisySphere noisySphere = new NoisySphere(noiseStandardDeviation);
+		String[] modes = {"single sample", "fixed 10 replicates", "racing 2-10 replicates"};
+		System.out.println("Mode,Mean True Value Of Best,Mean Samples");
+		for (int i_mode = 0;i_mode < modes.length;i_mode++){
+			double trueValueSum = 0.0;
+			long sampleSum = 0;
+			for (int i_run = 0;i_run < numberOfRuns;i_run++){
+				long[] samples = new long[1];
+				if (i_mode == 0){
+					trueValueSum += run(noisySphere, samples, i_run);
+					sampleSum += samples[0];
+					continue;
+				}
+				try (NoisyCostFunction noisyCostFunction = new NoisyCostFunction(noisySphere, Runtime.getRuntime().availableProcessors())){
+					if (i_mode == 1){
+						noisyCostFunction.setSamples(10, 10);
+					} else {
+						noisyCostFunction.setSamples(2, 10);
+					}
+					trueValueSum += run(noisyCostFunction, samples, i_run);
+					sampleSum += noisyCostFunction.getNumberOfSamples();
+				}
+			}
+			System.out.println(modes[i_mode] + "," + trueValueSum/numberOfRuns + "," + sampleSum/numberOfRuns);
+		}
+	}
+}
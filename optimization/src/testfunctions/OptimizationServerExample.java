@@ -0,0 +1,77 @@
+package testfunctions;
+
+import java.io.IOException;
+import java.util.Map;
+
+import optimization.CostFunction_IF;
+import optimization.Optimizer_IF;
+import optimization.pso.CoefficientControl;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+import optimization.server.JobFactory_IF;
+import optimization.server.OptimizationHttpFrontEnd;
+import optimization.server.OptimizationServer;
+
+/**
+ * <pre>
+ * Starts an <b>OptimizationServer</b> with an HTTP front end on the given port (default 8080)
+ * serving the "categorical" and "sphere" test problems. Example session:
+ * 	curl -X POST 'localhost:8080/jobs?type=sphere&amp;priority=2&amp;particles=30&amp;generations=2000'
+ * 	curl localhost:8080/jobs/1
+ * 	curl localhost:8080/jobs/1/progress
+ * 	curl -X DELETE localhost:8080/jobs/1
+ * </pre>
+ * @author Matt
+ *
+ */
+public class OptimizationServerExample {
+
+	private static int getSetting(Map<String,String> settings, String name, int defaultValue){
+		return settings.containsKey(name) ? Integer.parseInt(settings.get(name)) : defaultValue;
+	}
+
+	private static ParticleSwarm createSwarm(Map<String,String> settings, double maxDecPercRangePerOptStep, ParticleParameter... parameters){
+		return new ParticleSwarm(getSetting(settings, "particles", 30), getSetting(settings, "generations", 1000),
+				maxDecPercRangePerOptStep, parameters)
+				.setCoefficientControl(CoefficientControl.constriction(2.05, 2.05))
+				.setVerbose(false);
+	}
+
+	public static void main(String[] args) throws IOException{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		OptimizationServer server = new OptimizationServer();
+		OptimizationHttpFrontEnd frontEnd = new OptimizationHttpFrontEnd(server)
+				.registerJobType("categorical", new JobFactory_IF(){
+					@Override
+					public CostFunction_IF createCostFunction(Map<String, String> settings) {
+						return new TestCategoricalOptimization();
+					}
+
+					@Override
+					public Optimizer_IF createOptimizer(Map<String, String> settings) {
+						return createSwarm(settings, 0.01,
+								new ParticleParameter("mccormick","beale","himmelblau","crossintray","holdertable"),
+								new ParticleParameter(-10.0,10.0),
+								new ParticleParameter(-10.0,10.0));
+					}
+				})
+				.registerJobType("sphere", new JobFactory_IF(){
+					@Override
+					public CostFunction_IF createCostFunction(Map<String, String> settings) {
+						return new ConvergenceBenchmark.Sphere();
+					}
+
+					@Override
+					public Optimizer_IF createOptimizer(Map<String, String> settings) {
+						ParticleParameter[] parameters = new ParticleParameter[getSetting(settings, "dimensions", 10)];
+						for (int i_param = 0;i_param < parameters.length;i_param++){
+							parameters[i_param] = new ParticleParameter(-5.12, 5.12);
+						}
+						return createSwarm(settings, 0.1, parameters);
+					}
+				})
+				.start(port);
+		System.out.println("Optimization server listening on port " + frontEnd.getPort() + " with "
+				+ server.getNumberOfWorkers() + " evaluation workers");
+	}
+}
@@ -0,0 +1,84 @@
+package testfunctions;
+
+import optimization.BestDiscoveredSolution;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.expression.ExpressionCostFunction;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+import optimization.sa.ParallelTempering;
+
+/**
+ * <pre>
+ * Compares <b>ParallelTempering</b> with the <b>ParticleSwarm</b> on the rugged Eggholder and
+ * Holder table functions with the same evaluation budget, counting the runs that get within a
+ * small distance of the global minimum, and prints the evaluation throughput of the tempering
+ * for increasing numbers of replicas.
+ * </pre>
+ * Usage: ParallelTemperingExample [runs] [evaluationBudget]
+ * @author Matt
+ *
+ */
+public class ParallelTemperingExample {
+
+	static final String EGGHOLDER = "-(y + 47)*sin(sqrt(abs(x/2 + y + 47))) - x*sin(sqrt(abs(x - (y + 47))))";
+	static final double EGGHOLDER_MINIMUM = -959.6407;
+	static final String HOLDER_TABLE = "-abs(sin(x)*cos(y)*exp(abs(1 - hypot(x, y)/pi)))";
+	static final double HOLDER_TABLE_MINIMUM = -19.2085;
+
+	private static ParticleParameter[] getParameters(double bound){
+		return new ParticleParameter[]{new ParticleParameter(-bound, bound), new ParticleParameter(-bound, bound)};
+	}
+
+	private static double getValue(BestDiscoveredSolution solution){
+		return ((ScalarCostFunctionOutput_IF)solution.getCostFunctionOutput()).getFitness();
+	}
+
+	private static void compare(String name, String expression, double bound, double minimum, int runs, int evaluationBudget){
+		ExpressionCostFunction costFunction = new ExpressionCostFunction(expression, new String[]{"x","y"}, getParameters(bound))
+				.setTarget(minimum + 1E-3*Math.abs(minimum));
+		int numberOfReplicas = 4;
+		int numberOfParticles = 40;
+		int temperingSuccesses = 0;
+		int swarmSuccesses = 0;
+		double temperingSum = 0.0;
+		double swarmSum = 0.0;
+		for (int i_run = 0;i_run < runs;i_run++){
+			ParallelTempering tempering = new ParallelTempering(numberOfReplicas, evaluationBudget/numberOfReplicas, getParameters(bound))
+					.setVerbose(false);
+			double temperingValue = getValue(tempering.optimize(costFunction));
+			ParticleSwarm swarm = new ParticleSwarm(numberOfParticles, evaluationBudget/numberOfParticles, 0.1, getParameters(bound))
+					.setVerbose(false);
+			double swarmValue = getValue(swarm.optimize(costFunction));
+			temperingSum += temperingValue;
+			swarmSum += swarmValue;
+			if (temperingValue < minimum + 1E-2*Math.abs(minimum)){
+				temperingSuccesses++;
+			}
+			if (swarmValue < minimum + 1E-2*Math.abs(minimum)){
+				swarmSuccesses++;
+			}
+		}
+		System.out.println(name + ",tempering," + temperingSuccesses + "/" + runs + "," + temperingSum/runs);
+		System.out.println(name + ",swarm," + swarmSuccesses + "/" + runs + "," + swarmSum/runs);
+	}
+
+	public static void main(String[] args){
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int evaluationBudget = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		System.out.println("Function,Optimizer,Runs Within 1%,Mean Best Value");
+		compare("eggholder", EGGHOLDER, 512.0, EGGHOLDER_MINIMUM, runs, evaluationBudget);
+		compare("holdertable", HOLDER_TABLE, 10.0, HOLDER_TABLE_MINIMUM, runs, evaluationBudget);
+		System.out.println("Processors: " + Runtime.getRuntime().availableProcessors());
+		System.out.println("Replicas,Evaluations/s");
+		Parameter[] parameters = getParameters(512.0);
+		ExpressionCostFunction costFunction = new ExpressionCostFunction(EGGHOLDER, new String[]{"x","y"}, parameters);
+		for (int numberOfReplicas = 1;numberOfReplicas <= 2*Runtime.getRuntime().availableProcessors();numberOfReplicas *= 2){
+			ParallelTempering tempering = new ParallelTempering(numberOfReplicas, 500000, parameters).setVerbose(false);
+			long startTime = System.nanoTime();
+			tempering.optimize(costFunction);
+			double seconds = (System.nanoTime() - startTime)/1E9;
+			System.out.println(numberOfReplicas + "," + Math.round(tempering.getRunStatistics().getEvaluations()/seconds));
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package testfunctions;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+import testfunctions.MarketScenarioEngine.Distribution;
+import testfunctions.MarketScenarioEngine.ScenarioResults;
+
+/**
+ * <pre>
+ * Cost function that chooses the down payment and number of roommates for a home minimizing a
+ * quantile (the 90th percentile by default) of the break-even month over the market scenarios
+ * of a <b>MarketScenarioEngine</b>. Every evaluation simulates the same paths (common random
+ * numbers), so differences between evaluations come from the parameters and not from sampling.
+ * </pre>
+ * Parameters: down payment (Double), number of roommates (Integer)
+ * @author Matt
+ *
+ */
+public class ScenarioRiskCostFunction implements CostFunction_IF{
+
+	private final MarketScenarioEngine engine;
+	private final double salePrice;
+	private final double rateOfAppreciation;
+	private double quantile = 0.9;
+	private double targetMonths = 0.0;
+
+	public ScenarioRiskCostFunction(MarketScenarioEngine engine, double salePrice, double rateOfAppreciation){
+		this.engine = engine;
+		this.salePrice = salePrice;
+		this.rateOfAppreciation = rateOfAppreciation;
+	}
+	/**
+	 * Sets the quantile of the break-even month that is minimized
+	 * @param quantile
+	 * @return
+	 */
+	public ScenarioRiskCostFunction setQuantile(double quantile){
+		this.quantile = quantile;
+		return this;
+	}
+	/**
+	 * Sets the break-even month at or below which the optimization criterion is satisfied
+	 * @param targetMonths
+	 * @return
+	 */
+	public ScenarioRiskCostFunction setTargetMonths(double targetMonths){
+		this.targetMonths = targetMonths;
+		return this;
+	}
+
+	@Override
+	public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+		MarketCorrectionThenBounceBack model = new MarketCorrectionThenBounceBack(salePrice, rateOfAppreciation);
+		model.setDownPayment(parameters[0].getCurrentValueAsDouble());
+		model.setNumberOfRoommates((int)Math.round(parameters[1].getCurrentValueAsDouble()));
+		ScenarioResults results = engine.simulate(model);
+		return new ScenarioRiskOutput(results.getBreakEvenMonth(quantile), results.getFractionNeverBreakingEven(), targetMonths);
+	}
+
+	public static class ScenarioRiskOutput implements ScalarCostFunctionOutput_IF{
+		double breakEvenMonth;
+		double fractionNeverBreakingEven;
+		double targetMonths;
+
+		public ScenarioRiskOutput(double breakEvenMonth, double fractionNeverBreakingEven, double targetMonths){
+			this.breakEvenMonth = breakEvenMonth;
+			this.fractionNeverBreakingEven = fractionNeverBreakingEven;
+			this.targetMonths = targetMonths;
+		}
+
+		public double getBreakEvenMonth(){
+			return breakEvenMonth;
+		}
+
+		public double getFractionNeverBreakingEven(){
+			return fractionNeverBreakingEven;
+		}
+
+		@Override
+		public double getFitness() {
+			return breakEvenMonth;
+		}
+
+		@Override
+		public boolean isNewCostFunctionOutputBetter(CostFunctionOutput_IF newCFOutput) {
+			return ((ScenarioRiskOutput)newCFOutput).getBreakEvenMonth() < breakEvenMonth;
+		}
+
+		@Override
+		public boolean isOptimizationCriterionSatisified() {
+			return breakEvenMonth <= targetMonths;
+		}
+
+		@Override
+		public boolean isSolutionWithinRestraints() {
+			return true;
+		}
+
+		@Override
+		public void printOutput() {
+			System.out.println(getOutputAsString());
+		}
+
+		@Override
+		public String getOutputAsString() {
+			return "Break-even month: " + breakEvenMonth + " ; Never breaking even: " + fractionNeverBreakingEven;
+		}
+	}
+
+	public static void main(String[] args){
+		long numberOfPaths = args.length > 0 ? Long.parseLong(args[0]) : 20000;
+		try (MarketScenarioEngine engine = new MarketScenarioEngine()){
+			engine.setCorrectionPercPerYear(Distribution.triangular(0.0, 8.0, 25.0))
+				.setMonthsCorrection(Distribution.uniform(0.0, 36.0))
+				.setRateOfAppreciation(Distribution.normal(3.0, 1.5))
+				.setRentGrowth(Distribution.normal(3.0, 1.0))
+				.setInterestRate(Distribution.truncatedNormal(4.0, 1.0, 2.0, 8.0))
+				.setPaths(numberOfPaths, 42);
+			ScenarioRiskCostFunction costFunction = new ScenarioRiskCostFunction(engine, 400000.0, 2.5);
+			ParticleSwarm pso = new ParticleSwarm(20, 30, 0.1, new ParticleParameter(15000.0, 100000.0), new ParticleParameter(0, 2))
+					.setConvergenceLimit(10)
+					.setVerbose(false);
+			BestDiscoveredSolution solution = pso.optimize(costFunction);
+			solution.printSolution();
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package testfunctions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunction_IF;
+import optimization.OptUtils;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+import optimization.tuning.ParticleSwarmTuner;
+import optimization.tuning.TunedProfile;
+
+/**
+ * <pre>
+ * Tunes the <b>ParticleSwarm</b> settings for two classes of test functions (the categorical
+ * problem and the continuous spheres) with the <b>ParticleSwarmTuner</b>, saves one profile per
+ * class and compares each with the hand picked settings
+ * (30 particles, a velocity limit of 1% of the range and the default convergence limit) on new
+ * seeds. The number of runs reaching the target, the median number of evaluations needed and
+ * the median best value of the runs that returned a solution are printed for every problem.
+ * </pre>
+ * <pre>
+ * Before tuning, two swarms with the same seed are run at the same time with a convergence limit
+ * low enough to restart them often, and their evaluated positions are compared. The races rely on
+ * every candidate of a block seeing the same random draws.
+ * </pre>
+ * Usage: SwarmTuningExample [profileDirectory] [tuningBudget]
+ * @author Matt
+ *
+ */
+public class SwarmTuningExample {
+
+	private static final long EVALUATIONS_PER_RUN = 15000;
+	private static final int NUMBER_OF_RUNS = 20;
+
+	private static ParticleParameter[] getCategoricalParameters(){
+		return new ParticleParameter[]{
+				new ParticleParameter("mccormick","beale","himmelblau","crossintray","holdertable"),
+				new ParticleParameter(-10.0,10.0),
+				new ParticleParameter(-10.0,10.0)};
+	}
+
+	private static ParticleParameter[] getSphereParameters(){
+		ParticleParameter[] parameters = new ParticleParameter[10];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			parameters[i_param] = new ParticleParameter(-5.12, 5.12);
+		}
+		return parameters;
+	}
+
+	private static ParticleParameter[] getMixedParameters(){
+		ParticleParameter[] parameters = new ParticleParameter[10];
+		for (int i_param = 0;i_param < parameters.length;i_param++){
+			parameters[i_param] = i_param % 2 == 0 ? new ParticleParameter(-100, 100) : new ParticleParameter(-100.0, 100.0);
+		}
+		return parameters;
+	}
+
+	private static String compare(TunedProfile profile, CostFunction_IF costFunction, ParticleParameter[] parameters){
+		long[] evaluationsToTarget = new long[NUMBER_OF_RUNS];
+		double[] bestValues = new double[NUMBER_OF_RUNS];
+		for (int i_run = 0;i_run < NUMBER_OF_RUNS;i_run++){
+			long[] evaluations = new long[1];
+			ParticleSwarm swarm = profile.createSwarm((ParticleParameter[])OptUtils.cloneParameterArray(parameters))
+					.setRandomSeed(1000 + i_run)
+					.setVerbose(false)
+					.addEvaluationListener((generation, params, output) -> evaluations[0]++);
+			BestDiscoveredSolution solution = swarm.optimize(costFunction);
+			boolean reached = solution != null && solution.getCostFunctionOutput().isOptimizationCriterionSatisified();
+			evaluationsToTarget[i_run] = reached ? evaluations[0] : -1;
+			bestValues[i_run] = solution != null ? ((ScalarCostFunctionOutput_IF)solution.getCostFunctionOutput()).getFitness() : Double.NaN;
+		}
+		long[] successful = Arrays.stream(evaluationsToTarget).filter((evaluations) -> evaluations >= 0).sorted().toArray();
+		String median = successful.length > 0 ? String.valueOf(successful[successful.length/2]) : "-";
+		double[] foundValues = Arrays.stream(bestValues).filter((value) -> !Double.isNaN(value)).sorted().toArray();
+		String medianValue = foundValues.length > 0 ? String.valueOf(foundValues[foundValues.length/2]) : "-";
+		return successful.length + "/" + NUMBER_OF_RUNS + "," + median + "," + medianValue;
+	}
+
+	/**
+	 * Runs a swarm with the given seed and returns the parameter values of every evaluation in order
+	 */
+	private static List<List<Number>> getTrajectory(long seed){
+		List<List<Number>> trajectory = new ArrayList<List<Number>>();
+		new ParticleSwarm(20, 100, 0.05, getCategoricalParameters())
+				.setConvergenceLimit(3)
+				.setRandomSeed(seed)
+				.setVerbose(false)
+				.addEvaluationListener((generation, params, output) -> {
+					List<Number> values = new ArrayList<Number>();
+					for (int i_param = 0;i_param < params.length;i_param++){
+						values.add(params[i_param].getCurrentValue());
+					}
+					trajectory.add(values);
+				})
+				.optimize(new TestCategoricalOptimization());
+		return trajectory;
+	}
+
+	private static void checkReproducibility(){
+		CompletableFuture<List<List<Number>>> first = CompletableFuture.supplyAsync(() -> getTrajectory(42));
+		CompletableFuture<List<List<Number>>> second = CompletableFuture.supplyAsync(() -> getTrajectory(42));
+		boolean reproducible = first.join().equals(second.join());
+		System.out.println("Same seed, same trajectory: " + reproducible + " (" + first.join().size() + " evaluations)");
+		if (!reproducible){
+			throw new IllegalStateException("Swarms with the same seed followed different trajectories");
+		}
+	}
+
+	private static TunedProfile tune(String problemClass, Path profileDirectory, int tuningBudget, ParticleSwarmTuner tuner) throws IOException{
+		TunedProfile profile = tuner.addCandidate(30, 0.01, 5)
+				.setStepRange(0.0005, 0.5)
+				.setTuningBudget(tuningBudget)
+				.setRandomSeed(1)
+				.tune();
+		Path profileFile = profileDirectory.resolve(problemClass + "-swarm.properties");
+		profile.save(profileFile);
+		System.out.println("Saved " + TunedProfile.load(profileFile) + " to " + profileFile);
+		return profile;
+	}
+
+	public static void main(String[] args) throws IOException{
+		Path profileDirectory = Paths.get(args.length > 0 ? args[0] : ".");
+		int tuningBudget = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+		checkReproducibility();
+		TunedProfile categoricalProfile = tune("categorical", profileDirectory, tuningBudget,
+				new ParticleSwarmTuner("categorical", EVALUATIONS_PER_RUN)
+					.addInstance(new TestCategoricalOptimization(), getCategoricalParameters()));
+		TunedProfile continuousProfile = tune("continuous", profileDirectory, tuningBudget,
+				new ParticleSwarmTuner("continuous", EVALUATIONS_PER_RUN)
+					.addInstance(new ConvergenceBenchmark.Sphere(), getSphereParameters())
+					.addInstance(new ConvergenceBenchmark.MixedSphere(), getMixedParameters()));
+		TunedProfile handProfile = new TunedProfile("hand", 30, (int)(EVALUATIONS_PER_RUN/30), 0.01, 5);
+		System.out.println("Problem,Profile,Runs Reaching Target,Median Evaluations,Median Best Value");
+		System.out.println("categorical,hand," + compare(handProfile, new TestCategoricalOptimization(), getCategoricalParameters()));
+		System.out.println("categorical,tuned," + compare(categoricalProfile, new TestCategoricalOptimization(), getCategoricalParameters()));
+		System.out.println("sphere-10,hand," + compare(handProfile, new ConvergenceBenchmark.Sphere(), getSphereParameters()));
+		System.out.println("sphere-10,tuned," + compare(continuousProfile, new ConvergenceBenchmark.Sphere(), getSphereParameters()));
+		System.out.println("mixed-10,hand," + compare(handProfile, new ConvergenceBenchmark.MixedSphere(), getMixedParameters()));
+		System.out.println("mixed-10,tuned," + compare(continuousProfile, new ConvergenceBenchmark.MixedSphere(), getMixedParameters()));
+	}
+}
@@ -1,104 +1,256 @@
-package testfunctions;
-
-import optimization.BestDiscoveredSolution;
-import optimization.CostFunctionOutput_IF;
-import optimization.CostFunction_IF;
-import optimization.Parameter;
-import optimization.pso.ParticleParameter;
-import optimization.pso.ParticleSwarm;
-
-public class TestCategoricalOptimization implements CostFunction_IF{
-	//Here the expected outputs 
-	@Override
-	public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
-		String categorical = parameters[0].decode(parameters[0].getCurrentValue().intValue());
-		
-		
-		double x = parameters[1].getCurrentValueAsDouble();
-		double y = parameters[2].getCurrentValueAsDouble();
-		double funcValue = 0.0;
-		
-		switch(categorical){
-		case "mccormick":
-			funcValue = Math.sin(x+y) + Math.pow(x-y,2.0) -1.5*x + 2.5*y + 1.0;
-			break;
-		case "beale":
-			funcValue = Math.pow(1.5 - x + x*y,2.0) 
-			+ Math.pow(2.25 - x + x*Math.pow(y, 2.0),2.0) 
-			+ Math.pow(2.625 - x + x* Math.pow(y,3.0),2.0);
-			break;
-		case "himmelblau":
-			funcValue = Math.pow(Math.pow(x, 2.0) + y - 11.0, 2) + Math.pow(Math.pow(y, 2.0) + x - 7.0, 2);
-			break;
-		case "eggholder":
-			funcValue = -(y + 47.0)*Math.sin(Math.sqrt(Math.abs(x/2.0 + y + 47.0))) - x*Math.sin(Math.sqrt(Math.abs(x - y - 47.0)));
-			break;
-		case "crossintray":
-			funcValue = -0.0001*Math.pow(Math.abs(Math.sin(x)*Math.sin(y)*Math.exp(Math.abs(100 - Math.hypot(x, y)/Math.PI))) + 1, 0.1);
-			break;
-		case "holdertable":
-			funcValue = -Math.abs(Math.sin(x)*Math.cos(y)*Math.exp(Math.abs(1 - Math.hypot(x,y)/Math.PI)));
-		}
-		
-		return new CategoricalOutput(funcValue);
-	}
-	
-	public static class CategoricalOutput implements CostFunctionOutput_IF{
-		double value = 0.0;
-		public CategoricalOutput(double value){
-			this.value = value;
-		}
-		
-		public double getValue() {
-			return value;
-		}
-
-		@Override
-		public boolean isNewCostFunctionOutputBetter(
-				CostFunctionOutput_IF newCFOutput) {
-			if (((CategoricalOutput)newCFOutput).getValue() < this.getValue() &&
-					isSolutionWithinRestraints()){
-				return true;
-			}
-			return false;
-		}
-
-		@Override
-		public boolean isOptimizationCriterionSatisified() {
-			if (value < -19.208){
-				return true;
-			}
-			return false;
-		}
-
-		@Override
-		public void printOutput() {
-			// TODO Auto-generated method stub
-			
-		}
-
-		@Override
-		public String getOutputAsString() {
-			
-			return String.valueOf(value);
-		}
-
-		@Override
-		public boolean isSolutionWithinRestraints() {
-			return true;
-		}
-		
-	}
-	
-	
-	
-	public static void main(String[] args){
-		ParticleSwarm swarm = new ParticleSwarm(30,5000,0.01,
-				new ParticleParameter("mccormick","beale","himmelblau","crossintray","holdertable"), 
-				new ParticleParameter(-10.0,10.0),
-				new ParticleParameter(-10.0,10.0)).setOptimizationToRunForPeriodOfTime(5);
-		BestDiscoveredSolution solution = swarm.optimize(new TestCategoricalOptimization());
-		solution.printSolution();
-		
-	}
-}
+package testfunctions;
+
+import optimization.BatchCostFunction_IF;
+import optimization.BestDiscoveredSolution;
+import optimization.CostFunctionOutput_IF;
+import optimization.CostFunction_IF;
+import optimization.Parameter;
+import optimization.ScalarCostFunctionOutput_IF;
+import optimization.pso.ParticleParameter;
+import optimization.pso.ParticleSwarm;
+
+/**
+ * <pre>
+ * Optimizes over a categorical choice of analytic test function and its two inputs. The
+ * functions are also evaluated in batches (<b>BatchCostFunction_IF</b>): the points of a batch
+ * are grouped by function and each function is evaluated in a tight loop over primitive arrays
+ * that the JIT compiler can unroll and vectorize.
+ * </pre>
+ * @author Matt
+ *
+ */
+public class TestCategoricalOptimization implements BatchCostFunction_IF{
+
+	private static final int MCCORMICK = 0;
+	private static final int BEALE = 1;
+	private static final int HIMMELBLAU = 2;
+	private static final int EGGHOLDER = 3;
+	private static final int CROSSINTRAY = 4;
+	private static final int HOLDERTABLE = 5;
+	private static final int UNKNOWN = 6;
+
+	//Here the expected outputs 
+	@Override
+	public CostFunctionOutput_IF evaluateCostFunction(Parameter... parameters) {
+		String categorical = parameters[0].decode(parameters[0].getCurrentValue().intValue());
+		
+		
+		double x = parameters[1].getCurrentValueAsDouble();
+		double y = parameters[2].getCurrentValueAsDouble();
+		double funcValue = 0.0;
+		
+		switch(getFunctionIndex(categorical)){
+		case MCCORMICK:
+			funcValue = mccormick(x, y);
+			break;
+		case BEALE:
+			funcValue = beale(x, y);
+			break;
+		case HIMMELBLAU:
+			funcValue = himmelblau(x, y);
+			break;
+		case EGGHOLDER:
+			funcValue = eggholder(x, y);
+			break;
+		case CROSSINTRAY:
+			funcValue = crossintray(x, y);
+			break;
+		case HOLDERTABLE:
+			funcValue = holdertable(x, y);
+		}
+		
+		return new CategoricalOutput(funcValue);
+	}
+
+	@Override
+	public CostFunctionOutput_IF[] evaluateBatch(Parameter[] parameters, double[][] values, int numberOfPoints) {
+		//Decode every category once instead of once per point
+		int numberOfCategories = parameters[0].categoricalMap.size();
+		int[] functionOfCode = new int[numberOfCategories];
+		for (int i_code = 0;i_code < numberOfCategories;i_code++){
+			functionOfCode[i_code] = getFunctionIndex(parameters[0].decode(i_code));
+		}
+		//Gather the points of every function into contiguous arrays
+		int[] pointsPerFunction = new int[UNKNOWN + 1];
+		int[] functionOfPoint = new int[numberOfPoints];
+		for (int i_point = 0;i_point < numberOfPoints;i_point++){
+			functionOfPoint[i_point] = functionOfCode[(int)values[0][i_point]];
+			pointsPerFunction[functionOfPoint[i_point]]++;
+		}
+		int[] firstPointOfFunction = new int[UNKNOWN + 2];
+		for (int i_func = 0;i_func <= UNKNOWN;i_func++){
+			firstPointOfFunction[i_func + 1] = firstPointOfFunction[i_func] + pointsPerFunction[i_func];
+		}
+		int[] nextPosition = firstPointOfFunction.clone();
+		int[] pointAtPosition = new int[numberOfPoints];
+		double[] x = new double[numberOfPoints];
+		double[] y = new double[numberOfPoints];
+		for (int i_point = 0;i_point < numberOfPoints;i_point++){
+			int position = nextPosition[functionOfPoint[i_point]]++;
+			pointAtPosition[position] = i_point;
+			x[position] = values[1][i_point];
+			y[position] = values[2][i_point];
+		}
+		double[] funcValues = new double[numberOfPoints];
+		for (int i_func = 0;i_func < UNKNOWN;i_func++){
+			evaluateFunction(i_func, x, y, funcValues, firstPointOfFunction[i_func], firstPointOfFunction[i_func + 1]);
+		}
+		CostFunctionOutput_IF[] outputs = new CostFunctionOutput_IF[numberOfPoints];
+		for (int i_pos = 0;i_pos < numberOfPoints;i_pos++){
+			outputs[pointAtPosition[i_pos]] = new CategoricalOutput(funcValues[i_pos]);
+		}
+		return outputs;
+	}
+	/**
+	 * Evaluates one function for the points in positions [start, end). Each case is a separate
+	 * loop without branches so it can be compiled into vector instructions where the function
+	 * allows it.
+	 */
+	private static void evaluateFunction(int function, double[] x, double[] y, double[] funcValues, int start, int end){
+		switch(function){
+		case MCCORMICK:
+			for (int i_pos = start;i_pos < end;i_pos++){
+				funcValues[i_pos] = mccormick(x[i_pos], y[i_pos]);
+			}
+			break;
+		case BEALE:
+			for (int i_pos = start;i_pos < end;i_pos++){
+				funcValues[i_pos] = beale(x[i_pos], y[i_pos]);
+			}
+			break;
+		case HIMMELBLAU:
+			for (int i_pos = start;i_pos < end;i_pos++){
+				funcValues[i_pos] = himmelblau(x[i_pos], y[i_pos]);
+			}
+			break;
+		case EGGHOLDER:
+			for (int i_pos = start;i_pos < end;i_pos++){
+				funcValues[i_pos] = eggholder(x[i_pos], y[i_pos]);
+			}
+			break;
+		case CROSSINTRAY:
+			for (int i_pos = start;i_pos < end;i_pos++){
+				funcValues[i_pos] = crossintray(x[i_pos], y[i_pos]);
+			}
+			break;
+		case HOLDERTABLE:
+			for (int i_pos = start;i_pos < end;i_pos++){
+				funcValues[i_pos] = holdertable(x[i_pos], y[i_pos]);
+			}
+		}
+	}
+
+	private static int getFunctionIndex(String categorical){
+		switch(categorical){
+		case "mccormick":
+			return MCCORMICK;
+		case "beale":
+			return BEALE;
+		case "himmelblau":
+			return HIMMELBLAU;
+		case "eggholder":
+			return EGGHOLDER;
+		case "crossintray":
+			return CROSSINTRAY;
+		case "holdertable":
+			return HOLDERTABLE;
+		default:
+			return UNKNOWN;
+		}
+	}
+
+	public static double mccormick(double x, double y){
+		double difference = x - y;
+		return Math.sin(x+y) + difference*difference -1.5*x + 2.5*y + 1.0;
+	}
+
+	public static double beale(double x, double y){
+		double y2 = y*y;
+		double term1 = 1.5 - x + x*y;
+		double term2 = 2.25 - x + x*y2;
+		double term3 = 2.625 - x + x*y2*y;
+		return term1*term1 + term2*term2 + term3*term3;
+	}
+
+	public static double himmelblau(double x, double y){
+		double term1 = x*x + y - 11.0;
+		double term2 = y*y + x - 7.0;
+		return term1*term1 + term2*term2;
+	}
+
+	public static double eggholder(double x, double y){
+		return -(y + 47.0)*Math.sin(Math.sqrt(Math.abs(x/2.0 + y + 47.0))) - x*Math.sin(Math.sqrt(Math.abs(x - y - 47.0)));
+	}
+
+	public static double crossintray(double x, double y){
+		return -0.0001*Math.pow(Math.abs(Math.sin(x)*Math.sin(y)*Math.exp(Math.abs(100 - Math.hypot(x, y)/Math.PI))) + 1, 0.1);
+	}
+
+	public static double holdertable(double x, double y){
+		return -Math.abs(Math.sin(x)*Math.cos(y)*Math.exp(Math.abs(1 - Math.hypot(x,y)/Math.PI)));
+	}
+	
+	public static class CategoricalOutput implements ScalarCostFunctionOutput_IF{
+		double value = 0.0;
+		public CategoricalOutput(double value){
+			this.value = value;
+		}
+		
+		public double getValue() {
+			return value;
+		}
+		
+		@Override
+		public double getFitness() {
+			return value;
+		}
+
+		@Override
+		public boolean isNewCostFunctionOutputBetter(
+				CostFunctionOutput_IF newCFOutput) {
+			if (((CategoricalOutput)newCFOutput).getValue() < this.getValue() &&
+					isSolutionWithinRestraints()){
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public boolean isOptimizationCriterionSatisified() {
+			if (value < -19.208){
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void printOutput() {
+			// TODO Auto-generated method stub
+			
+		}
+
+		@Override
+		public String getOutputAsString() {
+			
+			return String.valueOf(value);
+		}
+
+		@Override
+		public boolean isSolutionWithinRestraints() {
+			return true;
+		}
+		
+	}
+	
+	
+	
+	public static void main(String[] args){
+		ParticleSwarm swarm = new ParticleSwarm(30,5000,0.01,
+				new ParticleParameter("mccormick","beale","himmelblau","crossintray","holdertable"), 
+				new ParticleParameter(-10.0,10.0),
+				new ParticleParameter(-10.0,10.0)).setOptimizationToRunForPeriodOfTime(5);
+		BestDiscoveredSolution solution = swarm.optimize(new TestCategoricalOptimization());
+		solution.printSolution();
+		
+	}
+}